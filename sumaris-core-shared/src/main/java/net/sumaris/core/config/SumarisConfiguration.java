@@ -986,6 +986,27 @@ public class SumarisConfiguration extends PropertyPlaceholderConfigurer {
         return applicationConfig.getOptionAsInt(SumarisConfigurationOption.LOCK_TIMEOUT.getKey());
     }
 
+    /**
+     * Should the database time be computed from the JVM time (using a calibrated offset) ?
+     */
+    public boolean enableDatabaseClock() {
+        return applicationConfig.getOptionAsBoolean(SumarisConfigurationOption.DATABASE_CLOCK_ENABLED.getKey());
+    }
+
+    /**
+     * Interval (in seconds) between two measures of the database/JVM clock offset
+     */
+    public int getDatabaseClockCalibrationInterval() {
+        return applicationConfig.getOptionAsInt(SumarisConfigurationOption.DATABASE_CLOCK_CALIBRATION_INTERVAL.getKey());
+    }
+
+    /**
+     * Should the database clock return the same timestamp, for the whole transaction ?
+     */
+    public boolean enableDatabaseClockTransactionTimestamp() {
+        return applicationConfig.getOptionAsBoolean(SumarisConfigurationOption.DATABASE_CLOCK_TRANSACTION_TIMESTAMP.getKey());
+    }
+
     public LockModeType getLockModeType() {
         return LockModeType.valueOf(applicationConfig.getOption(SumarisConfigurationOption.LOCK_MODE_TYPE.getKey()));
     }
@@ -1059,6 +1080,55 @@ public class SumarisConfiguration extends PropertyPlaceholderConfigurer {
         return applicationConfig.getOptionAsBoolean(SumarisConfigurationOption.JOB_ENABLED.getKey());
     }
 
+    /**
+     * Max number of jobs running at the same time (all types)
+     */
+    public int getJobSchedulerMaxConcurrency() {
+        return applicationConfig.getOptionAsInt(SumarisConfigurationOption.JOB_SCHEDULER_MAX_CONCURRENCY.getKey());
+    }
+
+    /**
+     * Max number of jobs running at the same time, by job type (e.g. 'SUMARIS_EXTRACTION:2,IMPORTATION:1')
+     */
+    public String getJobSchedulerMaxConcurrencyByType() {
+        return applicationConfig.getOption(SumarisConfigurationOption.JOB_SCHEDULER_MAX_CONCURRENCY_BY_TYPE.getKey());
+    }
+
+    /**
+     * Number of threads used to denormalize trips (0 = half of the available processors)
+     */
+    public int getDataDenormalizationWorkers() {
+        return applicationConfig.getOptionAsInt(SumarisConfigurationOption.DATA_DENORMALIZATION_WORKERS.getKey());
+    }
+
+    /**
+     * Delay (in milliseconds) without any change, before denormalizing the batches of an operation (or a sale)
+     */
+    public int getDenormalizedBatchDebounceMs() {
+        return applicationConfig.getOptionAsInt(SumarisConfigurationOption.DENORMALIZED_BATCH_DEBOUNCE.getKey());
+    }
+
+    /**
+     * Interval (in milliseconds) between two checks of the batches denormalization queue
+     */
+    public int getDenormalizedBatchIntervalMs() {
+        return applicationConfig.getOptionAsInt(SumarisConfigurationOption.DENORMALIZED_BATCH_INTERVAL.getKey());
+    }
+
+    /**
+     * Number of threads used to convert the lines of an imported file (0 = half of the available processors)
+     */
+    public int getImportationWorkers() {
+        return applicationConfig.getOptionAsInt(SumarisConfigurationOption.IMPORTATION_WORKERS.getKey());
+    }
+
+    /**
+     * Number of imported rows saved in the same transaction
+     */
+    public int getImportationChunkSize() {
+        return applicationConfig.getOptionAsInt(SumarisConfigurationOption.IMPORTATION_CHUNK_SIZE.getKey());
+    }
+
     public boolean enableElasticsearch() {
         return applicationConfig.getOptionAsBoolean(SumarisConfigurationOption.ELASTICSEARCH_ENABLED.getKey());
     }
@@ -1067,6 +1137,21 @@ public class SumarisConfiguration extends PropertyPlaceholderConfigurer {
         return enableElasticsearch() && applicationConfig.getOptionAsBoolean(SumarisConfigurationOption.ELASTICSEARCH_VESSEL_SNAPSHOT_ENABLED.getKey());
     }
 
+    public boolean enableLuceneVesselSnapshot() {
+        return applicationConfig.getOptionAsBoolean(SumarisConfigurationOption.LUCENE_VESSEL_SNAPSHOT_ENABLED.getKey());
+    }
+
+    /**
+     * Is vessel snapshots indexation enabled ? (using Elasticsearch, or the embedded Lucene index)
+     */
+    public boolean enableVesselSnapshotIndex() {
+        return enableElasticsearchVesselSnapshot() || enableLuceneVesselSnapshot();
+    }
+
+    public File getLuceneDirectory() {
+        return applicationConfig.getOptionAsFile(SumarisConfigurationOption.LUCENE_DIRECTORY.getKey());
+    }
+
     public List<Integer> getDataVesselTypeIds() {
         return getConfigurationOptionAsNumbers(SumarisConfigurationOption.DATA_VESSEL_TYPE_IDS.getKey());
     }
@@ -1106,6 +1191,20 @@ public class SumarisConfiguration extends PropertyPlaceholderConfigurer {
         return applicationConfig.getOptionAsBoolean(SumarisConfigurationOption.REFERENTIAL_DEFAULT_CACHE_ENABLE.getKey());
     }
 
+    /**
+     * Should weight-length and round weight conversions be resolved from an in-memory index ?
+     */
+    public boolean enableReferentialConversionIndex() {
+        return applicationConfig.getOptionAsBoolean(SumarisConfigurationOption.REFERENTIAL_CONVERSION_INDEX_ENABLE.getKey());
+    }
+
+    /**
+     * Should the location hierarchy be updated on each location association change (instead of a full rebuild) ?
+     */
+    public boolean enableLocationHierarchyIncrementalUpdate() {
+        return applicationConfig.getOptionAsBoolean(SumarisConfigurationOption.REFERENTIAL_LOCATION_HIERARCHY_INCREMENTAL_ENABLE.getKey());
+    }
+
     /* -- protected methods -- */
 
     /**
@@ -247,6 +247,18 @@ public enum SumarisConfigurationOption implements ConfigOptionDef {
         boolean.class,
         false),
 
+    REFERENTIAL_CONVERSION_INDEX_ENABLE("sumaris.referential.conversion.index.enable",
+        n("sumaris.config.option.referential.conversion.index.enable.description"),
+        Boolean.TRUE.toString(),
+        boolean.class,
+        false),
+
+    REFERENTIAL_LOCATION_HIERARCHY_INCREMENTAL_ENABLE("sumaris.referential.location.hierarchy.incremental.enable",
+        n("sumaris.config.option.referential.location.hierarchy.incremental.enable.description"),
+        Boolean.TRUE.toString(),
+        boolean.class,
+        false),
+
     // ------------------------------------------------------------------------//
     // -- DATA CONSTANTS --------------------------------------------------//
     // ------------------------------------------------------------------------//
@@ -257,6 +269,13 @@ public enum SumarisConfigurationOption implements ConfigOptionDef {
         null, // "${sumaris.enumeration.VesselType.FISHING_VESSEL.id}",
         String.class,
         false),
+    DATA_DENORMALIZATION_WORKERS(
+        "sumaris.data.denormalization.workers",
+        n("sumaris.config.option.data.denormalization.workers.description"),
+        "0",
+        Integer.class,
+        false),
+
     DATA_IMAGES_ENABLE("sumaris.data.images.enable",
         n("sumaris.config.option.data.images.enable.description"),
         Boolean.FALSE.toString(),
@@ -277,6 +296,20 @@ public enum SumarisConfigurationOption implements ConfigOptionDef {
         Integer.class,
         false),
 
+    IMPORTATION_WORKERS(
+        "sumaris.importation.workers",
+        n("sumaris.config.option.importation.workers.description"),
+        "0",
+        Integer.class,
+        false),
+
+    IMPORTATION_CHUNK_SIZE(
+        "sumaris.import.chunk.size",
+        n("sumaris.config.option.import.chunk.size.description"),
+        "500",
+        Integer.class,
+        false),
+
     EXPORT_DATA_UPDATE_DATE_DELAY(
         "sumaris.synchro.export.updateDate.offset",
         n("sumaris.config.option.synchro.export.data.updateDate.offset.description"),
@@ -513,6 +546,20 @@ public enum SumarisConfigurationOption implements ConfigOptionDef {
         Boolean.class,
         false),
 
+    JOB_SCHEDULER_MAX_CONCURRENCY(
+        "sumaris.job.scheduler.maxConcurrency",
+        n("sumaris.config.option.job.scheduler.maxConcurrency.description"),
+        String.valueOf(4),
+        Integer.class,
+        false),
+
+    JOB_SCHEDULER_MAX_CONCURRENCY_BY_TYPE(
+        "sumaris.job.scheduler.maxConcurrency.byType",
+        n("sumaris.config.option.job.scheduler.maxConcurrency.byType.description"),
+        "",
+        String.class,
+        false),
+
     /*
      * CLI options
      */
@@ -628,6 +675,41 @@ public enum SumarisConfigurationOption implements ConfigOptionDef {
         "0",
         Integer.class),
 
+    DATABASE_CLOCK_ENABLED(
+        "sumaris.persistence.clock.enabled",
+        n("sumaris.config.option.persistence.clock.enabled.description"),
+        Boolean.TRUE.toString(),
+        Boolean.class,
+        false),
+
+    DATABASE_CLOCK_CALIBRATION_INTERVAL(
+        "sumaris.persistence.clock.calibration.interval",
+        n("sumaris.config.option.persistence.clock.calibration.interval.description"),
+        "300",
+        Integer.class,
+        false),
+
+    DATABASE_CLOCK_TRANSACTION_TIMESTAMP(
+        "sumaris.persistence.clock.transactionTimestamp.enabled",
+        n("sumaris.config.option.persistence.clock.transactionTimestamp.enabled.description"),
+        Boolean.FALSE.toString(),
+        Boolean.class,
+        false),
+
+    DENORMALIZED_BATCH_DEBOUNCE(
+        "sumaris.persistence.denormalizedBatch.debounceMs",
+        n("sumaris.config.option.persistence.denormalizedBatch.debounceMs.description"),
+        "5000",
+        Integer.class,
+        false),
+
+    DENORMALIZED_BATCH_INTERVAL(
+        "sumaris.persistence.denormalizedBatch.intervalMs",
+        n("sumaris.config.option.persistence.denormalizedBatch.intervalMs.description"),
+        "1000",
+        Integer.class,
+        false),
+
     LOCK_MODE_TYPE(
         "javax.persistence.lock.mode",
         n("sumaris.config.option.javax.persistence.lock.mode.description"),
@@ -784,6 +866,20 @@ public enum SumarisConfigurationOption implements ConfigOptionDef {
         "${spring.elasticsearch.enabled}",
         Boolean.class,
         false),
+
+    LUCENE_DIRECTORY(
+        "sumaris.lucene.directory",
+        n("sumaris.config.option.lucene.directory.description"),
+        "${sumaris.data.directory}/lucene",
+        File.class,
+        false),
+
+    LUCENE_VESSEL_SNAPSHOT_ENABLED(
+        "sumaris.lucene.vessel.snapshot.enabled",
+        n("sumaris.config.option.lucene.vessel.snapshot.enabled.description"),
+        Boolean.FALSE.toString(),
+        Boolean.class,
+        false),
     ;
 
     /**
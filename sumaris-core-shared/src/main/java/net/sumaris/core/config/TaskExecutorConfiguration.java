@@ -45,14 +45,15 @@ public class TaskExecutorConfiguration {
                 .build();
     }
 
-    // task executor for job
+    // task executor for job (concurrency is limited by the job scheduler, so do not queue here)
     @Bean(name = "jobTaskExecutor")
     @Lazy
     public ThreadPoolTaskExecutor jobTaskExecutor(TaskExecutorBuilder builder) {
         return builder
             .threadNamePrefix("job-")
-            .corePoolSize(1)
+            .corePoolSize(10)
             .maxPoolSize(10)
+            .allowCoreThreadTimeOut(true)
             .queueCapacity(100)
             .build();
     }
@@ -0,0 +1,199 @@
+package net.sumaris.core.dao.technical;
+
+/*-
+ * #%L
+ * SUMARiS:: Core shared
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.config.SumarisConfiguration;
+import net.sumaris.core.exception.SumarisTechnicalException;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Database time source, computed from the JVM clock and a calibrated offset, to avoid a
+ * <code>SELECT current_timestamp</code> on each save.
+ * <p>
+ * The offset (database time - JVM time) is measured at first use, then again after the calibration interval.
+ * Returned timestamps are strictly increasing (in this JVM), even if the offset changes.
+ * If the 'transaction timestamp' mode is enabled, the same timestamp is returned for the whole transaction.
+ * </p>
+ */
+@Component
+@Slf4j
+public class DatabaseClock {
+
+    private final SumarisConfiguration configuration;
+
+    private final DataSource dataSource;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final Object transactionResourceKey = new Object();
+
+    private final AtomicLong lastMillis = new AtomicLong(0L);
+
+    private Dialect dialect;
+
+    private volatile long offsetMillis;
+
+    private volatile long calibrationTime = -1L;
+
+    @Autowired
+    public DatabaseClock(SumarisConfiguration configuration,
+                         DataSource dataSource,
+                         EntityManagerFactory entityManagerFactory) {
+        this.configuration = configuration;
+        this.dataSource = dataSource;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public Timestamp getCurrentTimestamp() {
+        return new Timestamp(currentTimeMillis());
+    }
+
+    public Date getCurrentDate() {
+        return new Date(currentTimeMillis());
+    }
+
+    /**
+     * Force a new measure of the offset, at next call
+     */
+    public void invalidate() {
+        this.calibrationTime = -1L;
+    }
+
+    public long currentTimeMillis() {
+        // No clock: ask the database each time
+        if (!configuration.enableDatabaseClock()) {
+            return queryDatabaseTimestamp().getTime();
+        }
+
+        // Same timestamp for the whole transaction
+        if (configuration.enableDatabaseClockTransactionTimestamp()
+            && TransactionSynchronizationManager.isSynchronizationActive()) {
+            Long transactionMillis = (Long) TransactionSynchronizationManager.getResource(transactionResourceKey);
+            if (transactionMillis == null) {
+                transactionMillis = nextMillis();
+                bindToTransaction(transactionMillis);
+            }
+            return transactionMillis;
+        }
+
+        return nextMillis();
+    }
+
+    /* -- protected functions -- */
+
+    protected long nextMillis() {
+        long now = System.currentTimeMillis();
+        if (isCalibrationExpired(now)) {
+            calibrate();
+            now = System.currentTimeMillis();
+        }
+        final long candidate = now + offsetMillis;
+
+        // Strictly increasing
+        return lastMillis.accumulateAndGet(candidate, (last, next) -> Math.max(last + 1, next));
+    }
+
+    protected boolean isCalibrationExpired(long now) {
+        long calibrationTime = this.calibrationTime;
+        if (calibrationTime == -1L) return true;
+        long intervalMillis = configuration.getDatabaseClockCalibrationInterval() * 1000L;
+        return intervalMillis <= 0 || now - calibrationTime >= intervalMillis;
+    }
+
+    protected synchronized void calibrate() {
+        // Already calibrated by another thread
+        long now = System.currentTimeMillis();
+        if (!isCalibrationExpired(now)) return;
+
+        try {
+            long start = System.currentTimeMillis();
+            long databaseTime = queryDatabaseTimestamp().getTime();
+            long end = System.currentTimeMillis();
+
+            // Assume the database time has been computed at the middle of the round trip
+            long offset = databaseTime - (start + end) / 2;
+            if (log.isDebugEnabled() && offset != this.offsetMillis) {
+                log.debug("Database clock offset: {}ms (round trip: {}ms)", offset, end - start);
+            }
+            this.offsetMillis = offset;
+            this.calibrationTime = end;
+        } catch (SumarisTechnicalException e) {
+            // First calibration: cannot continue
+            if (this.calibrationTime == -1L) throw e;
+
+            // Keep the previous offset, and retry later
+            log.warn("Cannot measure the database clock offset. Keeping previous offset ({}ms): {}", offsetMillis, e.getMessage());
+            this.calibrationTime = now;
+        }
+    }
+
+    protected Timestamp queryDatabaseTimestamp() {
+        if (dataSource == null) return new Timestamp(System.currentTimeMillis());
+        try {
+            return Daos.getDatabaseCurrentTimestamp(dataSource, getDialect());
+        } catch (DataAccessResourceFailureException | SQLException e) {
+            throw new SumarisTechnicalException(e);
+        }
+    }
+
+    protected Dialect getDialect() {
+        if (dialect == null) {
+            dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        }
+        return dialect;
+    }
+
+    protected void bindToTransaction(long millis) {
+        TransactionSynchronizationManager.bindResource(transactionResourceKey, millis);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResourceIfPossible(transactionResourceKey);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(transactionResourceKey, millis);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(transactionResourceKey);
+            }
+        });
+    }
+}
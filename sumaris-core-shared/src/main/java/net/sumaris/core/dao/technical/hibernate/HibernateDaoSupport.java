@@ -29,6 +29,7 @@ import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.config.SumarisConfiguration;
 import net.sumaris.core.dao.technical.Daos;
+import net.sumaris.core.dao.technical.DatabaseClock;
 import net.sumaris.core.dao.technical.SortDirection;
 import net.sumaris.core.model.IEntity;
 import net.sumaris.core.exception.DataLockedException;
@@ -79,6 +80,9 @@ public abstract class HibernateDaoSupport {
     @Autowired
     private DataSource dataSource;
 
+    @Autowired(required = false)
+    private DatabaseClock databaseClock;
+
     /**
      * <p>Constructor for HibernateDaoSupport.</p>
      */
@@ -255,6 +259,8 @@ public abstract class HibernateDaoSupport {
      * @return a {@link Timestamp} object.
      */
     protected Timestamp getDatabaseCurrentTimestamp() {
+        if (databaseClock != null) return databaseClock.getCurrentTimestamp();
+
         try {
             final Dialect dialect = getSessionFactory().getJdbcServices().getDialect();
             return Daos.getDatabaseCurrentTimestamp(getDataSource(), dialect);
@@ -269,6 +275,8 @@ public abstract class HibernateDaoSupport {
      * @return a {@link Date} object.
      */
     protected Date getDatabaseCurrentDate() {
+        if (databaseClock != null) return databaseClock.getCurrentDate();
+
         try {
             final Dialect dialect = getSessionFactory().getJdbcServices().getDialect();
             return Daos.getDatabaseCurrentDate(getDataSource(), dialect);
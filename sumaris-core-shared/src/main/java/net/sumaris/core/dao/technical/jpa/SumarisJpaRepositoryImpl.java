@@ -31,6 +31,7 @@ import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.config.SumarisConfiguration;
 import net.sumaris.core.config.SumarisConfigurationOption;
 import net.sumaris.core.dao.technical.Daos;
+import net.sumaris.core.dao.technical.DatabaseClock;
 import net.sumaris.core.dao.technical.DatabaseType;
 import net.sumaris.core.dao.technical.SortDirection;
 import net.sumaris.core.event.entity.EntityDeleteEvent;
@@ -110,6 +111,9 @@ public abstract class SumarisJpaRepositoryImpl<E extends IEntity<ID>, ID extends
     @Autowired
     private ApplicationEventPublisher publisher;
 
+    @Autowired(required = false)
+    private DatabaseClock databaseClock;
+
 
     protected SumarisJpaRepositoryImpl(Class<E> domainClass, EntityManager entityManager) {
         this(domainClass, null, entityManager);
@@ -609,6 +613,7 @@ public abstract class SumarisJpaRepositoryImpl<E extends IEntity<ID>, ID extends
 
     protected Timestamp getDatabaseCurrentTimestamp() {
 
+        if (databaseClock != null) return databaseClock.getCurrentTimestamp();
         if (dataSource == null) return new Timestamp(System.currentTimeMillis());
 
         try {
@@ -621,6 +626,7 @@ public abstract class SumarisJpaRepositoryImpl<E extends IEntity<ID>, ID extends
 
     protected Date getDatabaseCurrentDate() {
 
+        if (databaseClock != null) return databaseClock.getCurrentDate();
         if (dataSource == null) return new Date(System.currentTimeMillis());
 
         try {
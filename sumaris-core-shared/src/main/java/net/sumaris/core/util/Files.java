@@ -362,6 +362,18 @@ public class Files {
 		return result;
 	}
 
+	public static long countLines(File sourceFile) throws IOException {
+		checkExists(sourceFile);
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(sourceFile), DEFAULT_IO_BUFFER_SIZE)) {
+			long counter = 0;
+			while (reader.readLine() != null) {
+				counter++;
+			}
+			return counter;
+		}
+	}
+
 	public static String readContent(File file, Charset charset) throws IOException {
 		checkExists(file);
 
@@ -26,6 +26,8 @@ package net.sumaris.core.util;
 
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.function.IOConsumer;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.springframework.util.StreamUtils;
 
 import java.io.*;
@@ -73,6 +75,22 @@ public class ZipUtils {
         zout.close();
     }
 
+    /**
+     * <p>Add an entry to a zip stream, whose content is written by the given writer.</p>
+     * Useful to stream a content (e.g. from a database cursor) without any temporary file.
+     * The writer cannot close the zip stream.
+     *
+     * @param zout a {@link ZipOutputStream} object.
+     * @param entryName the entry name.
+     * @param writer the content writer.
+     * @throws IOException if any.
+     */
+    public static void writeEntry(ZipOutputStream zout, String entryName, IOConsumer<OutputStream> writer) throws IOException {
+        zout.putNextEntry(new ZipEntry(entryName));
+        writer.accept(CloseShieldOutputStream.wrap(zout));
+        zout.closeEntry();
+    }
+
 
     /**
      * <p>uncompressFileToPath.</p>
@@ -31,6 +31,9 @@ import org.abstractj.kalium.crypto.Util;
 
 import javax.annotation.Nullable;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 public class CryptoUtils extends Util {
 	
@@ -103,4 +106,15 @@ public class CryptoUtils extends Util {
 		if (pubkey == null || pubkey.length() < 8) return "null";
 		return pubkey.substring(0, 8);
 	}
+
+	/**
+	 * Compute the SHA-256 of a string, as hex (e.g. to identify a token, without revealing it)
+	 */
+	public static String sha256Hex(String value) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(decodeUTF8(value)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new SumarisTechnicalException(e);
+		}
+	}
 }
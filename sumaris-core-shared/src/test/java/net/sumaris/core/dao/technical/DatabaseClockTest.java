@@ -0,0 +1,154 @@
+package net.sumaris.core.dao.technical;
+
+/*-
+ * #%L
+ * SUMARiS:: Core shared
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import net.sumaris.core.config.SumarisConfiguration;
+import net.sumaris.core.exception.SumarisTechnicalException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DatabaseClockTest {
+
+    private static final long TOLERANCE_MS = 1000L;
+
+    private SumarisConfiguration configuration;
+
+    private TestDatabaseClock clock;
+
+    @Before
+    public void setUp() {
+        configuration = mock(SumarisConfiguration.class);
+        when(configuration.enableDatabaseClock()).thenReturn(true);
+        when(configuration.getDatabaseClockCalibrationInterval()).thenReturn(3600);
+        clock = new TestDatabaseClock(configuration);
+    }
+
+    @Test
+    public void disabled() {
+        // No clock: the database should be queried each time
+        when(configuration.enableDatabaseClock()).thenReturn(false);
+        clock.databaseOffsetMillis = TimeUnit.HOURS.toMillis(1);
+
+        assertNear(System.currentTimeMillis() + clock.databaseOffsetMillis, clock.currentTimeMillis());
+        assertNear(System.currentTimeMillis() + clock.databaseOffsetMillis, clock.currentTimeMillis());
+        Assert.assertEquals(2, clock.queryCount);
+    }
+
+    @Test
+    public void offset() {
+        clock.databaseOffsetMillis = TimeUnit.HOURS.toMillis(1);
+
+        // Should calibrate once, then use the offset
+        for (int i = 0; i < 100; i++) {
+            assertNear(System.currentTimeMillis() + clock.databaseOffsetMillis, clock.currentTimeMillis());
+        }
+        Assert.assertEquals(1, clock.queryCount);
+
+        // Invalidate: should calibrate again
+        clock.databaseOffsetMillis = -TimeUnit.HOURS.toMillis(1);
+        clock.invalidate();
+        clock.currentTimeMillis();
+        Assert.assertEquals(2, clock.queryCount);
+    }
+
+    @Test
+    public void skew() {
+        clock.databaseOffsetMillis = TimeUnit.SECONDS.toMillis(10);
+        long previous = clock.currentTimeMillis();
+
+        // Database clock goes back (e.g. NTP correction): timestamps should still increase
+        clock.databaseOffsetMillis = -TimeUnit.SECONDS.toMillis(10);
+        clock.invalidate();
+        for (int i = 0; i < 100; i++) {
+            long millis = clock.currentTimeMillis();
+            Assert.assertTrue(millis > previous);
+            previous = millis;
+        }
+        Assert.assertEquals(2, clock.queryCount);
+
+        // Database clock goes forward: the new offset should be used
+        clock.databaseOffsetMillis = TimeUnit.MINUTES.toMillis(5);
+        clock.invalidate();
+        long millis = clock.currentTimeMillis();
+        Assert.assertTrue(millis > previous);
+        assertNear(System.currentTimeMillis() + clock.databaseOffsetMillis, millis);
+    }
+
+    @Test
+    public void calibrationFailure() {
+        // First calibration failed: should fail
+        clock.failure = true;
+        try {
+            clock.currentTimeMillis();
+            Assert.fail("Should fail, when the database is not reachable at first calibration");
+        } catch (SumarisTechnicalException e) {
+            // OK
+        }
+
+        // Database is back
+        clock.failure = false;
+        clock.databaseOffsetMillis = TimeUnit.HOURS.toMillis(1);
+        long offsetMillis = clock.databaseOffsetMillis;
+        assertNear(System.currentTimeMillis() + offsetMillis, clock.currentTimeMillis());
+
+        // Next calibrations failed: should keep the previous offset, and retry at each call
+        when(configuration.getDatabaseClockCalibrationInterval()).thenReturn(0);
+        clock.failure = true;
+        clock.databaseOffsetMillis = 0L;
+        int queryCount = clock.queryCount;
+        assertNear(System.currentTimeMillis() + offsetMillis, clock.currentTimeMillis());
+        assertNear(System.currentTimeMillis() + offsetMillis, clock.currentTimeMillis());
+        Assert.assertEquals(queryCount + 2, clock.queryCount);
+    }
+
+    /* -- protected functions -- */
+
+    protected void assertNear(long expectedMillis, long actualMillis) {
+        Assert.assertTrue(String.format("Expected %s, but was %s", expectedMillis, actualMillis),
+            Math.abs(expectedMillis - actualMillis) <= TOLERANCE_MS);
+    }
+
+    static class TestDatabaseClock extends DatabaseClock {
+        long databaseOffsetMillis;
+        boolean failure;
+        int queryCount;
+
+        TestDatabaseClock(SumarisConfiguration configuration) {
+            super(configuration, null, null);
+        }
+
+        @Override
+        protected Timestamp queryDatabaseTimestamp() {
+            queryCount++;
+            if (failure) throw new SumarisTechnicalException("Database not reachable");
+            return new Timestamp(System.currentTimeMillis() + databaseOffsetMillis);
+        }
+    }
+}
@@ -51,6 +51,15 @@ public interface MeasurementDao {
         final Class<? extends IEntity<ID>> parentClass,
         final Collection<ID> parentIds);
 
+    /**
+     * Save measurements maps of many parents at once (diff against existing rows, then JDBC batch insert/update/delete)
+     * @param sourcesByParentId measurements maps (pmfmId -> value), by parent id
+     */
+    <T extends IMeasurementEntity> Map<Integer, Map<Integer, String>> saveMeasurementsMaps(
+        final Class<T> entityClass,
+        final Class<? extends IEntity<Integer>> parentClass,
+        final Map<Integer, Map<Integer, String>> sourcesByParentId);
+
     <T extends IMeasurementEntity> List<T> getMeasurementEntitiesByParentId(Class<T> entityClass,
                                                                      String parentPropertyName,
                                                                      int parentId,
@@ -93,6 +102,8 @@ public interface MeasurementDao {
     List<MeasurementVO> saveOperationGearUseMeasurements(int operationId, List<MeasurementVO> sources);
     Map<Integer, String> saveOperationVesselUseMeasurementsMap(int operationId, Map<Integer, String> sources);
     Map<Integer, String> saveOperationGearUseMeasurementsMap(int operationId, Map<Integer, String> sources);
+    Map<Integer, Map<Integer, String>> saveOperationsVesselUseMeasurementsMap(Map<Integer, Map<Integer, String>> sourcesByOperationId);
+    Map<Integer, Map<Integer, String>> saveOperationsGearUseMeasurementsMap(Map<Integer, Map<Integer, String>> sourcesByOperationId);
 
     // Observed location
     List<MeasurementVO> getObservedLocationMeasurements(int observedLocationId);
@@ -133,6 +144,7 @@ public interface MeasurementDao {
     Map<Integer, String> getSampleMeasurementsMap(int sampleId);
     List<MeasurementVO> saveSampleMeasurements(int sampleId, List<MeasurementVO> sources);
     Map<Integer, String> saveSampleMeasurementsMap(final int sampleId, Map<Integer, String> sources);
+    Map<Integer, Map<Integer, String>> saveSamplesMeasurementsMap(Map<Integer, Map<Integer, String>> sourcesBySampleId);
 
     // Batch
     List<MeasurementVO> getBatchSortingMeasurements(int batchId);
@@ -145,6 +157,8 @@ public interface MeasurementDao {
     List<QuantificationMeasurementVO> saveBatchQuantificationMeasurements(int batchId, List<QuantificationMeasurementVO> sources);
     Map<Integer, String> saveBatchSortingMeasurementsMap(final int batchId, Map<Integer, String> sources);
     Map<Integer, String> saveBatchQuantificationMeasurementsMap(final int batchId, Map<Integer, String> sources);
+    Map<Integer, Map<Integer, String>> saveBatchesSortingMeasurementsMap(Map<Integer, Map<Integer, String>> sourcesByBatchId);
+    Map<Integer, Map<Integer, String>> saveBatchesQuantificationMeasurementsMap(Map<Integer, Map<Integer, String>> sourcesByBatchId);
 
     // Product
     Map<Integer, String> getProductSortingMeasurementsMap(int productId);
@@ -25,12 +25,14 @@ package net.sumaris.core.dao.data;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.dao.referential.ReferentialDao;
 import net.sumaris.core.dao.referential.pmfm.PmfmRepository;
 import net.sumaris.core.dao.technical.hibernate.HibernateDaoSupport;
+import net.sumaris.core.dao.technical.schema.SumarisDatabaseMetadata;
 import net.sumaris.core.exception.SumarisTechnicalException;
 import net.sumaris.core.model.IEntity;
 import net.sumaris.core.model.administration.user.Department;
@@ -44,6 +46,7 @@ import net.sumaris.core.util.Dates;
 import net.sumaris.core.util.StringUtils;
 import net.sumaris.core.vo.administration.user.DepartmentVO;
 import net.sumaris.core.vo.data.MeasurementVO;
+import net.sumaris.core.vo.data.PmfmValueMap;
 import net.sumaris.core.vo.data.QuantificationMeasurementVO;
 import net.sumaris.core.vo.referential.ReferentialVO;
 import net.sumaris.core.vo.referential.pmfm.PmfmVO;
@@ -51,10 +54,19 @@ import net.sumaris.core.vo.referential.pmfm.PmfmValueType;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.mutable.MutableShort;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.Type;
 import org.nuiton.i18n.I18n;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.stereotype.Repository;
 
@@ -64,8 +76,16 @@ import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.beans.PropertyDescriptor;
 import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 @Repository("measurementDao")
@@ -139,6 +159,16 @@ public class MeasurementDaoImpl extends HibernateDaoSupport implements Measureme
 
     private final Multimap<Class<? extends IMeasurementEntity>, PropertyDescriptor> parentPropertiesMap = initParentPropertiesMap();
 
+    // Max number of parents ids, in a IN clause (e.g. Oracle limit)
+    private static final int IN_CLAUSE_MAX_SIZE = 1000;
+
+    private final Map<String, MeasurementTable> measurementTables = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private SumarisDatabaseMetadata databaseMetadata;
+
     @Autowired
     private ReferentialDao referentialDao;
 
@@ -552,6 +582,16 @@ public class MeasurementDaoImpl extends HibernateDaoSupport implements Measureme
         return saveMeasurementsMap(VesselUseMeasurement.class, sources, parent.getVesselUseMeasurements(), parent);
     }
 
+    @Override
+    public Map<Integer, Map<Integer, String>> saveOperationsVesselUseMeasurementsMap(Map<Integer, Map<Integer, String>> sourcesByOperationId) {
+        return saveMeasurementsMaps(VesselUseMeasurement.class, Operation.class, sourcesByOperationId);
+    }
+
+    @Override
+    public Map<Integer, Map<Integer, String>> saveOperationsGearUseMeasurementsMap(Map<Integer, Map<Integer, String>> sourcesByOperationId) {
+        return saveMeasurementsMaps(GearUseMeasurement.class, Operation.class, sourcesByOperationId);
+    }
+
     @Override
     public List<MeasurementVO> saveObservedLocationMeasurements(final int observedLocationId, List<MeasurementVO> sources) {
         ObservedLocation parent = getById(ObservedLocation.class, observedLocationId);
@@ -624,6 +664,11 @@ public class MeasurementDaoImpl extends HibernateDaoSupport implements Measureme
         return saveMeasurementsMap(SampleMeasurement.class, sources, parent.getMeasurements(), parent);
     }
 
+    @Override
+    public Map<Integer, Map<Integer, String>> saveSamplesMeasurementsMap(Map<Integer, Map<Integer, String>> sourcesBySampleId) {
+        return saveMeasurementsMaps(SampleMeasurement.class, Sample.class, sourcesBySampleId);
+    }
+
     @Override
     public List<MeasurementVO> getBatchSortingMeasurements(int batchId) {
         return getMeasurementsByParentId(BatchSortingMeasurement.class,
@@ -669,6 +714,16 @@ public class MeasurementDaoImpl extends HibernateDaoSupport implements Measureme
         return saveMeasurementsMap(BatchQuantificationMeasurement.class, sources, parent.getQuantificationMeasurements(), parent);
     }
 
+    @Override
+    public Map<Integer, Map<Integer, String>> saveBatchesSortingMeasurementsMap(Map<Integer, Map<Integer, String>> sourcesByBatchId) {
+        return saveMeasurementsMaps(BatchSortingMeasurement.class, Batch.class, sourcesByBatchId);
+    }
+
+    @Override
+    public Map<Integer, Map<Integer, String>> saveBatchesQuantificationMeasurementsMap(Map<Integer, Map<Integer, String>> sourcesByBatchId) {
+        return saveMeasurementsMaps(BatchQuantificationMeasurement.class, Batch.class, sourcesByBatchId);
+    }
+
     @Override
     public Map<Integer, String> getProductSortingMeasurementsMap(int productId) {
         return getMeasurementsMapByParentId(ProductSortingMeasurement.class,
@@ -920,6 +975,96 @@ public class MeasurementDaoImpl extends HibernateDaoSupport implements Measureme
         }
     }
 
+    /**
+     * Save measurements maps of many parents at once.
+     * Existing rows are read (by JDBC) for all parents, then diffed against the given maps,
+     * and changes are written using JDBC batch statements (insert, update and delete). Unchanged rows are not updated.
+     * Updated or deleted entities are evicted from the persistence context, and parents with a loaded measurements
+     * collection are refreshed.
+     */
+    @Override
+    public <T extends IMeasurementEntity> Map<Integer, Map<Integer, String>> saveMeasurementsMaps(
+            final Class<T> entityClass,
+            final Class<? extends IEntity<Integer>> parentClass,
+            final Map<Integer, Map<Integer, String>> sourcesByParentId) {
+
+        if (MapUtils.isEmpty(sourcesByParentId)) return sourcesByParentId;
+
+        final MeasurementTable table = getMeasurementTable(entityClass, parentClass);
+        final int batchSize = Math.max(1, getConfig().getJdbcBatchSize());
+        final Timestamp updateDate = getDatabaseCurrentTimestamp();
+
+        // Flush pending changes (e.g. new parents), before using JDBC
+        getEntityManager().flush();
+
+        final List<MeasurementRow> rowsToInsert = new ArrayList<>();
+        final List<MeasurementRow> rowsToUpdate = new ArrayList<>();
+        final List<MeasurementRow> rowsToDelete = new ArrayList<>();
+
+        getSession().doWork(connection -> {
+
+            // Load existing rows, for all parents
+            ListMultimap<Integer, MeasurementRow> existingRowsByParentId = ArrayListMultimap.create();
+            for (List<Integer> parentIds : Iterables.partition(sourcesByParentId.keySet(), IN_CLAUSE_MAX_SIZE)) {
+                loadMeasurementRows(connection, table, parentIds, existingRowsByParentId);
+            }
+
+            // Compute changes, for each parent
+            sourcesByParentId.forEach((parentId, sources) -> {
+                List<MeasurementRow> existingRows = new ArrayList<>(existingRowsByParentId.get(parentId));
+                diffMeasurementRows(table, parentId, sources, existingRows, rowsToInsert, rowsToUpdate);
+                // Remaining rows are unused
+                rowsToDelete.addAll(existingRows);
+            });
+
+            // Delete unused rows
+            if (!rowsToDelete.isEmpty()) {
+                try (PreparedStatement statement = connection.prepareStatement(table.deleteQuery)) {
+                    executeBatch(statement, rowsToDelete, batchSize, (ps, row) -> ps.setInt(1, row.id));
+                }
+            }
+
+            // Update changed rows
+            if (!rowsToUpdate.isEmpty()) {
+                try (PreparedStatement statement = connection.prepareStatement(table.updateQuery)) {
+                    executeBatch(statement, rowsToUpdate, batchSize, (ps, row) -> bindUpdateMeasurementRow(ps, table, row, updateDate));
+                }
+            }
+
+            // Insert new rows
+            if (!rowsToInsert.isEmpty()) {
+                Map<Integer, Integer> recorderDepartmentIdByParentId = getRecorderDepartmentIds(parentClass,
+                    rowsToInsert.stream().map(row -> row.parentId).collect(Collectors.toSet()));
+
+                Iterator<Integer> ids = getDatabaseMetadata().nextIdentifiers(connection, table.sequenceName, table.sequenceIncrement, rowsToInsert.size()).iterator();
+                try (PreparedStatement statement = connection.prepareStatement(table.insertQuery)) {
+                    executeBatch(statement, rowsToInsert, batchSize, (ps, row) -> {
+                        row.id = ids.next();
+                        bindInsertMeasurementRow(ps, table, row, recorderDepartmentIdByParentId.get(row.parentId), updateDate);
+                    });
+                }
+            }
+        });
+
+        // Evict updated/deleted entities, if loaded in the persistence context
+        evictMeasurementRows(table, rowsToUpdate);
+        evictMeasurementRows(table, rowsToDelete);
+
+        // Refresh loaded parents, because their measurements collections are stale
+        Set<Integer> changedParentIds = Stream.of(rowsToInsert, rowsToUpdate, rowsToDelete)
+            .flatMap(Collection::stream)
+            .map(row -> row.parentId)
+            .collect(Collectors.toSet());
+        refreshParents(table, changedParentIds);
+
+        if (log.isDebugEnabled()) {
+            log.debug("{} saved for {} {}: {} inserts, {} updates, {} deletes", entityClass.getSimpleName(),
+                sourcesByParentId.size(), parentClass.getSimpleName(), rowsToInsert.size(), rowsToUpdate.size(), rowsToDelete.size());
+        }
+
+        return sourcesByParentId;
+    }
+
     @Override
     public <T extends IMeasurementEntity> List<T> getMeasurementEntitiesByParentId(Class<T> entityClass, String parentPropertyName, int parentId, String sortByPropertyName) {
         return getMeasurementsByParentIdQuery(entityClass, parentPropertyName, parentId, sortByPropertyName)
@@ -1093,6 +1238,278 @@ public class MeasurementDaoImpl extends HibernateDaoSupport implements Measureme
         }
     }
 
+    protected MeasurementTable getMeasurementTable(Class<? extends IMeasurementEntity> entityClass, Class<?> parentClass) {
+        return measurementTables.computeIfAbsent(entityClass.getName() + "#" + parentClass.getName(), key -> {
+            // Find the parent property (use the first compatible parent)
+            PropertyDescriptor parentProperty = parentPropertiesMap.get(entityClass).stream()
+                .filter(property -> property.getPropertyType().isAssignableFrom(parentClass))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(String.format("No parent property of type {%s} found in class {%s}",
+                    parentClass.getSimpleName(), entityClass.getSimpleName())));
+
+            EntityPersister persister = getSessionFactory().getMetamodel().entityPersister(entityClass);
+            if (!(persister instanceof AbstractEntityPersister entityPersister)
+                || !(persister.getIdentifierGenerator() instanceof SequenceStyleGenerator generator)) {
+                throw new SumarisTechnicalException(String.format("Cannot use bulk save for class {%s}: not a sequence identifier", entityClass.getSimpleName()));
+            }
+
+            // Find measurements collections of the parent (e.g. Batch.sortingMeasurements)
+            EntityPersister parentPersister = getSessionFactory().getMetamodel().entityPersister(parentClass);
+            Type[] parentPropertyTypes = parentPersister.getPropertyTypes();
+            int[] parentCollectionIndexes = IntStream.range(0, parentPropertyTypes.length)
+                .filter(i -> parentPropertyTypes[i] instanceof CollectionType collectionType
+                    && entityClass.getName().equals(collectionType.getAssociatedEntityName(getSessionFactory())))
+                .toArray();
+
+            return new MeasurementTable(entityPersister,
+                generator.getDatabaseStructure().getName(),
+                generator.getDatabaseStructure().getIncrementSize(),
+                parentProperty.getName(),
+                ISortedMeasurementEntity.class.isAssignableFrom(entityClass),
+                IQuantifiedMeasurementEntity.class.isAssignableFrom(entityClass),
+                parentPersister,
+                parentCollectionIndexes);
+        });
+    }
+
+    protected void loadMeasurementRows(Connection connection,
+                                       MeasurementTable table,
+                                       List<Integer> parentIds,
+                                       ListMultimap<Integer, MeasurementRow> result) throws SQLException {
+        String query = table.selectQuery.replace(MeasurementTable.PARENT_IDS_PARAM,
+            parentIds.stream().map(id -> "?").collect(Collectors.joining(",")));
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            int i = 1;
+            for (Integer parentId : parentIds) {
+                statement.setInt(i++, parentId);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    MeasurementRow row = new MeasurementRow();
+                    row.id = rs.getInt(1);
+                    row.parentId = rs.getInt(2);
+                    row.pmfmId = rs.getInt(3);
+                    row.numericalValue = rs.getDouble(4);
+                    if (rs.wasNull()) row.numericalValue = null;
+                    row.alphanumericalValue = rs.getString(5);
+                    row.qualitativeValueId = rs.getInt(6);
+                    if (rs.wasNull()) row.qualitativeValueId = null;
+                    int col = 7;
+                    if (table.sorted) {
+                        row.rankOrder = rs.getShort(col++);
+                        if (rs.wasNull()) row.rankOrder = null;
+                    }
+                    if (table.quantified) {
+                        row.isReferenceQuantification = rs.getBoolean(col++);
+                        if (rs.wasNull()) row.isReferenceQuantification = null;
+                        row.subgroupNumber = rs.getShort(col);
+                        if (rs.wasNull()) row.subgroupNumber = null;
+                    }
+                    result.put(row.parentId, row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute rows to insert or to update, for a parent (same rules as saveMeasurementsMap()).
+     * Reused rows are removed from existingRows.
+     */
+    protected void diffMeasurementRows(MeasurementTable table,
+                                       int parentId,
+                                       @Nullable Map<Integer, String> sources,
+                                       List<MeasurementRow> existingRows,
+                                       List<MeasurementRow> rowsToInsert,
+                                       List<MeasurementRow> rowsToUpdate) {
+        if (MapUtils.isEmpty(sources)) return;
+
+        MutableShort rankOrder = new MutableShort(1);
+        sources.forEach((pmfmId, value) -> {
+            if (StringUtils.isBlank(value)) return; // Skip if blank value
+
+            final PmfmVO pmfm = getPmfm(pmfmId);
+
+            // Split when many values (e.g. '<value1>|<value2>')
+            Iterable<String> values = value.indexOf(MEASUREMENTS_MAP_VALUE_SEPARATOR) != -1
+                ? Splitter.on(MEASUREMENTS_MAP_VALUE_SEPARATOR).trimResults().omitEmptyStrings().split(value)
+                : List.of(value);
+
+            for (String aValue : values) {
+                // Reuse the first existing row of the same pmfm
+                MeasurementRow existingRow = existingRows.stream()
+                    .filter(row -> row.pmfmId == pmfmId)
+                    .findFirst()
+                    .orElse(null);
+                if (existingRow != null) existingRows.remove(existingRow);
+
+                MeasurementRow row = new MeasurementRow();
+                row.parentId = parentId;
+                row.pmfmId = pmfmId;
+                toRowValue(aValue, pmfm, row);
+
+                // Rank order
+                if (table.sorted) {
+                    row.rankOrder = rankOrder.getValue();
+                    rankOrder.increment();
+                }
+
+                // Is reference ?
+                if (table.quantified) {
+                    boolean isReference = rankOrder.shortValue() == 1;
+                    row.isReferenceQuantification = isReference;
+                    if (!isReference) {
+                        // Use rankOrder as subgroup
+                        row.subgroupNumber = rankOrder.getValue();
+                        rankOrder.increment();
+                    }
+                    else if (existingRow != null) {
+                        row.subgroupNumber = existingRow.subgroupNumber;
+                    }
+                }
+
+                if (existingRow == null) {
+                    rowsToInsert.add(row);
+                }
+                else if (!row.hasSameValues(existingRow)) {
+                    row.id = existingRow.id;
+                    rowsToUpdate.add(row);
+                }
+            }
+        });
+    }
+
+    protected void toRowValue(String value, PmfmVO pmfm, MeasurementRow target) {
+        PmfmValueType type = PmfmValueType.fromString(pmfm.getType());
+        switch (type) {
+            case BOOLEAN -> target.numericalValue = ("1".equals(value) || Boolean.parseBoolean(value)) ? 1d : 0d;
+            case QUALITATIVE_VALUE -> {
+                try {
+                    target.qualitativeValueId = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new SumarisTechnicalException(String.format("Invalid value for pmfm with id=%s. Expected an integer (to link with a QualitativeValue.id), but got: '%s'. Please fix value, or change the Pmfm type to alphanumerical",
+                        pmfm.getId(), value));
+                }
+            }
+            case STRING -> target.alphanumericalValue = value;
+            case DATE -> target.alphanumericalValue = Dates.checkISODateTimeString(value);
+            case INTEGER, DOUBLE -> target.numericalValue = Double.parseDouble(value);
+            // Unknown type
+            default -> throw new SumarisTechnicalException(String.format("Unable to set measurement value {%s} for the type {%s}", value, type.name().toLowerCase()));
+        }
+    }
+
+    protected void bindInsertMeasurementRow(PreparedStatement statement,
+                                            MeasurementTable table,
+                                            MeasurementRow row,
+                                            Integer recorderDepartmentId,
+                                            Timestamp updateDate) throws SQLException {
+        int i = 1;
+        statement.setInt(i++, row.id);
+        statement.setInt(i++, row.parentId);
+        statement.setInt(i++, row.pmfmId);
+        i = bindMeasurementRowValues(statement, i, table, row);
+        statement.setInt(i++, defaultQualityFlagId);
+        setObject(statement, i++, recorderDepartmentId, Types.INTEGER);
+        statement.setTimestamp(i, updateDate);
+    }
+
+    protected void bindUpdateMeasurementRow(PreparedStatement statement,
+                                            MeasurementTable table,
+                                            MeasurementRow row,
+                                            Timestamp updateDate) throws SQLException {
+        int i = bindMeasurementRowValues(statement, 1, table, row);
+        statement.setTimestamp(i++, updateDate);
+        statement.setInt(i, row.id);
+    }
+
+    /**
+     * Bind values columns
+     * @return the next parameter index
+     */
+    protected int bindMeasurementRowValues(PreparedStatement statement, int index, MeasurementTable table, MeasurementRow row) throws SQLException {
+        setObject(statement, index++, row.numericalValue, Types.DOUBLE);
+        statement.setString(index++, row.alphanumericalValue);
+        setObject(statement, index++, row.qualitativeValueId, Types.INTEGER);
+        if (table.sorted) {
+            setObject(statement, index++, row.rankOrder, Types.SMALLINT);
+        }
+        if (table.quantified) {
+            setObject(statement, index++, row.isReferenceQuantification, Types.BOOLEAN);
+            setObject(statement, index++, row.subgroupNumber, Types.SMALLINT);
+        }
+        return index;
+    }
+
+    protected void setObject(PreparedStatement statement, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) statement.setNull(index, sqlType);
+        else statement.setObject(index, value, sqlType);
+    }
+
+    protected void executeBatch(PreparedStatement statement,
+                                List<MeasurementRow> rows,
+                                int batchSize,
+                                MeasurementRowBinder binder) throws SQLException {
+        int pendingCount = 0;
+        for (MeasurementRow row : rows) {
+            binder.bind(statement, row);
+            statement.addBatch();
+            if (++pendingCount == batchSize) {
+                statement.executeBatch();
+                pendingCount = 0;
+            }
+        }
+        if (pendingCount > 0) statement.executeBatch();
+    }
+
+    /**
+     * Get recorder department of parents (for new rows). Parents should be already loaded in the persistence context.
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<Integer, Integer> getRecorderDepartmentIds(Class<? extends IEntity<Integer>> parentClass, Collection<Integer> parentIds) {
+        if (!IWithRecorderDepartmentEntity.class.isAssignableFrom(parentClass)) return Collections.emptyMap();
+        Map<Integer, Integer> result = new HashMap<>();
+        parentIds.forEach(parentId -> {
+            IWithRecorderDepartmentEntity<Integer, Department> parent = (IWithRecorderDepartmentEntity<Integer, Department>) getEntityManager().find(parentClass, parentId);
+            if (parent != null && parent.getRecorderDepartment() != null) {
+                result.put(parentId, parent.getRecorderDepartment().getId());
+            }
+        });
+        return result;
+    }
+
+    protected void evictMeasurementRows(MeasurementTable table, List<MeasurementRow> rows) {
+        if (rows.isEmpty()) return;
+        Session session = getSession();
+        SharedSessionContractImplementor sessionImplementor = session.unwrap(SharedSessionContractImplementor.class);
+        rows.forEach(row -> {
+            Object entity = sessionImplementor.getPersistenceContextInternal()
+                .getEntity(sessionImplementor.generateEntityKey(row.id, table.persister));
+            if (entity != null) session.evict(entity);
+        });
+    }
+
+    /**
+     * Refresh parents loaded in the persistence context, if their measurements collection has been initialized
+     * (JDBC writes are not visible in these collections).
+     * The session is flushed first, so that pending changes of the parents are not lost.
+     */
+    protected void refreshParents(MeasurementTable table, Collection<Integer> parentIds) {
+        if (parentIds.isEmpty() || table.parentCollectionIndexes.length == 0) return;
+        Session session = getSession();
+        SharedSessionContractImplementor sessionImplementor = session.unwrap(SharedSessionContractImplementor.class);
+        List<Object> staleParents = parentIds.stream()
+            .map(parentId -> sessionImplementor.getPersistenceContextInternal()
+                .getEntity(sessionImplementor.generateEntityKey(parentId, table.parentPersister)))
+            .filter(Objects::nonNull)
+            .filter(parent -> Arrays.stream(table.parentCollectionIndexes)
+                .anyMatch(index -> Hibernate.isInitialized(table.parentPersister.getPropertyValue(parent, index))))
+            .toList();
+        if (staleParents.isEmpty()) return;
+
+        session.flush();
+        staleParents.forEach(session::refresh);
+    }
+
     protected <T extends IMeasurementEntity, V extends MeasurementVO> List<V> getMeasurementsByParentId(Class<T> entityClass,
                                                                                                         Class<? extends V> voClass,
                                                                                                         String parentPropertyName,
@@ -1292,7 +1709,8 @@ public class MeasurementDaoImpl extends HibernateDaoSupport implements Measureme
                 .collect(Collectors.toMap(
                     Map.Entry::getKey,
                     Map.Entry::getValue,
-                    this::concatMeasurementMapValues
+                    this::concatMeasurementMapValues,
+                    PmfmValueMap::new
                 ));
     }
 
@@ -1543,4 +1961,123 @@ public class MeasurementDaoImpl extends HibernateDaoSupport implements Measureme
         return pmfmRepository.findVOById(pmfmId)
             .orElseThrow(() -> new DataRetrievalFailureException("Cannot find PMFM with id=" + pmfmId));
     }
+
+    protected SumarisDatabaseMetadata getDatabaseMetadata() {
+        if (databaseMetadata == null) {
+            databaseMetadata = this.applicationContext.getBean(SumarisDatabaseMetadata.class);
+        }
+        return databaseMetadata;
+    }
+
+    @FunctionalInterface
+    protected interface MeasurementRowBinder {
+        void bind(PreparedStatement statement, MeasurementRow row) throws SQLException;
+    }
+
+    /**
+     * A measurement row, used by bulk save
+     */
+    protected static class MeasurementRow {
+        Integer id;
+        int parentId;
+        int pmfmId;
+        Double numericalValue;
+        String alphanumericalValue;
+        Integer qualitativeValueId;
+        Short rankOrder;
+        Boolean isReferenceQuantification;
+        Short subgroupNumber;
+
+        boolean hasSameValues(MeasurementRow other) {
+            return Objects.equals(numericalValue, other.numericalValue)
+                && Objects.equals(alphanumericalValue, other.alphanumericalValue)
+                && Objects.equals(qualitativeValueId, other.qualitativeValueId)
+                && Objects.equals(rankOrder, other.rankOrder)
+                && Objects.equals(isReferenceQuantification, other.isReferenceQuantification)
+                && Objects.equals(subgroupNumber, other.subgroupNumber);
+        }
+    }
+
+    /**
+     * SQL queries of a measurement table (for a given parent), built from the Hibernate mapping
+     */
+    protected static class MeasurementTable {
+
+        static final String PARENT_IDS_PARAM = "#PARENT_IDS";
+
+        final EntityPersister persister;
+        final EntityPersister parentPersister;
+        final int[] parentCollectionIndexes;
+        final String sequenceName;
+        final int sequenceIncrement;
+        final boolean sorted;
+        final boolean quantified;
+        final String selectQuery;
+        final String insertQuery;
+        final String updateQuery;
+        final String deleteQuery;
+
+        MeasurementTable(AbstractEntityPersister persister,
+                         String sequenceName,
+                         int sequenceIncrement,
+                         String parentPropertyName,
+                         boolean sorted,
+                         boolean quantified,
+                         EntityPersister parentPersister,
+                         int[] parentCollectionIndexes) {
+            this.persister = persister;
+            this.parentPersister = parentPersister;
+            this.parentCollectionIndexes = parentCollectionIndexes;
+            this.sequenceName = sequenceName;
+            this.sequenceIncrement = sequenceIncrement;
+            this.sorted = sorted;
+            this.quantified = quantified;
+
+            String tableName = persister.getTableName();
+            String idColumn = persister.getIdentifierColumnNames()[0];
+            String parentColumn = column(persister, parentPropertyName);
+
+            // Value columns (same order in all queries)
+            List<String> valueColumns = new ArrayList<>();
+            valueColumns.add(column(persister, IMeasurementEntity.Fields.NUMERICAL_VALUE));
+            valueColumns.add(column(persister, IMeasurementEntity.Fields.ALPHANUMERICAL_VALUE));
+            valueColumns.add(column(persister, IMeasurementEntity.Fields.QUALITATIVE_VALUE));
+            if (sorted) {
+                valueColumns.add(column(persister, ISortedMeasurementEntity.Fields.RANK_ORDER));
+            }
+            if (quantified) {
+                valueColumns.add(column(persister, IQuantifiedMeasurementEntity.Fields.IS_REFERENCE_QUANTIFICATION));
+                valueColumns.add(column(persister, IQuantifiedMeasurementEntity.Fields.SUBGROUP_NUMBER));
+            }
+            String pmfmColumn = column(persister, IMeasurementEntity.Fields.PMFM);
+            String updateDateColumn = column(persister, IDataEntity.Fields.UPDATE_DATE);
+
+            this.selectQuery = String.format("SELECT %s, %s, %s, %s FROM %s WHERE %s IN (%s) ORDER BY %s, %s",
+                idColumn, parentColumn, pmfmColumn, String.join(", ", valueColumns),
+                tableName, parentColumn, PARENT_IDS_PARAM, parentColumn, idColumn);
+
+            List<String> insertColumns = new ArrayList<>();
+            insertColumns.add(idColumn);
+            insertColumns.add(parentColumn);
+            insertColumns.add(pmfmColumn);
+            insertColumns.addAll(valueColumns);
+            insertColumns.add(column(persister, IDataEntity.Fields.QUALITY_FLAG));
+            insertColumns.add(column(persister, IDataEntity.Fields.RECORDER_DEPARTMENT));
+            insertColumns.add(updateDateColumn);
+            this.insertQuery = String.format("INSERT INTO %s (%s) VALUES (%s)",
+                tableName, String.join(", ", insertColumns),
+                insertColumns.stream().map(c -> "?").collect(Collectors.joining(", ")));
+
+            this.updateQuery = String.format("UPDATE %s SET %s, %s=? WHERE %s=?",
+                tableName,
+                valueColumns.stream().map(c -> c + "=?").collect(Collectors.joining(", ")),
+                updateDateColumn, idColumn);
+
+            this.deleteQuery = String.format("DELETE FROM %s WHERE %s=?", tableName, idColumn);
+        }
+
+        static String column(AbstractEntityPersister persister, String propertyName) {
+            return persister.getPropertyColumnNames(propertyName)[0];
+        }
+    }
 }
@@ -49,6 +49,7 @@ import net.sumaris.core.util.TimeUtils;
 import net.sumaris.core.vo.ValueObjectFlags;
 import net.sumaris.core.vo.administration.user.DepartmentVO;
 import net.sumaris.core.vo.data.OperationVO;
+import net.sumaris.core.vo.data.PmfmValueMap;
 import net.sumaris.core.vo.data.batch.BatchFetchOptions;
 import net.sumaris.core.vo.data.batch.BatchFilterVO;
 import net.sumaris.core.vo.data.batch.BatchVO;
@@ -177,7 +178,7 @@ public class BatchRepositoryImpl
 
         result.forEach(b -> {
             int batchId = b.getId();
-            b.setMeasurementValues(Beans.mergeMap(sm.get(batchId), qm.get(batchId)));
+            b.setMeasurementValues(PmfmValueMap.merge(sm.get(batchId), qm.get(batchId)));
         });
 
         return result;
@@ -480,7 +481,7 @@ public class BatchRepositoryImpl
 
         // Measurement values (as map)
         if (fetchOptions.isWithMeasurementValues() && source.getId() != null) {
-            target.setMeasurementValues(Beans.mergeMap(
+            target.setMeasurementValues(PmfmValueMap.merge(
                     measurementDao.toMeasurementsMap(source.getSortingMeasurements()),
                     measurementDao.toMeasurementsMap(source.getQuantificationMeasurements())
             ));
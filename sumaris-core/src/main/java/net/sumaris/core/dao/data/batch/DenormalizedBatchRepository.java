@@ -64,6 +64,14 @@ public interface DenormalizedBatchRepository
     @Query("select id from DenormalizedBatch where sale.id = ?1")
     Set<Integer> getAllIdBySaleId(int saleId);
 
+    @Modifying
+    @Query("delete from DenormalizedBatch b where b.operation.id = :operationId")
+    int deleteAllByOperationId(@Param("operationId") int operationId);
+
+    @Modifying
+    @Query("delete from DenormalizedBatch b where b.sale.id = :saleId")
+    int deleteAllBySaleId(@Param("saleId") int saleId);
+
     @Override
     @Modifying
     @Query("delete from DenormalizedBatch b where b.id in (:ids)")
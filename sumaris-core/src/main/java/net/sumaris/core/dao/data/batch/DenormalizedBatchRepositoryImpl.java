@@ -33,8 +33,10 @@ import net.sumaris.core.dao.referential.taxon.TaxonNameRepository;
 import net.sumaris.core.dao.technical.SortDirection;
 import net.sumaris.core.dao.technical.jpa.BindableSpecification;
 import net.sumaris.core.dao.technical.jpa.SumarisJpaRepositoryImpl;
+import net.sumaris.core.dao.technical.schema.SumarisDatabaseMetadata;
 import net.sumaris.core.exception.SumarisTechnicalException;
 import net.sumaris.core.model.data.DenormalizedBatch;
+import net.sumaris.core.model.data.IDataEntity;
 import net.sumaris.core.model.data.Operation;
 import net.sumaris.core.model.data.Sale;
 import net.sumaris.core.model.referential.QualityFlag;
@@ -47,6 +49,7 @@ import net.sumaris.core.model.referential.taxon.TaxonGroup;
 import net.sumaris.core.util.Beans;
 import net.sumaris.core.util.Numbers;
 import net.sumaris.core.util.StringUtils;
+import net.sumaris.core.util.TimeUtils;
 import net.sumaris.core.vo.data.MeasurementVO;
 import net.sumaris.core.vo.data.QuantificationMeasurementVO;
 import net.sumaris.core.vo.data.batch.*;
@@ -63,6 +66,8 @@ import org.springframework.data.jpa.domain.Specification;
 import javax.annotation.Nonnull;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import java.sql.*;
+import java.util.Date;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -75,6 +80,22 @@ public class DenormalizedBatchRepositoryImpl
     extends SumarisJpaRepositoryImpl<DenormalizedBatch, Integer, DenormalizedBatchVO>
     implements DenormalizedBatchSpecifications<DenormalizedBatch, DenormalizedBatchVO> {
 
+    private static final String SORTING_VALUE_SEQUENCE_NAME = "denormalized_batch_sort_va_seq";
+
+    private static final String INSERT_BATCH_QUERY = "insert into denormalized_batch (id, label, rank_order, flat_rank_order,"
+        + " weight, indirect_weight, elevate_context_weight, indirect_context_weight, elevate_weight,"
+        + " individual_count, indirect_individual_count, elevate_individual_count,"
+        + " taxon_elevate_indiv_count, taxon_elevate_context_weight, indirect_rtp_weight, elevate_rtp_weight,"
+        + " sampling_ratio, sampling_ratio_text, exhaustive_inventory, comments,"
+        + " tree_level, tree_indent, sorting_values_text, is_landing, is_discard, update_date,"
+        + " weight_method_fk, quality_flag_fk, inherited_taxon_group_fk, calculated_taxon_group_fk, taxon_group_fk,"
+        + " inherited_reference_taxon_fk, reference_taxon_fk, parent_batch_fk, operation_fk, sale_fk)"
+        + " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_SORTING_VALUE_QUERY = "insert into denormalized_batch_sort_val (id, rank_order, is_inherited,"
+        + " numerical_value, alphanumerical_value, pmfm_fk, qualitative_value_fk, batch_fk, parameter_fk, unit_fk)"
+        + " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final SumarisConfiguration config;
     private final ReferentialDao referentialDao;
     private final PmfmRepository pmfmRepository;
@@ -347,10 +368,29 @@ public class DenormalizedBatchRepositoryImpl
 
     @Override
     public List<DenormalizedBatchVO> saveAllByOperationId(int operationId, @Nonnull List<DenormalizedBatchVO> sources) {
+        return saveAllByOperationId(operationId, sources, false);
+    }
+
+    @Override
+    public List<DenormalizedBatchVO> saveAllByOperationId(int operationId, @Nonnull List<DenormalizedBatchVO> sources, boolean bulkInsert) {
 
         // Set parent link
         sources.forEach(b -> b.setOperationId(operationId));
 
+        // Bulk mode: delete all, then insert
+        if (bulkInsert) {
+            long startTime = System.currentTimeMillis();
+            getEntityManager().flush();
+            sortingValueRepository.deleteAllByOperationId(operationId);
+            getRepository().deleteAllByOperationId(operationId);
+            int rowCount = insertAll(sources);
+
+            // Rows were deleted and inserted outside the persistence context: evict stale entities
+            getEntityManager().clear();
+            logBulkInsert("operation", operationId, rowCount, startTime);
+            return sources;
+        }
+
         // Get existing ids
         Set<Integer> existingIdsToRemove = getRepository().getAllIdByOperationId(operationId);
 
@@ -370,10 +410,29 @@ public class DenormalizedBatchRepositoryImpl
 
     @Override
     public List<DenormalizedBatchVO> saveAllBySaleId(int saleId, @Nonnull List<DenormalizedBatchVO> sources) {
+        return saveAllBySaleId(saleId, sources, false);
+    }
+
+    @Override
+    public List<DenormalizedBatchVO> saveAllBySaleId(int saleId, @Nonnull List<DenormalizedBatchVO> sources, boolean bulkInsert) {
 
         // Set parent link
         sources.forEach(b -> b.setSaleId(saleId));
 
+        // Bulk mode: delete all, then insert
+        if (bulkInsert) {
+            long startTime = System.currentTimeMillis();
+            getEntityManager().flush();
+            sortingValueRepository.deleteAllBySaleId(saleId);
+            getRepository().deleteAllBySaleId(saleId);
+            int rowCount = insertAll(sources);
+
+            // Rows were deleted and inserted outside the persistence context: evict stale entities
+            getEntityManager().clear();
+            logBulkInsert("sale", saleId, rowCount, startTime);
+            return sources;
+        }
+
         // Get existing fishing areas
         Set<Integer> existingIdsToRemove = getRepository().getAllIdBySaleId(saleId);
 
@@ -435,6 +494,154 @@ public class DenormalizedBatchRepositoryImpl
 
     /* -- protected methods -- */
 
+    /**
+     * Insert batches and sorting values, using JDBC batch statements.
+     * Existing rows should have been deleted before.
+     * @return the number of inserted rows (batches and sorting values)
+     */
+    protected int insertAll(@NonNull List<DenormalizedBatchVO> sources) {
+        if (sources.isEmpty()) return 0;
+
+        // Sort by tree level, to insert parents before children (need by the parent foreign key)
+        List<DenormalizedBatchVO> sortedSources = sources.stream()
+            .sorted(Comparator.comparing(DenormalizedBatchVO::getTreeLevel, Comparator.nullsFirst(Comparator.naturalOrder())))
+            .collect(Collectors.toList());
+
+        // Default update date (if missing in sources)
+        Date defaultUpdateDate = sortedSources.stream().anyMatch(source -> source.getUpdateDate() == null) ? getDatabaseCurrentDate() : null;
+
+        int batchSize = Math.max(1, config.getJdbcBatchSize());
+        MutableInt rowCount = new MutableInt(0);
+
+        getSession().doWork(connection -> {
+            // Insert batches
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_BATCH_QUERY)) {
+                int pendingCount = 0;
+                for (DenormalizedBatchVO source : sortedSources) {
+                    bindInsertBatch(statement, source, defaultUpdateDate);
+                    statement.addBatch();
+                    if (++pendingCount == batchSize) {
+                        statement.executeBatch();
+                        pendingCount = 0;
+                    }
+                }
+                if (pendingCount > 0) statement.executeBatch();
+                rowCount.add(sortedSources.size());
+            }
+
+            // Insert sorting values
+            List<DenormalizedBatchSortingValueVO> sortingValues = sortedSources.stream()
+                .flatMap(source -> Beans.getStream(source.getSortingValues())
+                    .peek(sv -> sv.setBatchId(source.getId())))
+                .collect(Collectors.toList());
+            if (sortingValues.isEmpty()) return;
+
+            Iterator<Integer> ids = nextSortingValueIds(connection, sortingValues.size()).iterator();
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SORTING_VALUE_QUERY)) {
+                int pendingCount = 0;
+                for (DenormalizedBatchSortingValueVO sv : sortingValues) {
+                    sv.setId(ids.next());
+                    bindInsertSortingValue(statement, sv);
+                    statement.addBatch();
+                    if (++pendingCount == batchSize) {
+                        statement.executeBatch();
+                        pendingCount = 0;
+                    }
+                }
+                if (pendingCount > 0) statement.executeBatch();
+                rowCount.add(sortingValues.size());
+            }
+        });
+
+        return rowCount.intValue();
+    }
+
+    protected void bindInsertBatch(PreparedStatement statement, DenormalizedBatchVO source, Date defaultUpdateDate) throws SQLException {
+        Integer qualityFlagId = source.getQualityFlagId() != null ? source.getQualityFlagId() : config.getDefaultQualityFlagId();
+        Integer referenceTaxonId = source.getTaxonName() != null && source.getTaxonName().getId() != null
+            ? taxonNameRepository.getReferenceTaxonIdById(source.getTaxonName().getId()) : null;
+        Integer inheritedReferenceTaxonId = source.getInheritedTaxonName() != null && source.getInheritedTaxonName().getId() != null
+            ? taxonNameRepository.getReferenceTaxonIdById(source.getInheritedTaxonName().getId()) : null;
+        Integer parentId = source.getParent() != null ? source.getParent().getId() : source.getParentId();
+        Date updateDate = source.getUpdateDate() != null ? source.getUpdateDate() : defaultUpdateDate;
+        source.setUpdateDate(updateDate);
+
+        int i = 1;
+        statement.setInt(i++, source.getId());
+        statement.setString(i++, source.getLabel());
+        setObject(statement, i++, source.getRankOrder(), Types.INTEGER);
+        setObject(statement, i++, source.getFlatRankOrder(), Types.SMALLINT);
+        setObject(statement, i++, source.getWeight(), Types.DOUBLE);
+        setObject(statement, i++, source.getIndirectWeight(), Types.DOUBLE);
+        setObject(statement, i++, source.getElevateContextWeight(), Types.DOUBLE);
+        setObject(statement, i++, source.getIndirectContextWeight(), Types.DOUBLE);
+        setObject(statement, i++, source.getElevateWeight(), Types.DOUBLE);
+        setObject(statement, i++, source.getIndividualCount(), Types.INTEGER);
+        setObject(statement, i++, source.getIndirectIndividualCount(), Types.INTEGER);
+        setObject(statement, i++, source.getElevateIndividualCount(), Types.INTEGER);
+        setObject(statement, i++, source.getTaxonElevateIndividualCount() != null ? source.getTaxonElevateIndividualCount().doubleValue() : null, Types.DOUBLE);
+        setObject(statement, i++, source.getTaxonElevateContextWeight(), Types.DOUBLE);
+        setObject(statement, i++, source.getIndirectRtpWeight(), Types.DOUBLE);
+        setObject(statement, i++, source.getElevateRtpWeight(), Types.DOUBLE);
+        setObject(statement, i++, source.getSamplingRatio(), Types.DOUBLE);
+        statement.setString(i++, source.getSamplingRatioText());
+        setObject(statement, i++, source.getExhaustiveInventory(), Types.BOOLEAN);
+        statement.setString(i++, source.getComments());
+        setObject(statement, i++, source.getTreeLevel(), Types.SMALLINT);
+        statement.setString(i++, source.getTreeIndent());
+        statement.setString(i++, source.getSortingValuesText());
+        setObject(statement, i++, source.getIsLanding(), Types.BOOLEAN);
+        setObject(statement, i++, source.getIsDiscard(), Types.BOOLEAN);
+        statement.setTimestamp(i++, updateDate != null ? new Timestamp(updateDate.getTime()) : null);
+        setObject(statement, i++, source.getWeightMethodId(), Types.INTEGER);
+        setObject(statement, i++, qualityFlagId, Types.INTEGER);
+        setObject(statement, i++, source.getInheritedTaxonGroup() != null ? source.getInheritedTaxonGroup().getId() : null, Types.INTEGER);
+        setObject(statement, i++, source.getCalculatedTaxonGroup() != null ? source.getCalculatedTaxonGroup().getId() : null, Types.INTEGER);
+        setObject(statement, i++, source.getTaxonGroup() != null ? source.getTaxonGroup().getId() : null, Types.INTEGER);
+        setObject(statement, i++, inheritedReferenceTaxonId, Types.INTEGER);
+        setObject(statement, i++, referenceTaxonId, Types.INTEGER);
+        setObject(statement, i++, parentId, Types.INTEGER);
+        setObject(statement, i++, source.getOperationId(), Types.INTEGER);
+        setObject(statement, i, source.getSaleId(), Types.INTEGER);
+    }
+
+    protected void bindInsertSortingValue(PreparedStatement statement, DenormalizedBatchSortingValueVO source) throws SQLException {
+        Integer pmfmId = source.getPmfmId() != null ? source.getPmfmId() : (source.getPmfm() != null ? source.getPmfm().getId() : null);
+        // UNIT_FK is mandatory, so we should use None if null - Fix issue sumaris-pod#70
+        Integer unitId = source.getUnit() != null ? source.getUnit().getId() : UnitEnum.NONE.getId();
+
+        int i = 1;
+        statement.setInt(i++, source.getId());
+        setObject(statement, i++, source.getRankOrder(), Types.INTEGER);
+        setObject(statement, i++, source.getIsInherited(), Types.BOOLEAN);
+        setObject(statement, i++, source.getNumericalValue(), Types.DOUBLE);
+        statement.setString(i++, source.getAlphanumericalValue());
+        setObject(statement, i++, pmfmId, Types.INTEGER);
+        setObject(statement, i++, source.getQualitativeValue() != null ? source.getQualitativeValue().getId() : null, Types.INTEGER);
+        setObject(statement, i++, source.getBatchId(), Types.INTEGER);
+        setObject(statement, i++, source.getParameter() != null ? source.getParameter().getId() : null, Types.INTEGER);
+        setObject(statement, i, unitId, Types.INTEGER);
+    }
+
+    /**
+     * Get new sorting value identifiers, by blocks of {@link IDataEntity#SEQUENCE_ALLOCATION_SIZE} (one sequence call per block)
+     */
+    protected List<Integer> nextSortingValueIds(Connection connection, int count) throws SQLException {
+        return getDatabaseMetadata().nextIdentifiers(connection, SORTING_VALUE_SEQUENCE_NAME, IDataEntity.SEQUENCE_ALLOCATION_SIZE, count);
+    }
+
+    protected void setObject(PreparedStatement statement, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) statement.setNull(index, sqlType);
+        else statement.setObject(index, value, sqlType);
+    }
+
+    protected void logBulkInsert(String parentName, int parentId, int rowCount, long startTime) {
+        if (!log.isDebugEnabled()) return;
+        long duration = Math.max(1, System.currentTimeMillis() - startTime);
+        log.debug("Bulk insert of denormalized batches, for {} {id: {}}: {} rows in {} ({} rows/s)",
+            parentName, parentId, rowCount, TimeUtils.printDuration(duration), rowCount * 1000L / duration);
+    }
+
     protected Specification<DenormalizedBatch> toSpecification(DenormalizedBatchesFilterVO filter) {
         // default specification
         return BindableSpecification
@@ -458,11 +665,8 @@ public class DenormalizedBatchRepositoryImpl
         MutableInt sortingValueRankOrder = new MutableInt( 10000);
 
         if (source.getMeasurementValues() != null) {
-            Set<Integer> pmfmIds = source.getMeasurementValues().keySet();
-
             // Init rankOrder with a very high value, inherited values must be BEFORE current values
-            pmfmIds.forEach(pmfmId -> {
-                String valStr = source.getMeasurementValues().get(pmfmId);
+            source.getMeasurementValues().forEach((pmfmId, valStr) -> {
                 if (StringUtils.isBlank(valStr)) return; // Skip
 
                 // Weight
@@ -691,4 +895,12 @@ public class DenormalizedBatchRepositoryImpl
         }
         return repository;
     }
+
+    private SumarisDatabaseMetadata databaseMetadata;
+    protected SumarisDatabaseMetadata getDatabaseMetadata() {
+        if (databaseMetadata == null) {
+            databaseMetadata = this.applicationContext.getBean(SumarisDatabaseMetadata.class);
+        }
+        return databaseMetadata;
+    }
 }
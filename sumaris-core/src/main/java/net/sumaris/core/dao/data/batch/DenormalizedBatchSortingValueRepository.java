@@ -37,4 +37,12 @@ public interface DenormalizedBatchSortingValueRepository
     @Modifying
     @Query("delete from DenormalizedBatchSortingValue sv where sv.batch.id in (:batchIds)")
     void deleteAllByBatchId(@Param("batchIds") Iterable<? extends Integer> batchIds);
+
+    @Modifying
+    @Query("delete from DenormalizedBatchSortingValue sv where sv.batch.id in (select b.id from DenormalizedBatch b where b.operation.id = :operationId)")
+    int deleteAllByOperationId(@Param("operationId") int operationId);
+
+    @Modifying
+    @Query("delete from DenormalizedBatchSortingValue sv where sv.batch.id in (select b.id from DenormalizedBatch b where b.sale.id = :saleId)")
+    int deleteAllBySaleId(@Param("saleId") int saleId);
 }
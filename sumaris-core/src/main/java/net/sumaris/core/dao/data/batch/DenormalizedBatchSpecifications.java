@@ -117,8 +117,16 @@ public interface DenormalizedBatchSpecifications<E extends DenormalizedBatch, V
 
     List<V> saveAllByOperationId(int operationId, @Nonnull List<V> sources);
 
+    /**
+     * Save all batches of an operation. If bulkInsert=true, existing rows are deleted by operation id, then
+     * new rows are inserted using JDBC batch (faster, but without any JPA event or merge)
+     */
+    List<V> saveAllByOperationId(int operationId, @Nonnull List<V> sources, boolean bulkInsert);
+
     List<V> saveAllBySaleId(int saleId, @Nonnull List<V> sources);
 
+    List<V> saveAllBySaleId(int saleId, @Nonnull List<V> sources, boolean bulkInsert);
+
     V toVO(E source);
 
     void copy(BatchVO source, V target, boolean copyIfNull);
@@ -30,6 +30,7 @@ import net.sumaris.core.vo.data.FishingAreaVO;
 import org.springframework.data.jpa.domain.Specification;
 
 import javax.persistence.criteria.ParameterExpression;
+import java.util.Collection;
 import java.util.List;
 
 public interface FishingAreaRepository
@@ -66,6 +67,8 @@ public interface FishingAreaRepository
     }
     List<FishingArea> getFishingAreaByOperationId(int operationId);
 
+    List<FishingArea> getFishingAreaByOperationIdIn(Collection<Integer> operationIds);
+
     List<FishingArea> getFishingAreaByGearUseFeaturesId(int gearUseFeaturesId);
 
     void deleteAllByOperationId(int operationId);
@@ -23,6 +23,7 @@ package net.sumaris.core.dao.data.fishingArea;
  */
 
 
+import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.config.SumarisConfiguration;
 import net.sumaris.core.dao.referential.ReferentialDao;
@@ -39,12 +40,15 @@ import net.sumaris.core.model.referential.gradient.NearbySpecificArea;
 import net.sumaris.core.model.referential.location.Location;
 import net.sumaris.core.util.Beans;
 import net.sumaris.core.vo.data.FishingAreaVO;
+import org.apache.commons.collections4.CollectionUtils;
 import org.springframework.context.ApplicationContext;
 import org.springframework.data.jpa.domain.Specification;
 
 import javax.annotation.Nonnull;
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -191,6 +195,15 @@ public class FishingAreaRepositoryImpl
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Map<Integer, List<FishingAreaVO>> getAllByOperationIds(Collection<Integer> operationIds) {
+        if (CollectionUtils.isEmpty(operationIds)) return Maps.newHashMap();
+        return getRepository().getFishingAreaByOperationIdIn(operationIds)
+                .stream()
+                .map(this::toVO)
+                .collect(Collectors.groupingBy(FishingAreaVO::getOperationId));
+    }
+
     @Override
     public List<FishingAreaVO> getAllByGearUseFeaturesId(int gufId) {
         return getRepository().getFishingAreaByGearUseFeaturesId(gufId)
@@ -26,12 +26,16 @@ import net.sumaris.core.model.data.FishingArea;
 import net.sumaris.core.vo.data.FishingAreaVO;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface FishingAreaSpecifications {
 
     List<FishingAreaVO> getAllByOperationId(int operationId);
 
+    Map<Integer, List<FishingAreaVO>> getAllByOperationIds(Collection<Integer> operationIds);
+
     List<FishingAreaVO> getAllByGearUseFeaturesId(int gearUseFeaturesId);
 
     List<FishingAreaVO> saveAllByOperationId(int operationId, List<FishingAreaVO> fishingAreas);
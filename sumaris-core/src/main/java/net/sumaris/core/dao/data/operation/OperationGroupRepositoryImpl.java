@@ -23,6 +23,8 @@ package net.sumaris.core.dao.data.operation;
  */
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.dao.data.DataRepositoryImpl;
 import net.sumaris.core.dao.data.MeasurementDao;
@@ -48,11 +50,16 @@ import net.sumaris.core.vo.filter.ProductFilterVO;
 import net.sumaris.core.vo.referential.ReferentialVO;
 import net.sumaris.core.vo.referential.metier.MetierVO;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.time.DateUtils;
 import org.springframework.data.jpa.domain.Specification;
 
 import javax.persistence.EntityManager;
 import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -66,6 +73,8 @@ public class OperationGroupRepositoryImpl
     extends DataRepositoryImpl<Operation, OperationGroupVO, OperationGroupFilterVO, DataFetchOptions>
     implements OperationGroupSpecifications {
 
+    private static final int IN_CLAUSE_MAX_SIZE = 1000;
+
     private final MetierRepository metierRepository;
 
     private final ProductRepository productRepository;
@@ -87,26 +96,41 @@ public class OperationGroupRepositoryImpl
     @Override
     protected Specification<Operation> toSpecification(OperationGroupFilterVO filter, DataFetchOptions fetchOptions) {
         Preconditions.checkNotNull(filter);
-        Preconditions.checkNotNull(filter.getTripId());
+        Preconditions.checkArgument(filter.getTripId() != null || ArrayUtils.isNotEmpty(filter.getTripIds()),
+            "Missing 'filter.tripId' or 'filter.tripIds'");
+        boolean hasTripIds = filter.getTripId() == null;
         BindableSpecification<Operation> specification = BindableSpecification.where((root, query, cb) -> {
             query.orderBy(cb.asc(root.get(Operation.Fields.RANK_ORDER_ON_PERIOD))); // Default sort
-            ParameterExpression<Integer> param = cb.parameter(Integer.class, OperationGroupVO.Fields.TRIP_ID);
+            Predicate tripPredicate;
+            if (hasTripIds) {
+                ParameterExpression<Collection> param = cb.parameter(Collection.class, OperationGroupFilterVO.Fields.TRIP_IDS);
+                tripPredicate = root.get(Operation.Fields.TRIP).get(IEntity.Fields.ID).in(param);
+            }
+            else {
+                ParameterExpression<Integer> param = cb.parameter(Integer.class, OperationGroupVO.Fields.TRIP_ID);
+                tripPredicate = cb.equal(root.get(Operation.Fields.TRIP).get(IEntity.Fields.ID), param);
+            }
             if (filter.isOnlyUndefined()) {
                 return cb.and(
-                    cb.equal(root.get(Operation.Fields.TRIP).get(IEntity.Fields.ID), param),
+                    tripPredicate,
                     cb.equal(root.get(Operation.Fields.START_DATE_TIME), root.get(Operation.Fields.TRIP).get(Trip.Fields.DEPARTURE_DATE_TIME)),
                     cb.equal(root.get(Operation.Fields.END_DATE_TIME), root.get(Operation.Fields.TRIP).get(Trip.Fields.RETURN_DATE_TIME))
                 );
             } else if (filter.isOnlyDefined()) {
                 return cb.and(
-                    cb.equal(root.get(Operation.Fields.TRIP).get(IEntity.Fields.ID), param),
+                    tripPredicate,
                     cb.notEqual(root.get(Operation.Fields.START_DATE_TIME), root.get(Operation.Fields.TRIP).get(Trip.Fields.DEPARTURE_DATE_TIME))
                 );
             } else {
-                return cb.equal(root.get(Operation.Fields.TRIP).get(IEntity.Fields.ID), param);
+                return tripPredicate;
             }
         });
-        specification.addBind(OperationGroupVO.Fields.TRIP_ID, filter.getTripId());
+        if (hasTripIds) {
+            specification.addBind(OperationGroupFilterVO.Fields.TRIP_IDS, Arrays.asList(filter.getTripIds()));
+        }
+        else {
+            specification.addBind(OperationGroupVO.Fields.TRIP_ID, filter.getTripId());
+        }
         return specification;
     }
 
@@ -294,6 +318,25 @@ public class OperationGroupRepositoryImpl
             .collect(Collectors.toList());
     }
 
+    @Override
+    public Map<Integer, List<MetierVO>> getMetiersByTripIds(Collection<Integer> tripIds) {
+        if (CollectionUtils.isEmpty(tripIds)) return Maps.newHashMap();
+        Map<Integer, List<MetierVO>> result = Maps.newHashMap();
+
+        // Split trip ids, to limit the IN clause size
+        for (List<Integer> tripIdsChunk : Iterables.partition(tripIds, IN_CLAUSE_MAX_SIZE)) {
+            findAll(
+                OperationGroupFilterVO.builder().tripIds(tripIdsChunk.toArray(Integer[]::new)).onlyUndefined(true).build(),
+                0,
+                tripIdsChunk.size() * 1000,
+                Operation.Fields.RANK_ORDER_ON_PERIOD,
+                SortDirection.ASC,
+                null
+            ).forEach(og -> result.computeIfAbsent(og.getTripId(), tripId -> new ArrayList<>()).add(og.getMetier()));
+        }
+        return result;
+    }
+
     @Override
     public List<MetierVO> saveMetiersByTripId(int tripId, List<MetierVO> metiers) {
         Preconditions.checkNotNull(metiers);
@@ -31,8 +31,10 @@ import net.sumaris.core.vo.referential.metier.MetierVO;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Caching;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author peck7 on 01/09/2020.
@@ -61,6 +63,14 @@ public interface OperationGroupSpecifications
      */
     List<MetierVO> getMetiersByTripId(int tripId);
 
+    /**
+     * Get metiers of many trips, in one query
+     *
+     * @param tripIds trip ids
+     * @return metiers, by trip id
+     */
+    Map<Integer, List<MetierVO>> getMetiersByTripIds(Collection<Integer> tripIds);
+
     @Caching(
             evict = {
                     @CacheEvict(cacheNames = CacheConfiguration.Names.MAIN_UNDEFINED_OPERATION_GROUP_BY_TRIP_ID, key = "#root.args[0]")
@@ -89,6 +89,7 @@ public class PhysicalGearRepositoryImpl
             .and(hasVesselIds(concat(filter.getVesselId(), filter.getVesselIds())))
             // Trip
             .and(hasTripId(filter.getTripId()))
+            .and(hasTripIds(filter.getTripIds()))
             .and(excludeTripId(filter.getExcludeTripId()))
             // Parent
             .and(hasParentGearId(filter.getParentGearId()))
@@ -65,6 +65,15 @@ public interface PhysicalGearSpecifications extends RootDataSpecifications<Physi
         }).addBind(PhysicalGearFilterVO.Fields.TRIP_ID, tripId);
     }
 
+    default Specification<PhysicalGear> hasTripIds(Integer[] tripIds) {
+        if (ArrayUtils.isEmpty(tripIds)) return null;
+        return BindableSpecification.<PhysicalGear>where((root, query, cb) -> {
+            ParameterExpression<Collection> param = cb.parameter(Collection.class, PhysicalGearFilterVO.Fields.TRIP_IDS);
+            return cb.in(Daos.composeJoin(root, PhysicalGear.Fields.TRIP)
+                .get(IEntity.Fields.ID)).value(param);
+        }).addBind(PhysicalGearFilterVO.Fields.TRIP_IDS, Arrays.asList(tripIds));
+    }
+
     default Specification<PhysicalGear> excludeTripId(Integer tripId) {
         if (tripId == null) return null;
         return BindableSpecification.where((root, query, cb) -> {
@@ -242,6 +242,7 @@ public class SaleRepositoryImpl
             .and(hasSaleLocationIds(filter.getLocationId() != null ? new Integer[]{filter.getLocationId()} : filter.getLocationIds()))
             // Parent
             .and(hasTripId(filter.getTripId()))
+            .and(hasTripIds(filter.getTripIds()))
             .and(hasLandingId(filter.getLandingId()))
             // Quality
             .and(inDataQualityStatus(filter.getDataQualityStatus()));
@@ -55,6 +55,14 @@ public interface SaleSpecifications extends RootDataSpecifications<Sale> {
         }).addBind(TRIP_ID_PARAM, tripId);
     }
 
+    default Specification<Sale> hasTripIds(Integer[] tripIds) {
+        if (ArrayUtils.isEmpty(tripIds)) return null;
+        return BindableSpecification.where((root, query, cb) -> {
+            ParameterExpression<Collection> param = cb.parameter(Collection.class, SaleFilterVO.Fields.TRIP_IDS);
+            return root.get(Sale.Fields.TRIP).get(IEntity.Fields.ID).in(param);
+        }).addBind(SaleFilterVO.Fields.TRIP_IDS, Arrays.asList(tripIds));
+    }
+
     default Specification<Sale> hasLandingId(Integer landingId) {
         if (landingId == null) return null;
         return BindableSpecification.where((root, query, cb) -> {
@@ -93,6 +93,7 @@ public class TripRepositoryImpl
     public Specification<Trip> toSpecification(TripFilterVO filter, TripFetchOptions fetchOptions) {
         return super.toSpecification(filter, fetchOptions)
             .and(id(filter.getTripId(), Integer.class))
+            .and(idGreaterThanOrEqual(filter.getMinId(), Integer.class))
             .and(excludedIds(filter.getExcludedIds()))
             .and(includedIds(filter.getIncludedIds()))
             .and(betweenDate(filter.getStartDate(), filter.getEndDate()))
@@ -167,6 +167,7 @@ public class VesselRepositoryImpl
             .and(newerThan(filter.getMinUpdateDate()))
             // By text
             .and(searchText(filter.getSearchAttributes(), filter.getSearchText()))
+            .and(intRegistrationCodes(filter.getIntRegistrationCodes()))
             // Quality
             .and(inDataQualityStatus(filter.getDataQualityStatus()))
             ;
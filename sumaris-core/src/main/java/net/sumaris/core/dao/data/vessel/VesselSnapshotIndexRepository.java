@@ -0,0 +1,72 @@
+package net.sumaris.core.dao.data.vessel;
+
+/*-
+ * #%L
+ * SUMARiS:: Core
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import lombok.NonNull;
+import net.sumaris.core.dao.technical.Page;
+import net.sumaris.core.util.Dates;
+import net.sumaris.core.vo.data.VesselSnapshotVO;
+import net.sumaris.core.vo.data.vessel.VesselFetchOptions;
+import net.sumaris.core.vo.filter.VesselFilterVO;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import javax.annotation.Nullable;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Index of vessel snapshots (one document by vessel features), used for fast search (e.g. autocomplete).
+ * Implemented by Elasticsearch, or by an embedded Lucene index.
+ */
+@NoRepositoryBean
+public interface VesselSnapshotIndexRepository extends IVesselSnapshotSpecifications {
+
+    Date DEFAULT_END_DATE = Dates.safeParseDate("2100-01-01 00:00:00", Dates.CSV_DATE_TIME);
+
+    Optional<VesselSnapshotVO> findByVesselIdAtDate(int vesselId, @Nullable Date date);
+
+    org.springframework.data.domain.Page<VesselSnapshotVO> findAllAsPage(@NonNull VesselFilterVO filter,
+                                                                         @Nullable Page page,
+                                                                         @Nullable VesselFetchOptions fetchOptions);
+
+    long count();
+
+    Iterable<VesselSnapshotVO> bulkIndex(Iterable<VesselSnapshotVO> items);
+
+    void deleteAllById(Iterable<? extends Integer> vesselFeaturesIds);
+
+    void recreate();
+
+    void refresh();
+
+    boolean disableReplicas();
+
+    boolean enableReplicas();
+
+    Optional<Date> findMaxUpdateDate();
+
+    List<Integer> findAllVesselFeaturesIds();
+
+    List<Integer> findAllVesselFeaturesIdsByFilter(@Nullable VesselFilterVO filter);
+}
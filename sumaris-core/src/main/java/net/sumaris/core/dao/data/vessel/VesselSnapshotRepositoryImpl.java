@@ -165,6 +165,7 @@ public class VesselSnapshotRepositoryImpl
         return super.toSpecification(filter, fetchOptions)
             // IDs
             .and(id(filter.getVesselFeaturesId(), Integer.class))
+            .and(idGreaterThanOrEqual(filter.getMinVesselFeaturesId(), Integer.class))
             .and(vesselId(filter.getVesselId()))
             .and(includedVesselIds(filter.getIncludedIds()))
             .and(excludedVesselIds(filter.getExcludedIds()))
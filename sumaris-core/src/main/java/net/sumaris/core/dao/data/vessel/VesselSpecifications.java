@@ -52,6 +52,7 @@ public interface VesselSpecifications extends RootDataSpecifications<Vessel> {
     String STATUS_IDS_PARAM = "statusIds";
     String REGISTRATION_LOCATION_ID_PARAM = "registrationLocationId";
     String BASE_PORT_LOCATION_ID = "basePortLocationId";
+    String INT_REGISTRATION_CODES_PARAM = "intRegistrationCodes";
     String SEARCH_TEXT_PREFIX_PARAM = "searchTextPrefix";
     String SEARCH_TEXT_ANY_PARAM = "searchTextAny";
 
@@ -238,6 +239,16 @@ public interface VesselSpecifications extends RootDataSpecifications<Vessel> {
         }).addBind(BASE_PORT_LOCATION_ID, basePortLocationId);
     }
 
+    default Specification<Vessel> intRegistrationCodes(String... intRegistrationCodes) {
+        if (ArrayUtils.isEmpty(intRegistrationCodes)) return null;
+        return BindableSpecification.where((root, query, cb) -> {
+                ParameterExpression<Collection> param = cb.parameter(Collection.class, INT_REGISTRATION_CODES_PARAM);
+                ListJoin<Vessel, VesselRegistrationPeriod> vrp = composeVrpJoin(root);
+                return cb.in(vrp.get(VesselRegistrationPeriod.Fields.INT_REGISTRATION_CODE)).value(param);
+            })
+            .addBind(INT_REGISTRATION_CODES_PARAM, ImmutableList.copyOf(intRegistrationCodes));
+    }
+
     default Specification<Vessel> searchText(String[] searchAttributes, String searchText) {
 
         String searchTextAsPrefix = Daos.getEscapedSearchText(searchText);
@@ -25,8 +25,28 @@ package net.sumaris.core.dao.referential.conversion;
 import net.sumaris.core.dao.technical.jpa.SumarisJpaRepository;
 import net.sumaris.core.model.referential.conversion.WeightLengthConversion;
 import net.sumaris.core.vo.referential.conversion.WeightLengthConversionVO;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface WeightLengthConversionRepository extends SumarisJpaRepository<WeightLengthConversion, Integer, WeightLengthConversionVO>,
     WeightLengthConversionSpecifications {
 
+    /**
+     * Location hierarchy of the conversions locations
+     * @return rows as [childLocationId, parentLocationId]
+     */
+    @Query("select lh.childLocation.id, lh.parentLocation.id from LocationHierarchy lh " +
+        "where lh.parentLocation.id in (select distinct wlc.location.id from WeightLengthConversion wlc where wlc.status.id in (:statusIds))")
+    List<Object[]> findLocationHierarchyByStatusIds(@Param("statusIds") Collection<Integer> statusIds);
+
+    /**
+     * Pmfms of the conversions length parameters
+     * @return rows as [pmfmId, parameterId]
+     */
+    @Query("select p.id, p.parameter.id from Pmfm p " +
+        "where p.parameter.id in (select distinct wlc.lengthParameter.id from WeightLengthConversion wlc where wlc.status.id in (:statusIds))")
+    List<Object[]> findLengthPmfmParametersByStatusIds(@Param("statusIds") Collection<Integer> statusIds);
 }
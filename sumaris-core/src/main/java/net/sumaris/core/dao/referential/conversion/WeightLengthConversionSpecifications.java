@@ -125,17 +125,18 @@ public interface WeightLengthConversionSpecifications
     }
     default Specification<WeightLengthConversion> hasLengthPmfmIds(Integer... lengthPmfmIds) {
         if (ArrayUtils.isEmpty(lengthPmfmIds)) return null;
-        if (ArrayUtils.isNotEmpty(lengthPmfmIds)) return null;
 
+        // Match on the pmfm's parameter only (length unit will be converted by computedWeight(), like in the in-memory index)
         return BindableSpecification.<WeightLengthConversion>where((root, query, cb) -> {
                 ParameterExpression<Collection> pmfmIdsParam = cb.parameter(Collection.class, LEANGTH_PMFM_IDS_PARAMETER);
-                //query.select();
-                Root<Pmfm> pmfm = query.from(Pmfm.class);
-                return cb.and(
+                Subquery<Integer> subQuery = query.subquery(Integer.class);
+                Root<Pmfm> pmfm = subQuery.from(Pmfm.class);
+                subQuery.select(pmfm.get(Pmfm.Fields.ID));
+                subQuery.where(
                     pmfm.get(Pmfm.Fields.ID).in(pmfmIdsParam),
-                    cb.equal(root.get(WeightLengthConversion.Fields.LENGTH_PARAMETER), pmfm.get(Pmfm.Fields.PARAMETER)),
-                    cb.equal(root.get(WeightLengthConversion.Fields.LENGTH_UNIT), pmfm.get(Pmfm.Fields.UNIT))
+                    cb.equal(root.get(WeightLengthConversion.Fields.LENGTH_PARAMETER), pmfm.get(Pmfm.Fields.PARAMETER))
                 );
+                return cb.exists(subQuery);
             })
             .addBind(LEANGTH_PMFM_IDS_PARAMETER, Arrays.asList(lengthPmfmIds));
     }
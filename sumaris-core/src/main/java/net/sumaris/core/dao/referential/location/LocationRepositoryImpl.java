@@ -22,6 +22,7 @@ package net.sumaris.core.dao.referential.location;
  * #L%
  */
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import lombok.NonNull;
@@ -30,6 +31,8 @@ import net.sumaris.core.config.CacheConfiguration;
 import net.sumaris.core.dao.referential.ReferentialRepositoryImpl;
 import net.sumaris.core.dao.technical.Daos;
 import net.sumaris.core.dao.technical.Page;
+import net.sumaris.core.event.entity.EntityDeleteEvent;
+import net.sumaris.core.event.entity.EntityInsertEvent;
 import net.sumaris.core.model.IEntity;
 import net.sumaris.core.model.referential.location.Location;
 import net.sumaris.core.model.referential.location.LocationAssociation;
@@ -38,9 +41,12 @@ import net.sumaris.core.util.Beans;
 import net.sumaris.core.util.Dates;
 import net.sumaris.core.vo.filter.LocationFilterVO;
 import net.sumaris.core.vo.referential.ReferentialFetchOptions;
+import net.sumaris.core.vo.referential.location.LocationAssociationVO;
 import net.sumaris.core.vo.referential.location.LocationVO;
 import org.apache.commons.collections4.MapUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.jpa.domain.Specification;
 
 import javax.persistence.EntityManager;
@@ -49,6 +55,7 @@ import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Root;
+import java.sql.PreparedStatement;
 import java.sql.Timestamp;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -62,6 +69,18 @@ public class LocationRepositoryImpl
     extends ReferentialRepositoryImpl<Integer, Location, LocationVO, LocationFilterVO, ReferentialFetchOptions>
     implements LocationSpecifications {
 
+    private static final String INSERT_LOCATION_HIERARCHY_QUERY = "insert into location_hierarchy (child_location_fk, parent_location_fk,"
+        + " child_surface_ratio, is_main_association, update_date)"
+        + " values (?, ?, ?, ?, ?)";
+
+    private static final String DELETE_LOCATION_HIERARCHY_QUERY = "delete from location_hierarchy"
+        + " where child_location_fk = ? and parent_location_fk = ?";
+
+    private static final int IN_CLAUSE_MAX_SIZE = 1000;
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
     public LocationRepositoryImpl(EntityManager entityManager) {
         super(Location.class, LocationVO.class, entityManager);
     }
@@ -132,6 +151,24 @@ public class LocationRepositoryImpl
         entity.setUpdateDate(newUpdateDate);
 
         getEntityManager().persist(entity);
+
+        // Emit event (will update the location hierarchy)
+        publisher.publishEvent(new EntityInsertEvent(childLocationId, LocationAssociation.class.getSimpleName(),
+            toAssociationVO(childLocationId, parentLocationId, childSurfaceRatio)));
+    }
+
+    @Override
+    public void removeAssociation(int childLocationId, int parentLocationId) {
+        int count = getEntityManager().createQuery("delete from LocationAssociation la " +
+                "where la.childLocation.id = :childId and la.parentLocation.id = :parentId")
+            .setParameter("childId", childLocationId)
+            .setParameter("parentId", parentLocationId)
+            .executeUpdate();
+        if (count == 0) return; // Not exists
+
+        // Emit event (will update the location hierarchy)
+        publisher.publishEvent(new EntityDeleteEvent(childLocationId, LocationAssociation.class.getSimpleName(),
+            toAssociationVO(childLocationId, parentLocationId, null)));
     }
 
     @Override
@@ -150,6 +187,82 @@ public class LocationRepositoryImpl
         }
     }
 
+    @Override
+    public boolean hasLocationHierarchy() {
+        return !getEntityManager().createQuery("select lh.childLocation.id from LocationHierarchy lh", Integer.class)
+            .setMaxResults(1)
+            .getResultList()
+            .isEmpty();
+    }
+
+    @Override
+    public int addLocationHierarchy(int childLocationId, int parentLocationId) {
+        // Ancestors of the parent, and descendants of the child (including themselves)
+        Set<Integer> ancestorIds = getAncestorIds(parentLocationId);
+        Set<Integer> descendantIds = getDescendantIds(childLocationId);
+
+        // Load existing links, between descendants and ancestors
+        Set<Integer> parentIds = Sets.newHashSet(ancestorIds);
+        parentIds.add(childLocationId);
+        Map<Integer, Set<Integer>> existingParentsByChild = loadLocationHierarchyMap(descendantIds, parentIds);
+
+        // Compute missing links
+        List<int[]> missingLinks = new ArrayList<>();
+        for (Integer descendantId : descendantIds) {
+            Set<Integer> existingParents = Beans.getSet(existingParentsByChild.get(descendantId));
+            ancestorIds.stream()
+                .filter(ancestorId -> !existingParents.contains(ancestorId))
+                .forEach(ancestorId -> missingLinks.add(new int[]{descendantId, ancestorId}));
+        }
+
+        // Add link to himself
+        if (!Beans.getSet(existingParentsByChild.get(childLocationId)).contains(childLocationId)) {
+            missingLinks.add(new int[]{childLocationId, childLocationId});
+        }
+
+        int count = insertLocationHierarchies(missingLinks, getDatabaseCurrentTimestamp());
+        if (count > 0) {
+            log.debug("Location hierarchy updated, after adding link {child: {}, parent: {}} - {} inserts", childLocationId, parentLocationId, count);
+        }
+        return count;
+    }
+
+    @Override
+    public int removeLocationHierarchy(int childLocationId, int parentLocationId) {
+        // Only links from the child's descendants to the parent's ancestors can be invalid
+        Set<Integer> oldAncestorIds = getAncestorIds(parentLocationId);
+        Set<Integer> descendantIds = getDescendantIds(childLocationId);
+
+        // Get remaining direct parents of descendants
+        Map<Integer, Set<Integer>> parentsByChild = loadLocationAssociationMap(descendantIds);
+
+        // Get old ancestors still reachable from other parents (outside descendants - their hierarchy is unchanged)
+        Set<Integer> otherParentIds = parentsByChild.values().stream()
+            .flatMap(Collection::stream)
+            .filter(parentId -> !descendantIds.contains(parentId))
+            .collect(Collectors.toSet());
+        Map<Integer, Set<Integer>> reachableAncestorsById = loadLocationHierarchyMap(otherParentIds, oldAncestorIds);
+        otherParentIds.stream()
+            .filter(oldAncestorIds::contains)
+            .forEach(parentId -> reachableAncestorsById.computeIfAbsent(parentId, k -> Sets.newHashSet()).add(parentId));
+
+        // Compute the reachable old ancestors of each descendant, then remove others
+        List<int[]> invalidLinks = new ArrayList<>();
+        for (Integer descendantId : descendantIds) {
+            Set<Integer> reachableAncestors = getReachableAncestors(descendantId, descendantIds, oldAncestorIds,
+                parentsByChild, reachableAncestorsById, Sets.newHashSet());
+            oldAncestorIds.stream()
+                .filter(ancestorId -> !ancestorId.equals(descendantId) && !reachableAncestors.contains(ancestorId))
+                .forEach(ancestorId -> invalidLinks.add(new int[]{descendantId, ancestorId}));
+        }
+
+        int count = deleteLocationHierarchies(invalidLinks);
+        if (count > 0) {
+            log.debug("Location hierarchy updated, after removing link {child: {}, parent: {}} - {} deletes", childLocationId, parentLocationId, count);
+        }
+        return count;
+    }
+
     @Override
     public long count(LocationFilterVO filter) {
         return super.count(filter);
@@ -212,7 +325,6 @@ public class LocationRepositoryImpl
     protected int insertMissingLocationHierarchies(Stream<Object[]> locationAssociations,
                                                    Map<Integer, Set<Integer>> existingParentsByChild,
                                                    Timestamp updateDate) {
-        final EntityManager em = getEntityManager();
         final Map<Integer, Set<Integer>> newLinks = Maps.newHashMap();
 
         // First pass, on direct associations
@@ -249,27 +361,10 @@ public class LocationRepositoryImpl
 
         if (MapUtils.isEmpty(newLinks)) return 0;
 
-        int counter = 0;
-        for (Integer childId : newLinks.keySet()) {
-            Location child = getReference(Location.class, childId);
-            for (Integer parentId : newLinks.get(childId)) {
-                Location parent = getReference(Location.class, parentId);
-                LocationHierarchy lh = new LocationHierarchy();
-                lh.setChildLocation(child);
-                lh.setParentLocation(parent);
-                lh.setUpdateDate(updateDate);
-
-                lh.setChildSurfaceRatio(1d); // TODO: better computation
-                lh.setIsMainAssociation(Boolean.TRUE); // TODO, review this
-                em.persist(lh);
-                counter++;
-            }
-        }
-
-        em.flush();
-        em.clear();
+        List<int[]> links = new ArrayList<>();
+        newLinks.forEach((childId, parentIds) -> parentIds.forEach(parentId -> links.add(new int[]{childId, parentId})));
 
-        return counter;
+        return insertLocationHierarchies(links, updateDate);
     }
 
     protected Map<Integer, Set<Integer>> loadLocationHierarchyMap() {
@@ -285,4 +380,140 @@ public class LocationRepositoryImpl
                 HashMap<Integer, Set<Integer>>::new));
         }
     }
+
+    /**
+     * Load hierarchy links, restricted to the given children and parents
+     */
+    protected Map<Integer, Set<Integer>> loadLocationHierarchyMap(Collection<Integer> childIds, Collection<Integer> parentIds) {
+        Map<Integer, Set<Integer>> result = new HashMap<>();
+        if (childIds.isEmpty() || parentIds.isEmpty()) return result;
+
+        TypedQuery<Object[]> query = getEntityManager().createQuery("select lh.childLocation.id, lh.parentLocation.id from LocationHierarchy lh " +
+            "where lh.childLocation.id in (:childIds) and lh.parentLocation.id in (:parentIds)", Object[].class);
+        for (List<Integer> childIdsChunk : Iterables.partition(childIds, IN_CLAUSE_MAX_SIZE)) {
+            query.setParameter("childIds", childIdsChunk)
+                .setParameter("parentIds", parentIds)
+                .getResultList()
+                .forEach(row -> result.computeIfAbsent((Integer) row[0], k -> Sets.newHashSet()).add((Integer) row[1]));
+        }
+        return result;
+    }
+
+    /**
+     * Load direct parents (from LocationAssociation) of the given children
+     */
+    protected Map<Integer, Set<Integer>> loadLocationAssociationMap(Collection<Integer> childIds) {
+        Map<Integer, Set<Integer>> result = new HashMap<>();
+        if (childIds.isEmpty()) return result;
+
+        TypedQuery<Object[]> query = getEntityManager().createQuery("select la.childLocation.id, la.parentLocation.id from LocationAssociation la " +
+            "where la.childLocation.id in (:childIds)", Object[].class);
+        for (List<Integer> childIdsChunk : Iterables.partition(childIds, IN_CLAUSE_MAX_SIZE)) {
+            query.setParameter("childIds", childIdsChunk)
+                .getResultList()
+                .forEach(row -> result.computeIfAbsent((Integer) row[0], k -> Sets.newHashSet()).add((Integer) row[1]));
+        }
+        return result;
+    }
+
+    protected Set<Integer> getAncestorIds(int locationId) {
+        Set<Integer> result = Sets.newHashSet(getEntityManager().createQuery("select lh.parentLocation.id from LocationHierarchy lh " +
+                "where lh.childLocation.id = :id", Integer.class)
+            .setParameter("id", locationId)
+            .getResultList());
+        result.add(locationId);
+        return result;
+    }
+
+    protected Set<Integer> getDescendantIds(int locationId) {
+        Set<Integer> result = Sets.newHashSet(getEntityManager().createQuery("select lh.childLocation.id from LocationHierarchy lh " +
+                "where lh.parentLocation.id = :id", Integer.class)
+            .setParameter("id", locationId)
+            .getResultList());
+        result.add(locationId);
+        return result;
+    }
+
+    /**
+     * Get ancestors (restricted to the given candidates) reachable from a location, using direct parents.
+     * Parents outside the descendants set are resolved using reachableAncestorsById.
+     */
+    protected Set<Integer> getReachableAncestors(Integer locationId,
+                                                 Set<Integer> descendantIds,
+                                                 Set<Integer> candidateAncestorIds,
+                                                 Map<Integer, Set<Integer>> parentsByChild,
+                                                 Map<Integer, Set<Integer>> reachableAncestorsById,
+                                                 Set<Integer> visitedIds) {
+        Set<Integer> result = reachableAncestorsById.get(locationId);
+        if (result != null) return result;
+        if (!visitedIds.add(locationId)) return Collections.emptySet(); // Avoid infinite loop (should never occur)
+
+        result = Sets.newHashSet();
+        if (candidateAncestorIds.contains(locationId)) result.add(locationId);
+        for (Integer parentId : Beans.getSet(parentsByChild.get(locationId))) {
+            if (descendantIds.contains(parentId)) {
+                result.addAll(getReachableAncestors(parentId, descendantIds, candidateAncestorIds, parentsByChild, reachableAncestorsById, visitedIds));
+            }
+            else {
+                result.addAll(Beans.getSet(reachableAncestorsById.get(parentId)));
+            }
+        }
+        reachableAncestorsById.put(locationId, result);
+        return result;
+    }
+
+    protected int insertLocationHierarchies(List<int[]> links, Timestamp updateDate) {
+        if (links.isEmpty()) return 0;
+        int batchSize = Math.max(1, getConfig().getJdbcBatchSize());
+
+        getSession().doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_LOCATION_HIERARCHY_QUERY)) {
+                int pendingCount = 0;
+                for (int[] link : links) {
+                    statement.setInt(1, link[0]);
+                    statement.setInt(2, link[1]);
+                    statement.setDouble(3, 1d); // TODO: better computation
+                    statement.setBoolean(4, true); // TODO, review this
+                    statement.setTimestamp(5, updateDate);
+                    statement.addBatch();
+                    if (++pendingCount == batchSize) {
+                        statement.executeBatch();
+                        pendingCount = 0;
+                    }
+                }
+                if (pendingCount > 0) statement.executeBatch();
+            }
+        });
+        return links.size();
+    }
+
+    protected int deleteLocationHierarchies(List<int[]> links) {
+        if (links.isEmpty()) return 0;
+        int batchSize = Math.max(1, getConfig().getJdbcBatchSize());
+
+        getSession().doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(DELETE_LOCATION_HIERARCHY_QUERY)) {
+                int pendingCount = 0;
+                for (int[] link : links) {
+                    statement.setInt(1, link[0]);
+                    statement.setInt(2, link[1]);
+                    statement.addBatch();
+                    if (++pendingCount == batchSize) {
+                        statement.executeBatch();
+                        pendingCount = 0;
+                    }
+                }
+                if (pendingCount > 0) statement.executeBatch();
+            }
+        });
+        return links.size();
+    }
+
+    protected LocationAssociationVO toAssociationVO(int childLocationId, int parentLocationId, Double childSurfaceRatio) {
+        LocationAssociationVO target = new LocationAssociationVO();
+        target.setChildId(childLocationId);
+        target.setParentId(parentLocationId);
+        target.setChildSurfaceRatio(childSurfaceRatio);
+        return target;
+    }
 }
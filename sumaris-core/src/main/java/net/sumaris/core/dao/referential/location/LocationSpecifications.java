@@ -84,8 +84,29 @@ public interface LocationSpecifications extends ReferentialSpecifications<Intege
 
     void addAssociation(int childLocationId, int parentLocationId, double childSurfaceRatio);
 
+    void removeAssociation(int childLocationId, int parentLocationId);
+
     /**
      * Update technical table LOCATION_HIERARCHY, from child/parent links found in LOCATION
      */
     void updateLocationHierarchy();
+
+    /**
+     * Is technical table LOCATION_HIERARCHY filled ?
+     */
+    boolean hasLocationHierarchy();
+
+    /**
+     * Insert missing rows in LOCATION_HIERARCHY, after adding a child/parent link (incremental update).
+     * Only links between the child's descendants and the parent's ancestors are computed.
+     * @return the number of inserted rows
+     */
+    int addLocationHierarchy(int childLocationId, int parentLocationId);
+
+    /**
+     * Delete invalid rows in LOCATION_HIERARCHY, after removing a child/parent link (incremental update).
+     * Only links between the child's descendants and the parent's ancestors are checked.
+     * @return the number of deleted rows
+     */
+    int removeLocationHierarchy(int childLocationId, int parentLocationId);
 }
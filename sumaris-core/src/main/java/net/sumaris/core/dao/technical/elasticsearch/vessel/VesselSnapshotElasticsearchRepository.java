@@ -22,7 +22,7 @@
 
 package net.sumaris.core.dao.technical.elasticsearch.vessel;
 
-import net.sumaris.core.util.Dates;
+import net.sumaris.core.dao.data.vessel.VesselSnapshotIndexRepository;
 import net.sumaris.core.vo.data.VesselSnapshotVO;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.data.domain.PageRequest;
@@ -42,10 +42,8 @@ import java.util.Optional;
 @ConditionalOnBean({ElasticsearchRestTemplate.class})
 public interface VesselSnapshotElasticsearchRepository
     extends ElasticsearchRepository<VesselSnapshotVO, Integer>,
-    VesselSnapshotElasticsearchSpecifications {
-
-    Date DEFAULT_END_DATE = Dates.safeParseDate("2100-01-01 00:00:00", Dates.CSV_DATE_TIME);
-
+    VesselSnapshotElasticsearchSpecifications,
+    VesselSnapshotIndexRepository {
 
     Pageable SORT_BY_START_DATE_DESC = PageRequest.of(0, 1, Sort.by(Sort.Order.desc("startDate")));
 
@@ -59,6 +57,7 @@ public interface VesselSnapshotElasticsearchRepository
                                                 Pageable pageable);
 
 
+    @Override
     default Optional<VesselSnapshotVO> findByVesselIdAtDate(int vesselId, @Nullable Date date) {
 
         List<VesselSnapshotVO> result;
@@ -0,0 +1,628 @@
+package net.sumaris.core.dao.technical.lucene.vessel;
+
+/*-
+ * #%L
+ * SUMARiS:: Core
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.Lists;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.config.SumarisConfiguration;
+import net.sumaris.core.dao.data.vessel.VesselSnapshotIndexRepository;
+import net.sumaris.core.dao.technical.Page;
+import net.sumaris.core.dao.technical.Pageables;
+import net.sumaris.core.dao.technical.SortDirection;
+import net.sumaris.core.event.config.ConfigurationReadyEvent;
+import net.sumaris.core.event.config.ConfigurationUpdatedEvent;
+import net.sumaris.core.exception.SumarisTechnicalException;
+import net.sumaris.core.model.IEntity;
+import net.sumaris.core.util.StringUtils;
+import net.sumaris.core.vo.data.VesselSnapshotVO;
+import net.sumaris.core.vo.data.vessel.VesselFetchOptions;
+import net.sumaris.core.vo.filter.VesselFilterVO;
+import net.sumaris.core.vo.referential.IReferentialVO;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.analysis.core.KeywordTokenizer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.NGramTokenFilter;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Embedded (on disk) Lucene index of vessel snapshots, for nodes without Elasticsearch.
+ * <ul>
+ *     <li>Search text: prefix search on registration code and exterior marking, 'contains' search (using n-grams) on name</li>
+ *     <li>Filters (ids, types, locations, program, status, dates) use points, without scoring</li>
+ *     <li>Documents are stored as JSON, so no database access is need to read results</li>
+ * </ul>
+ */
+@Repository("vesselSnapshotLuceneRepository")
+@ConditionalOnProperty(name = "sumaris.lucene.vessel.snapshot.enabled", havingValue = "true")
+@Slf4j
+public class VesselSnapshotLuceneRepository implements VesselSnapshotIndexRepository {
+
+    public static final String INDEX_NAME = VesselSnapshotVO.INDEX;
+
+    protected static final String[] DEFAULT_SEARCH_ATTRIBUTES = new String[] {
+        VesselSnapshotVO.Fields.NAME,
+        VesselSnapshotVO.Fields.REGISTRATION_CODE,
+        VesselSnapshotVO.Fields.EXTERIOR_MARKING
+    };
+
+    // Fields
+    protected static final String FIELD_ID = "_id";
+    protected static final String FIELD_SOURCE = "_source";
+    protected static final String FIELD_NGRAM_SUFFIX = "_ngram";
+    protected static final String FIELD_PROGRAM_ID = "programId";
+    protected static final String FIELD_PROGRAM_LABEL = "programLabel";
+    protected static final String FIELD_VESSEL_TYPE_ID = "vesselTypeId";
+    protected static final String FIELD_REGISTRATION_LOCATION_ID = "registrationLocationId";
+    protected static final String FIELD_COUNTRY_REGISTRATION_LOCATION_ID = "countryRegistrationLocationId";
+    protected static final String FIELD_BASE_PORT_LOCATION_ID = "basePortLocationId";
+
+    protected static final Set<String> TEXT_FIELDS = Set.of(
+        VesselSnapshotVO.Fields.NAME,
+        VesselSnapshotVO.Fields.EXTERIOR_MARKING,
+        VesselSnapshotVO.Fields.REGISTRATION_CODE,
+        VesselSnapshotVO.Fields.INT_REGISTRATION_CODE
+    );
+
+    protected static final Set<String> LONG_SORT_FIELDS = Set.of(
+        VesselSnapshotVO.Fields.VESSEL_ID,
+        VesselSnapshotVO.Fields.VESSEL_FEATURES_ID,
+        VesselSnapshotVO.Fields.START_DATE,
+        VesselSnapshotVO.Fields.END_DATE,
+        VesselSnapshotVO.Fields.UPDATE_DATE
+    );
+
+    // Longer words are searched using a wildcard query
+    protected static final int MAX_NGRAM = 15;
+
+    protected final SumarisConfiguration configuration;
+
+    protected final ObjectMapper objectMapper;
+
+    // Updated by configuration events, but read by indexing and search threads
+    private volatile boolean enableRegistrationCodeSearchAsPrefix = true;
+
+    private volatile boolean enable = false;
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    public VesselSnapshotLuceneRepository(SumarisConfiguration configuration,
+                                          ObjectMapper objectMapper) {
+        this.configuration = configuration;
+        this.objectMapper = objectMapper.copy()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+    }
+
+    @PostConstruct
+    @EventListener({ConfigurationReadyEvent.class, ConfigurationUpdatedEvent.class})
+    public void onConfigurationReady() {
+        this.enableRegistrationCodeSearchAsPrefix = configuration.enableVesselRegistrationCodeSearchAsPrefix();
+
+        boolean enable = configuration.enableLuceneVesselSnapshot();
+        if (this.enable != enable) {
+            if (enable) {
+                this.enable = open();
+            }
+            else {
+                // Disable first, so that other threads stop using the index before it is closed
+                this.enable = false;
+                close();
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            if (searcherManager != null) searcherManager.close();
+            if (writer != null) writer.close();
+            if (directory != null) directory.close();
+        } catch (IOException e) {
+            log.error("Failed to close Lucene index {{}}: {}", INDEX_NAME, e.getMessage(), e);
+        } finally {
+            searcherManager = null;
+            writer = null;
+            directory = null;
+        }
+    }
+
+    @Override
+    public long count() {
+        if (!this.enable) return -1L;
+        return withSearcher(searcher -> (long) searcher.getIndexReader().numDocs());
+    }
+
+    @Override
+    public long count(@NonNull VesselFilterVO filter) {
+        checkEnable();
+        Query query = createQuery(filter);
+        return withSearcher(searcher -> (long) searcher.count(query));
+    }
+
+    @Override
+    public List<VesselSnapshotVO> findAll(@NonNull VesselFilterVO filter, int offset, int size, String sortAttribute, SortDirection sortDirection, VesselFetchOptions fetchOptions) {
+        return findAll(filter, Page.create(offset, size, sortAttribute, sortDirection), fetchOptions);
+    }
+
+    @Override
+    public List<VesselSnapshotVO> findAll(@NonNull VesselFilterVO filter, @Nullable Page page, @Nullable VesselFetchOptions fetchOptions) {
+        return findAllAsPage(filter, page, fetchOptions).getContent();
+    }
+
+    @Override
+    public org.springframework.data.domain.Page<VesselSnapshotVO> findAllAsPage(@NonNull VesselFilterVO filter,
+                                                                                @Nullable Page page,
+                                                                                @Nullable VesselFetchOptions fetchOptions) {
+        checkEnable();
+        Query query = createQuery(filter);
+        Sort sort = createSort(page);
+
+        return withSearcher(searcher -> {
+            long total = searcher.count(query);
+            Pageable pageable = page != null
+                ? Pageables.create(page.getOffset(), page.getSize(), page.getSortDirection(), page.getSortBy())
+                : Pageable.unpaged();
+            if (total == 0) return new PageImpl<>(List.of(), pageable, 0);
+
+            int offset = page != null ? (int) page.getOffset() : 0;
+            int size = page != null ? page.getSize() : (int) total;
+            if (offset >= total) return new PageImpl<>(List.of(), pageable, total);
+
+            TopDocs topDocs = searcher.search(query, offset + size, sort);
+            List<VesselSnapshotVO> content = readSources(searcher, topDocs, offset);
+            return new PageImpl<>(content, pageable, total);
+        });
+    }
+
+    @Override
+    public Optional<VesselSnapshotVO> findByVesselIdAtDate(int vesselId, @Nullable Date date) {
+        checkEnable();
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+            .add(IntPoint.newExactQuery(VesselSnapshotVO.Fields.VESSEL_ID, vesselId), BooleanClause.Occur.FILTER);
+        if (date != null) {
+            query.add(LongPoint.newRangeQuery(VesselSnapshotVO.Fields.START_DATE, Long.MIN_VALUE, date.getTime()), BooleanClause.Occur.FILTER);
+            query.add(LongPoint.newRangeQuery(VesselSnapshotVO.Fields.END_DATE, date.getTime(), Long.MAX_VALUE), BooleanClause.Occur.FILTER);
+        }
+        Sort sort = new Sort(new SortField(VesselSnapshotVO.Fields.START_DATE, SortField.Type.LONG, true));
+
+        Optional<VesselSnapshotVO> result = withSearcher(searcher -> {
+            TopDocs topDocs = searcher.search(query.build(), 1, sort);
+            return readSources(searcher, topDocs, 0).stream().findFirst();
+        });
+
+        // Retry without date
+        if (result.isEmpty() && date != null) return findByVesselIdAtDate(vesselId, null);
+
+        return result;
+    }
+
+    @Override
+    public Optional<Date> findMaxUpdateDate() {
+        checkEnable();
+        Sort sort = new Sort(new SortField(VesselSnapshotVO.Fields.UPDATE_DATE, SortField.Type.LONG, true));
+        return withSearcher(searcher -> {
+            TopDocs topDocs = searcher.search(new MatchAllDocsQuery(), 1, sort);
+            return readSources(searcher, topDocs, 0).stream()
+                .map(VesselSnapshotVO::getUpdateDate)
+                .filter(Objects::nonNull)
+                .findFirst();
+        });
+    }
+
+    @Override
+    public List<Integer> findAllVesselFeaturesIds() {
+        return findAllVesselFeaturesIdsByFilter(null);
+    }
+
+    @Override
+    public List<Integer> findAllVesselFeaturesIdsByFilter(@Nullable VesselFilterVO filter) {
+        checkEnable();
+        Query query = filter != null ? createQuery(filter) : new MatchAllDocsQuery();
+        return withSearcher(searcher -> {
+            List<Integer> result = Lists.newArrayList();
+            searcher.search(query, new SimpleCollector() {
+                private NumericDocValues values;
+
+                @Override
+                protected void doSetNextReader(LeafReaderContext context) throws IOException {
+                    values = DocValues.getNumeric(context.reader(), VesselSnapshotVO.Fields.VESSEL_FEATURES_ID);
+                }
+
+                @Override
+                public void collect(int doc) throws IOException {
+                    if (values.advanceExact(doc)) result.add((int) values.longValue());
+                }
+
+                @Override
+                public ScoreMode scoreMode() {
+                    return ScoreMode.COMPLETE_NO_SCORES;
+                }
+            });
+            return result;
+        });
+    }
+
+    @Override
+    public Iterable<VesselSnapshotVO> bulkIndex(Iterable<VesselSnapshotVO> items) {
+        checkEnable();
+        try {
+            for (VesselSnapshotVO item : items) {
+                writer.updateDocument(new Term(FIELD_ID, item.getVesselFeaturesId().toString()), toDocument(item));
+            }
+            return items;
+        } catch (IOException e) {
+            throw new SumarisTechnicalException("Failed to perform bulk index", e);
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Integer> vesselFeaturesIds) {
+        checkEnable();
+        Term[] terms = Lists.newArrayList(vesselFeaturesIds).stream()
+            .filter(Objects::nonNull)
+            .map(id -> new Term(FIELD_ID, id.toString()))
+            .toArray(Term[]::new);
+        if (terms.length == 0) return;
+        try {
+            writer.deleteDocuments(terms);
+        } catch (IOException e) {
+            throw new SumarisTechnicalException("Failed to delete vessel snapshots", e);
+        }
+    }
+
+    @Override
+    public void recreate() {
+        checkEnable();
+        try {
+            log.debug("Lucene index {{}}: removing all documents", INDEX_NAME);
+            writer.deleteAll();
+            refresh();
+        } catch (IOException e) {
+            throw new SumarisTechnicalException("Failed to recreate the vessel snapshots index", e);
+        }
+    }
+
+    /**
+     * Commit changes to the disk, then make them visible to searches
+     */
+    @Override
+    public void refresh() {
+        checkEnable();
+        try {
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new SumarisTechnicalException("Failed to refresh the vessel snapshots index", e);
+        }
+    }
+
+    @Override
+    public boolean disableReplicas() {
+        return true; // No replicas: embedded index
+    }
+
+    @Override
+    public boolean enableReplicas() {
+        return true; // No replicas: embedded index
+    }
+
+    /* -- protected functions -- */
+
+    protected synchronized boolean open() {
+        File indexDirectory = new File(configuration.getLuceneDirectory(), INDEX_NAME);
+        try {
+            log.info("Opening Lucene index {{}} at {{}}...", INDEX_NAME, indexDirectory.getAbsolutePath());
+            this.directory = FSDirectory.open(indexDirectory.toPath());
+            IndexWriterConfig config = new IndexWriterConfig(createAnalyzer())
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            this.writer = new IndexWriter(directory, config);
+            this.searcherManager = new SearcherManager(writer, null);
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to open Lucene index {{}}: {}", indexDirectory.getAbsolutePath(), e.getMessage(), e);
+            close();
+            return false;
+        }
+    }
+
+    protected void checkEnable() {
+        if (!this.enable) throw new SumarisTechnicalException("Lucene vessel snapshot index has been disabled");
+    }
+
+    protected Analyzer createAnalyzer() {
+        // Lowercase n-grams of the whole value (e.g. 'navire 1' => 'n', 'na', 'nav', ..., 'e 1', ' 1', '1')
+        Analyzer ngramAnalyzer = new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = new KeywordTokenizer();
+                TokenStream stream = new LowerCaseFilter(tokenizer);
+                stream = new NGramTokenFilter(stream, 1, MAX_NGRAM, false);
+                return new TokenStreamComponents(tokenizer, stream);
+            }
+        };
+        Map<String, Analyzer> analyzerByField = TEXT_FIELDS.stream()
+            .collect(Collectors.toMap(field -> field + FIELD_NGRAM_SUFFIX, field -> ngramAnalyzer));
+        return new PerFieldAnalyzerWrapper(new KeywordAnalyzer(), analyzerByField);
+    }
+
+    protected Document toDocument(VesselSnapshotVO source) throws IOException {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_ID, source.getVesselFeaturesId().toString(), Field.Store.NO));
+        doc.add(new StoredField(FIELD_SOURCE, new BytesRef(objectMapper.writeValueAsBytes(source))));
+
+        // Ids
+        addInt(doc, VesselSnapshotVO.Fields.VESSEL_FEATURES_ID, source.getVesselFeaturesId(), true);
+        addInt(doc, VesselSnapshotVO.Fields.VESSEL_ID, source.getVesselId(), true);
+        addInt(doc, VesselSnapshotVO.Fields.VESSEL_STATUS_ID, source.getVesselStatusId(), false);
+        addInt(doc, FIELD_VESSEL_TYPE_ID, getId(source.getVesselType()), false);
+        addInt(doc, FIELD_REGISTRATION_LOCATION_ID, getId(source.getRegistrationLocation()), false);
+        addInt(doc, FIELD_COUNTRY_REGISTRATION_LOCATION_ID, getId(source.getCountryRegistrationLocation()), false);
+        addInt(doc, FIELD_BASE_PORT_LOCATION_ID, getId(source.getBasePortLocation()), false);
+        if (source.getProgram() != null) {
+            addInt(doc, FIELD_PROGRAM_ID, source.getProgram().getId(), false);
+            if (source.getProgram().getLabel() != null) {
+                doc.add(new StringField(FIELD_PROGRAM_LABEL, source.getProgram().getLabel().toLowerCase(), Field.Store.NO));
+            }
+        }
+
+        // Dates
+        addDate(doc, VesselSnapshotVO.Fields.START_DATE, source.getStartDate());
+        addDate(doc, VesselSnapshotVO.Fields.END_DATE, source.getEndDate() != null ? source.getEndDate() : DEFAULT_END_DATE);
+        addDate(doc, VesselSnapshotVO.Fields.UPDATE_DATE, source.getUpdateDate());
+
+        // Texts
+        addText(doc, VesselSnapshotVO.Fields.NAME, source.getName());
+        addText(doc, VesselSnapshotVO.Fields.EXTERIOR_MARKING, source.getExteriorMarking());
+        addText(doc, VesselSnapshotVO.Fields.REGISTRATION_CODE, source.getRegistrationCode());
+        addText(doc, VesselSnapshotVO.Fields.INT_REGISTRATION_CODE, source.getIntRegistrationCode());
+        return doc;
+    }
+
+    protected void addInt(Document doc, String field, Integer value, boolean sortable) {
+        if (value == null) return;
+        doc.add(new IntPoint(field, value));
+        if (sortable) doc.add(new NumericDocValuesField(field, value));
+    }
+
+    protected void addDate(Document doc, String field, Date value) {
+        if (value == null) return;
+        doc.add(new LongPoint(field, value.getTime()));
+        doc.add(new NumericDocValuesField(field, value.getTime()));
+    }
+
+    protected void addText(Document doc, String field, String value) {
+        if (StringUtils.isBlank(value)) return;
+        String lowerValue = value.trim().toLowerCase();
+        doc.add(new StringField(field, lowerValue, Field.Store.NO));
+        doc.add(new TextField(field + FIELD_NGRAM_SUFFIX, lowerValue, Field.Store.NO));
+        doc.add(new SortedDocValuesField(field, new BytesRef(lowerValue)));
+    }
+
+    protected Query createQuery(@NonNull VesselFilterVO filter) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        boolean hasClause = false;
+
+        // IDs
+        hasClause |= addFilter(builder, VesselSnapshotVO.Fields.VESSEL_FEATURES_ID, filter.getVesselFeaturesId());
+        hasClause |= addFilter(builder, VesselSnapshotVO.Fields.VESSEL_ID, filter.getVesselId());
+        hasClause |= addFilter(builder, VesselSnapshotVO.Fields.VESSEL_ID, filter.getIncludedIds());
+        if (ArrayUtils.isNotEmpty(filter.getExcludedIds())) {
+            builder.add(IntPoint.newSetQuery(VesselSnapshotVO.Fields.VESSEL_ID, toIntArray(filter.getExcludedIds())), BooleanClause.Occur.MUST_NOT);
+        }
+
+        // Type
+        hasClause |= addFilter(builder, FIELD_VESSEL_TYPE_ID, filter.getVesselTypeId());
+        hasClause |= addFilter(builder, FIELD_VESSEL_TYPE_ID, filter.getVesselTypeIds());
+
+        // Registration location (a country, or a registration location)
+        if (filter.getRegistrationLocationId() != null) {
+            int locationId = filter.getRegistrationLocationId();
+            builder.add(new BooleanQuery.Builder()
+                .add(IntPoint.newExactQuery(FIELD_REGISTRATION_LOCATION_ID, locationId), BooleanClause.Occur.SHOULD)
+                .add(IntPoint.newExactQuery(FIELD_COUNTRY_REGISTRATION_LOCATION_ID, locationId), BooleanClause.Occur.SHOULD)
+                .build(), BooleanClause.Occur.FILTER);
+            hasClause = true;
+        }
+        hasClause |= addFilter(builder, FIELD_BASE_PORT_LOCATION_ID, filter.getBasePortLocationId());
+
+        // Status
+        if (CollectionUtils.isNotEmpty(filter.getStatusIds())) {
+            hasClause |= addFilter(builder, VesselSnapshotVO.Fields.VESSEL_STATUS_ID, filter.getStatusIds().toArray(Integer[]::new));
+        }
+
+        // Program
+        if (StringUtils.isNotBlank(filter.getProgramLabel())) {
+            builder.add(new TermQuery(new Term(FIELD_PROGRAM_LABEL, filter.getProgramLabel().toLowerCase())), BooleanClause.Occur.FILTER);
+            hasClause = true;
+        }
+        hasClause |= addFilter(builder, FIELD_PROGRAM_ID, filter.getProgramIds());
+
+        // Dates
+        if (filter.getEndDate() != null) {
+            builder.add(LongPoint.newRangeQuery(VesselSnapshotVO.Fields.START_DATE, Long.MIN_VALUE, filter.getEndDate().getTime()), BooleanClause.Occur.FILTER);
+            hasClause = true;
+        }
+        if (filter.getStartDate() != null) {
+            builder.add(LongPoint.newRangeQuery(VesselSnapshotVO.Fields.END_DATE, filter.getStartDate().getTime(), Long.MAX_VALUE), BooleanClause.Occur.FILTER);
+            hasClause = true;
+        }
+        if (filter.getMinUpdateDate() != null) {
+            builder.add(LongPoint.newRangeQuery(VesselSnapshotVO.Fields.UPDATE_DATE, filter.getMinUpdateDate().getTime() + 1, Long.MAX_VALUE), BooleanClause.Occur.FILTER);
+            hasClause = true;
+        }
+
+        // Text
+        Query searchTextQuery = createSearchTextQuery(filter.getSearchAttributes(), filter.getSearchText());
+        if (searchTextQuery != null) {
+            builder.add(searchTextQuery, BooleanClause.Occur.MUST);
+            hasClause = true;
+        }
+
+        // No positive clause: match all (e.g. only excluded ids)
+        if (!hasClause) {
+            builder.add(new MatchAllDocsQuery(), BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+
+    protected Query createSearchTextQuery(String[] searchAttributes, String searchText) {
+        if (StringUtils.isBlank(searchText)) return null;
+
+        String[] searchWords = searchText.trim().toLowerCase().split("\\s+");
+        String[] attributes = ArrayUtils.isNotEmpty(searchAttributes) ? searchAttributes : DEFAULT_SEARCH_ATTRIBUTES;
+
+        // At least one attribute should match all words
+        BooleanQuery.Builder searchTextQuery = new BooleanQuery.Builder().setMinimumNumberShouldMatch(1);
+        for (String attr : attributes) {
+            if (!TEXT_FIELDS.contains(attr)) continue; // Skip not indexed attribute
+            BooleanQuery.Builder attrQuery = new BooleanQuery.Builder();
+            for (int i = 0; i < searchWords.length; i++) {
+                String word = searchWords[i];
+                boolean isPrefixMatch = enableRegistrationCodeSearchAsPrefix && i == 0 && !attr.endsWith(VesselSnapshotVO.Fields.NAME);
+                boolean noWildcard = word.indexOf('*') == -1 && word.indexOf('?') == -1;
+
+                Query wordQuery;
+                if (isPrefixMatch && noWildcard) {
+                    wordQuery = new PrefixQuery(new Term(attr, word));
+                }
+                else if (noWildcard && word.length() <= MAX_NGRAM) {
+                    // Contains the word: use n-grams
+                    wordQuery = new TermQuery(new Term(attr + FIELD_NGRAM_SUFFIX, word));
+                }
+                else {
+                    String pattern = (isPrefixMatch || word.startsWith("*") ? "" : "*") + word + (word.endsWith("*") ? "" : "*");
+                    wordQuery = new WildcardQuery(new Term(attr, pattern));
+                }
+                attrQuery.add(wordQuery, BooleanClause.Occur.MUST);
+            }
+            searchTextQuery.add(attrQuery.build(), BooleanClause.Occur.SHOULD);
+        }
+        return searchTextQuery.build();
+    }
+
+    protected boolean addFilter(BooleanQuery.Builder builder, String field, Integer value) {
+        if (value == null) return false;
+        builder.add(IntPoint.newExactQuery(field, value), BooleanClause.Occur.FILTER);
+        return true;
+    }
+
+    protected boolean addFilter(BooleanQuery.Builder builder, String field, Integer[] values) {
+        if (ArrayUtils.isEmpty(values)) return false;
+        builder.add(IntPoint.newSetQuery(field, toIntArray(values)), BooleanClause.Occur.FILTER);
+        return true;
+    }
+
+    protected Sort createSort(@Nullable Page page) {
+        if (page == null || StringUtils.isBlank(page.getSortBy())) {
+            return new Sort(SortField.FIELD_SCORE, new SortField(VesselSnapshotVO.Fields.VESSEL_FEATURES_ID, SortField.Type.LONG));
+        }
+        String sortBy = IEntity.Fields.ID.equals(page.getSortBy()) ? VesselSnapshotVO.Fields.VESSEL_ID : page.getSortBy();
+        boolean reverse = page.getSortDirection() == SortDirection.DESC;
+
+        SortField sortField;
+        if (LONG_SORT_FIELDS.contains(sortBy)) {
+            sortField = new SortField(sortBy, SortField.Type.LONG, reverse);
+        }
+        else if (TEXT_FIELDS.contains(sortBy)) {
+            sortField = new SortField(sortBy, SortField.Type.STRING, reverse);
+            sortField.setMissingValue(reverse ? SortField.STRING_FIRST : SortField.STRING_LAST);
+        }
+        else {
+            // Not sortable (e.g. a nested property): sort by relevance
+            sortField = SortField.FIELD_SCORE;
+        }
+
+        // Add the vessel features id, to have a stable order
+        return new Sort(sortField, new SortField(VesselSnapshotVO.Fields.VESSEL_FEATURES_ID, SortField.Type.LONG));
+    }
+
+    protected List<VesselSnapshotVO> readSources(IndexSearcher searcher, TopDocs topDocs, int offset) throws IOException {
+        ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+        if (scoreDocs.length <= offset) return List.of();
+        List<VesselSnapshotVO> result = new ArrayList<>(scoreDocs.length - offset);
+        Set<String> fieldsToLoad = Set.of(FIELD_SOURCE);
+        for (int i = offset; i < scoreDocs.length; i++) {
+            BytesRef source = searcher.doc(scoreDocs[i].doc, fieldsToLoad).getBinaryValue(FIELD_SOURCE);
+            if (source != null) {
+                result.add(objectMapper.readValue(source.bytes, source.offset, source.length, VesselSnapshotVO.class));
+            }
+        }
+        return result;
+    }
+
+    protected <R> R withSearcher(SearcherFunction<R> function) {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return function.apply(searcher);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new SumarisTechnicalException(String.format("Failed to search in Lucene index {%s}: %s", INDEX_NAME, e.getMessage()), e);
+        }
+    }
+
+    protected static Integer getId(IReferentialVO<Integer> source) {
+        return source != null ? source.getId() : null;
+    }
+
+    protected static int[] toIntArray(Integer[] values) {
+        return Arrays.stream(values).filter(Objects::nonNull).mapToInt(Integer::intValue).toArray();
+    }
+
+    protected interface SearcherFunction<R> {
+        R apply(IndexSearcher searcher) throws IOException;
+    }
+}
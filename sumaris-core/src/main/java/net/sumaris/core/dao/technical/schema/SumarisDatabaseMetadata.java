@@ -52,10 +52,15 @@ import javax.annotation.PostConstruct;
 import javax.sql.DataSource;
 import java.io.Serializable;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 /**
  * Sumaris database metadatas.
  * 
@@ -85,6 +90,9 @@ public class SumarisDatabaseMetadata {
 
 	protected final String defaultUpdateDateColumnName;
 
+	// Current block of identifiers, by sequence name
+	protected final Map<String, AtomicReference<IdentifierBlock>> identifierBlocks = new ConcurrentHashMap<>();
+
 	@Autowired
 	public SumarisDatabaseMetadata(DataSource dataSource, SumarisConfiguration configuration) {
 		super();
@@ -222,8 +230,6 @@ public class SumarisDatabaseMetadata {
 	}
 
 	public Serializable generateIdentifier(SumarisTableMetadata table) throws SQLException {
-		String sequenceNextValQuery = table.getSequenceNextValQuery();
-
 		// Create a new connection then retrieve the metadata :
 		Connection conn = null;
 		try {
@@ -238,21 +244,57 @@ public class SumarisDatabaseMetadata {
 		}
 	}
 
+	/**
+	 * Generate a new identifier, from the table's sequence.
+	 * Identifiers are reserved by blocks (one sequence call per block, of {@link SumarisTableMetadata#getSequenceIncrement()} ids)
+	 */
 	public Serializable generateIdentifier(Connection conn, SumarisTableMetadata table) throws SQLException {
-		String sequenceNextValQuery = table.getSequenceNextValQuery();
+		if (table.getSequenceName() == null) {
+			throw new SumarisTechnicalException(String.format("No sequence found on table {%s}. Unable to generate identifier.", table.getName()));
+		}
+		return nextIdentifier(conn, table.getSequenceName(), table.getSequenceIncrement());
+	}
 
-		if (sequenceNextValQuery == null) {
+	/**
+	 * Generate many identifiers, from the table's sequence.
+	 */
+	public List<Integer> generateIdentifiers(Connection conn, SumarisTableMetadata table, int count) throws SQLException {
+		if (table.getSequenceName() == null) {
 			throw new SumarisTechnicalException(String.format("No sequence found on table {%s}. Unable to generate identifier.", table.getName()));
 		}
-		PreparedStatement statement = conn.prepareStatement(sequenceNextValQuery);
-		try {
-			ResultSet rs = statement.executeQuery();
-			rs.next();
-			return rs.getInt(1);
-		} catch (SQLException e) {
-			Daos.closeSilently(statement);
-			throw e;
+		return nextIdentifiers(conn, table.getSequenceName(), table.getSequenceIncrement(), count);
+	}
+
+	/**
+	 * Get a new identifier from a sequence, without a database call if the current block of ids is not exhausted.
+	 * Use the same block semantics as the Hibernate 'pooled' optimizer: a sequence value V reserve ids [V - incrementSize + 1, V].
+	 * This is thread-safe (without lock): when a block is exhausted, each concurrent thread may reserve a new block.
+	 * Remaining ids of a block that lost the race are never used (like any sequence gap).
+	 *
+	 * @param incrementSize the sequence increment. WARN: must be the same as in the database sequence
+	 */
+	public int nextIdentifier(@NonNull Connection conn, @NonNull String sequenceName, int incrementSize) throws SQLException {
+		AtomicReference<IdentifierBlock> currentBlock = identifierBlocks.computeIfAbsent(sequenceName.toLowerCase(), key -> new AtomicReference<>());
+
+		IdentifierBlock block = currentBlock.get();
+		if (block != null) {
+			int id = block.next.getAndIncrement();
+			if (id <= block.hiValue) return id;
+		}
+
+		// Block exhausted: reserve a new one, then use it as the current block (if not already replaced by another thread)
+		IdentifierBlock newBlock = reserveIdentifierBlock(conn, sequenceName, incrementSize);
+		int id = newBlock.next.getAndIncrement();
+		currentBlock.compareAndSet(block, newBlock);
+		return id;
+	}
+
+	public List<Integer> nextIdentifiers(@NonNull Connection conn, @NonNull String sequenceName, int incrementSize, int count) throws SQLException {
+		List<Integer> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(nextIdentifier(conn, sequenceName, incrementSize));
 		}
+		return result;
 	}
 
 	/* -- protected methods -- */
@@ -429,7 +471,33 @@ public class SumarisDatabaseMetadata {
 
 
 
+	protected IdentifierBlock reserveIdentifierBlock(Connection conn, String sequenceName, int incrementSize) throws SQLException {
+		Preconditions.checkArgument(incrementSize > 0, "Invalid sequence increment: " + incrementSize);
+		String sql = dialect.getSequenceNextValString(sequenceName);
+		try (PreparedStatement statement = conn.prepareStatement(sql)) {
+			while (true) {
+				try (ResultSet rs = statement.executeQuery()) {
+					if (!rs.next()) throw new SumarisTechnicalException("Cannot read next value of sequence " + sequenceName);
+					int hiValue = rs.getInt(1);
+					int loValue = hiValue - incrementSize + 1;
+					if (loValue >= 1) return new IdentifierBlock(loValue, hiValue);
+					// Skip the initial value (not a full block)
+				}
+			}
+		}
+	}
+
 	private String getCacheKey(QualifiedTableName qualifiedTableName) {
 		return qualifiedTableName.render().toLowerCase();
 	}
+
+	protected static class IdentifierBlock {
+		final int hiValue;
+		final AtomicInteger next;
+
+		IdentifierBlock(int loValue, int hiValue) {
+			this.hiValue = hiValue;
+			this.next = new AtomicInteger(loValue);
+		}
+	}
 }
@@ -27,10 +27,13 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.config.SumarisConfiguration;
+import org.apache.commons.lang3.StringUtils;
 import org.hibernate.boot.model.relational.QualifiedTableName;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.hibernate.mapping.Column;
 import org.hibernate.mapping.ForeignKey;
 import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.SimpleValue;
 import org.hibernate.mapping.Table;
 
 import java.sql.DatabaseMetaData;
@@ -38,6 +41,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 /**
@@ -96,11 +100,23 @@ public class SumarisHibernateTableMetadata extends SumarisTableMetadata {
 
 			this.hqlSelectQuery = persistentClass != null ? String.format(QUERY_HQL_SELECT, this.persistentClass.getEntityName()) : null;
 
+			this.sequenceIncrement = initSequenceIncrement(persistentClass);
+
 		} catch (Exception e) {
 			throw new SQLException("Could not init metadata on table " + tableName.getTableName(), e);
 		}
 	}
 
+	/**
+	 * Read the sequence increment, from the entity identifier generator (e.g. @SequenceGenerator's allocationSize)
+	 */
+	protected int initSequenceIncrement(PersistentClass persistentClass) {
+		if (persistentClass == null || !(persistentClass.getIdentifier() instanceof SimpleValue identifier)) return 1;
+		Properties params = identifier.getIdentifierGeneratorProperties();
+		String incrementSize = params != null ? params.getProperty(SequenceStyleGenerator.INCREMENT_PARAM) : null;
+		return StringUtils.isNumeric(incrementSize) ? Math.max(1, Integer.parseInt(incrementSize)) : 1;
+	}
+
 	public String getSelectHQLQuery() {
 		return hqlSelectQuery;
 	}
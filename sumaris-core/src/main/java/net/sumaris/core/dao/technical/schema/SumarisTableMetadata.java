@@ -86,6 +86,7 @@ public class SumarisTableMetadata {
 	protected boolean withUpdateDateColumn;
 	protected String sequenceName;
 	protected String sequenceNextValQuery;
+	protected int sequenceIncrement = 1;
 	protected String countDataToUpdateQuery;
 	protected String dataToUpdateQuery;
 
@@ -294,6 +295,13 @@ public class SumarisTableMetadata {
 		return sequenceNextValQuery;
 	}
 
+	/**
+	 * Increment of the sequence (=number of identifiers reserved by each sequence call)
+	 */
+	public int getSequenceIncrement() {
+		return sequenceIncrement;
+	}
+
 	public String getDataToUpdateQuery() {
 		return dataToUpdateQuery;
 	}
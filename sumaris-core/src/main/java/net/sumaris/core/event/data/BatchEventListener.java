@@ -23,18 +23,41 @@
 package net.sumaris.core.event.data;
 
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.config.SumarisConfiguration;
+import net.sumaris.core.event.entity.EntityDeleteEvent;
 import net.sumaris.core.event.entity.EntityEventService;
+import net.sumaris.core.event.entity.EntityInsertEvent;
 import net.sumaris.core.event.entity.EntityUpdateEvent;
 import net.sumaris.core.model.data.Batch;
+import net.sumaris.core.model.data.Operation;
+import net.sumaris.core.model.data.Sale;
 import net.sumaris.core.service.data.denormalize.DenormalizedBatchService;
+import net.sumaris.core.util.TimeUtils;
+import net.sumaris.core.vo.data.OperationVO;
+import net.sumaris.core.vo.data.SaleVO;
 import net.sumaris.core.vo.data.batch.BatchVO;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+/**
+ * Denormalize batches incrementally: operations (or sales) whose batches have changed are queued, then denormalized
+ * by a background worker. Each id is queued once (many changes of the same operation are merged), and processed only
+ * after a delay without any new change (debounce).
+ */
 @Component
 @ConditionalOnProperty(
     name = "sumaris.persistence.denormalizedBatch.enabled",
@@ -47,33 +70,142 @@ public class BatchEventListener {
     @Resource
     private DenormalizedBatchService denormalizedBatchService;
 
+    @Resource
+    private SumarisConfiguration configuration;
+
+    // Queued ids, with the time after which they can be processed
+    private final Map<Integer, Long> operationIdsQueue = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> saleIdsQueue = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService executor;
+
     public BatchEventListener(EntityEventService entityEventService) {
-        log.info("Listening Batch save event, to execute denormalization on each changes");
+        log.info("Listening Batch, Operation and Sale save events, to execute denormalization on each changes");
 
         entityEventService.registerListener(new EntityEventService.Listener() {
             @Override
             public void onUpdate(EntityUpdateEvent event) {
-                Object data = event.getData();
-                if (data instanceof BatchVO) {
-                    onUpdateBatch((BatchVO) data);
+                onSave(event.getEntityName(), event.getId(), event.getData());
+            }
+
+            @Override
+            public void onInsert(EntityInsertEvent event) {
+                onSave(event.getEntityName(), event.getId(), event.getData());
+            }
+
+            @Override
+            public void onDelete(EntityDeleteEvent event) {
+                if (!(event.getId() instanceof Integer)) return;
+                if (Operation.class.getSimpleName().equals(event.getEntityName())) {
+                    operationIdsQueue.remove(event.getId());
+                }
+                else if (Sale.class.getSimpleName().equals(event.getEntityName())) {
+                    saleIdsQueue.remove(event.getId());
                 }
             }
-        }, Batch.class);
+        }, Batch.class, Operation.class, Sale.class);
+    }
+
+    @PostConstruct
+    protected void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("denormalize-batch-%d")
+            .setDaemon(true)
+            .build());
+        long intervalMs = configuration.getDenormalizedBatchIntervalMs();
+        executor.scheduleWithFixedDelay(this::processQueues, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    protected void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public int getQueueSize() {
+        return operationIdsQueue.size() + saleIdsQueue.size();
+    }
+
+    /* -- protected functions -- */
+
+    protected void onSave(String entityName, Serializable id, Object data) {
+        if (data instanceof BatchVO) {
+            onUpdateBatch((BatchVO) data);
+            return;
+        }
+        if (!(id instanceof Integer)) return; // Skip
+
+        if (data instanceof OperationVO || Operation.class.getSimpleName().equals(entityName)) {
+            enqueue(operationIdsQueue, (Integer) id);
+        }
+        else if (data instanceof SaleVO || Sale.class.getSimpleName().equals(entityName)) {
+            enqueue(saleIdsQueue, (Integer) id);
+        }
     }
+
     protected void onUpdateBatch(BatchVO batch) {
 
         BatchVO catchBatch = batch != null && batch.getParent() == null && batch.getParentId() == null ? batch : null;
         if (catchBatch == null) return; // Skip if not a catch batch
 
-        // TODO: compute options
         if (catchBatch.getOperationId() != null) {
-            denormalizedBatchService.denormalizeAndSaveByOperationId(catchBatch.getOperationId(), null);
+            enqueue(operationIdsQueue, catchBatch.getOperationId());
         }
         else if (catchBatch.getSaleId() != null) {
-            denormalizedBatchService.denormalizeAndSaveBySaleId(catchBatch.getSaleId(), null);
+            enqueue(saleIdsQueue, catchBatch.getSaleId());
         }
         else {
             log.warn("Invalid catch batch update event: no parent found! Expected one of operation or sale.");
         }
     }
+
+    protected void enqueue(Map<Integer, Long> queue, Integer id) {
+        if (id == null) return;
+        // Add (or delay) the id
+        queue.put(id, System.currentTimeMillis() + configuration.getDenormalizedBatchDebounceMs());
+    }
+
+    protected void processQueues() {
+        try {
+            // TODO: compute options
+            processQueue(operationIdsQueue, "operation", id -> denormalizedBatchService.denormalizeAndSaveByOperationId(id, null));
+            processQueue(saleIdsQueue, "sale", id -> denormalizedBatchService.denormalizeAndSaveBySaleId(id, null));
+        }
+        catch (Throwable t) {
+            // Catch all, to keep the scheduled task alive
+            log.error("Error while processing batch denormalization queue: " + t.getMessage(), t);
+        }
+    }
+
+    protected void processQueue(Map<Integer, Long> queue, String parentName, Consumer<Integer> processor) {
+        if (queue.isEmpty()) return;
+
+        long now = System.currentTimeMillis();
+        long startTime = now;
+        int count = 0;
+        for (Map.Entry<Integer, Long> entry : queue.entrySet()) {
+            if (Thread.currentThread().isInterrupted()) return;
+
+            Integer id = entry.getKey();
+            Long dueTime = entry.getValue();
+            if (dueTime > now) continue; // Wait more changes
+
+            // Remove, only if not changed since (otherwise, wait the next iteration)
+            if (!queue.remove(id, dueTime)) continue;
+
+            try {
+                processor.accept(id);
+                count++;
+            }
+            catch (Exception e) {
+                log.error("Error while denormalizing batches of {} {id: {}}: {}", parentName, id, e.getMessage(), e);
+            }
+        }
+
+        if (count > 0 && log.isDebugEnabled()) {
+            log.debug("Batches denormalization of {} {}(s) [OK] in {} - {} remaining in queue", count, parentName, TimeUtils.printDurationFrom(startTime), queue.size());
+        }
+    }
 }
@@ -24,6 +24,11 @@ package net.sumaris.core.model.data;
 
 public interface IQuantifiedMeasurementEntity extends IMeasurementEntity {
 
+    interface Fields extends IMeasurementEntity.Fields {
+        String IS_REFERENCE_QUANTIFICATION = "isReferenceQuantification";
+        String SUBGROUP_NUMBER = "subgroupNumber";
+    }
+
     Boolean getIsReferenceQuantification();
 
     void setIsReferenceQuantification(Boolean isReferenceQuantification);
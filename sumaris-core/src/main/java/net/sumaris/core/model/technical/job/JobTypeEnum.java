@@ -24,31 +24,64 @@ package net.sumaris.core.model.technical.job;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Optional;
 
 public enum JobTypeEnum implements Serializable {
 
-    EXTRACTION("SUMARIS_EXTRACTION"),
-    IMPORTATION("IMPORTATION"),
-    SIOP_VESSELS_IMPORTATION("SIOP_VESSELS_IMPORTATION"),
-    VESSEL_SNAPSHOTS_INDEXATION("VESSEL_SNAPSHOTS_INDEXATION"),
-    ACTIVITY_CALENDARS_IMPORTATION("ACTIVITY_CALENDARS_IMPORTATION"),
+    EXTRACTION("SUMARIS_EXTRACTION", JobTypeEnum.PRIORITY_LOW, 2),
+    IMPORTATION("IMPORTATION", JobTypeEnum.PRIORITY_LOW, 1),
+    SIOP_VESSELS_IMPORTATION("SIOP_VESSELS_IMPORTATION", JobTypeEnum.PRIORITY_LOW, 1),
+    VESSEL_SNAPSHOTS_INDEXATION("VESSEL_SNAPSHOTS_INDEXATION", JobTypeEnum.PRIORITY_HIGH, 1),
+    ACTIVITY_CALENDARS_IMPORTATION("ACTIVITY_CALENDARS_IMPORTATION", JobTypeEnum.PRIORITY_LOW, 1),
 
-    FILL_LOCATION_HIERARCHY("FILL_LOCATION_HIERARCHY"),
-    FILL_TAXON_GROUP_HIERARCHY("FILL_TAXON_GROUP_HIERARCHY");
+    FILL_LOCATION_HIERARCHY("FILL_LOCATION_HIERARCHY", JobTypeEnum.PRIORITY_NORMAL, 1),
+    FILL_TAXON_GROUP_HIERARCHY("FILL_TAXON_GROUP_HIERARCHY", JobTypeEnum.PRIORITY_NORMAL, 1);
+
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 5;
+    public static final int PRIORITY_HIGH = 10;
 
     private final String id;
+    private final int priority;
+    private final int maxConcurrency;
 
-    JobTypeEnum(String id) {
+    JobTypeEnum(String id, int priority, int maxConcurrency) {
         this.id = id;
+        this.priority = priority;
+        this.maxConcurrency = maxConcurrency;
     }
 
     public String getId() {
         return id;
     }
 
+    /**
+     * Scheduling priority (higher first)
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Default max number of jobs of this type, running at the same time
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
     public static JobTypeEnum byId(final String id) {
         return Arrays.stream(values()).filter(enumValue -> enumValue.getId().equals(id)).findFirst()
                 .orElseThrow(() -> new IllegalArgumentException("Unknown JobTypeEnum: " + id));
     }
 
+    /**
+     * Find a type by name or by id
+     */
+    public static Optional<JobTypeEnum> findByNameOrId(final String nameOrId) {
+        if (nameOrId == null) return Optional.empty();
+        return Arrays.stream(values())
+            .filter(enumValue -> enumValue.name().equals(nameOrId) || enumValue.getId().equals(nameOrId))
+            .findFirst();
+    }
+
 }
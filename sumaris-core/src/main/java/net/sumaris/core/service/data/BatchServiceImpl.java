@@ -165,6 +165,10 @@ public class BatchServiceImpl implements BatchService {
 
 	protected void saveMeasurements(List<BatchVO> result){
 
+		// Measurements maps, by batch id (saved at once, for all batches)
+		Map<Integer, Map<Integer, String>> sortingMeasurementsByBatchId = Maps.newLinkedHashMap();
+		Map<Integer, Map<Integer, String>> quantificationMeasurementsByBatchId = Maps.newLinkedHashMap();
+
 		result.stream()
 			// Excluded samples with same hash (= unchanged = not need to save children)
 			.filter(batch -> batch.hasNotFlag(ValueObjectFlags.SAME_HASH))
@@ -190,8 +194,8 @@ public class BatchServiceImpl implements BatchService {
 							}
 						}
 					});
-					measurementDao.saveBatchSortingMeasurementsMap(batch.getId(), sortingMeasurements);
-					measurementDao.saveBatchQuantificationMeasurementsMap(batch.getId(), quantificationMeasurements);
+					sortingMeasurementsByBatchId.put(batch.getId(), sortingMeasurements);
+					quantificationMeasurementsByBatchId.put(batch.getId(), quantificationMeasurements);
 				}
 				else {
 					// Sorting measurement
@@ -211,6 +215,9 @@ public class BatchServiceImpl implements BatchService {
 					}
 				}
 			});
+
+		measurementDao.saveBatchesSortingMeasurementsMap(sortingMeasurementsByBatchId);
+		measurementDao.saveBatchesQuantificationMeasurementsMap(quantificationMeasurementsByBatchId);
 	}
 	protected void fillDefaultProperties(BatchVO parent, MeasurementVO measurement, Class<? extends IMeasurementEntity> entityClass) {
 		if (measurement == null) return;
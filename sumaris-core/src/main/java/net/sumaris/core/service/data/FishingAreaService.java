@@ -25,7 +25,9 @@ package net.sumaris.core.service.data;
 import net.sumaris.core.vo.data.FishingAreaVO;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author ludovic.pecquot@e-is.pro
@@ -48,6 +50,9 @@ public interface FishingAreaService {
     @Transactional(readOnly = true)
     List<FishingAreaVO> getAllByOperationId(int operationId);
 
+    @Transactional(readOnly = true)
+    Map<Integer, List<FishingAreaVO>> getAllByOperationIds(Collection<Integer> operationIds);
+
     List<FishingAreaVO> saveAllByOperationId(int operationId, List<FishingAreaVO> fishingAreas);
 
     List<FishingAreaVO> saveAllBySaleId(int saleId, List<FishingAreaVO> fishingAreas);
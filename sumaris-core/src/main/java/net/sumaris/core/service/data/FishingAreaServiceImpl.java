@@ -33,8 +33,10 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -99,6 +101,11 @@ public class FishingAreaServiceImpl implements FishingAreaService {
         return fishingAreaRepository.getAllByOperationId(operationId);
     }
 
+    @Override
+    public Map<Integer, List<FishingAreaVO>> getAllByOperationIds(Collection<Integer> operationIds) {
+        return fishingAreaRepository.getAllByOperationIds(operationIds);
+    }
+
     @Override
     public List<FishingAreaVO> saveAllByOperationId(int operationId, List<FishingAreaVO> fishingAreas) {
         Preconditions.checkNotNull(fishingAreas);
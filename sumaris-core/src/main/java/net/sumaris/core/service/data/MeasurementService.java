@@ -27,6 +27,7 @@ import net.sumaris.core.vo.data.MeasurementVO;
 import net.sumaris.core.vo.data.QuantificationMeasurementVO;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -45,6 +46,9 @@ public interface MeasurementService {
     @Transactional(readOnly = true)
     Map<Integer, String> getTripVesselUseMeasurementsMap(int tripId);
 
+    @Transactional(readOnly = true)
+    Map<Integer, Map<Integer, String>> getTripsVesselUseMeasurementsMap(Collection<Integer> tripIds);
+
     @Transactional(readOnly = true)
     List<MeasurementVO> getPhysicalGearMeasurements(int physicalGearId);
 
@@ -66,6 +70,12 @@ public interface MeasurementService {
     @Transactional(readOnly = true)
     Map<Integer, String> getOperationGearUseMeasurementsMap(int operationId);
 
+    @Transactional(readOnly = true)
+    Map<Integer, Map<Integer, String>> getOperationsVesselUseMeasurementsMap(Collection<Integer> operationIds);
+
+    @Transactional(readOnly = true)
+    Map<Integer, Map<Integer, String>> getOperationsGearUseMeasurementsMap(Collection<Integer> operationIds);
+
     @Transactional(readOnly = true)
     List<MeasurementVO> getSampleMeasurements(int sampleId);
 
@@ -31,6 +31,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -51,6 +52,11 @@ public class MeasurementServiceImpl implements MeasurementService {
 		return measurementDao.getTripVesselUseMeasurementsMap(tripId);
 	}
 
+	@Override
+	public Map<Integer, Map<Integer, String>> getTripsVesselUseMeasurementsMap(Collection<Integer> tripIds) {
+		return measurementDao.getTripsVesselUseMeasurementsMap(tripIds);
+	}
+
 	@Override
 	public List<MeasurementVO> getPhysicalGearMeasurements(int physicalGearId) {
 		return measurementDao.getPhysicalGearMeasurements(physicalGearId);
@@ -86,6 +92,16 @@ public class MeasurementServiceImpl implements MeasurementService {
 		return measurementDao.getOperationVesselUseMeasurementsMap(operationId);
 	}
 
+	@Override
+	public Map<Integer, Map<Integer, String>> getOperationsVesselUseMeasurementsMap(Collection<Integer> operationIds) {
+		return measurementDao.getOperationsVesselUseMeasurementsMap(operationIds);
+	}
+
+	@Override
+	public Map<Integer, Map<Integer, String>> getOperationsGearUseMeasurementsMap(Collection<Integer> operationIds) {
+		return measurementDao.getOperationsGearUseMeasurementsMap(operationIds);
+	}
+
 	@Override
 	public List<MeasurementVO> getSampleMeasurements(int sampleId) {
 		return measurementDao.getSampleMeasurements(sampleId);
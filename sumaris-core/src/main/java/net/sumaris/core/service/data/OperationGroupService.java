@@ -28,8 +28,10 @@ import net.sumaris.core.vo.data.OperationGroupVO;
 import net.sumaris.core.vo.referential.metier.MetierVO;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -44,6 +46,9 @@ public interface OperationGroupService {
     @Transactional(readOnly = true)
     List<MetierVO> getMetiersByTripId(int tripId);
 
+    @Transactional(readOnly = true)
+    Map<Integer, List<MetierVO>> getMetiersByTripIds(Collection<Integer> tripIds);
+
     @Transactional(readOnly = true)
     List<OperationGroupVO> findAllByTripId(int tripId, DataFetchOptions options);
 
@@ -75,6 +75,11 @@ public class OperationGroupServiceImpl implements OperationGroupService {
         return operationGroupRepository.getMetiersByTripId(tripId);
     }
 
+    @Override
+    public Map<Integer, List<MetierVO>> getMetiersByTripIds(Collection<Integer> tripIds) {
+        return operationGroupRepository.getMetiersByTripIds(tripIds);
+    }
+
     @Override
     public List<MetierVO> saveMetiersByTripId(int tripId, List<MetierVO> metiers) {
         Preconditions.checkNotNull(metiers);
@@ -34,6 +34,8 @@ import net.sumaris.core.event.config.ConfigurationEvent;
 import net.sumaris.core.event.config.ConfigurationReadyEvent;
 import net.sumaris.core.event.config.ConfigurationUpdatedEvent;
 import net.sumaris.core.event.entity.EntityDeleteEvent;
+import net.sumaris.core.event.entity.EntityInsertEvent;
+import net.sumaris.core.event.entity.EntityUpdateEvent;
 import net.sumaris.core.model.data.GearUseMeasurement;
 import net.sumaris.core.model.data.IMeasurementEntity;
 import net.sumaris.core.model.data.Operation;
@@ -52,7 +54,9 @@ import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -130,11 +134,23 @@ public class OperationServiceImpl implements OperationService {
         // Check operation validity
         sources.forEach(this::checkCanSave);
 
+        List<Boolean> isNewList = sources.stream()
+            .map(source -> source.getId() == null)
+            .collect(Collectors.toList());
+
         // Save entities
         List<OperationVO> result = operationRepository.saveAllByTripId(tripId, sources);
 
+        // Save measurements maps (all operations at once)
+        saveMeasurementsMaps(result);
+
         // Save children entities
-        result.forEach(this::saveChildrenEntities);
+        result.forEach(source -> saveChildrenEntities(source, true));
+
+        // Publish events
+        for (int i = 0; i < result.size(); i++) {
+            publishSaveEvent(result.get(i), isNewList.get(i));
+        }
 
         return result;
     }
@@ -160,11 +176,16 @@ public class OperationServiceImpl implements OperationService {
         // Check operation validity
         checkCanSave(source);
 
+        boolean isNew = source.getId() == null;
+
         // Save the entity
         operationRepository.save(source);
 
         // Save linked entities
-        saveChildrenEntities(source);
+        saveChildrenEntities(source, false);
+
+        // Publish event
+        publishSaveEvent(source, isNew);
 
         return source;
     }
@@ -216,6 +237,14 @@ public class OperationServiceImpl implements OperationService {
 
     /* -- protected methods -- */
 
+    protected void publishSaveEvent(OperationVO source, boolean isNew) {
+        if (isNew) {
+            publisher.publishEvent(new EntityInsertEvent(source.getId(), Operation.class.getSimpleName(), source));
+        } else {
+            publisher.publishEvent(new EntityUpdateEvent(source.getId(), Operation.class.getSimpleName(), source));
+        }
+    }
+
     protected void checkCanSave(final OperationVO source) {
         Preconditions.checkNotNull(source);
         Preconditions.checkNotNull(source.getStartDateTime(), "Missing startDateTime");
@@ -228,7 +257,19 @@ public class OperationServiceImpl implements OperationService {
         source.setControlDate(null);
     }
 
-    protected void saveChildrenEntities(final OperationVO source) {
+    protected void saveMeasurementsMaps(List<OperationVO> sources) {
+        Map<Integer, Map<Integer, String>> measurementsByOperationId = sources.stream()
+            .filter(source -> source.getMeasurementValues() != null)
+            .collect(Collectors.toMap(OperationVO::getId, OperationVO::getMeasurementValues, (v1, v2) -> v2, LinkedHashMap::new));
+        measurementDao.saveOperationsVesselUseMeasurementsMap(measurementsByOperationId);
+
+        Map<Integer, Map<Integer, String>> gearMeasurementsByOperationId = sources.stream()
+            .filter(source -> source.getGearMeasurementValues() != null)
+            .collect(Collectors.toMap(OperationVO::getId, OperationVO::getGearMeasurementValues, (v1, v2) -> v2, LinkedHashMap::new));
+        measurementDao.saveOperationsGearUseMeasurementsMap(gearMeasurementsByOperationId);
+    }
+
+    protected void saveChildrenEntities(final OperationVO source, boolean measurementsMapsSaved) {
 
         // Save positions
         {
@@ -239,9 +280,10 @@ public class OperationServiceImpl implements OperationService {
         }
 
         // Save measurements (vessel use measurement)
+        // (maps of many operations are saved before, by saveMeasurementsMaps())
         {
             if (source.getMeasurementValues() != null) {
-                measurementDao.saveOperationVesselUseMeasurementsMap(source.getId(), source.getMeasurementValues());
+                if (!measurementsMapsSaved) measurementDao.saveOperationVesselUseMeasurementsMap(source.getId(), source.getMeasurementValues());
             } else {
                 List<MeasurementVO> measurements = Beans.getList(source.getMeasurements());
                 measurements.forEach(m -> fillDefaultProperties(source, m, VesselUseMeasurement.class));
@@ -255,7 +297,7 @@ public class OperationServiceImpl implements OperationService {
         // Save gear measurements (gear use measurement)
         {
             if (source.getGearMeasurementValues() != null) {
-                measurementDao.saveOperationGearUseMeasurementsMap(source.getId(), source.getGearMeasurementValues());
+                if (!measurementsMapsSaved) measurementDao.saveOperationGearUseMeasurementsMap(source.getId(), source.getGearMeasurementValues());
             } else {
                 List<MeasurementVO> measurements = Beans.getList(source.getGearMeasurements());
                 measurements.forEach(m -> fillDefaultProperties(source, m, GearUseMeasurement.class));
@@ -29,7 +29,9 @@ import net.sumaris.core.vo.data.PhysicalGearVO;
 import net.sumaris.core.vo.filter.PhysicalGearFilterVO;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author BLA
@@ -46,6 +48,15 @@ public interface PhysicalGearService {
 	@Transactional(readOnly = true)
 	List<PhysicalGearVO> getAllByTripId(int tripId, DataFetchOptions options);
 
+	/**
+	 * Get physical gears of many trips, in one query
+	 * @param tripIds trip ids
+	 * @param options fetch options
+	 * @return gears, by trip id
+	 */
+	@Transactional(readOnly = true)
+	Map<Integer, List<PhysicalGearVO>> getAllByTripIds(Collection<Integer> tripIds, DataFetchOptions options);
+
 	List<PhysicalGearVO> saveAllByTripId(int tripId, List<PhysicalGearVO> sources);
 
 	List<PhysicalGearVO> saveAllByTripId(int tripId, List<PhysicalGearVO> sources, List<Integer> idsToRemove);
@@ -24,6 +24,7 @@ package net.sumaris.core.service.data;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.dao.data.MeasurementDao;
@@ -40,8 +41,11 @@ import net.sumaris.core.vo.filter.PhysicalGearFilterVO;
 import org.apache.commons.collections4.CollectionUtils;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Service("physicalGearService")
 @RequiredArgsConstructor
@@ -62,6 +66,14 @@ public class PhysicalGearServiceImpl implements PhysicalGearService {
 		return physicalGearRepository.findAllVO(physicalGearRepository.hasTripId(tripId), options);
 	}
 
+	@Override
+	public Map<Integer, List<PhysicalGearVO>> getAllByTripIds(Collection<Integer> tripIds, DataFetchOptions options) {
+		if (CollectionUtils.isEmpty(tripIds)) return Maps.newHashMap();
+		return physicalGearRepository.findAllVO(physicalGearRepository.hasTripIds(tripIds.toArray(Integer[]::new)), options)
+			.stream()
+			.collect(Collectors.groupingBy(PhysicalGearVO::getTripId));
+	}
+
 	@Override
 	public List<PhysicalGearVO> saveAllByTripId(int tripId, List<PhysicalGearVO> sources) {
 		return saveAllByTripId(tripId, sources, null);
@@ -28,7 +28,9 @@ import net.sumaris.core.vo.data.SaleFetchOptions;
 import net.sumaris.core.vo.data.SaleVO;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -43,6 +45,15 @@ public interface SaleService {
 	@Transactional(readOnly = true)
 	List<SaleVO> getAllByTripId(int tripId, SaleFetchOptions fetchOptions);
 
+	/**
+	 * Get sales of many trips, in one query
+	 * @param tripIds trip ids
+	 * @param fetchOptions fetch options
+	 * @return sales, by trip id
+	 */
+	@Transactional(readOnly = true)
+	Map<Integer, List<SaleVO>> getAllByTripIds(Collection<Integer> tripIds, SaleFetchOptions fetchOptions);
+
 	@Transactional(readOnly = true)
 	List<SaleVO> getAllByLandingId(int landingId, SaleFetchOptions fetchOptions);
 
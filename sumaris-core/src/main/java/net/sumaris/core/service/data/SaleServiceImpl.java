@@ -25,6 +25,7 @@ package net.sumaris.core.service.data;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.config.SumarisConfiguration;
@@ -50,7 +51,9 @@ import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -86,6 +89,17 @@ public class SaleServiceImpl implements SaleService {
 		return targets;
 	}
 
+	@Override
+	public Map<Integer, List<SaleVO>> getAllByTripIds(Collection<Integer> tripIds, SaleFetchOptions fetchOptions) {
+		if (CollectionUtils.isEmpty(tripIds)) return Maps.newHashMap();
+		List<SaleVO> targets = saleRepository.findAll(SaleFilterVO.builder().tripIds(tripIds.toArray(Integer[]::new)).build(), fetchOptions);
+
+		// Fill vessels
+		if (fetchOptions != null && fetchOptions.isWithVesselSnapshot()) this.fillVesselSnapshots(targets);
+
+		return targets.stream().collect(Collectors.groupingBy(SaleVO::getTripId));
+	}
+
 	@Override
 	public List<SaleVO> getAllByLandingId(int landingId, SaleFetchOptions fetchOptions) {
 		List<SaleVO> targets = saleRepository.findAll(SaleFilterVO.builder().landingId(landingId).build(), fetchOptions);
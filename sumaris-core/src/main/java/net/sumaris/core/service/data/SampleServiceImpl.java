@@ -160,7 +160,7 @@ public class SampleServiceImpl implements SampleService {
 		}
 
 		// Save measurements
-		changes.forEach(this::saveMeasurements);
+		saveMeasurements(changes);
 
 		// Save images
 		if (this.enableImageAttachments) {
@@ -195,7 +195,7 @@ public class SampleServiceImpl implements SampleService {
 		}
 
 		// Save measurements
-		changes.forEach(this::saveMeasurements);
+		saveMeasurements(changes);
 
 		// Save images
 		if (this.enableImageAttachments) {
@@ -286,6 +286,20 @@ public class SampleServiceImpl implements SampleService {
 
 	/* -- protected methods -- */
 
+	protected void saveMeasurements(List<SampleVO> samples) {
+
+		// Measurements maps: save all samples at once
+		Map<Integer, Map<Integer, String>> measurementsBySampleId = samples.stream()
+			.filter(sample -> sample.getMeasurementValues() != null)
+			.collect(Collectors.toMap(SampleVO::getId, SampleVO::getMeasurementValues, (v1, v2) -> v2, LinkedHashMap::new));
+		measurementDao.saveSamplesMeasurementsMap(measurementsBySampleId);
+
+		// Measurements lists
+		samples.stream()
+			.filter(sample -> sample.getMeasurementValues() == null)
+			.forEach(this::saveMeasurements);
+	}
+
 	protected void saveMeasurements(SampleVO sample) {
 
 		// Save measurements
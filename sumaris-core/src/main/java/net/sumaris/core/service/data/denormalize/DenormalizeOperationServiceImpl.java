@@ -52,6 +52,7 @@ import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service("denormalizeOperationService")
 @RequiredArgsConstructor
@@ -94,11 +95,18 @@ public class DenormalizeOperationServiceImpl implements DenormalizedOperationSer
     @Override
     public DenormalizedTripResultVO denormalizeByFilter(@NonNull OperationFilterVO operationFilter,
                                                         @NonNull DenormalizedBatchOptions baseOptions) {
+        return denormalizeByFilter(operationFilter, baseOptions, true);
+    }
+
+    @Override
+    public DenormalizedTripResultVO denormalizeByFilter(@NonNull OperationFilterVO operationFilter,
+                                                        @NonNull DenormalizedBatchOptions baseOptions,
+                                                        boolean parallel) {
         long startTime = System.currentTimeMillis();
         MutableInt operationCount = new MutableInt(0);
-        MutableInt batchesCount = new MutableInt(0);
-        MutableInt invalidBatchesCount = new MutableInt(0);
-        List<String> messages = Lists.newArrayList();
+        AtomicInteger batchesCount = new AtomicInteger(0);
+        AtomicInteger invalidBatchesCount = new AtomicInteger(0);
+        List<String> messages = Collections.synchronizedList(Lists.newArrayList());
 
         operationFilter = operationFilter.clone();
 
@@ -118,12 +126,12 @@ public class DenormalizeOperationServiceImpl implements DenormalizedOperationSer
                 operationFilter.setIncludedIds(pageOperationIds);
 
                 // Loop on page
-                DenormalizedTripResultVO pageResult = denormalizeByFilter(operationFilter, baseOptions);
+                DenormalizedTripResultVO pageResult = denormalizeByFilter(operationFilter, baseOptions, parallel);
 
                 // Update counters
                 operationCount.add(pageResult.getOperationCount());
-                batchesCount.add(pageResult.getBatchCount());
-                invalidBatchesCount.add(pageResult.getInvalidBatchCount());
+                batchesCount.addAndGet(pageResult.getBatchCount());
+                invalidBatchesCount.addAndGet(pageResult.getInvalidBatchCount());
                 if (StringUtils.isNotBlank(pageResult.getMessage())) {
                     messages.add(pageResult.getMessage());
                 }
@@ -164,21 +172,22 @@ public class DenormalizeOperationServiceImpl implements DenormalizedOperationSer
                             .build());
 
                     if (CollectionUtils.isNotEmpty(operations)) {
-                        operations.parallelStream().forEach(operation -> {
+                        // Sequential, when already called from a worker thread (avoid to use the common fork-join pool)
+                        (parallel ? operations.parallelStream() : operations.stream()).forEach(operation -> {
                             try {
                                 // Prepare options (add fishing area, date, etc.)
                                 DenormalizedBatchOptions options = createOptionsByOperation(operation, baseOptions);
 
                                 List<?> batches = denormalizedBatchService.denormalizeAndSaveByOperationId(operation.getId(), options);
-                                batchesCount.add(CollectionUtils.size(batches));
+                                batchesCount.addAndGet(CollectionUtils.size(batches));
                             } catch (SumarisBusinessException be) {
                                 log.error(be.getMessage());
                                 messages.add(be.getMessage());
-                                invalidBatchesCount.increment();
+                                invalidBatchesCount.incrementAndGet();
                             } catch (Exception e) {
                                 log.error(e.getMessage(), e);
                                 messages.add(e.getMessage());
-                                invalidBatchesCount.increment();
+                                invalidBatchesCount.incrementAndGet();
                             }
                         });
 
@@ -198,8 +207,8 @@ public class DenormalizeOperationServiceImpl implements DenormalizedOperationSer
 
         return DenormalizedTripResultVO.builder()
             .operationCount(operationCount.intValue())
-            .batchCount(batchesCount.intValue())
-            .invalidBatchCount(invalidBatchesCount.intValue())
+            .batchCount(batchesCount.get())
+            .invalidBatchCount(invalidBatchesCount.get())
             .message(CollectionUtils.isNotEmpty(messages) ? String.join("\n", messages) : null)
             .executionTime(System.currentTimeMillis() - startTime)
             .build();
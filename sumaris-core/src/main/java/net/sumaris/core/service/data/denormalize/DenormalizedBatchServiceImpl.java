@@ -314,7 +314,7 @@ public class DenormalizedBatchServiceImpl implements DenormalizedBatchService {
         List<DenormalizedBatchVO> denormalizedBatches = denormalize(catchBatch, options);
 
         // Save denormalized batches
-        denormalizedBatches = denormalizedBatchRepository.saveAllByOperationId(operationId, denormalizedBatches);
+        denormalizedBatches = denormalizedBatchRepository.saveAllByOperationId(operationId, denormalizedBatches, options.isEnableBulkInsert());
 
         log.debug("Batches denormalization of operation {id: {}} [OK] in {}", operationId, TimeUtils.printDurationFrom(startTime));
         return denormalizedBatches;
@@ -342,7 +342,7 @@ public class DenormalizedBatchServiceImpl implements DenormalizedBatchService {
         List<DenormalizedBatchVO> denormalizedBatches = denormalize(catchBatch, options);
 
         // Save denormalized batches
-        List<DenormalizedBatchVO> result = denormalizedBatchRepository.saveAllBySaleId(saleId, denormalizedBatches);
+        List<DenormalizedBatchVO> result = denormalizedBatchRepository.saveAllBySaleId(saleId, denormalizedBatches, options.isEnableBulkInsert());
 
         log.debug("Denormalize batches of sale {id: {}} [OK] in {}", saleId, TimeUtils.printDurationFrom(startTime));
         return result;
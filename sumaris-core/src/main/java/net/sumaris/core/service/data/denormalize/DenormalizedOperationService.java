@@ -54,4 +54,11 @@ public interface DenormalizedOperationService {
 	@Transactional(propagation = Propagation.SUPPORTS)
 	DenormalizedTripResultVO denormalizeByFilter(@NonNull OperationFilterVO filter, @Nullable DenormalizedBatchOptions options);
 
+	/**
+	 * @param parallel if false, operations are processed in the caller thread (e.g. a worker of a bounded pool),
+	 *                 instead of the common fork-join pool
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	DenormalizedTripResultVO denormalizeByFilter(@NonNull OperationFilterVO filter, @Nullable DenormalizedBatchOptions options, boolean parallel);
+
 }
@@ -23,14 +23,16 @@ package net.sumaris.core.service.data.denormalize;
  */
 
 import com.google.common.base.Splitter;
-import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.config.SumarisConfiguration;
 import net.sumaris.core.dao.technical.SortDirection;
 import net.sumaris.core.model.IProgressionModel;
 import net.sumaris.core.model.ProgressionModel;
 import net.sumaris.core.service.data.TripService;
+import net.sumaris.core.util.Beans;
 import net.sumaris.core.util.StringUtils;
 import net.sumaris.core.util.TimeUtils;
 import net.sumaris.core.vo.data.TripFetchOptions;
@@ -39,24 +41,30 @@ import net.sumaris.core.vo.data.batch.DenormalizedBatchOptions;
 import net.sumaris.core.vo.filter.OperationFilterVO;
 import net.sumaris.core.vo.filter.TripFilterVO;
 import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.lang3.mutable.MutableInt;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service("denormalizeTripService")
 @RequiredArgsConstructor
 @Slf4j
 public class DenormalizedTripServiceImpl implements DenormalizedTripService {
 
+    private static final int PAGE_SIZE = 100;
+
+    private static final int PROGRESSION_INTERVAL_SECONDS = 10;
+
     private final TripService tripService;
 
     private final DenormalizedBatchService denormalizedBatchService;
 
     private final DenormalizedOperationService denormalizedOperationService;
 
-
+    private final SumarisConfiguration configuration;
 
     @Override
     public DenormalizedTripResultVO denormalizeByFilter(@NonNull TripFilterVO filter) {
@@ -64,7 +72,7 @@ public class DenormalizedTripServiceImpl implements DenormalizedTripService {
         progress.addPropertyChangeListener(ProgressionModel.Fields.MESSAGE, (event) -> {
             if (event.getNewValue() != null) log.debug(event.getNewValue().toString());
         });
-        return denormalizeByFilter(filter, new ProgressionModel());
+        return denormalizeByFilter(filter, progress);
     }
 
     @Override
@@ -79,84 +87,123 @@ public class DenormalizedTripServiceImpl implements DenormalizedTripService {
             .withChildrenEntities(false)
             .withMeasurementValues(false)
             .withRecorderPerson(false)
+            .withRecorderDepartment(false)
+            .withObservers(false)
+            .withVesselSnapshot(false)
+            .withGears(false)
+            .withSales(false)
+            .withLanding(false)
+            .withLocations(false)
+            .withProgram(true)
             .build();
 
         long tripTotal = tripService.countByFilter(tripFilter);
         progression.setTotal(tripTotal);
 
-        boolean hasMoreData;
-        int offset = 0;
-        int pageSize = 10;
+        int workerCount = getWorkerCount();
+        int pageSize = getPageSize(workerCount);
         int tripCount = 0;
-        MutableInt tripErrorCount = new MutableInt(0);
-        MutableInt operationCount = new MutableInt(0);
-        MutableInt batchCount = new MutableInt(0);
-        MutableInt invalidBatchCount = new MutableInt(0);
-        List<String> messages = Lists.newArrayList();
+        AtomicInteger processedTripCount = new AtomicInteger(0);
+        AtomicInteger tripErrorCount = new AtomicInteger(0);
+        AtomicInteger operationCount = new AtomicInteger(0);
+        AtomicInteger batchCount = new AtomicInteger(0);
+        AtomicInteger invalidBatchCount = new AtomicInteger(0);
+        Queue<String> messages = new ConcurrentLinkedQueue<>();
+
+        // Options, by program (computed once for the whole run)
+        Map<Integer, DenormalizedBatchOptions> optionsByProgramId = new ConcurrentHashMap<>();
 
         if (tripTotal > 0) {
-            progression.setCurrent(0);
-            progression.setMessage(String.format("Processing trips denormalization... 0/%s", tripTotal));
-
-            do {
-                // Fetch some trips
-                List<TripVO> trips = tripService.findAll(tripFilter,
-                    offset, pageSize, // Page
-                    TripVO.Fields.ID, SortDirection.ASC, // Sort by id, to keep continuity between pages
-                    tripFetchOptions);
-
-                if (offset > 0 && offset % (pageSize * 2) == 0) {
-                    progression.setCurrent(offset);
-                    progression.setMessage(String.format("Processing trips denormalization... %s/%s", offset, tripTotal));
-                    //log.trace(progression.getMessage());
-                }
+            progression.setMessage(String.format("Processing trips denormalization (%s workers)... 0/%s", workerCount, tripTotal));
+
+            // Workers pool, with a limited number of waiting trips (backpressure)
+            ExecutorService executor = Executors.newFixedThreadPool(workerCount, new ThreadFactoryBuilder()
+                .setNameFormat("denormalize-trip-%d")
+                .setDaemon(true)
+                .build());
+            Semaphore pendingTrips = new Semaphore(workerCount * 2);
+
+            // Use keyset pagination (by id), instead of an offset
+            TripFilterVO pageFilter = Beans.clone(tripFilter, TripFilterVO.class);
+            boolean hasMoreData;
+            try {
+                do {
+                    // Fetch some trips
+                    List<TripVO> trips = tripService.findAll(pageFilter,
+                        0, pageSize, // Page
+                        TripVO.Fields.ID, SortDirection.ASC, // Sort by id, to keep continuity between pages
+                        tripFetchOptions);
 
-                // Denormalize each trip
-                trips.parallelStream().forEach(trip -> {
-                    // Load denormalized options
-                    DenormalizedBatchOptions programOptions = denormalizedOperationService.createOptionsByProgramId(trip.getProgram().getId());
-
-                    // Create operations filter, for this trip
-                    OperationFilterVO operationFilter = OperationFilterVO.builder()
-                        .tripId(trip.getId())
-                        .includedIds(tripFilter.getOperationIds())
-                        .hasNoChildOperation(true)
-                        .build();
-
-                    try {
-                        // Denormalize trip's operation
-                        DenormalizedTripResultVO result = denormalizedOperationService.denormalizeByFilter(operationFilter, programOptions);
-
-                        operationCount.add(result.getOperationCount());
-                        batchCount.add(result.getBatchCount());
-                        invalidBatchCount.add(result.getInvalidBatchCount());
-                        if (StringUtils.isNotBlank(result.getMessage())) {
-                            messages.addAll(Splitter.on("\n").splitToList(result.getMessage()));
-                        }
+                    for (TripVO trip : trips) {
+                        // Wait a free worker
+                        pendingTrips.acquire();
+
+                        executor.execute(() -> {
+                            try {
+                                // Load denormalized options
+                                DenormalizedBatchOptions programOptions = optionsByProgramId.computeIfAbsent(trip.getProgram().getId(),
+                                    this::createOptionsByProgramId);
+
+                                // Denormalize trip's operation
+                                DenormalizedTripResultVO result = denormalizeTrip(trip.getId(), tripFilter.getOperationIds(), programOptions, false);
+
+                                operationCount.addAndGet(result.getOperationCount());
+                                batchCount.addAndGet(result.getBatchCount());
+                                invalidBatchCount.addAndGet(result.getInvalidBatchCount());
+                                if (StringUtils.isNotBlank(result.getMessage())) {
+                                    messages.addAll(Splitter.on("\n").splitToList(result.getMessage()));
+                                }
+                            }
+                            catch (Exception e) {
+                                tripErrorCount.incrementAndGet();
+                                String message = String.format("Error while during denormalization of trip #%s: %s", trip.getId(), e.getMessage());
+                                log.error(message, e);
+                                messages.add(message);
+                            }
+                            finally {
+                                processedTripCount.incrementAndGet();
+                                pendingTrips.release();
+                            }
+                        });
                     }
-                    catch (Exception e) {
-                        tripErrorCount.increment();
-                        String message = String.format("Error while during denormalization of trip #%s: %s", trip.getId(), e.getMessage());
-                        log.error(message, e);
-                        messages.add(message);
+
+                    tripCount += trips.size();
+                    hasMoreData = trips.size() >= pageSize;
+                    if (hasMoreData) {
+                        // Prepare next page (skip previous trips)
+                        pageFilter.setMinId(trips.get(trips.size() - 1).getId() + 1);
+                    }
+                    if (tripCount > tripTotal) {
+                        tripTotal = tripCount;
+                        progression.adaptTotal(tripTotal);
                     }
-                });
-
-                offset += pageSize;
-                tripCount += trips.size();
-                hasMoreData = trips.size() >= pageSize;
-                if (tripCount > tripTotal) {
-                    tripTotal = tripCount;
-                    progression.adaptTotal(tripTotal);
+
+                    progression.setCurrent(processedTripCount.get());
+                    progression.setMessage(String.format("Processing trips denormalization (%s workers)... %s/%s", workerCount, processedTripCount.get(), tripTotal));
+                } while (hasMoreData);
+
+                // Wait end of workers
+                executor.shutdown();
+                while (!executor.awaitTermination(PROGRESSION_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+                    progression.setCurrent(processedTripCount.get());
+                    progression.setMessage(String.format("Processing trips denormalization (%s workers)... %s/%s", workerCount, processedTripCount.get(), tripTotal));
                 }
-            } while (hasMoreData);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                messages.add("Trips denormalization interrupted");
+                log.warn("Trips denormalization interrupted, after {} trips", processedTripCount.get());
+            }
+            finally {
+                executor.shutdownNow();
+            }
         }
 
         // Success log
-        progression.setCurrent(tripCount);
+        progression.setCurrent(processedTripCount.get());
         progression.setMessage(String.format("Trips denormalization finished, in %s - %s trips, %s operations, %s batches - %s trips in error, %s invalid batch trees (skipped)",
             TimeUtils.printDurationFrom(startTime),
-            tripCount,
+            processedTripCount,
             operationCount,
             batchCount,
             tripErrorCount,
@@ -164,11 +211,11 @@ public class DenormalizedTripServiceImpl implements DenormalizedTripService {
         //log.debug(progression.getMessage());
 
         return DenormalizedTripResultVO.builder()
-            .tripCount(tripCount)
-            .tripErrorCount(tripErrorCount.intValue())
-            .operationCount(operationCount.intValue())
-            .batchCount(batchCount.intValue())
-            .invalidBatchCount(invalidBatchCount.intValue())
+            .tripCount(processedTripCount.get())
+            .tripErrorCount(tripErrorCount.get())
+            .operationCount(operationCount.get())
+            .batchCount(batchCount.get())
+            .invalidBatchCount(invalidBatchCount.get())
             .message(CollectionUtils.isNotEmpty(messages) ? String.join("\n", messages) : null)
             .executionTime(System.currentTimeMillis() - startTime)
             .build();
@@ -180,13 +227,44 @@ public class DenormalizedTripServiceImpl implements DenormalizedTripService {
         int programId = tripService.getProgramIdById(tripId);
         DenormalizedBatchOptions programOptions = denormalizedBatchService.createOptionsByProgramId(programId);
 
+        return denormalizeTrip(tripId, null, programOptions, true);
+    }
+
+    /* -- protected methods -- */
+
+    /**
+     * @param parallel process operations in parallel (should be false, when called from a worker)
+     */
+    protected DenormalizedTripResultVO denormalizeTrip(int tripId, Integer[] operationIds, DenormalizedBatchOptions programOptions, boolean parallel) {
         // Create operation filter, for this trip
         OperationFilterVO operationFilter = OperationFilterVO.builder()
             .tripId(tripId)
+            .includedIds(operationIds)
             .hasNoChildOperation(true)
             .build();
 
-        return denormalizedOperationService.denormalizeByFilter(operationFilter, programOptions);
+        return denormalizedOperationService.denormalizeByFilter(operationFilter, programOptions, parallel);
+    }
+
+    protected DenormalizedBatchOptions createOptionsByProgramId(int programId) {
+        // Copy, to keep cached options unchanged
+        DenormalizedBatchOptions options = denormalizedOperationService.createOptionsByProgramId(programId).clone();
+
+        // Many trips: use bulk insert
+        options.setEnableBulkInsert(true);
+
+        return options;
+    }
+
+    protected int getPageSize(int workerCount) {
+        return Math.max(PAGE_SIZE, workerCount * 2);
+    }
+
+    protected int getWorkerCount() {
+        int workerCount = configuration.getDataDenormalizationWorkers();
+        if (workerCount > 0) return workerCount;
+        // Default: half of the available processors (keep some for the HTTP requests)
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
     }
 
 }
@@ -89,14 +89,14 @@ public class VesselSnapshotJob {
 	@Value("${sumaris.elasticsearch.vessel.snapshot.scheduling.nbYears:-1}")
 	private Integer nbYears;
 
-	private boolean enable = false;
+	private volatile boolean enable = false;
 
 	private List<Integer> vesselTypeIds;
 
 	@EventListener({ConfigurationReadyEvent.class, ConfigurationUpdatedEvent.class})
 	public void onConfigurationReady() {
 
-		boolean enable = configuration.enableElasticsearchVesselSnapshot() && configuration.enableJobs();
+		boolean enable = configuration.enableVesselSnapshotIndex() && configuration.enableJobs();
 
 		// Check Processing type exists (force disabled if not)
 		if (this.enable != enable && enable && !checkProcessingTypeExists()) {
@@ -128,18 +128,19 @@ public class VesselSnapshotJob {
 	public void schedule() {
 		if (!enable) return; // Skip
 
+		// Last job failed: resume from its checkpoint
+		Optional<VesselFilterVO> resumeFilter = getLastJob(new JobStatusEnum[]{JobStatusEnum.ERROR, JobStatusEnum.FATAL}, Dates.addDays(new Date(), -1))
+			.flatMap(this::getResumeFilter);
+		if (resumeFilter.isPresent()) {
+			start(JobVO.SYSTEM_ISSUER, resumeFilter.get());
+			return;
+		}
+
 		getLastSuccessJob()
 			.ifPresentOrElse(job -> {
 				VesselFilterVO currentFilter = createFilter();
-				VesselFilterVO previousFilter = this.getJobFilter(job).orElse(null);
-
-				boolean sameFilter = false;
-				if (previousFilter != null) {
-					previousFilter.setMinUpdateDate(null); // Remove date before calling equals()
-					sameFilter = previousFilter.equals(currentFilter);
-				}
 
-				if (sameFilter) {
+				if (isSameFilter(job, currentFilter)) {
 					if (job.getStartDate() != null) {
 						//  Offset of 12 hours (in case long transaction was running during last indexation)
 						Date minUpdateDate = Dates.addHours(job.getStartDate(), -12);
@@ -153,8 +154,20 @@ public class VesselSnapshotJob {
 
 				start(JobVO.SYSTEM_ISSUER, currentFilter);
 			},
-			// First load
-			() -> start(JobVO.SYSTEM_ISSUER, (Date)null));
+			// First load (or no recent job)
+			() -> {
+				VesselFilterVO currentFilter = createFilter();
+
+				// Index already filled using the same filter: incremental update, since the max indexed update date
+				boolean sameFilter = getLastJob(new JobStatusEnum[]{JobStatusEnum.SUCCESS, JobStatusEnum.WARNING}, null)
+					.map(job -> isSameFilter(job, currentFilter))
+					.orElse(false);
+				if (sameFilter) {
+					service.getMaxIndexedUpdateDate().ifPresent(currentFilter::setMinUpdateDate);
+				}
+
+				start(JobVO.SYSTEM_ISSUER, currentFilter);
+			});
 
 	}
 
@@ -265,10 +278,14 @@ public class VesselSnapshotJob {
 	}
 
 	protected Optional<JobVO> getLastSuccessJob() {
+		return getLastJob(new JobStatusEnum[]{JobStatusEnum.SUCCESS, JobStatusEnum.WARNING}, Dates.addDays(new Date(), -1));
+	}
+
+	protected Optional<JobVO> getLastJob(@NonNull JobStatusEnum[] status, @Nullable Date lastUpdateDate) {
 		List<JobVO> lastJobs = jobService.findAll(JobFilterVO.builder()
 			.types(new String[]{JobTypeEnum.VESSEL_SNAPSHOTS_INDEXATION.name()})
-			.status(new JobStatusEnum[]{JobStatusEnum.SUCCESS, JobStatusEnum.WARNING})
-			.lastUpdateDate(Dates.addDays(new Date(), -1))
+			.status(status)
+			.lastUpdateDate(lastUpdateDate)
 			.build(), Page.builder()
 			.offset(0)
 			.size(1)
@@ -281,6 +298,37 @@ public class VesselSnapshotJob {
 		return Optional.of(lastJobs.get(0));
 	}
 
+	/**
+	 * Get the filter to resume a failed job, from its last indexed vessel features (if any).
+	 * The job's filter should be the same as the current one (dates excluded)
+	 */
+	protected Optional<VesselFilterVO> getResumeFilter(@NonNull JobVO failedJob) {
+		VesselFilterVO filter = getJobFilter(failedJob).orElse(null);
+		UpdateVesselSnapshotsResultVO report = jobExecutionService.readReport(failedJob, UpdateVesselSnapshotsResultVO.class);
+		if (filter == null || report == null || report.getLastVesselFeaturesId() == null) return Optional.empty();
+
+		// Skip if the last success job is more recent
+		if (getLastSuccessJob().map(job -> Dates.compare(job.getUpdateDate(), failedJob.getUpdateDate()) > 0).orElse(false)) {
+			return Optional.empty();
+		}
+
+		if (!isSameFilter(failedJob, createFilter())) return Optional.empty();
+
+		log.info("Resuming vessel snapshots indexation, after vessel features #{}", report.getLastVesselFeaturesId());
+		filter.setMinVesselFeaturesId(report.getLastVesselFeaturesId() + 1);
+		return Optional.of(filter);
+	}
+
+	protected boolean isSameFilter(@NonNull JobVO job, @NonNull VesselFilterVO currentFilter) {
+		VesselFilterVO previousFilter = this.getJobFilter(job).orElse(null);
+		if (previousFilter == null) return false;
+
+		// Remove dates and checkpoint before calling equals()
+		previousFilter.setMinUpdateDate(null);
+		previousFilter.setMinVesselFeaturesId(null);
+		return previousFilter.equals(currentFilter);
+	}
+
 	protected Optional<VesselFilterVO> getJobFilter(@Nullable JobVO job) {
 		if (job == null) return Optional.empty();
 		VesselFilterVO filter = jobExecutionService.readConfiguration(job, VesselFilterVO.class);
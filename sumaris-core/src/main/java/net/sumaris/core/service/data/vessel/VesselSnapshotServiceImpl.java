@@ -25,6 +25,7 @@ package net.sumaris.core.service.data.vessel;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -34,7 +35,9 @@ import net.sumaris.core.dao.administration.programStrategy.ProgramRepository;
 import net.sumaris.core.dao.data.vessel.VesselSnapshotRepository;
 import net.sumaris.core.dao.technical.Page;
 import net.sumaris.core.dao.technical.SortDirection;
+import net.sumaris.core.dao.data.vessel.VesselSnapshotIndexRepository;
 import net.sumaris.core.dao.technical.elasticsearch.vessel.VesselSnapshotElasticsearchRepository;
+import net.sumaris.core.dao.technical.lucene.vessel.VesselSnapshotLuceneRepository;
 import net.sumaris.core.exception.SumarisTechnicalException;
 import net.sumaris.core.model.IEntity;
 import net.sumaris.core.model.IProgressionModel;
@@ -46,7 +49,6 @@ import net.sumaris.core.vo.data.VesselSnapshotVO;
 import net.sumaris.core.vo.data.vessel.UpdateVesselSnapshotsResultVO;
 import net.sumaris.core.vo.data.vessel.VesselFetchOptions;
 import net.sumaris.core.vo.filter.VesselFilterVO;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.nuiton.i18n.I18n;
 import org.nuiton.util.TimeLog;
@@ -62,10 +64,11 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
-import java.util.Date;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service("vesselSnapshotService")
 @RequiredArgsConstructor
@@ -79,10 +82,11 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 
 	protected final ProgramRepository programRepository;
 
-	protected final VesselSnapshotElasticsearchRepository elasticsearchRepository;
+	// Elasticsearch index, or embedded Lucene index
+	protected final VesselSnapshotIndexRepository indexRepository;
 
-	private boolean indexing = false;
-	private boolean elasticsearchIndexationReady = false;
+	private volatile boolean indexing = false;
+	private volatile boolean indexReady = false;
 
 	private final CacheManager cacheManager;
 	private Cache countByFilterCache = null;
@@ -90,6 +94,11 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 	@Value("${sumaris.elasticsearch.vessel.snapshot.page.sleep:0}")
 	private long elasticSearchPageSleepTimeMs = 0;
 
+	// We try to reduce to 5000, because of mistake in production, when using 10000
+	// (See issue sumaris-app#915)
+	@Value("${sumaris.elasticsearch.vessel.snapshot.page.size:5000}")
+	private int indexPageSize = 5000;
+
 	private final TimeLog timeLog = new TimeLog(VesselSnapshotServiceImpl.class, 500, 1000);
 	private final TimeLog longTimeLog = new TimeLog(VesselSnapshotServiceImpl.class, 10 * 60 * 1000 /*10s*/, 60 * 60 * 1000 /*1min*/);
 	private final TimeLog indexationTimeLog = new TimeLog(VesselSnapshotServiceImpl.class, 5 * 60 * 1000 /*5 min*/, 20 * 60 * 1000/*20 min*/);
@@ -99,11 +108,14 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 									 VesselSnapshotRepository repository,
 									 ProgramRepository programRepository,
 									 Optional<VesselSnapshotElasticsearchRepository> elasticsearchRepository,
+									 Optional<VesselSnapshotLuceneRepository> luceneRepository,
 									 Optional<CacheManager> cacheManager) {
 		this.configuration = configuration;
 		this.repository = repository;
 		this.programRepository = programRepository;
-		this.elasticsearchRepository = elasticsearchRepository.orElse(null);
+		this.indexRepository = elasticsearchRepository.map(VesselSnapshotIndexRepository.class::cast)
+			.or(() -> luceneRepository)
+			.orElse(null);
 		this.cacheManager = cacheManager.orElse(null);
 	}
 
@@ -130,9 +142,9 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 		long startTime = TimeLog.getTime();
 		try {
 			// Use ES repo, if enabled (and ready)
-			if (isElasticsearchEnableAndReady()) {
+			if (isIndexEnableAndReady()) {
 				// Execute ES search
-				org.springframework.data.domain.Page<VesselSnapshotVO> result = elasticsearchRepository.findAllAsPage(filter, page, fetchOptions);
+				org.springframework.data.domain.Page<VesselSnapshotVO> result = indexRepository.findAllAsPage(filter, page, fetchOptions);
 
 				// Put the total into the cache
 				if (this.countByFilterCache != null) this.countByFilterCache.put(filter.hashCode(), result.getTotalElements());
@@ -154,8 +166,8 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 	public Long countByFilter(@Param("filter") @NonNull VesselFilterVO filter) {
 		long startTime = TimeLog.getTime();
 		try {
-			if (isElasticsearchEnableAndReady()) {
-				return elasticsearchRepository.count(filter);
+			if (isIndexEnableAndReady()) {
+				return indexRepository.count(filter);
 			}
 			return repository.count(filter);
 		}
@@ -180,13 +192,13 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 
 		long startTime = TimeLog.getTime();
 		try {
-			// Load using elasticsearch
-			if (isElasticsearchEnableAndReady()) {
-				VesselSnapshotVO vessel = elasticsearchRepository.findByVesselIdAtDate(vesselId, date)
+			// Load using the index
+			if (isIndexEnableAndReady()) {
+				VesselSnapshotVO vessel = indexRepository.findByVesselIdAtDate(vesselId, date)
 					.orElse(null);
 				if (vessel != null) return vessel;
 				// Continue if not found
-				log.debug("Vessel #{} was not found in elasticsearch. Please make sure all vessels has been indexed.", vesselId);
+				log.debug("Vessel #{} was not found in the index. Please make sure all vessels has been indexed.", vesselId);
 			}
 
 			// Load using database
@@ -205,8 +217,8 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 
 	@Override
 	public Optional<Date> getMaxIndexedUpdateDate() {
-		if (elasticsearchRepository == null || elasticsearchRepository.count() == 0) return Optional.empty();
-		return elasticsearchRepository.findMaxUpdateDate();
+		if (indexRepository == null || indexRepository.count() == 0) return Optional.empty();
+		return indexRepository.findMaxUpdateDate();
 	}
 
 	@Override
@@ -233,20 +245,26 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 		@NonNull UpdateVesselSnapshotsResultVO result,
 		@NonNull VesselFilterVO filter,
 		@NonNull IProgressionModel progression) {
-		Preconditions.checkNotNull(this.elasticsearchRepository, "Elasticsearch vessel snapshot has been disabled");
+		Preconditions.checkNotNull(this.indexRepository, "Vessel snapshot index has been disabled");
 		Preconditions.checkArgument(!indexing, "Vessels indexation already running. Please retry later");
 
+		// Cannot resume (from a checkpoint) if the index is empty
+		boolean emptyIndex = indexRepository.count() == 0L;
+		if (emptyIndex && filter.getMinVesselFeaturesId() != null) {
+			filter.setMinVesselFeaturesId(null);
+		}
+
 		// Force full resync if no data
 		boolean fullResync = filter.getMinUpdateDate() == null;
-		boolean forceRecreate = !fullResync && elasticsearchRepository.count() == 0L;
+		boolean forceRecreate = !fullResync && emptyIndex;
 		if (forceRecreate) {
 			filter.setMinUpdateDate(null);
 			fullResync = true;
 		}
 
-		// If full resync, then mark elasticsearch as not ready
+		// If full resync, then mark the index as not ready
 		if (fullResync) {
-			elasticsearchIndexationReady = false;
+			indexReady = false;
 		}
 
 		long startTime = TimeLog.getTime();
@@ -264,18 +282,22 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 
 			// Drop existing index
 			if (forceRecreate) {
-				elasticsearchRepository.recreate();
+				indexRepository.recreate();
 			}
 			if (fullResync) {
-				elasticsearchRepository.disableReplicas();
+				indexRepository.disableReplicas();
 			}
 
-			// Collect existing ids
-			final Set<Integer> existingVesselFeaturesIds = filter.getMinUpdateDate() != null
-				? Beans.getSet(elasticsearchRepository.findAllVesselFeaturesIdsByFilter(
+			// Collect existing ids (sorted, to be able to mark the ones found in the database)
+			final int[] existingVesselFeaturesIds = filter.getMinUpdateDate() != null
+				? Beans.getStream(indexRepository.findAllVesselFeaturesIdsByFilter(
 					VesselFilterVO.builder().minUpdateDate(filter.getMinUpdateDate())
 						.build()))
+					.mapToInt(Integer::intValue)
+					.sorted()
+					.toArray()
 				: null;
+			final BitSet foundVesselFeaturesIds = existingVesselFeaturesIds != null ? new BitSet(existingVesselFeaturesIds.length) : null;
 
 			// Compute total
 			long total = repository.count(filter);
@@ -286,10 +308,7 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 				.withVesselRegistrationPeriod(true)
 				.withCountryRegistration(true)
 				.build();
-			// We try to reduce to 5000, because of mistake in production, when using 10000
-			// (See issue sumaris-app#915)
-			int pageSize = 5000;
-			long offset = 0;
+			int pageSize = indexPageSize;
 			int count = 0;
 			MutableInt updates = new MutableInt(0);
 			MutableInt inserts = new MutableInt(0);
@@ -297,32 +316,41 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 			Set<Integer> vesselIds = Sets.newHashSet();
 
 			if (total > 0) {
+				// Use keyset pagination (by vessel features id), instead of an offset
+				VesselFilterVO pageFilter = Beans.clone(filter, VesselFilterVO.class);
 				Page page = Page.builder()
-					.offset(offset)
+					.offset(0)
 					.size(pageSize)
 					.sortBy(IEntity.Fields.ID)
 					.sortDirection(SortDirection.ASC)
 					.build();
-				do {
-					try {
 
+				// Index a page in a dedicated thread, while fetching the next page from the database
+				ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+					.setNameFormat("vessel-snapshot-index-%d")
+					.setDaemon(true)
+					.build());
+				Future<Integer> pendingPage = null;
+				boolean hasMoreData;
+				try {
+					do {
 						// Update progression
-						String message = I18n.t("sumaris.elasticsearch.vessel.snapshot.progress", offset, total);
+						String message = I18n.t("sumaris.elasticsearch.vessel.snapshot.progress", count, total);
 						log.info(message);
-						if (offset > 0) {
-							progression.setCurrent(offset);
+						if (count > 0) {
+							progression.setCurrent(count);
 							progression.setMessage(message);
 						}
 
 						// Get page's snapshots from the database
 						long findAllStartTime = TimeLog.getTime();
-						List<VesselSnapshotVO> items = repository.findAll(filter, page, fetchOptions);
+						List<VesselSnapshotVO> items = repository.findAll(pageFilter, page, fetchOptions);
 						longTimeLog.log(findAllStartTime, "VesselSnapshotRepository.findAll");
 
 						items.forEach(vessel -> {
 							vesselIds.add(vessel.getVesselId());
 							if (vessel.getEndDate() == null) {
-								vessel.setEndDate(VesselSnapshotElasticsearchRepository.DEFAULT_END_DATE);
+								vessel.setEndDate(VesselSnapshotIndexRepository.DEFAULT_END_DATE);
 							}
 
 							// Apply default program
@@ -330,64 +358,89 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 								vessel.setProgram(filteredProgram.get());
 							}
 
-							if (existingVesselFeaturesIds == null || !existingVesselFeaturesIds.remove(vessel.getVesselFeaturesId())) {
+							int existingIndex = existingVesselFeaturesIds != null
+								? Arrays.binarySearch(existingVesselFeaturesIds, vessel.getVesselFeaturesId())
+								: -1;
+							if (existingIndex < 0 || foundVesselFeaturesIds.get(existingIndex)) {
 								inserts.increment();
 							}
 							else {
+								foundVesselFeaturesIds.set(existingIndex);
 								updates.increment();
 							}
 						});
 
-						// Save page's snapshots into elasticsearch
-						long saveAllStartTime = TimeLog.getTime();
-						elasticsearchRepository.bulkIndex(items);
-						longTimeLog.log(saveAllStartTime, "VesselSnapshotElasticsearchRepository.bulkIndex");
+						// Wait the previous page to be indexed (only one page is waiting in memory)
+						if (pendingPage != null) {
+							result.setLastVesselFeaturesId(pendingPage.get());
+							pendingPage = null;
+						}
 
-						// Sleep (wait ES finish processing bulk inserts)
-						if (elasticSearchPageSleepTimeMs > 0) {
-							Thread.sleep(elasticSearchPageSleepTimeMs);
+						// Save page's snapshots into the index
+						if (!items.isEmpty()) {
+							final Integer lastVesselFeaturesId = items.get(items.size() - 1).getVesselFeaturesId();
+							pendingPage = executor.submit(() -> {
+								long saveAllStartTime = TimeLog.getTime();
+								indexRepository.bulkIndex(items);
+								longTimeLog.log(saveAllStartTime, "VesselSnapshotIndexRepository.bulkIndex");
+
+								// Sleep (wait ES finish processing bulk inserts)
+								if (elasticSearchPageSleepTimeMs > 0) {
+									Thread.sleep(elasticSearchPageSleepTimeMs);
+								}
+								return lastVesselFeaturesId;
+							});
+
+							// Prepare next page (skip previous vessel features)
+							pageFilter.setMinVesselFeaturesId(lastVesselFeaturesId + 1);
 						}
 
 						// Increment counter
 						count += items.size();
-					} catch (Throwable e) {
-						String message = String.format("Error while indexing vessel snapshots (%s/%s): %s", offset, total, e.getMessage());
+						hasMoreData = items.size() >= pageSize;
 
-						// Log first error: log with stack trace
-						if (offset == 0) {
-							log.error(message, e);
-						}
-						else {
-							// Log without stack trace
-							log.error(message);
+						// Update the total (e.g. some element has been added since the count query)
+						if (count > total) {
+							total = count;
+							progression.setTotal(total + 2);
 						}
-						errors.add(e);
-						result.setErrors(errors.size());
-						break;
-						// Continue to the next page
-					}
-
-					offset += pageSize;
-					page.setOffset(offset);
+					} while (hasMoreData);
 
-					// Update the total (e.g. some element has been added since the count query)
-					if (count > total) {
-						total = count;
-						progression.setTotal(total + 1);
+					// Wait the last page to be indexed
+					if (pendingPage != null) {
+						result.setLastVesselFeaturesId(pendingPage.get());
 					}
-				} while (offset < total);
+				} catch (Throwable e) {
+					if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+					Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+					log.error(String.format("Error while indexing vessel snapshots (%s/%s): %s", count, total, cause.getMessage()), cause);
+					errors.add(cause);
+					result.setErrors(errors.size());
+				} finally {
+					executor.shutdownNow();
+				}
 			}
 
 			progression.setCurrent(total);
 
-			// Delete old documents
-			if (CollectionUtils.isNotEmpty(existingVesselFeaturesIds)) {
-				progression.setMessage(I18n.t("sumaris.elasticsearch.vessel.snapshot.removing", existingVesselFeaturesIds.size()));
-				elasticsearchRepository.deleteAllById(existingVesselFeaturesIds);
+			// Delete old documents (not found in the database)
+			// When resuming from a checkpoint, ignore documents before the checkpoint
+			List<Integer> deletedVesselFeaturesIds = Lists.newArrayList();
+			if (existingVesselFeaturesIds != null && errors.isEmpty()) {
+				Integer minVesselFeaturesId = filter.getMinVesselFeaturesId();
+				for (int i = foundVesselFeaturesIds.nextClearBit(0); i < existingVesselFeaturesIds.length; i = foundVesselFeaturesIds.nextClearBit(i + 1)) {
+					if (minVesselFeaturesId == null || existingVesselFeaturesIds[i] >= minVesselFeaturesId) {
+						deletedVesselFeaturesIds.add(existingVesselFeaturesIds[i]);
+					}
+				}
+			}
+			if (!deletedVesselFeaturesIds.isEmpty()) {
+				progression.setMessage(I18n.t("sumaris.elasticsearch.vessel.snapshot.removing", deletedVesselFeaturesIds.size()));
+				indexRepository.deleteAllById(deletedVesselFeaturesIds);
 			}
 			progression.setCurrent(total + 1);
 
-			long deletes = CollectionUtils.size(existingVesselFeaturesIds);
+			long deletes = deletedVesselFeaturesIds.size();
 			boolean hasChanges = inserts.getValue() > 0 || updates.getValue() > 0 || deletes > 0;
 
 			result.setInserts(inserts.getValue());
@@ -397,16 +450,16 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 			result.setErrors(errors.size());
 
 			// Refresh index (Make sure all changes are visible)
-			if (hasChanges) elasticsearchRepository.refresh();
+			if (hasChanges) indexRepository.refresh();
 
 			// Enable replicas
 			if (fullResync) {
-				elasticsearchRepository.enableReplicas();
+				indexRepository.enableReplicas();
 			}
 
 			// Propagate the first error, if any
 			if (!errors.isEmpty()) {
-				elasticsearchIndexationReady = false;
+				indexReady = false;
 				log.error(I18n.t("sumaris.elasticsearch.vessel.snapshot.failed", errors.get(0)));
 				throw new SumarisTechnicalException(errors.get(0));
 			}
@@ -417,7 +470,7 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 			if (hasChanges) log.info(finalMessage);
 			else log.debug(finalMessage);
 
-			elasticsearchIndexationReady = true;
+			indexReady = true;
 			this.indexationTimeLog.log(startTime, "indexVesselSnapshots");
 
 		} finally {
@@ -427,8 +480,8 @@ public class VesselSnapshotServiceImpl implements VesselSnapshotService {
 
 	/* -- private methods -- */
 
-	private boolean isElasticsearchEnableAndReady() {
-		return this.elasticsearchRepository != null && this.elasticsearchIndexationReady;
+	private boolean isIndexEnableAndReady() {
+		return this.indexRepository != null && this.indexReady;
 	}
 
 }
@@ -70,8 +70,8 @@ public class LocationHierarchyJob {
 		if (this.enable != enable) {
 			this.enable = enable;
 
-			// Init or refresh data
-			if (enable) {
+			// Init or refresh data (if incremental update is enabled, only fill an empty hierarchy)
+			if (enable && (!configuration.enableLocationHierarchyIncrementalUpdate() || !service.hasLocationHierarchy())) {
 				start(JobVO.SYSTEM_ISSUER);
 			}
 		}
@@ -80,6 +80,18 @@ public class LocationHierarchyJob {
 	@Scheduled(cron = "${sumaris.referential.location.hierarchy.scheduling.cron:0 0 * * * ?}") // Daily by default
 	public void schedule() {
 		if (!enable) return; // Skip
+		if (configuration.enableLocationHierarchyIncrementalUpdate()) return; // Skip: updated on each location association change
+		start(JobVO.SYSTEM_ISSUER);
+	}
+
+	/**
+	 * Full rebuild, when incremental update is enabled: a safety net, that adds links missed by writers
+	 * not emitting events (e.g. referential imports). Like the hourly rebuild, it never removes links
+	 */
+	@Scheduled(cron = "${sumaris.referential.location.hierarchy.full.scheduling.cron:0 0 3 * * SUN}") // Weekly by default
+	public void scheduleFullRebuild() {
+		if (!enable) return; // Skip
+		if (!configuration.enableLocationHierarchyIncrementalUpdate()) return; // Skip: already rebuilt by schedule()
 		start(JobVO.SYSTEM_ISSUER);
 	}
 
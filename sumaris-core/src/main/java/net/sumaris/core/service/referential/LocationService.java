@@ -53,9 +53,15 @@ public interface LocationService extends LocationByPositionService  {
 
     void insertOrUpdateRectangleAndSquareAreas();
 
+    /**
+     * Rebuild the full location hierarchy (add missing links)
+     */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     void updateLocationHierarchy();
 
+    @Transactional(readOnly = true)
+    boolean hasLocationHierarchy();
+
     /**
      * @deprecated use insertOrUpdateRectangleAndSquareAreas instead
      */
@@ -38,6 +38,10 @@ import net.sumaris.core.dao.technical.Page;
 import net.sumaris.core.event.config.ConfigurationEvent;
 import net.sumaris.core.event.config.ConfigurationReadyEvent;
 import net.sumaris.core.event.config.ConfigurationUpdatedEvent;
+import net.sumaris.core.event.entity.AbstractEntityEvent;
+import net.sumaris.core.event.entity.EntityDeleteEvent;
+import net.sumaris.core.event.entity.EntityInsertEvent;
+import net.sumaris.core.event.entity.EntityUpdateEvent;
 import net.sumaris.core.exception.SumarisTechnicalException;
 import net.sumaris.core.model.referential.Status;
 import net.sumaris.core.model.referential.ValidityStatus;
@@ -49,6 +53,7 @@ import net.sumaris.core.vo.filter.LocationFilterVO;
 import net.sumaris.core.vo.filter.ReferentialFilterVO;
 import net.sumaris.core.vo.referential.ReferentialFetchOptions;
 import net.sumaris.core.vo.referential.ReferentialVO;
+import net.sumaris.core.vo.referential.location.LocationAssociationVO;
 import net.sumaris.core.vo.referential.location.LocationVO;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -107,12 +112,34 @@ public class LocationServiceImpl implements LocationService {
             enableTechnicalTablesUpdate = configuration.enableTechnicalTablesUpdate();
 
             // Launch if enable (skip if jobs enable: will be executed by a job component)
-            if (enableTechnicalTablesUpdate && !configuration.enableJobs()) {
+            // If incremental update is enabled, only fill an empty hierarchy
+            if (enableTechnicalTablesUpdate && !configuration.enableJobs()
+                && (!configuration.enableLocationHierarchyIncrementalUpdate() || !hasLocationHierarchy())) {
                 updateLocationHierarchy();
             }
         }
     }
 
+    @TransactionalEventListener(
+        value = {EntityInsertEvent.class, EntityUpdateEvent.class, EntityDeleteEvent.class},
+        phase = TransactionPhase.BEFORE_COMMIT,
+        fallbackExecution = true,
+        condition = "#event.entityName=='LocationAssociation'")
+    @Transactional
+    public void onLocationAssociationChanged(AbstractEntityEvent event) {
+        if (!configuration.enableTechnicalTablesUpdate() || !configuration.enableLocationHierarchyIncrementalUpdate()) return; // Skip
+        if (!(event.getData() instanceof LocationAssociationVO association)
+            || association.getChildId() == null || association.getParentId() == null) return; // Skip
+
+        // Apply only the delta, on the child's descendants and the parent's ancestors
+        if (event instanceof EntityDeleteEvent) {
+            locationRepository.removeLocationHierarchy(association.getChildId(), association.getParentId());
+        }
+        else {
+            locationRepository.addLocationHierarchy(association.getChildId(), association.getParentId());
+        }
+    }
+
     @Override
     public LocationVO get(int id) {
         return locationRepository.get(id);
@@ -449,6 +476,11 @@ public class LocationServiceImpl implements LocationService {
         locationRepository.updateLocationHierarchy();
     }
 
+    @Override
+    public boolean hasLocationHierarchy() {
+        return locationRepository.hasLocationHierarchy();
+    }
+
     @Override
     public Optional<String> getStatisticalRectangleLabelByLatLong(Number latitude, Number longitude) {
         if (longitude == null || latitude == null) {
@@ -31,6 +31,7 @@ import net.sumaris.core.vo.referential.ReferentialVO;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -40,6 +41,9 @@ public interface ReferentialService {
     @Transactional(readOnly = true)
     Date getLastUpdateDate();
 
+    @Transactional(readOnly = true)
+    Date getLastUpdateDate(Collection<String> entityNames);
+
     @Transactional(readOnly = true)
     List<ReferentialTypeVO> getAllTypes();
 
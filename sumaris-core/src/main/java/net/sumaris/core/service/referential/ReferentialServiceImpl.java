@@ -69,6 +69,7 @@ import org.springframework.context.event.EventListener;
 import org.springframework.core.convert.support.GenericConversionService;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -136,6 +137,11 @@ public class ReferentialServiceImpl implements ReferentialService {
 		return referentialDao.getLastUpdateDate();
 	}
 
+	@Override
+	public Date getLastUpdateDate(Collection<String> entityNames) {
+		return referentialDao.getLastUpdateDate(entityNames);
+	}
+
 	@Override
 	public List<ReferentialTypeVO> getAllTypes() {
 		return referentialDao.getAllTypes();
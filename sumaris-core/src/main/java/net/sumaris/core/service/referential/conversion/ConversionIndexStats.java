@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.core.service.referential.conversion;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a conversion index: how many lookups were resolved by the index, and how many needed a SQL query
+ * (unsupported filter, or index disabled).
+ */
+public class ConversionIndexStats {
+
+    private final AtomicLong indexHitCount = new AtomicLong();
+    private final AtomicLong indexMissCount = new AtomicLong();
+    private final AtomicLong sqlFallbackCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * Number of conversions found in the index
+     */
+    public long getIndexHitCount() {
+        return indexHitCount.get();
+    }
+
+    /**
+     * Number of lookups resolved by the index, without any matching conversion
+     */
+    public long getIndexMissCount() {
+        return indexMissCount.get();
+    }
+
+    /**
+     * Number of lookups executed as a SQL query
+     */
+    public long getSqlFallbackCount() {
+        return sqlFallbackCount.get();
+    }
+
+    /**
+     * Number of times the index has been (re)loaded
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{indexHit: %s, indexMiss: %s, sqlFallback: %s, load: %s}",
+            getIndexHitCount(), getIndexMissCount(), getSqlFallbackCount(), getLoadCount());
+    }
+
+    /* -- protected functions -- */
+
+    protected void incrementIndexHit() {
+        indexHitCount.incrementAndGet();
+    }
+
+    protected void incrementIndexMiss() {
+        indexMissCount.incrementAndGet();
+    }
+
+    protected void incrementSqlFallback() {
+        sqlFallbackCount.incrementAndGet();
+    }
+
+    protected void incrementLoad() {
+        loadCount.incrementAndGet();
+    }
+}
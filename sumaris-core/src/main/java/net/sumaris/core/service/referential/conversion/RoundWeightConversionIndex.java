@@ -0,0 +1,178 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.core.service.referential.conversion;
+
+import lombok.NonNull;
+import net.sumaris.core.model.referential.StatusEnum;
+import net.sumaris.core.util.Dates;
+import net.sumaris.core.vo.referential.conversion.RoundWeightConversionFetchOptions;
+import net.sumaris.core.vo.referential.conversion.RoundWeightConversionFilterVO;
+import net.sumaris.core.vo.referential.conversion.RoundWeightConversionVO;
+import org.apache.commons.lang3.ArrayUtils;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Immutable in-memory index of the enabled round weight conversions, to avoid a SQL query for each batch (e.g. in denormalization).
+ * <p>
+ * Conversions are grouped by taxon group, then by (location, dressing, preserving). Each group is sorted by start date,
+ * so that a lookup on a date is a binary search.
+ * </p>
+ * Results are the same as the SQL query, ordered by start date (descending).
+ */
+public class RoundWeightConversionIndex {
+
+    private static final Comparator<Entry> ORDER_BY_START_DATE = Comparator.comparingLong(Entry::startTime)
+        .thenComparingInt(Entry::id);
+
+    /**
+     * Can the filter be resolved by the index ? If not, a SQL query should be used
+     */
+    public static boolean isSupported(@NonNull RoundWeightConversionFilterVO filter,
+                                      @Nullable RoundWeightConversionFetchOptions fetchOptions) {
+        return ArrayUtils.isNotEmpty(filter.getTaxonGroupIds())
+            && ArrayUtils.isNotEmpty(filter.getLocationIds())
+            // Only enabled conversions are indexed
+            && filter.getStatusIds() != null && filter.getStatusIds().length == 1
+            && Objects.equals(filter.getStatusIds()[0], StatusEnum.ENABLE.getId())
+            && (fetchOptions == null || !fetchOptions.isWithLocation());
+    }
+
+    private final Map<Integer, Map<Key, Entry[]>> entriesByTaxonGroupId;
+    private final int size;
+
+    /**
+     * @param conversions enabled conversions
+     */
+    public RoundWeightConversionIndex(@NonNull Collection<RoundWeightConversionVO> conversions) {
+        Map<Integer, Map<Key, List<Entry>>> groups = new HashMap<>();
+        int size = 0;
+        for (RoundWeightConversionVO conversion : conversions) {
+            if (conversion.getId() == null || conversion.getTaxonGroupId() == null || conversion.getLocationId() == null
+                || conversion.getDressingId() == null || conversion.getPreservingId() == null || conversion.getStartDate() == null) {
+                continue; // Skip invalid conversion (should never occur: not null columns)
+            }
+            Key key = new Key(conversion.getLocationId(), conversion.getDressingId(), conversion.getPreservingId());
+            groups.computeIfAbsent(conversion.getTaxonGroupId(), k -> new HashMap<>())
+                .computeIfAbsent(key, k -> new ArrayList<>())
+                .add(new Entry(conversion.getStartDate().getTime(),
+                    conversion.getEndDate() != null ? conversion.getEndDate().getTime() : Long.MAX_VALUE,
+                    conversion.getId(),
+                    conversion));
+            size++;
+        }
+
+        Map<Integer, Map<Key, Entry[]>> entriesByTaxonGroupId = new HashMap<>(groups.size() * 4 / 3 + 1);
+        groups.forEach((taxonGroupId, entriesByKey) -> {
+            Map<Key, Entry[]> sortedEntriesByKey = new HashMap<>(entriesByKey.size() * 4 / 3 + 1);
+            entriesByKey.forEach((key, entries) -> {
+                Entry[] sortedEntries = entries.toArray(new Entry[0]);
+                Arrays.sort(sortedEntries, ORDER_BY_START_DATE);
+                sortedEntriesByKey.put(key, sortedEntries);
+            });
+            entriesByTaxonGroupId.put(taxonGroupId, Collections.unmodifiableMap(sortedEntriesByKey));
+        });
+        this.entriesByTaxonGroupId = Collections.unmodifiableMap(entriesByTaxonGroupId);
+        this.size = size;
+    }
+
+    /**
+     * Number of indexed conversions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the best conversion matching the filter (see isSupported()): the one with the highest start date
+     */
+    public Optional<RoundWeightConversionVO> findFirst(@NonNull RoundWeightConversionFilterVO filter) {
+        // Same as the SQL query: compare with the day (without time)
+        Long time = filter.getDate() != null ? Dates.resetTime(filter.getDate()).getTime() : null;
+
+        Entry best = null;
+        for (Integer taxonGroupId : filter.getTaxonGroupIds()) {
+            Map<Key, Entry[]> entriesByKey = entriesByTaxonGroupId.get(taxonGroupId);
+            if (entriesByKey == null) continue;
+
+            if (ArrayUtils.isNotEmpty(filter.getDressingIds()) && ArrayUtils.isNotEmpty(filter.getPreservingIds())) {
+                // Direct access, by key
+                for (Integer locationId : filter.getLocationIds()) {
+                    for (Integer dressingId : filter.getDressingIds()) {
+                        for (Integer preservingId : filter.getPreservingIds()) {
+                            Entry[] entries = entriesByKey.get(new Key(locationId, dressingId, preservingId));
+                            best = max(best, findFirst(entries, time));
+                        }
+                    }
+                }
+            }
+            else {
+                // Scan keys of the taxon group
+                for (Map.Entry<Key, Entry[]> item : entriesByKey.entrySet()) {
+                    Key key = item.getKey();
+                    if (!ArrayUtils.contains(filter.getLocationIds(), key.locationId())
+                        || (ArrayUtils.isNotEmpty(filter.getDressingIds()) && !ArrayUtils.contains(filter.getDressingIds(), key.dressingId()))
+                        || (ArrayUtils.isNotEmpty(filter.getPreservingIds()) && !ArrayUtils.contains(filter.getPreservingIds(), key.preservingId()))) continue;
+                    best = max(best, findFirst(item.getValue(), time));
+                }
+            }
+        }
+
+        return best != null ? Optional.of(best.conversion()) : Optional.empty();
+    }
+
+    /* -- protected functions -- */
+
+    protected Entry findFirst(Entry[] entries, Long time) {
+        if (entries == null || entries.length == 0) return null;
+        if (time == null) return entries[entries.length - 1];
+
+        // Last entry started before (or at) the date (binary search)
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries[middle].startTime() <= time) low = middle + 1;
+            else high = middle;
+        }
+
+        // Then the first one not ended
+        for (int i = low - 1; i >= 0; i--) {
+            if (entries[i].endTime() >= time) return entries[i];
+        }
+        return null;
+    }
+
+    protected static Entry max(Entry entry1, Entry entry2) {
+        if (entry1 == null) return entry2;
+        if (entry2 == null) return entry1;
+        return ORDER_BY_START_DATE.compare(entry1, entry2) >= 0 ? entry1 : entry2;
+    }
+
+    record Key(int locationId, int dressingId, int preservingId) {
+    }
+
+    record Entry(long startTime, long endTime, int id, RoundWeightConversionVO conversion) {
+    }
+}
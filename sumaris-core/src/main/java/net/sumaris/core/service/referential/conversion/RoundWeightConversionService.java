@@ -26,6 +26,7 @@ import net.sumaris.core.dao.technical.Page;
 import net.sumaris.core.vo.referential.conversion.RoundWeightConversionFetchOptions;
 import net.sumaris.core.vo.referential.conversion.RoundWeightConversionFilterVO;
 import net.sumaris.core.vo.referential.conversion.RoundWeightConversionVO;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -40,6 +41,12 @@ public interface RoundWeightConversionService {
 
     Optional<RoundWeightConversionVO> findFirstByFilter(RoundWeightConversionFilterVO filter, RoundWeightConversionFetchOptions fetchOptions);
 
+    /**
+     * Counters of findFirstByFilter(): conversions resolved from the in-memory index, or by a SQL query
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    ConversionIndexStats getIndexStats();
+
     long countByFilter(RoundWeightConversionFilterVO filter);
 
     List<RoundWeightConversionVO> saveAll(List<RoundWeightConversionVO> source);
@@ -24,25 +24,37 @@ package net.sumaris.core.service.referential.conversion;
 
 import com.google.common.base.Preconditions;
 import lombok.NonNull;
-import net.sumaris.core.config.CacheConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.config.SumarisConfiguration;
 import net.sumaris.core.dao.referential.conversion.RoundWeightConversionRepository;
 import net.sumaris.core.dao.technical.Page;
 import net.sumaris.core.dao.technical.SortDirection;
+import net.sumaris.core.event.config.ConfigurationReadyEvent;
+import net.sumaris.core.event.config.ConfigurationUpdatedEvent;
+import net.sumaris.core.event.entity.AbstractEntityEvent;
+import net.sumaris.core.event.entity.EntityDeleteEvent;
+import net.sumaris.core.event.entity.EntityInsertEvent;
+import net.sumaris.core.event.entity.EntityUpdateEvent;
+import net.sumaris.core.model.referential.StatusEnum;
 import net.sumaris.core.model.referential.conversion.RoundWeightConversion;
 import net.sumaris.core.vo.referential.conversion.RoundWeightConversionFetchOptions;
 import net.sumaris.core.vo.referential.conversion.RoundWeightConversionFilterVO;
 import net.sumaris.core.vo.referential.conversion.RoundWeightConversionVO;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import javax.annotation.Resource;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service("roundWeightConversionService")
+@Slf4j
 public class RoundWeightConversionServiceImpl implements RoundWeightConversionService {
 
     private static final Page FIND_FIRST_PAGE = Page.builder().size(1)
@@ -50,9 +62,33 @@ public class RoundWeightConversionServiceImpl implements RoundWeightConversionSe
         .sortDirection(SortDirection.DESC)
         .build();
 
+    @Resource
+    private SumarisConfiguration configuration;
+
     @Resource
     private RoundWeightConversionRepository roundWeightConversionRepository;
 
+    private final ConversionIndexStats indexStats = new ConversionIndexStats();
+
+    private final AtomicLong indexVersion = new AtomicLong();
+
+    private volatile RoundWeightConversionIndex index;
+
+    @EventListener({ConfigurationReadyEvent.class, ConfigurationUpdatedEvent.class})
+    public void onConfigurationReady() {
+        // Option may have changed
+        invalidateIndex();
+    }
+
+    @TransactionalEventListener(
+        value = {EntityInsertEvent.class, EntityUpdateEvent.class, EntityDeleteEvent.class},
+        phase = TransactionPhase.AFTER_COMMIT,
+        fallbackExecution = true,
+        condition = "#event.entityName=='RoundWeightConversion'")
+    public void onReferentialChanged(AbstractEntityEvent event) {
+        invalidateIndex();
+    }
+
     @Override
     public List<RoundWeightConversionVO> findByFilter(RoundWeightConversionFilterVO filter,
                                                        Page page,
@@ -66,12 +102,21 @@ public class RoundWeightConversionServiceImpl implements RoundWeightConversionSe
     }
 
     @Override
-    @Cacheable(cacheNames = CacheConfiguration.Names.ROUND_WEIGHT_CONVERSION_FIRST_BY_FILTER, key = "#filter.hashCode() * #fetchOptions.hashCode()")
     public Optional<RoundWeightConversionVO> findFirstByFilter(
         @NonNull RoundWeightConversionFilterVO filter, @NonNull RoundWeightConversionFetchOptions fetchOptions) {
         Preconditions.checkArgument(ArrayUtils.isNotEmpty(filter.getTaxonGroupIds()), "Require at least one taxonGroupId");
         Preconditions.checkArgument(ArrayUtils.isNotEmpty(filter.getLocationIds()), "Require at least one locationIds");
 
+        // Use the in-memory index, if enabled and if the filter is supported
+        RoundWeightConversionIndex index = RoundWeightConversionIndex.isSupported(filter, fetchOptions) ? getIndex() : null;
+        if (index != null) {
+            Optional<RoundWeightConversionVO> result = index.findFirst(filter);
+            if (result.isPresent()) indexStats.incrementIndexHit();
+            else indexStats.incrementIndexMiss();
+            return result;
+        }
+        indexStats.incrementSqlFallback();
+
         // Try to find a conversion factor
         List<RoundWeightConversionVO> matches = findByFilter(filter,
             FIND_FIRST_PAGE,
@@ -82,6 +127,11 @@ public class RoundWeightConversionServiceImpl implements RoundWeightConversionSe
         return Optional.empty();
     }
 
+    @Override
+    public ConversionIndexStats getIndexStats() {
+        return indexStats;
+    }
+
     @Override
     public long countByFilter(RoundWeightConversionFilterVO filter) {
         return roundWeightConversionRepository.count(filter);
@@ -89,13 +139,61 @@ public class RoundWeightConversionServiceImpl implements RoundWeightConversionSe
 
     @Override
     public List<RoundWeightConversionVO> saveAll(List<RoundWeightConversionVO> sources) {
-        return sources.stream()
+        List<RoundWeightConversionVO> result = sources.stream()
             .map(roundWeightConversionRepository::save)
             .collect(Collectors.toList());
+        invalidateIndex();
+        return result;
     }
 
     @Override
     public void deleteAllById(List<Integer> ids) {
         roundWeightConversionRepository.deleteAllById(ids);
+        invalidateIndex();
+    }
+
+    /* -- protected functions -- */
+
+    /**
+     * Get the index (load it if need). Return null if the index has been disabled
+     */
+    protected RoundWeightConversionIndex getIndex() {
+        if (!configuration.enableReferentialConversionIndex()) return null;
+
+        RoundWeightConversionIndex index = this.index;
+        if (index == null) {
+            synchronized (this) {
+                index = this.index;
+                if (index == null) {
+                    long version = indexVersion.get();
+                    index = loadIndex();
+                    // Keep it, if not invalidated during loading
+                    if (indexVersion.get() == version) this.index = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    protected RoundWeightConversionIndex loadIndex() {
+        long startTime = System.currentTimeMillis();
+
+        List<RoundWeightConversionVO> conversions = roundWeightConversionRepository.findAll(RoundWeightConversionFilterVO.builder()
+                .statusIds(new Integer[]{StatusEnum.ENABLE.getId()})
+                .build(),
+            (Page) null, RoundWeightConversionFetchOptions.DEFAULT);
+
+        RoundWeightConversionIndex index = new RoundWeightConversionIndex(conversions);
+        indexStats.incrementLoad();
+        log.debug("Round weight conversions index loaded in {}ms ({} conversions) - stats: {}",
+            System.currentTimeMillis() - startTime,
+            index.size(),
+            indexStats);
+        return index;
+    }
+
+    protected void invalidateIndex() {
+        indexVersion.incrementAndGet();
+        this.index = null;
     }
 }
@@ -0,0 +1,276 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.core.service.referential.conversion;
+
+import lombok.NonNull;
+import net.sumaris.core.model.referential.StatusEnum;
+import net.sumaris.core.vo.referential.conversion.WeightLengthConversionFetchOptions;
+import net.sumaris.core.vo.referential.conversion.WeightLengthConversionFilterVO;
+import net.sumaris.core.vo.referential.conversion.WeightLengthConversionVO;
+import org.apache.commons.lang3.ArrayUtils;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Immutable in-memory index of the enabled weight-length conversions, to avoid a SQL query for each batch (e.g. in denormalization).
+ * <p>
+ * Conversions are grouped by reference taxon, then by (sex, length parameter, location). Each group is sorted by year
+ * (without year first) then by start month, so that a lookup on a year is a binary search.
+ * Child locations are resolved using the location hierarchy, and length pmfms using their parameter, both loaded with the index.
+ * </p>
+ * The best conversion is the greatest one, using getOrder(): by year or by start month, then by id. Conversions without
+ * year are ranked after the others (like 'NULLS LAST' in a descending SQL order). The SQL fallback of the service uses
+ * the same order, and length pmfms are matched on their parameter only, like in WeightLengthConversionSpecifications.
+ */
+public class WeightLengthConversionIndex {
+
+    private static final int NULL_YEAR = Integer.MIN_VALUE;
+
+    private static final Comparator<Entry> ORDER_BY_YEAR = Comparator.comparingInt(Entry::year)
+        .thenComparingInt(Entry::startMonth)
+        .thenComparingInt(Entry::id);
+
+    private static final Comparator<Entry> ORDER_BY_START_MONTH = Comparator.comparingInt(Entry::startMonth)
+        .thenComparingInt(Entry::year)
+        .thenComparingInt(Entry::id);
+
+    /**
+     * Order used to rank conversions: the greatest is the best one
+     * @param orderByYear if true, order by year (without year first), then by start month. Otherwise, by start month then by year
+     */
+    public static Comparator<WeightLengthConversionVO> getOrder(boolean orderByYear) {
+        return Comparator.comparing(WeightLengthConversionIndex::toEntry, orderByYear ? ORDER_BY_YEAR : ORDER_BY_START_MONTH);
+    }
+
+    /**
+     * Can the filter be resolved by the index ? If not, a SQL query should be used
+     */
+    public static boolean isSupported(@NonNull WeightLengthConversionFilterVO filter,
+                                      @Nullable WeightLengthConversionFetchOptions fetchOptions) {
+        return ArrayUtils.isNotEmpty(filter.getReferenceTaxonIds())
+            // Only enabled conversions are indexed
+            && filter.getStatusIds() != null && filter.getStatusIds().length == 1
+            && Objects.equals(filter.getStatusIds()[0], StatusEnum.ENABLE.getId())
+            // Rectangles are not indexed
+            && ArrayUtils.isEmpty(filter.getRectangleLabels())
+            && (fetchOptions == null || (!fetchOptions.isWithLocation()
+                && !fetchOptions.isWithRectangleLabels()
+                && !fetchOptions.isWithLengthPmfmIds()));
+    }
+
+    private final Map<Integer, Map<Key, Entry[]>> entriesByReferenceTaxonId;
+    private final Map<Integer, int[]> parentLocationIdsByChildId;
+    private final Map<Integer, Integer> lengthParameterIdByPmfmId;
+    private final int size;
+
+    /**
+     * @param conversions enabled conversions
+     * @param parentLocationIdsByChildId location hierarchy (child location id -> conversion locations ids)
+     * @param lengthParameterIdByPmfmId parameter of each length pmfm
+     */
+    public WeightLengthConversionIndex(@NonNull Collection<WeightLengthConversionVO> conversions,
+                                       @NonNull Map<Integer, int[]> parentLocationIdsByChildId,
+                                       @NonNull Map<Integer, Integer> lengthParameterIdByPmfmId) {
+        Map<Integer, Map<Key, List<Entry>>> groups = new HashMap<>();
+        int size = 0;
+        for (WeightLengthConversionVO conversion : conversions) {
+            if (conversion.getId() == null || conversion.getReferenceTaxonId() == null || conversion.getLengthParameterId() == null
+                || conversion.getLocationId() == null || conversion.getStartMonth() == null || conversion.getEndMonth() == null) {
+                continue; // Skip invalid conversion (should never occur: not null columns)
+            }
+            Key key = new Key(conversion.getSexId(), conversion.getLengthParameterId(), conversion.getLocationId());
+            groups.computeIfAbsent(conversion.getReferenceTaxonId(), k -> new HashMap<>())
+                .computeIfAbsent(key, k -> new ArrayList<>())
+                .add(toEntry(conversion));
+            size++;
+        }
+
+        Map<Integer, Map<Key, Entry[]>> entriesByReferenceTaxonId = new HashMap<>(groups.size() * 4 / 3 + 1);
+        groups.forEach((referenceTaxonId, entriesByKey) -> {
+            Map<Key, Entry[]> sortedEntriesByKey = new HashMap<>(entriesByKey.size() * 4 / 3 + 1);
+            entriesByKey.forEach((key, entries) -> {
+                Entry[] sortedEntries = entries.toArray(new Entry[0]);
+                Arrays.sort(sortedEntries, ORDER_BY_YEAR);
+                sortedEntriesByKey.put(key, sortedEntries);
+            });
+            entriesByReferenceTaxonId.put(referenceTaxonId, Collections.unmodifiableMap(sortedEntriesByKey));
+        });
+        this.entriesByReferenceTaxonId = Collections.unmodifiableMap(entriesByReferenceTaxonId);
+        this.parentLocationIdsByChildId = Map.copyOf(parentLocationIdsByChildId);
+        this.lengthParameterIdByPmfmId = Map.copyOf(lengthParameterIdByPmfmId);
+        this.size = size;
+    }
+
+    /**
+     * Number of indexed conversions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the best conversion matching the filter (see isSupported())
+     * @param filter the filter
+     * @param orderByYear if true, prefer the highest year. Otherwise, prefer the highest start month
+     */
+    public Optional<WeightLengthConversionVO> findFirst(@NonNull WeightLengthConversionFilterVO filter, boolean orderByYear) {
+        // Null sets means 'any'
+        Set<Integer> sexIds = toSet(filter.getSexIds());
+        Set<Integer> locationIds = getLocationIds(filter);
+        Set<Integer> lengthParameterIds = getLengthParameterIds(filter);
+        Set<Integer> lengthUnitIds = toSet(filter.getLengthUnitIds());
+        if ((locationIds != null && locationIds.isEmpty()) || (lengthParameterIds != null && lengthParameterIds.isEmpty())) {
+            return Optional.empty();
+        }
+
+        Comparator<Entry> order = orderByYear ? ORDER_BY_YEAR : ORDER_BY_START_MONTH;
+        Entry best = null;
+        for (Integer referenceTaxonId : filter.getReferenceTaxonIds()) {
+            Map<Key, Entry[]> entriesByKey = entriesByReferenceTaxonId.get(referenceTaxonId);
+            if (entriesByKey == null) continue;
+
+            if (sexIds != null && locationIds != null && lengthParameterIds != null) {
+                // Direct access, by key
+                for (Integer sexId : sexIds) {
+                    for (Integer lengthParameterId : lengthParameterIds) {
+                        for (Integer locationId : locationIds) {
+                            Entry[] entries = entriesByKey.get(new Key(sexId, lengthParameterId, locationId));
+                            best = max(best, findFirst(entries, filter.getYear(), filter.getMonth(), lengthUnitIds, order), order);
+                        }
+                    }
+                }
+            }
+            else {
+                // Scan keys of the taxon
+                for (Map.Entry<Key, Entry[]> item : entriesByKey.entrySet()) {
+                    Key key = item.getKey();
+                    if (!contains(sexIds, key.sexId()) || !contains(lengthParameterIds, key.lengthParameterId())
+                        || !contains(locationIds, key.locationId())) continue;
+                    best = max(best, findFirst(item.getValue(), filter.getYear(), filter.getMonth(), lengthUnitIds, order), order);
+                }
+            }
+        }
+
+        return best != null ? Optional.of(best.conversion()) : Optional.empty();
+    }
+
+    /* -- protected functions -- */
+
+    protected Entry findFirst(Entry[] entries, Integer year, Integer month, Set<Integer> lengthUnitIds, Comparator<Entry> order) {
+        if (entries == null) return null;
+
+        // Restrict to the year (binary search)
+        int from = 0;
+        int to = entries.length;
+        if (year != null) {
+            from = lowerBound(entries, year);
+            to = lowerBound(entries, year + 1);
+        }
+
+        // Iterate from the highest year, then the highest start month
+        Entry best = null;
+        for (int i = to - 1; i >= from; i--) {
+            Entry entry = entries[i];
+            if (month != null && (month < entry.startMonth() || month > entry.endMonth())) continue;
+            if (!contains(lengthUnitIds, entry.conversion().getLengthUnitId())) continue;
+
+            // Entries are sorted by year: the first match is the best one
+            if (order == ORDER_BY_YEAR) return entry;
+
+            best = max(best, entry, order);
+        }
+        return best;
+    }
+
+    /**
+     * Index of the first entry with a year greater or equal to the given year
+     */
+    protected int lowerBound(Entry[] entries, int year) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries[middle].year() < year) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    protected Set<Integer> getLocationIds(WeightLengthConversionFilterVO filter) {
+        Set<Integer> locationIds = toSet(filter.getLocationIds());
+        if (ArrayUtils.isEmpty(filter.getChildLocationIds())) return locationIds;
+
+        // Resolve parents, from the location hierarchy
+        Set<Integer> parentLocationIds = new HashSet<>();
+        for (Integer childLocationId : filter.getChildLocationIds()) {
+            int[] ids = parentLocationIdsByChildId.get(childLocationId);
+            if (ids != null) Arrays.stream(ids).forEach(parentLocationIds::add);
+        }
+        if (locationIds != null) parentLocationIds.retainAll(locationIds);
+        return parentLocationIds;
+    }
+
+    protected Set<Integer> getLengthParameterIds(WeightLengthConversionFilterVO filter) {
+        Set<Integer> lengthParameterIds = toSet(filter.getLengthParameterIds());
+        if (ArrayUtils.isEmpty(filter.getLengthPmfmIds())) return lengthParameterIds;
+
+        // Resolve pmfm's parameter (unit will be converted by computedWeight())
+        Set<Integer> pmfmParameterIds = new HashSet<>();
+        for (Integer pmfmId : filter.getLengthPmfmIds()) {
+            Integer parameterId = lengthParameterIdByPmfmId.get(pmfmId);
+            if (parameterId != null) pmfmParameterIds.add(parameterId);
+        }
+        if (lengthParameterIds != null) pmfmParameterIds.retainAll(lengthParameterIds);
+        return pmfmParameterIds;
+    }
+
+    protected static Entry toEntry(WeightLengthConversionVO conversion) {
+        return new Entry(conversion.getYear() != null ? conversion.getYear() : NULL_YEAR,
+            conversion.getStartMonth() != null ? conversion.getStartMonth() : 0,
+            conversion.getEndMonth() != null ? conversion.getEndMonth() : 0,
+            conversion.getId() != null ? conversion.getId() : 0,
+            conversion);
+    }
+
+    protected static Set<Integer> toSet(Integer[] ids) {
+        if (ArrayUtils.isEmpty(ids)) return null;
+        return ids.length == 1 ? Collections.singleton(ids[0]) : new HashSet<>(Arrays.asList(ids));
+    }
+
+    protected static boolean contains(Set<Integer> ids, Integer id) {
+        return ids == null || ids.contains(id);
+    }
+
+    protected static Entry max(Entry entry1, Entry entry2, Comparator<Entry> order) {
+        if (entry1 == null) return entry2;
+        if (entry2 == null) return entry1;
+        return order.compare(entry1, entry2) >= 0 ? entry1 : entry2;
+    }
+
+    record Key(Integer sexId, int lengthParameterId, int locationId) {
+    }
+
+    record Entry(int year, int startMonth, int endMonth, int id, WeightLengthConversionVO conversion) {
+    }
+}
@@ -26,6 +26,7 @@ import net.sumaris.core.dao.technical.Page;
 import net.sumaris.core.vo.referential.conversion.WeightLengthConversionFetchOptions;
 import net.sumaris.core.vo.referential.conversion.WeightLengthConversionFilterVO;
 import net.sumaris.core.vo.referential.conversion.WeightLengthConversionVO;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Nullable;
@@ -64,6 +65,12 @@ public interface WeightLengthConversionService {
     @Transactional(readOnly = true)
     Optional<WeightLengthConversionVO> loadFirstByFilter(WeightLengthConversionFilterVO filter, @Nullable WeightLengthConversionFetchOptions fetchOptions);
 
+    /**
+     * Counters of loadFirstByFilter(): conversions resolved from the in-memory index, or by a SQL query
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    ConversionIndexStats getIndexStats();
+
     List<WeightLengthConversionVO> saveAll(List<WeightLengthConversionVO> source);
 
     void deleteAllById(List<Integer> ids);
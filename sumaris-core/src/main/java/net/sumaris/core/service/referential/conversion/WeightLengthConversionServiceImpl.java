@@ -29,12 +29,18 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.config.CacheConfiguration;
+import net.sumaris.core.config.SumarisConfiguration;
 import net.sumaris.core.dao.referential.conversion.WeightLengthConversionRepository;
 import net.sumaris.core.dao.technical.Page;
-import net.sumaris.core.dao.technical.SortDirection;
+import net.sumaris.core.event.config.ConfigurationReadyEvent;
+import net.sumaris.core.event.config.ConfigurationUpdatedEvent;
+import net.sumaris.core.event.entity.AbstractEntityEvent;
+import net.sumaris.core.event.entity.EntityDeleteEvent;
+import net.sumaris.core.event.entity.EntityInsertEvent;
+import net.sumaris.core.event.entity.EntityUpdateEvent;
 import net.sumaris.core.model.referential.StatusEnum;
-import net.sumaris.core.model.referential.conversion.WeightLengthConversion;
 import net.sumaris.core.model.referential.location.LocationLevels;
 import net.sumaris.core.model.referential.pmfm.UnitEnum;
 import net.sumaris.core.service.referential.LocationService;
@@ -47,25 +53,29 @@ import net.sumaris.core.vo.referential.conversion.WeightLengthConversionFetchOpt
 import net.sumaris.core.vo.referential.conversion.WeightLengthConversionFilterVO;
 import net.sumaris.core.vo.referential.conversion.WeightLengthConversionVO;
 import net.sumaris.core.vo.referential.location.LocationVO;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import javax.annotation.Nullable;
 import javax.annotation.Resource;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service("weightLengthConversionService")
+@Slf4j
 public class WeightLengthConversionServiceImpl implements WeightLengthConversionService {
 
+    @Resource
+    private SumarisConfiguration configuration;
+
     @Resource
     private WeightLengthConversionRepository weightLengthConversionRepository;
 
@@ -75,6 +85,27 @@ public class WeightLengthConversionServiceImpl implements WeightLengthConversion
     @Resource
     private LocationService locationService;
 
+    private final ConversionIndexStats indexStats = new ConversionIndexStats();
+
+    private final AtomicLong indexVersion = new AtomicLong();
+
+    private volatile WeightLengthConversionIndex index;
+
+    @EventListener({ConfigurationReadyEvent.class, ConfigurationUpdatedEvent.class})
+    public void onConfigurationReady() {
+        // Option may have changed
+        invalidateIndex();
+    }
+
+    @TransactionalEventListener(
+        value = {EntityInsertEvent.class, EntityUpdateEvent.class, EntityDeleteEvent.class},
+        phase = TransactionPhase.AFTER_COMMIT,
+        fallbackExecution = true,
+        condition = "#event.entityName=='WeightLengthConversion' || #event.entityName=='Location' || #event.entityName=='LocationAssociation' || #event.entityName=='Pmfm'")
+    public void onReferentialChanged(AbstractEntityEvent event) {
+        invalidateIndex();
+    }
+
     @Override
     public List<WeightLengthConversionVO> findByFilter(WeightLengthConversionFilterVO filter,
                                                        Page page,
@@ -141,41 +172,36 @@ public class WeightLengthConversionServiceImpl implements WeightLengthConversion
     }
 
     @Override
-    @Cacheable(cacheNames = CacheConfiguration.Names.WEIGHT_LENGTH_CONVERSION_FIRST_BY_FILTER, key = "#filter.hashCode()")
     public Optional<WeightLengthConversionVO> loadFirstByFilter(WeightLengthConversionFilterVO filter) {
         return loadFirstByFilter(filter, WeightLengthConversionFetchOptions.DEFAULT);
     }
 
     @Override
-    @Cacheable(cacheNames = CacheConfiguration.Names.WEIGHT_LENGTH_CONVERSION_FIRST_BY_FILTER, key = "#filter.hashCode() * #fetchOptions.hashCode()")
     public Optional<WeightLengthConversionVO> loadFirstByFilter(@NonNull WeightLengthConversionFilterVO filter, @NonNull WeightLengthConversionFetchOptions fetchOptions) {
         Preconditions.checkArgument(ArrayUtils.isNotEmpty(filter.getReferenceTaxonIds()), "Require at least on referenceTaxonId");
         Preconditions.checkArgument(ArrayUtils.isNotEmpty(filter.getLocationIds())
             || ArrayUtils.isNotEmpty(filter.getChildLocationIds())
             || ArrayUtils.isNotEmpty(filter.getRectangleLabels()), "Require at least one of rectangleLabels, childLocationIds or locationIds");
 
-        final Page page = Page.builder().size(1)
-            .sortBy(filter.getYear() != null ? WeightLengthConversion.Fields.YEAR : WeightLengthConversion.Fields.START_MONTH)
-            .sortDirection(SortDirection.DESC)
-            .build();
+        // Use the in-memory index, if enabled and if the filter is supported
+        WeightLengthConversionIndex index = WeightLengthConversionIndex.isSupported(filter, fetchOptions) ? getIndex() : null;
+        if (index == null) indexStats.incrementSqlFallback();
 
         // First, try with full filter
-        List<WeightLengthConversionVO> matches = this.findByFilter(filter, page, fetchOptions);
-        if (CollectionUtils.isNotEmpty(matches)) return Optional.of(matches.get(0));
+        Optional<WeightLengthConversionVO> result = findFirst(index, filter, filter.getYear() != null, fetchOptions);
 
-        if (filter.getYear() != null && filter.getMonth() != null) {
+        if (result.isEmpty() && filter.getYear() != null && filter.getMonth() != null) {
             // Retry on year only (without month)
             WeightLengthConversionFilterVO filterWithoutMonth = filter.clone(); // Copy, to keep original filter unchanged
             filterWithoutMonth.setMonth(null);
-            matches = this.findByFilter(filterWithoutMonth, page, fetchOptions);
-            if (CollectionUtils.isNotEmpty(matches)) return Optional.of(matches.get(0));
+            result = findFirst(index, filterWithoutMonth, true, fetchOptions);
 
             // Retry on month only (without year)
-            WeightLengthConversionFilterVO filterWithoutYear = filter.clone(); // Copy, to keep original filter unchanged
-            filterWithoutYear.setYear(null);
-            page.setSortBy(WeightLengthConversion.Fields.YEAR);
-            matches = this.findByFilter(filterWithoutYear, page, fetchOptions);
-            if (CollectionUtils.isNotEmpty(matches)) return Optional.of(matches.get(0));
+            if (result.isEmpty()) {
+                WeightLengthConversionFilterVO filterWithoutYear = filter.clone(); // Copy, to keep original filter unchanged
+                filterWithoutYear.setYear(null);
+                result = findFirst(index, filterWithoutYear, true, fetchOptions);
+            }
         }
 
         // Retry on parameter Id (=skip unit match)
@@ -183,8 +209,17 @@ public class WeightLengthConversionServiceImpl implements WeightLengthConversion
             // TODO loop on parameterIds then if result
         }
 
-        // Not found
-        return Optional.empty();
+        if (index != null) {
+            if (result.isPresent()) indexStats.incrementIndexHit();
+            else indexStats.incrementIndexMiss();
+        }
+
+        return result;
+    }
+
+    @Override
+    public ConversionIndexStats getIndexStats() {
+        return indexStats;
     }
 
     @Override
@@ -248,27 +283,28 @@ public class WeightLengthConversionServiceImpl implements WeightLengthConversion
     @Override
     @Caching(
         evict = {
-            @CacheEvict(cacheNames = CacheConfiguration.Names.WEIGHT_LENGTH_CONVERSION_FIRST_BY_FILTER, allEntries = true),
             @CacheEvict(cacheNames = CacheConfiguration.Names.WEIGHT_LENGTH_CONVERSION_IS_LENGTH_PARAMETER_ID, allEntries = true),
             @CacheEvict(cacheNames = CacheConfiguration.Names.WEIGHT_LENGTH_CONVERSION_IS_LENGTH_PMFM_ID, allEntries = true)
         }
     )
     public List<WeightLengthConversionVO> saveAll(List<WeightLengthConversionVO> sources) {
-        return Beans.getStream(sources)
+        List<WeightLengthConversionVO> result = Beans.getStream(sources)
             .map(weightLengthConversionRepository::save)
             .toList();
+        invalidateIndex();
+        return result;
     }
 
     @Override
     @Caching(
         evict = {
-            @CacheEvict(cacheNames = CacheConfiguration.Names.WEIGHT_LENGTH_CONVERSION_FIRST_BY_FILTER, allEntries = true),
             @CacheEvict(cacheNames = CacheConfiguration.Names.WEIGHT_LENGTH_CONVERSION_IS_LENGTH_PARAMETER_ID, allEntries = true),
             @CacheEvict(cacheNames = CacheConfiguration.Names.WEIGHT_LENGTH_CONVERSION_IS_LENGTH_PMFM_ID, allEntries = true)
         }
     )
     public void deleteAllById(List<Integer> ids) {
         weightLengthConversionRepository.deleteAllById(ids);
+        invalidateIndex();
     }
 
     @Override
@@ -286,4 +322,76 @@ public class WeightLengthConversionServiceImpl implements WeightLengthConversion
             .lengthPmfmIds(new Integer[]{pmfmId})
             .build()) > 0;
     }
+
+    /* -- protected functions -- */
+
+    protected Optional<WeightLengthConversionVO> findFirst(@Nullable WeightLengthConversionIndex index,
+                                                           WeightLengthConversionFilterVO filter,
+                                                           boolean orderByYear,
+                                                           WeightLengthConversionFetchOptions fetchOptions) {
+        if (index != null) return index.findFirst(filter, orderByYear);
+
+        // Rank matches like the index does (a SQL 'ORDER BY year DESC' would put conversions without year first, on some databases)
+        return this.findByFilter(filter, null, fetchOptions).stream()
+            .max(WeightLengthConversionIndex.getOrder(orderByYear));
+    }
+
+    /**
+     * Get the index (load it if need). Return null if the index has been disabled
+     */
+    protected WeightLengthConversionIndex getIndex() {
+        if (!configuration.enableReferentialConversionIndex()) return null;
+
+        WeightLengthConversionIndex index = this.index;
+        if (index == null) {
+            synchronized (this) {
+                index = this.index;
+                if (index == null) {
+                    long version = indexVersion.get();
+                    index = loadIndex();
+                    // Keep it, if not invalidated during loading
+                    if (indexVersion.get() == version) this.index = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    protected WeightLengthConversionIndex loadIndex() {
+        long startTime = System.currentTimeMillis();
+        List<Integer> statusIds = List.of(StatusEnum.ENABLE.getId());
+
+        List<WeightLengthConversionVO> conversions = weightLengthConversionRepository.findAll(WeightLengthConversionFilterVO.builder()
+                .statusIds(statusIds.toArray(new Integer[0]))
+                .build(),
+            (Page) null, WeightLengthConversionFetchOptions.DEFAULT);
+
+        // Location hierarchy (child -> conversion locations)
+        ListMultimap<Integer, Integer> parentIdsByChildId = ArrayListMultimap.create();
+        weightLengthConversionRepository.findLocationHierarchyByStatusIds(statusIds)
+            .forEach(row -> parentIdsByChildId.put((Integer) row[0], (Integer) row[1]));
+        Map<Integer, int[]> parentLocationIdsByChildId = new HashMap<>(parentIdsByChildId.keySet().size() * 4 / 3 + 1);
+        parentIdsByChildId.asMap().forEach((childId, parentIds) -> parentLocationIdsByChildId.put(childId,
+            parentIds.stream().mapToInt(Integer::intValue).toArray()));
+
+        // Length pmfms
+        Map<Integer, Integer> lengthParameterIdByPmfmId = new HashMap<>();
+        weightLengthConversionRepository.findLengthPmfmParametersByStatusIds(statusIds)
+            .forEach(row -> lengthParameterIdByPmfmId.put((Integer) row[0], (Integer) row[1]));
+
+        WeightLengthConversionIndex index = new WeightLengthConversionIndex(conversions, parentLocationIdsByChildId, lengthParameterIdByPmfmId);
+        indexStats.incrementLoad();
+        log.debug("Weight-length conversions index loaded in {}ms ({} conversions, {} child locations, {} length pmfms) - stats: {}",
+            System.currentTimeMillis() - startTime,
+            index.size(),
+            parentLocationIdsByChildId.size(),
+            lengthParameterIdByPmfmId.size(),
+            indexStats);
+        return index;
+    }
+
+    protected void invalidateIndex() {
+        indexVersion.incrementAndGet();
+        this.index = null;
+    }
 }
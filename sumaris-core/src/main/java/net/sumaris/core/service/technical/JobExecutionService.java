@@ -26,8 +26,10 @@ package net.sumaris.core.service.technical;
 import io.reactivex.rxjava3.core.Observable;
 import net.sumaris.core.event.job.JobProgressionVO;
 import net.sumaris.core.model.IProgressionModel;
+import net.sumaris.core.vo.technical.job.JobQueueStatsVO;
 import net.sumaris.core.vo.technical.job.JobVO;
 
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 import java.util.function.BiFunction;
@@ -45,5 +47,12 @@ public interface JobExecutionService {
 
     JobVO cancel(JobVO job, String message);
 
+    /**
+     * Get queue depth, running count and wait time, by job type
+     */
+    List<JobQueueStatsVO> getQueueStats();
+
     <T> T readConfiguration(JobVO job, Class<T> configurationClass);
+
+    <T> T readReport(JobVO job, Class<T> reportClass);
 }
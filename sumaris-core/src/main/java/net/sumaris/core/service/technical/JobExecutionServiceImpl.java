@@ -32,6 +32,10 @@ import io.reactivex.rxjava3.disposables.Disposable;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.config.SumarisConfiguration;
+import net.sumaris.core.event.config.ConfigurationEvent;
+import net.sumaris.core.event.config.ConfigurationReadyEvent;
+import net.sumaris.core.event.config.ConfigurationUpdatedEvent;
 import net.sumaris.core.event.job.JobEndEvent;
 import net.sumaris.core.event.job.JobProgressionEvent;
 import net.sumaris.core.event.job.JobProgressionVO;
@@ -55,16 +59,20 @@ import net.sumaris.core.vo.administration.user.PersonVO;
 import net.sumaris.core.vo.social.UserEventVO;
 import net.sumaris.core.vo.technical.job.IJobResultVO;
 import net.sumaris.core.vo.technical.job.JobFilterVO;
+import net.sumaris.core.vo.technical.job.JobQueueStatsVO;
 import net.sumaris.core.vo.technical.job.JobVO;
 import net.sumaris.server.security.ISecurityContext;
 import org.apache.commons.collections4.CollectionUtils;
 import org.nuiton.i18n.I18n;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
@@ -83,6 +91,7 @@ import static org.nuiton.i18n.I18n.t;
 @Slf4j
 public class JobExecutionServiceImpl implements JobExecutionService {
 
+    private final SumarisConfiguration configuration;
     private final ObjectMapper objectMapper;
     private final JobService jobService;
     private final ISecurityContext<PersonVO> securityContext;
@@ -92,19 +101,26 @@ public class JobExecutionServiceImpl implements JobExecutionService {
     private final Map<Integer, List<Consumer<JobProgressionVO>>> jobProgressionListeners = new ConcurrentHashMap<>();
     private final Map<Integer, Future<?>> runningJobsById = new ConcurrentHashMap<>();
 
-    private final TaskExecutor taskExecutor;
+    private final JobScheduler jobScheduler;
 
-    public JobExecutionServiceImpl(JobService jobService,
+    public JobExecutionServiceImpl(SumarisConfiguration configuration,
+                                   JobService jobService,
                                    UserEventService userEventService,
                                    ObjectMapper objectMapper,
                                    Optional<TaskExecutor> taskExecutor,
+                                   @Qualifier("jobTaskExecutor") Optional<ThreadPoolTaskExecutor> jobTaskExecutor,
                                    Optional<ISecurityContext<PersonVO>> securityContext,
                                    ApplicationEventPublisher publisher) {
+        this.configuration = configuration;
         this.jobService = jobService;
         this.userEventService = userEventService;
         this.securityContext = securityContext.orElse(null);
         this.publisher = publisher;
-        this.taskExecutor = taskExecutor.orElse(null);
+        this.jobScheduler = taskExecutor
+            .map(executor -> new JobScheduler(executor, configuration.getJobSchedulerMaxConcurrency(),
+                // Jobs run in the job executor: do not start more jobs than its threads
+                jobTaskExecutor.map(ThreadPoolTaskExecutor::getMaxPoolSize).orElse(0)))
+            .orElse(null);
 
         // Use a cloned object mapper, to skip attributes with null value
         this.objectMapper = objectMapper.copy();
@@ -116,6 +132,15 @@ public class JobExecutionServiceImpl implements JobExecutionService {
         log.info("Job Execution Service started");
     }
 
+    @EventListener({ConfigurationReadyEvent.class, ConfigurationUpdatedEvent.class})
+    public void onConfigurationReady(ConfigurationEvent event) {
+        if (jobScheduler == null) return; // Skip
+
+        // Update scheduler limits
+        jobScheduler.setMaxConcurrency(configuration.getJobSchedulerMaxConcurrency(),
+            JobScheduler.parseMaxConcurrencyByType(configuration.getJobSchedulerMaxConcurrencyByType()));
+    }
+
     @Override
     public <R> JobVO run(JobVO job, Function<IProgressionModel, Future<R>> callableFuture) {
         return run(job, null, callableFuture);
@@ -157,9 +182,9 @@ public class JobExecutionServiceImpl implements JobExecutionService {
         // Notify user
         sendUserEvent(EventLevelEnum.INFO, finalJob);
 
-        // Start async
-        if (this.taskExecutor != null) {
-            this.taskExecutor.execute(() -> start(finalJob, callableFuture));
+        // Start async (when a slot is free for this job type)
+        if (this.jobScheduler != null) {
+            this.jobScheduler.submit(finalJob.getId(), finalJob.getType(), () -> start(finalJob, callableFuture));
         }
         else {
             start(finalJob, callableFuture);
@@ -278,6 +303,10 @@ public class JobExecutionServiceImpl implements JobExecutionService {
                 // Cancel by Future
                 runningJobsById.get(job.getId()).cancel(job.getStatus().equals(JobStatusEnum.RUNNING));
             }
+            else if (jobScheduler != null && jobScheduler.isQueued(job.getId())) {
+                // Remove from the queue
+                cancel(job, I18n.t("sumaris.job.cancel.message", SystemRecipientEnum.SYSTEM));
+            }
             else {
                 // Make sure this kind of job is callable by the pod
                 ProcessingTypeEnum processingType = ProcessingTypeEnum.byLabel(job.getType())
@@ -363,6 +392,9 @@ public class JobExecutionServiceImpl implements JobExecutionService {
             job.setStatus(JobStatusEnum.CANCELLED);
 
         } else {
+            // Remove from the queue, if not started yet
+            if (jobScheduler != null) jobScheduler.cancel(job.getId());
+
             // Just update the job
             job.setStatus(JobStatusEnum.CANCELLED);
             job.appendToLog(message);
@@ -374,6 +406,12 @@ public class JobExecutionServiceImpl implements JobExecutionService {
         return job;
     }
 
+    @Override
+    public List<JobQueueStatsVO> getQueueStats() {
+        if (jobScheduler == null) return Collections.emptyList();
+        return jobScheduler.getStats();
+    }
+
     @JmsListener(destination = JmsJobEventProducer.DESTINATION, selector = "operation = 'start'", containerFactory = JmsConfiguration.CONTAINER_FACTORY)
     protected void onJobStartEvent(JobVO source, Message message) {
 
@@ -551,4 +589,15 @@ public class JobExecutionServiceImpl implements JobExecutionService {
             }
         }
     }
+
+    @Override
+    public <T> T readReport(@NonNull JobVO job, @NonNull Class<T> reportClass) {
+        if (StringUtils.isBlank(job.getReport())) return null;
+        try {
+            return objectMapper.readValue(job.getReport(), reportClass);
+        } catch (JsonProcessingException e) {
+            log.error(String.format("Can't parse JSON: %s", job.getReport()), e);
+            return null;
+        }
+    }
 }
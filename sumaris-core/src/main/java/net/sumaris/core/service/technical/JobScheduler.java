@@ -0,0 +1,259 @@
+package net.sumaris.core.service.technical;
+
+
+/*-
+ * #%L
+ * SUMARiS:: Core
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.google.common.base.Splitter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.model.technical.job.JobTypeEnum;
+import net.sumaris.core.util.StringUtils;
+import net.sumaris.core.vo.technical.job.JobQueueStatsVO;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Job queue, with a max number of running jobs (global and by type) and priorities (by type).
+ * <p>
+ * Queued jobs are started in priority order (then FIFO), when a slot is free for their type.
+ * A queued job can be removed (cancelled) before it starts.
+ * </p>
+ */
+@Slf4j
+public class JobScheduler {
+
+    public static final String UNKNOWN_TYPE = "UNKNOWN";
+
+    private static final Comparator<Entry> ENTRY_COMPARATOR = Comparator
+        .<Entry>comparingInt(Entry::priority).reversed()
+        .thenComparingLong(Entry::sequence);
+
+    private record Entry(int jobId, String type, int priority, long sequence, long queuedTime, Runnable task) {
+    }
+
+    private static class TypeStats {
+        int runningCount;
+        long startedCount;
+        long totalWaitTime;
+    }
+
+    /**
+     * Parse max concurrency by type (e.g. 'SUMARIS_EXTRACTION:2,IMPORTATION:1'). Type can be a name or an id.
+     */
+    public static Map<String, Integer> parseMaxConcurrencyByType(@Nullable String value) {
+        if (StringUtils.isBlank(value)) return Collections.emptyMap();
+        Map<String, Integer> result = new HashMap<>();
+        for (String item : Splitter.on(',').omitEmptyStrings().trimResults().split(value)) {
+            String[] parts = item.split(":", 2);
+            try {
+                if (parts.length != 2) throw new NumberFormatException();
+                result.put(getTypeKey(parts[0]), Integer.parseInt(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Invalid max concurrency by job type (expected 'TYPE:n'): {}", item);
+            }
+        }
+        return result;
+    }
+
+    private final Executor executor;
+    private final int executorMaxPoolSize;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Guarded by 'this'
+    private final NavigableSet<Entry> queue = new TreeSet<>(ENTRY_COMPARATOR);
+    private final Map<Integer, Entry> queuedEntriesById = new HashMap<>();
+    private final Map<String, TypeStats> statsByType = new HashMap<>();
+    private int runningCount = 0;
+    private int maxConcurrency;
+    private Map<String, Integer> maxConcurrencyByType = Collections.emptyMap();
+
+    public JobScheduler(@NonNull Executor executor, int maxConcurrency) {
+        this(executor, maxConcurrency, 0);
+    }
+
+    /**
+     * @param executorMaxPoolSize max number of threads of the executor that runs the jobs (0 if unbounded).
+     *                            Max concurrency cannot exceed it, otherwise started jobs would wait in the executor queue.
+     */
+    public JobScheduler(@NonNull Executor executor, int maxConcurrency, int executorMaxPoolSize) {
+        this.executor = executor;
+        this.executorMaxPoolSize = executorMaxPoolSize;
+        this.maxConcurrency = toMaxConcurrency(maxConcurrency);
+    }
+
+    /**
+     * Change max concurrency (global and by type). Overrides defaults of JobTypeEnum.
+     */
+    public void setMaxConcurrency(int maxConcurrency, @Nullable Map<String, Integer> maxConcurrencyByType) {
+        synchronized (this) {
+            this.maxConcurrency = toMaxConcurrency(maxConcurrency);
+            this.maxConcurrencyByType = maxConcurrencyByType != null ? Map.copyOf(maxConcurrencyByType) : Collections.emptyMap();
+        }
+        // Limits may have increased
+        dispatch();
+    }
+
+    public void submit(int jobId, @Nullable String type, @NonNull Runnable task) {
+        String typeKey = getTypeKey(type);
+        int priority = JobTypeEnum.findByNameOrId(typeKey)
+            .map(JobTypeEnum::getPriority)
+            .orElse(JobTypeEnum.PRIORITY_NORMAL);
+        Entry entry = new Entry(jobId, typeKey, priority, sequence.incrementAndGet(), System.currentTimeMillis(), task);
+        synchronized (this) {
+            if (queuedEntriesById.containsKey(jobId)) throw new IllegalArgumentException("Job #" + jobId + " already queued");
+            queue.add(entry);
+            queuedEntriesById.put(jobId, entry);
+        }
+        log.debug("Job #{} queued (type: {}, priority: {})", jobId, typeKey, priority);
+        dispatch();
+    }
+
+    /**
+     * Remove a job from the queue
+     * @return false if the job is not queued (e.g. already started)
+     */
+    public synchronized boolean cancel(int jobId) {
+        Entry entry = queuedEntriesById.remove(jobId);
+        if (entry == null) return false;
+        queue.remove(entry);
+        log.debug("Job #{} removed from the queue", jobId);
+        return true;
+    }
+
+    public synchronized boolean isQueued(int jobId) {
+        return queuedEntriesById.containsKey(jobId);
+    }
+
+    public synchronized List<JobQueueStatsVO> getStats() {
+        long now = System.currentTimeMillis();
+
+        // Known types, then types seen in the queue
+        Set<String> types = new LinkedHashSet<>();
+        Arrays.stream(JobTypeEnum.values()).map(JobTypeEnum::name).forEach(types::add);
+        types.addAll(statsByType.keySet());
+
+        Map<String, List<Entry>> queuedEntriesByType = new HashMap<>();
+        queue.forEach(entry -> queuedEntriesByType.computeIfAbsent(entry.type(), k -> new ArrayList<>()).add(entry));
+        types.addAll(queuedEntriesByType.keySet());
+
+        List<JobQueueStatsVO> result = new ArrayList<>(types.size());
+        for (String type : types) {
+            TypeStats stats = statsByType.getOrDefault(type, new TypeStats());
+            List<Entry> queuedEntries = queuedEntriesByType.getOrDefault(type, Collections.emptyList());
+            long maxWaitTime = queuedEntries.stream().mapToLong(entry -> now - entry.queuedTime()).max().orElse(0L);
+            result.add(JobQueueStatsVO.builder()
+                .type(type)
+                .priority(JobTypeEnum.findByNameOrId(type).map(JobTypeEnum::getPriority).orElse(JobTypeEnum.PRIORITY_NORMAL))
+                .maxConcurrency(getMaxConcurrency(type))
+                .queuedCount(queuedEntries.size())
+                .runningCount(stats.runningCount)
+                .maxWaitTime(maxWaitTime)
+                .startedCount(stats.startedCount)
+                .averageWaitTime(stats.startedCount > 0 ? stats.totalWaitTime / stats.startedCount : 0L)
+                .build());
+        }
+        return result;
+    }
+
+    /* -- protected functions -- */
+
+    protected void dispatch() {
+        List<Entry> entriesToStart = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            Iterator<Entry> it = queue.iterator();
+            while (runningCount < maxConcurrency && it.hasNext()) {
+                Entry entry = it.next();
+                TypeStats stats = statsByType.computeIfAbsent(entry.type(), k -> new TypeStats());
+                if (stats.runningCount >= getMaxConcurrency(entry.type())) continue; // No free slot for this type
+
+                it.remove();
+                queuedEntriesById.remove(entry.jobId());
+                stats.runningCount++;
+                stats.startedCount++;
+                stats.totalWaitTime += now - entry.queuedTime();
+                runningCount++;
+                entriesToStart.add(entry);
+            }
+        }
+
+        // Start outside the lock
+        entriesToStart.forEach(this::execute);
+    }
+
+    protected void execute(Entry entry) {
+        log.debug("Job #{} started (type: {}, waited {}ms)", entry.jobId(), entry.type(), System.currentTimeMillis() - entry.queuedTime());
+        try {
+            executor.execute(() -> {
+                try {
+                    entry.task().run();
+                } finally {
+                    release(entry);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.error("Job #{} rejected by the executor: {}", entry.jobId(), e.getMessage(), e);
+            release(entry);
+        }
+    }
+
+    protected void release(Entry entry) {
+        synchronized (this) {
+            statsByType.get(entry.type()).runningCount--;
+            runningCount--;
+        }
+        // A slot is now free
+        dispatch();
+    }
+
+    protected int toMaxConcurrency(int maxConcurrency) {
+        int result = Math.max(1, maxConcurrency);
+        if (executorMaxPoolSize > 0 && result > executorMaxPoolSize) {
+            log.warn("Job scheduler max concurrency ({}) exceeds the job executor max pool size ({}). Using {}",
+                result, executorMaxPoolSize, executorMaxPoolSize);
+            result = executorMaxPoolSize;
+        }
+        return result;
+    }
+
+    protected int getMaxConcurrency(String type) {
+        Integer result = maxConcurrencyByType.get(type);
+        if (result == null) {
+            result = JobTypeEnum.findByNameOrId(type)
+                .map(JobTypeEnum::getMaxConcurrency)
+                .orElse(maxConcurrency);
+        }
+        return Math.max(1, Math.min(result, maxConcurrency));
+    }
+
+    protected static String getTypeKey(@Nullable String type) {
+        if (StringUtils.isBlank(type)) return UNKNOWN_TYPE;
+        return JobTypeEnum.findByNameOrId(type.trim())
+            .map(JobTypeEnum::name)
+            .orElse(type.trim());
+    }
+}
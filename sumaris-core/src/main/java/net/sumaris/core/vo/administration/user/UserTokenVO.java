@@ -42,6 +42,8 @@ public class UserTokenVO implements IUpdateDateEntity<Integer, Date>, IValueObje
     private String pubkey; // Used only for compatibility with Sumaris API
     @EqualsAndHashCode.Include
     private String token;
+    @GraphQLIgnore
+    private String tokenHash; // SHA-256 of the token (e.g. in events, instead of the token)
     private String name;
     private Integer flags;
     private Date expirationDate;
@@ -0,0 +1,418 @@
+package net.sumaris.core.vo.data;
+
+/*-
+ * #%L
+ * SUMARiS:: Core
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Compact map of measurement values (pmfmId -> value), compatible with <code>Map&lt;Integer, String&gt;</code>.
+ * <p>
+ * Entries are stored in insertion order (so iteration order is the same as a <code>LinkedHashMap</code>:
+ * rank orders and reference quantification, computed when saving a map, rely on it).
+ * Keys are stored as int, and found using an open addressing index (linear probing) of entry positions.
+ * Values that can be rebuilt exactly from a number (e.g. '12.5', or a qualitative value id '325') are stored as a primitive,
+ * other values (e.g. '12.50', 'abc', dates) are kept as string. So <code>get()</code> always returns the value given to <code>put()</code>.
+ * </p>
+ * Null keys are not supported.
+ */
+public class PmfmValueMap extends AbstractMap<Integer, String> implements Serializable {
+
+    private static final byte REMOVED = 0;
+    private static final byte INT = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte STRING = 3;
+    private static final byte NULL = 4;
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    /**
+     * Convert a map (or return it, if already a PmfmValueMap)
+     */
+    public static PmfmValueMap of(@Nullable Map<Integer, String> source) {
+        if (source == null) return null;
+        if (source instanceof PmfmValueMap map) return map;
+        return new PmfmValueMap(source);
+    }
+
+    /**
+     * Merge two maps. Values of the second map override values of the first one.
+     */
+    public static PmfmValueMap merge(@Nullable Map<Integer, String> map1, @Nullable Map<Integer, String> map2) {
+        if (map1 == null || map1.isEmpty()) return of(map2);
+        if (map2 == null || map2.isEmpty()) return of(map1);
+        PmfmValueMap result = new PmfmValueMap(map1.size() + map2.size());
+        result.putAll(map1);
+        result.putAll(map2);
+        return result;
+    }
+
+    private int[] slots; // Hash index: entry position + 1 (0 = free slot)
+    private int[] keys; // Entries, in insertion order
+    private byte[] types;
+    private long[] values;
+    private String[] strings; // Lazy, only if some values cannot be stored as number
+    private int size;
+    private int count; // size + removed entries
+
+    public PmfmValueMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PmfmValueMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public PmfmValueMap(@Nullable Map<Integer, String> source) {
+        this(source != null ? source.size() : 0);
+        if (source != null) putAll(source);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer k && indexOf(k) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof Integer k)) return null;
+        int index = indexOf(k);
+        return index >= 0 ? valueAt(index) : null;
+    }
+
+    /**
+     * Get a value as double, without creating any string (if stored as a number)
+     */
+    public Double getAsDouble(int key) {
+        int index = indexOf(key);
+        if (index < 0) return null;
+        return switch (types[index]) {
+            case INT -> (double) (int) values[index];
+            case DOUBLE -> Double.longBitsToDouble(values[index]);
+            case STRING -> parseDoubleOrNull(strings[index]);
+            default -> null;
+        };
+    }
+
+    @Override
+    public String put(Integer key, String value) {
+        Objects.requireNonNull(key, "Null key is not supported");
+        int k = key;
+
+        int index = indexOf(k);
+        String previous = null;
+        if (index >= 0) {
+            previous = valueAt(index);
+        }
+        else {
+            if (count == keys.length) {
+                // Grow (or only compact removed entries, if many)
+                rehash(size + 1 > keys.length / 2 ? slots.length * 2 : slots.length);
+            }
+            index = count++;
+            keys[index] = k;
+            slots[freeSlotOf(k)] = index + 1;
+            size++;
+        }
+        setValueAt(index, value);
+        return previous;
+    }
+
+    @Override
+    public String remove(Object key) {
+        if (!(key instanceof Integer k)) return null;
+        int index = indexOf(k);
+        if (index < 0) return null;
+        String previous = valueAt(index);
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(slots, 0);
+        if (strings != null) Arrays.fill(strings, null);
+        size = 0;
+        count = 0;
+    }
+
+    @Override
+    public Set<Entry<Integer, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, String>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /* -- internal functions -- */
+
+    private void allocate(int tableSize) {
+        // Keep load factor <= 0.75
+        int capacity = tableSize / 4 * 3;
+        slots = new int[tableSize];
+        keys = new int[capacity];
+        types = new byte[capacity];
+        values = new long[capacity];
+        strings = null;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int tableSize = DEFAULT_CAPACITY;
+        while (tableSize * 3 < expectedSize * 4) tableSize <<= 1;
+        return tableSize;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Find the entry position of a key. Slots of removed entries are kept, so probing continues after them
+     */
+    private int indexOf(int key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            int index = slots[slot] - 1;
+            if (index < 0) return -1;
+            if (types[index] != REMOVED && keys[index] == key) return index;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Find a free slot, to index a (missing) key
+     */
+    private int freeSlotOf(int key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private String valueAt(int index) {
+        return switch (types[index]) {
+            case INT -> Integer.toString((int) values[index]);
+            case DOUBLE -> Double.toString(Double.longBitsToDouble(values[index]));
+            case STRING -> strings[index];
+            default -> null;
+        };
+    }
+
+    private void setValueAt(int index, String value) {
+        if (strings != null) strings[index] = null;
+        if (value == null) {
+            types[index] = NULL;
+            return;
+        }
+
+        Integer intValue = parseCanonicalInt(value);
+        if (intValue != null) {
+            types[index] = INT;
+            values[index] = intValue;
+            return;
+        }
+        Double doubleValue = parseCanonicalDouble(value);
+        if (doubleValue != null) {
+            types[index] = DOUBLE;
+            values[index] = Double.doubleToRawLongBits(doubleValue);
+            return;
+        }
+        if (strings == null) strings = new String[keys.length];
+        types[index] = STRING;
+        strings[index] = value;
+    }
+
+    private void removeAt(int index) {
+        types[index] = REMOVED;
+        if (strings != null) strings[index] = null;
+        size--;
+    }
+
+    /**
+     * Rebuild the index, and compact entries (keeping the insertion order)
+     */
+    private void rehash(int tableSize) {
+        int[] oldKeys = keys;
+        byte[] oldTypes = types;
+        long[] oldValues = values;
+        String[] oldStrings = strings;
+        int oldCount = count;
+
+        allocate(tableSize);
+        if (oldStrings != null) strings = new String[keys.length];
+        count = 0;
+
+        for (int i = 0; i < oldCount; i++) {
+            byte type = oldTypes[i];
+            if (type == REMOVED) continue;
+            int index = count++;
+            keys[index] = oldKeys[i];
+            types[index] = type;
+            values[index] = oldValues[i];
+            if (type == STRING) strings[index] = oldStrings[i];
+            slots[freeSlotOf(oldKeys[i])] = index + 1;
+        }
+    }
+
+    /**
+     * Parse an integer, only if its string representation is the same (e.g. not '007', '+7' or '-0')
+     */
+    private static Integer parseCanonicalInt(String value) {
+        int length = value.length();
+        if (length == 0 || length > 10) return null;
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        if (start == length) return null;
+        if (value.charAt(start) == '0' && (length > start + 1 || start == 1)) return null;
+        long result = 0;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return null;
+            result = result * 10 + (c - '0');
+        }
+        if (start == 1) result = -result;
+        if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) return null;
+        return (int) result;
+    }
+
+    /**
+     * Parse a decimal, only if its string representation (Double.toString()) is the same (e.g. '12.5', but not '12.50')
+     */
+    private static Double parseCanonicalDouble(String value) {
+        int length = value.length();
+        if (length < 3 || length > 24 || value.indexOf('.') <= 0) return null;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && c != '.' && c != '-' && c != 'E') return null;
+        }
+        try {
+            double result = Double.parseDouble(value);
+            return Double.toString(result).equals(value) ? result : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double parseDoubleOrNull(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private class EntryIterator implements Iterator<Entry<Integer, String>> {
+        private int nextIndex = -1;
+        private int lastIndex = -1;
+        private final int[] iteratedKeys = keys;
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            do {
+                nextIndex++;
+            } while (nextIndex < count && types[nextIndex] == REMOVED);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < count;
+        }
+
+        @Override
+        public Entry<Integer, String> next() {
+            if (iteratedKeys != keys) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            lastIndex = nextIndex;
+            advance();
+            return new Entry<>() {
+                final int index = lastIndex;
+
+                @Override
+                public Integer getKey() {
+                    return keys[index];
+                }
+
+                @Override
+                public String getValue() {
+                    return valueAt(index);
+                }
+
+                @Override
+                public String setValue(String value) {
+                    String previous = valueAt(index);
+                    setValueAt(index, value);
+                    return previous;
+                }
+
+                @Override
+                public boolean equals(Object o) {
+                    return o instanceof Entry<?, ?> e
+                        && Objects.equals(getKey(), e.getKey())
+                        && Objects.equals(getValue(), e.getValue());
+                }
+
+                @Override
+                public int hashCode() {
+                    return getKey().hashCode() ^ Objects.hashCode(getValue());
+                }
+
+                @Override
+                public String toString() {
+                    return getKey() + "=" + getValue();
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (lastIndex < 0) throw new IllegalStateException();
+            if (iteratedKeys != keys) throw new ConcurrentModificationException();
+            removeAt(lastIndex);
+            lastIndex = -1;
+        }
+    }
+}
@@ -89,6 +89,9 @@ public class DenormalizedBatchOptions {
     @Builder.Default
     private int maxRtpWeightDiffPct = 10; // 10% max pct between RTP weight and weight
 
+    @Builder.Default
+    private boolean enableBulkInsert = false; // Save using JDBC batch inserts (faster, useful when denormalizing many operations)
+
     @JsonIgnore
     public int getMonth() {
         return dateTime != null ? Dates.getMonth(dateTime) + 1: null;
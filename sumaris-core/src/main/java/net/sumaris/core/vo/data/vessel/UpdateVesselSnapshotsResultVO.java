@@ -22,8 +22,10 @@
 
 package net.sumaris.core.vo.data.vessel;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import net.sumaris.core.model.technical.job.JobStatusEnum;
 import net.sumaris.core.vo.technical.job.IJobResultVO;
 
@@ -31,6 +33,8 @@ import java.util.Date;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class UpdateVesselSnapshotsResultVO implements IJobResultVO {
 
     private long inserts;
@@ -46,6 +50,9 @@ public class UpdateVesselSnapshotsResultVO implements IJobResultVO {
 
     private Date filterMinUpdateDate;
 
+    // Last indexed vessel features id (can be used to resume the indexation)
+    private Integer lastVesselFeaturesId;
+
     private JobStatusEnum status;
 
     public boolean hasError() {
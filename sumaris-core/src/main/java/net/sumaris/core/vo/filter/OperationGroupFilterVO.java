@@ -33,6 +33,7 @@ import net.sumaris.core.model.data.DataQualityStatusEnum;
 public class OperationGroupFilterVO implements IDataFilter {
 
     private Integer tripId;
+    private Integer[] tripIds;
     private Integer recorderDepartmentId;
 
     private boolean onlyDefined;
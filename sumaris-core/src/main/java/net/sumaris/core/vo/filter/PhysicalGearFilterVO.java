@@ -57,6 +57,7 @@ public class PhysicalGearFilterVO implements IRootDataFilter, IVesselFilter {
 
     // Trip
     private Integer tripId;
+    private Integer[] tripIds;
     private Integer excludeTripId;
 
     // Parent
@@ -51,6 +51,7 @@ public class SaleFilterVO implements IRootDataFilter {
 
     // Parent
     private Integer tripId;
+    private Integer[] tripIds;
     private Integer landingId;
     private Integer[] programIds;
 
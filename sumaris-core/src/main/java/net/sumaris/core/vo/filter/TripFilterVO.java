@@ -58,6 +58,7 @@ public class TripFilterVO implements IRootDataFilter, IVesselFilter {
     private Integer locationId;
     private Integer[] locationIds;
 
+    private Integer minId;
     private Integer[] excludedIds;
     private Integer[] includedIds;
     private Integer tripId;
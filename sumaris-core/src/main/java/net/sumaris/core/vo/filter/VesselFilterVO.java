@@ -50,6 +50,7 @@ public class VesselFilterVO implements IRootDataFilter {
     private Integer[] excludedIds;
     private Integer[] includedIds;
     private Integer vesselFeaturesId;
+    private Integer minVesselFeaturesId; // Used for keyset pagination
 
     private Integer vesselTypeId;
     private Integer[] vesselTypeIds;
@@ -57,6 +58,8 @@ public class VesselFilterVO implements IRootDataFilter {
     private String[] searchAttributes;
     private String searchText;
 
+    private String[] intRegistrationCodes;
+
     private List<Integer> statusIds;
 
     private Integer recorderDepartmentId; // TODO: use it in repository
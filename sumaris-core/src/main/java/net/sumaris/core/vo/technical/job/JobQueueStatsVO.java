@@ -0,0 +1,64 @@
+package net.sumaris.core.vo.technical.job;
+
+
+/*-
+ * #%L
+ * SUMARiS:: Core
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldNameConstants;
+
+import java.io.Serializable;
+
+/**
+ * Scheduling statistics, for a job type
+ */
+@Data
+@FieldNameConstants
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobQueueStatsVO implements Serializable {
+
+    private String type;
+    private int priority;
+    private int maxConcurrency;
+
+    /**
+     * Number of jobs waiting for a slot
+     */
+    private int queuedCount;
+    private int runningCount;
+
+    /**
+     * Wait time (in ms) of the oldest queued job
+     */
+    private long maxWaitTime;
+
+    /**
+     * Average wait time (in ms) of started jobs
+     */
+    private long averageWaitTime;
+    private long startedCount;
+}
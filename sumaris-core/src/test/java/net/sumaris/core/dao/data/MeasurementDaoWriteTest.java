@@ -0,0 +1,115 @@
+package net.sumaris.core.dao.data;
+
+/*-
+ * #%L
+ * SUMARiS:: Core
+ * %%
+ * Copyright (C) 2018 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import net.sumaris.core.dao.AbstractDaoTest;
+import net.sumaris.core.dao.DatabaseResource;
+import net.sumaris.core.model.data.Operation;
+import net.sumaris.core.model.data.VesselUseMeasurement;
+import net.sumaris.core.model.referential.pmfm.PmfmEnum;
+import org.hibernate.Hibernate;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MeasurementDaoWriteTest extends AbstractDaoTest {
+
+    @ClassRule
+    public static final DatabaseResource dbResource = DatabaseResource.writeDb();
+
+    @Autowired
+    private MeasurementDao measurementDao;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        setCommitOnTearDown(false);
+    }
+
+    @Test
+    public void saveOperationsVesselUseMeasurementsMap() {
+        int operationId1 = fixtures.getOperationId(0);
+        int operationId2 = fixtures.getOperationId(1);
+        int depthPmfmId = PmfmEnum.BOTTOM_DEPTH_M.getId();
+        int speedPmfmId = PmfmEnum.GEAR_SPEED.getId();
+        int gearDepthPmfmId = PmfmEnum.GEAR_DEPTH_M.getId();
+
+        // Load a parent, with its measurements (should be refreshed after each save)
+        Operation parent = entityManager.find(Operation.class, operationId1);
+        Hibernate.initialize(parent.getVesselUseMeasurements());
+
+        // Insert
+        Map<Integer, Map<Integer, String>> sources = new LinkedHashMap<>();
+        sources.put(operationId1, measurements(depthPmfmId, "10.5", speedPmfmId, "3"));
+        sources.put(operationId2, measurements(gearDepthPmfmId, "20"));
+        measurementDao.saveOperationsVesselUseMeasurementsMap(sources);
+        assertMeasurements(sources.get(operationId1), measurementDao.getOperationVesselUseMeasurementsMap(operationId1));
+        assertMeasurements(sources.get(operationId2), measurementDao.getOperationVesselUseMeasurementsMap(operationId2));
+        Assert.assertEquals(Set.of(depthPmfmId, speedPmfmId), getPmfmIds(parent));
+
+        // Update (depth), delete (speed) and insert (gear depth). Second operation is unchanged
+        sources.put(operationId1, measurements(depthPmfmId, "11", gearDepthPmfmId, "5"));
+        measurementDao.saveOperationsVesselUseMeasurementsMap(sources);
+        assertMeasurements(sources.get(operationId1), measurementDao.getOperationVesselUseMeasurementsMap(operationId1));
+        assertMeasurements(sources.get(operationId2), measurementDao.getOperationVesselUseMeasurementsMap(operationId2));
+        Assert.assertEquals(Set.of(depthPmfmId, gearDepthPmfmId), getPmfmIds(parent));
+        Assert.assertEquals(11d, parent.getVesselUseMeasurements().stream()
+            .filter(m -> m.getPmfm().getId() == depthPmfmId)
+            .findFirst().orElseThrow()
+            .getNumericalValue(), 0.0001);
+
+        // Delete all
+        sources.put(operationId1, Map.of());
+        measurementDao.saveOperationsVesselUseMeasurementsMap(sources);
+        Assert.assertTrue(measurementDao.getOperationVesselUseMeasurementsMap(operationId1).isEmpty());
+        Assert.assertTrue(getPmfmIds(parent).isEmpty());
+    }
+
+    /* -- protected functions -- */
+
+    protected Map<Integer, String> measurements(Object... pmfmIdAndValues) {
+        Map<Integer, String> result = new LinkedHashMap<>();
+        for (int i = 0; i < pmfmIdAndValues.length; i += 2) {
+            result.put((Integer) pmfmIdAndValues[i], (String) pmfmIdAndValues[i + 1]);
+        }
+        return result;
+    }
+
+    protected void assertMeasurements(Map<Integer, String> expected, Map<Integer, String> actual) {
+        Assert.assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((pmfmId, value) -> Assert.assertEquals(Double.parseDouble(value), Double.parseDouble(actual.get(pmfmId)), 0.0001));
+    }
+
+    protected Set<Integer> getPmfmIds(Operation parent) {
+        return parent.getVesselUseMeasurements().stream()
+            .map(VesselUseMeasurement::getPmfm)
+            .map(pmfm -> pmfm.getId())
+            .collect(Collectors.toSet());
+    }
+}
@@ -26,9 +26,16 @@ import net.sumaris.core.dao.AbstractDaoTest;
 import net.sumaris.core.dao.DatabaseResource;
 import net.sumaris.core.dao.referential.location.LocationAreaRepository;
 import net.sumaris.core.dao.referential.location.LocationLevelRepository;
+import net.sumaris.core.dao.referential.location.LocationRepository;
+import net.sumaris.core.model.referential.StatusEnum;
+import net.sumaris.core.model.referential.location.Location;
 import net.sumaris.core.model.referential.location.LocationArea;
 import net.sumaris.core.model.referential.location.LocationLevel;
+import net.sumaris.core.model.referential.location.LocationLevelEnum;
 import net.sumaris.core.util.Geometries;
+import net.sumaris.core.vo.filter.LocationFilterVO;
+import net.sumaris.core.vo.referential.ReferentialVO;
+import net.sumaris.core.vo.referential.location.LocationVO;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Ignore;
@@ -36,6 +43,8 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Date;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @author peck7 on 15/10/2019.
@@ -60,6 +69,12 @@ public class LocationRepositoryWriteTest extends AbstractDaoTest {
     @Autowired
     private LocationLevelRepository locationLevelRepository;
 
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private ReferentialDao referentialDao;
+
     @Test
     @Ignore
     public void testGeometry() {
@@ -80,4 +95,77 @@ public class LocationRepositoryWriteTest extends AbstractDaoTest {
         LocationLevel savedEntity = locationLevelRepository.save(locationLevel);
         Assert.assertNotNull(savedEntity);
     }
+
+    @Test
+    public void updateLocationHierarchy() {
+        // Diamond: D -> (B, C) -> A, then E -> D
+        int a = createLocation("A");
+        int b = createLocation("B");
+        int c = createLocation("C");
+        int d = createLocation("D");
+        int e = createLocation("E");
+
+        addAssociation(b, a);
+        addAssociation(c, a);
+        addAssociation(d, b);
+        addAssociation(d, c);
+        addAssociation(e, d);
+        Assert.assertEquals(Set.of(a, b, c, d, e), getAncestorIds(e));
+        Assert.assertEquals(Set.of(a, b, c, d), getAncestorIds(d));
+        Assert.assertEquals(Set.of(a, b), getAncestorIds(b));
+
+        // Adding an existing path should not insert anything
+        Assert.assertEquals(0, locationRepository.addLocationHierarchy(d, c));
+
+        // Remove one side of the diamond: A is still reachable through C
+        removeAssociation(d, b);
+        Assert.assertEquals(Set.of(a, c, d, e), getAncestorIds(e));
+        Assert.assertEquals(Set.of(a, c, d), getAncestorIds(d));
+
+        // Remove the other side: A and C are no longer reachable
+        removeAssociation(d, c);
+        Assert.assertEquals(Set.of(d, e), getAncestorIds(e));
+        Assert.assertEquals(Set.of(d), getAncestorIds(d));
+        Assert.assertEquals(Set.of(a, c), getAncestorIds(c));
+
+        // Should be the same as a full rebuild
+        locationRepository.updateLocationHierarchy();
+        Assert.assertEquals(Set.of(d, e), getAncestorIds(e));
+        Assert.assertEquals(Set.of(a, b), getAncestorIds(b));
+        Assert.assertEquals(Set.of(a, c), getAncestorIds(c));
+    }
+
+    /* -- protected functions -- */
+
+    protected int createLocation(String label) {
+        return referentialDao.save(ReferentialVO.builder()
+            .entityName(Location.ENTITY_NAME)
+            .label("TEST-HIERARCHY-" + label)
+            .name("Test hierarchy " + label)
+            .levelId(LocationLevelEnum.MARITIME_DISTRICT.getId())
+            .statusId(StatusEnum.ENABLE.getId())
+            .build()).getId();
+    }
+
+    protected void addAssociation(int childId, int parentId) {
+        locationRepository.addAssociation(childId, parentId, 1d);
+        locationRepository.addLocationHierarchy(childId, parentId);
+    }
+
+    protected void removeAssociation(int childId, int parentId) {
+        locationRepository.removeAssociation(childId, parentId);
+        locationRepository.removeLocationHierarchy(childId, parentId);
+    }
+
+    /**
+     * Get ancestors of a location, from LOCATION_HIERARCHY (including itself)
+     */
+    protected Set<Integer> getAncestorIds(int locationId) {
+        return locationRepository.findAll(LocationFilterVO.builder()
+                .descendantIds(new Integer[]{locationId})
+                .build())
+            .stream()
+            .map(LocationVO::getId)
+            .collect(Collectors.toSet());
+    }
 }
@@ -0,0 +1,127 @@
+package net.sumaris.core.dao.technical.schema;
+
+/*-
+ * #%L
+ * SUMARiS:: Core
+ * %%
+ * Copyright (C) 2018 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import net.sumaris.core.dao.AbstractDaoTest;
+import net.sumaris.core.dao.DatabaseResource;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+public class SumarisDatabaseMetadataWriteTest extends AbstractDaoTest {
+
+    @ClassRule
+    public static final DatabaseResource dbResource = DatabaseResource.writeDb();
+
+    @Autowired
+    private SumarisDatabaseMetadata databaseMetadata;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void nextIdentifierAcrossBlocks() throws SQLException {
+        String sequenceName = createSequence("TEST_BLOCK_SEQ", 5);
+        try (Connection conn = dataSource.getConnection()) {
+            // First sequence value (1) is skipped (not a full block), then ids should have no gap across blocks
+            List<Integer> ids = databaseMetadata.nextIdentifiers(conn, sequenceName, 5, 12);
+            Assert.assertEquals(IntStream.rangeClosed(2, 13).boxed().toList(), ids);
+
+            // Only 3 blocks should have been reserved: [2-6], [7-11], [12-16]
+            Assert.assertEquals(21, getNextValue(conn, sequenceName));
+
+            // Current block is not exhausted: no sequence call
+            Assert.assertEquals(14, databaseMetadata.nextIdentifier(conn, sequenceName, 5));
+            Assert.assertEquals(26, getNextValue(conn, sequenceName));
+        }
+    }
+
+    @Test
+    public void nextIdentifierConcurrently() throws Exception {
+        int incrementSize = 10;
+        int threadCount = 4;
+        int idCount = 500;
+        String sequenceName = createSequence("TEST_CONCURRENT_SEQ", incrementSize);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<Integer>>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try (Connection conn = dataSource.getConnection()) {
+                        return databaseMetadata.nextIdentifiers(conn, sequenceName, incrementSize, idCount);
+                    }
+                }));
+            }
+            start.countDown();
+
+            // Ids should never be given twice
+            Set<Integer> ids = new HashSet<>();
+            for (Future<List<Integer>> future : futures) {
+                ids.addAll(future.get(1, TimeUnit.MINUTES));
+            }
+            Assert.assertEquals(threadCount * idCount, ids.size());
+
+            // Ids should be in a reserved block
+            try (Connection conn = dataSource.getConnection()) {
+                int maxReservedId = getNextValue(conn, sequenceName) - incrementSize;
+                Assert.assertTrue(ids.stream().allMatch(id -> id >= 2 && id <= maxReservedId));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /* -- protected functions -- */
+
+    protected String createSequence(String sequenceName, int incrementSize) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement statement = conn.createStatement()) {
+            statement.execute(String.format("CREATE SEQUENCE %s AS INTEGER START WITH 1 INCREMENT BY %s", sequenceName, incrementSize));
+        }
+        return sequenceName;
+    }
+
+    protected int getNextValue(Connection conn, String sequenceName) throws SQLException {
+        try (Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("CALL NEXT VALUE FOR " + sequenceName)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.core.event.data;
+
+import net.sumaris.core.config.SumarisConfiguration;
+import net.sumaris.core.event.entity.*;
+import net.sumaris.core.model.IEntity;
+import net.sumaris.core.model.data.Operation;
+import net.sumaris.core.model.data.Sale;
+import net.sumaris.core.service.data.denormalize.DenormalizedBatchService;
+import net.sumaris.core.vo.data.OperationVO;
+import net.sumaris.core.vo.data.SaleVO;
+import net.sumaris.core.vo.data.batch.BatchVO;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BatchEventListenerTest {
+
+    private static final int DEBOUNCE_MS = 100;
+
+    private final List<EntityEventService.Listener> listeners = new ArrayList<>();
+
+    private SumarisConfiguration configuration;
+
+    private DenormalizedBatchService denormalizedBatchService;
+
+    private BatchEventListener service;
+
+    @Before
+    public void setUp() {
+        configuration = mock(SumarisConfiguration.class);
+        when(configuration.getDenormalizedBatchDebounceMs()).thenReturn(DEBOUNCE_MS);
+        when(configuration.getDenormalizedBatchIntervalMs()).thenReturn(20);
+        denormalizedBatchService = mock(DenormalizedBatchService.class);
+
+        service = new BatchEventListener(new TestEventService());
+        ReflectionTestUtils.setField(service, "configuration", configuration);
+        ReflectionTestUtils.setField(service, "denormalizedBatchService", denormalizedBatchService);
+    }
+
+    @After
+    public void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    public void mergeRepeatedSaves() throws InterruptedException {
+        // Many changes of the same operation (and its catch batch): queued once
+        saveOperation(1);
+        saveOperation(1);
+        saveCatchBatch(1);
+        saveOperation(2);
+        Assert.assertEquals(2, service.getQueueSize());
+
+        // Not processed before the debounce delay
+        service.processQueues();
+        verify(denormalizedBatchService, never()).denormalizeAndSaveByOperationId(anyInt(), any());
+        Assert.assertEquals(2, service.getQueueSize());
+
+        // Then processed once
+        Thread.sleep(DEBOUNCE_MS + 50);
+        service.processQueues();
+        verify(denormalizedBatchService, times(1)).denormalizeAndSaveByOperationId(eq(1), any());
+        verify(denormalizedBatchService, times(1)).denormalizeAndSaveByOperationId(eq(2), any());
+        Assert.assertEquals(0, service.getQueueSize());
+
+        // Nothing more to process
+        service.processQueues();
+        verify(denormalizedBatchService, times(2)).denormalizeAndSaveByOperationId(anyInt(), any());
+    }
+
+    @Test
+    public void delayOnLateChange() throws InterruptedException {
+        saveOperation(1);
+        Thread.sleep(DEBOUNCE_MS + 50);
+
+        // A late change (just before processing): should wait again
+        saveOperation(1);
+        service.processQueues();
+        verify(denormalizedBatchService, never()).denormalizeAndSaveByOperationId(anyInt(), any());
+        Assert.assertEquals(1, service.getQueueSize());
+
+        // A change during the denormalization: should be queued again (and processed later)
+        doAnswer(invocation -> {
+            saveOperation(1);
+            return List.of();
+        }).doReturn(List.of()).when(denormalizedBatchService).denormalizeAndSaveByOperationId(eq(1), any());
+        Thread.sleep(DEBOUNCE_MS + 50);
+        service.processQueues();
+        verify(denormalizedBatchService, times(1)).denormalizeAndSaveByOperationId(eq(1), any());
+        Assert.assertEquals(1, service.getQueueSize());
+
+        Thread.sleep(DEBOUNCE_MS + 50);
+        service.processQueues();
+        verify(denormalizedBatchService, times(2)).denormalizeAndSaveByOperationId(eq(1), any());
+        Assert.assertEquals(0, service.getQueueSize());
+    }
+
+    @Test
+    public void dequeueOnDelete() throws InterruptedException {
+        saveOperation(1);
+        saveSale(2);
+        Assert.assertEquals(2, service.getQueueSize());
+
+        delete(Operation.class, 1);
+        delete(Sale.class, 2);
+        Assert.assertEquals(0, service.getQueueSize());
+
+        Thread.sleep(DEBOUNCE_MS + 50);
+        service.processQueues();
+        verify(denormalizedBatchService, never()).denormalizeAndSaveByOperationId(anyInt(), any());
+        verify(denormalizedBatchService, never()).denormalizeAndSaveBySaleId(anyInt(), any());
+    }
+
+    @Test
+    public void continueOnError() throws InterruptedException {
+        when(denormalizedBatchService.denormalizeAndSaveByOperationId(eq(1), any())).thenThrow(new RuntimeException("Test error"));
+        saveOperation(1);
+        saveOperation(2);
+        saveSale(3);
+
+        Thread.sleep(DEBOUNCE_MS + 50);
+        service.processQueues();
+        verify(denormalizedBatchService, times(1)).denormalizeAndSaveByOperationId(eq(2), any());
+        verify(denormalizedBatchService, times(1)).denormalizeAndSaveBySaleId(eq(3), any());
+        Assert.assertEquals(0, service.getQueueSize());
+    }
+
+    @Test
+    public void processAtInterval() {
+        // Use the configured interval
+        service.start();
+
+        saveOperation(1);
+        saveOperation(1);
+        verify(denormalizedBatchService, timeout(5000).times(1)).denormalizeAndSaveByOperationId(eq(1), any());
+        Assert.assertEquals(0, service.getQueueSize());
+        verify(configuration, atLeastOnce()).getDenormalizedBatchIntervalMs();
+    }
+
+    /* -- protected functions -- */
+
+    protected void saveOperation(int id) {
+        OperationVO operation = new OperationVO();
+        operation.setId(id);
+        fireUpdate(new EntityUpdateEvent(id, Operation.class.getSimpleName(), operation));
+    }
+
+    protected void saveSale(int id) {
+        SaleVO sale = new SaleVO();
+        sale.setId(id);
+        fireUpdate(new EntityUpdateEvent(id, Sale.class.getSimpleName(), sale));
+    }
+
+    protected void saveCatchBatch(int operationId) {
+        BatchVO batch = new BatchVO();
+        batch.setId(100 + operationId);
+        batch.setOperationId(operationId);
+        fireUpdate(new EntityUpdateEvent(batch.getId(), "Batch", batch));
+    }
+
+    protected void delete(Class<? extends IEntity<?>> entityClass, int id) {
+        EntityDeleteEvent event = new EntityDeleteEvent(id, entityClass.getSimpleName());
+        listeners.forEach(listener -> listener.onDelete(event));
+    }
+
+    protected void fireUpdate(EntityUpdateEvent event) {
+        listeners.forEach(listener -> listener.onUpdate(event));
+    }
+
+    class TestEventService implements EntityEventService {
+        @Override
+        public Disposable registerListener(Listener listener, Class<? extends IEntity<?>>... entityClasses) {
+            listeners.add(listener);
+            return () -> listeners.remove(listener);
+        }
+
+        @Override
+        public Disposable registerListener(Listener listener, Class<? extends IEntity<?>> entityClass, Serializable id) {
+            return registerListener(listener);
+        }
+
+        @Override
+        public void unregisterListener(Listener listener, Class<? extends IEntity<?>>... entityClasses) {
+            listeners.remove(listener);
+        }
+
+        @Override
+        public void dispatchEvent(IEntityEvent event) {
+        }
+    }
+}
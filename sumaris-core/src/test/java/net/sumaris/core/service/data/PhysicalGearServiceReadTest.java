@@ -22,6 +22,7 @@ package net.sumaris.core.service.data;
  * #L%
  */
 
+import com.google.common.collect.ImmutableList;
 import net.sumaris.core.dao.DatabaseResource;
 import net.sumaris.core.dao.technical.Page;
 import net.sumaris.core.model.data.DataQualityStatusEnum;
@@ -37,6 +38,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 public class PhysicalGearServiceReadTest extends AbstractServiceTest{
 
@@ -147,6 +149,23 @@ public class PhysicalGearServiceReadTest extends AbstractServiceTest{
             10);
     }
 
+    @Test
+    public void getAllByTripIds() {
+        Integer tripId1 = fixtures.getTripId(0);
+        Integer tripId2 = fixtures.getTripIdWithSubGears();
+
+        Map<Integer, List<PhysicalGearVO>> gearsByTripId = service.getAllByTripIds(ImmutableList.of(tripId1, tripId2), null);
+        Assert.assertNotNull(gearsByTripId);
+
+        // Should be same as loading trip by trip
+        for (Integer tripId: ImmutableList.of(tripId1, tripId2)) {
+            List<PhysicalGearVO> expectedGears = service.getAllByTripId(tripId, null);
+            List<PhysicalGearVO> gears = gearsByTripId.getOrDefault(tripId, ImmutableList.of());
+            Assert.assertEquals(expectedGears.size(), gears.size());
+            gears.forEach(gear -> Assert.assertEquals(tripId, gear.getTripId()));
+        }
+    }
+
     private void assertFindAll(PhysicalGearFilterVO filter, int expectedSize) {
         List<PhysicalGearVO> physicalGears = service.findAll(filter, Page.builder().offset(0).size(100).build(), null);
         Assert.assertNotNull(physicalGears);
@@ -25,16 +25,22 @@ package net.sumaris.core.service.data.denormalize;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.dao.DatabaseFixtures;
 import net.sumaris.core.dao.DatabaseResource;
+import net.sumaris.core.dao.data.batch.DenormalizedBatchRepository;
 import net.sumaris.core.model.TreeNodeEntities;
 import net.sumaris.core.service.AbstractServiceTest;
 import net.sumaris.core.service.data.BatchService;
 import net.sumaris.core.vo.data.batch.BatchVO;
+import net.sumaris.core.vo.data.batch.DenormalizedBatchFetchOptions;
+import net.sumaris.core.vo.data.batch.DenormalizedBatchOptions;
 import net.sumaris.core.vo.data.batch.DenormalizedBatchVO;
+import org.apache.commons.collections4.CollectionUtils;
 import org.junit.Assert;
 import org.junit.Assume;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 
@@ -50,6 +56,12 @@ public class DenormalizeBatchServiceWriteTest extends AbstractServiceTest{
     @Autowired
     private DenormalizedBatchService service;
 
+    @Autowired
+    private DenormalizedBatchRepository denormalizedBatchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     protected DatabaseFixtures fixtures;
 
@@ -68,4 +80,55 @@ public class DenormalizeBatchServiceWriteTest extends AbstractServiceTest{
         Assert.assertEquals(batches.size(), result.size());
     }
 
+    @Test
+    public void denormalizeAndSaveByOperationIdWithBulkInsert() {
+
+        int operationId = fixtures.getOperationIdWithBatches();
+
+        List<BatchVO> batches = batchService.getAllByOperationId(operationId);
+        BatchVO catchBatch = TreeNodeEntities.listAsTree(batches, BatchVO::getParentId, false);
+        Assume.assumeNotNull(catchBatch);
+
+        DenormalizedBatchOptions options = DenormalizedBatchOptions.builder()
+            .enableBulkInsert(true)
+            .build();
+
+        // Run twice, to replace existing rows
+        service.denormalizeAndSaveByOperationId(operationId, options);
+        List<DenormalizedBatchVO> result = service.denormalizeAndSaveByOperationId(operationId, options);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(batches.size(), result.size());
+
+        // Reload
+        List<DenormalizedBatchVO> reloadedBatches = service.getAllByOperationId(operationId, DenormalizedBatchFetchOptions.builder()
+            .withChildrenEntities(false)
+            .build());
+        Assert.assertEquals(batches.size(), reloadedBatches.size());
+    }
+
+    @Test
+    public void denormalizeAndSaveByOperationIdWithBulkInsertInTransaction() {
+
+        int operationId = fixtures.getOperationIdWithBatches();
+        List<DenormalizedBatchVO> existingBatches = service.denormalizeAndSaveByOperationId(operationId, null);
+        Assume.assumeTrue(CollectionUtils.isNotEmpty(existingBatches));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // Load batches into the persistence context
+            List<DenormalizedBatchVO> batches = service.getAllByOperationId(operationId);
+            Assert.assertEquals(existingBatches.size(), batches.size());
+
+            // Bulk replace, with a changed label
+            batches.forEach(b -> b.setLabel("BULK#" + b.getId()));
+            denormalizedBatchRepository.saveAllByOperationId(operationId, batches, true);
+
+            // Reload, in the same transaction: must not return the stale entities
+            List<DenormalizedBatchVO> reloadedBatches = service.getAllByOperationId(operationId);
+            Assert.assertEquals(batches.size(), reloadedBatches.size());
+            reloadedBatches.forEach(b -> Assert.assertEquals("BULK#" + b.getId(), b.getLabel()));
+
+            status.setRollbackOnly();
+        });
+    }
+
 }
@@ -23,15 +23,30 @@ package net.sumaris.core.service.data.denormalize;
  */
 
 import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.config.SumarisConfiguration;
+import net.sumaris.core.config.SumarisConfigurationOption;
 import net.sumaris.core.dao.DatabaseResource;
+import net.sumaris.core.dao.technical.SortDirection;
+import net.sumaris.core.exception.SumarisTechnicalException;
 import net.sumaris.core.service.AbstractServiceTest;
+import net.sumaris.core.service.data.TripService;
 import net.sumaris.core.util.TimeUtils;
+import net.sumaris.core.vo.data.TripFetchOptions;
+import net.sumaris.core.vo.data.TripVO;
+import net.sumaris.core.vo.data.batch.DenormalizedBatchOptions;
 import net.sumaris.core.vo.filter.TripFilterVO;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Slf4j
 public class DenormalizedTripServiceTest extends AbstractServiceTest{
 
@@ -41,6 +56,15 @@ public class DenormalizedTripServiceTest extends AbstractServiceTest{
     @Autowired
     private DenormalizedTripService service;
 
+    @Autowired
+    private TripService tripService;
+
+    @Autowired
+    private DenormalizedBatchService denormalizedBatchService;
+
+    @Autowired
+    private DenormalizedOperationService denormalizedOperationService;
+
     @Test
     public void denormalizeById() {
 
@@ -66,4 +90,109 @@ public class DenormalizedTripServiceTest extends AbstractServiceTest{
         Assert.assertTrue(result.getOperationCount() > 0);
 
     }
+
+    @Test
+    public void denormalizeByFilterWithWorkers() {
+        String workersKey = SumarisConfigurationOption.DATA_DENORMALIZATION_WORKERS.getKey();
+        String previousWorkers = config.getApplicationConfig().getOption(workersKey);
+        config.getApplicationConfig().setOption(workersKey, "2");
+        try {
+            TestDenormalizedTripService workersService = new TestDenormalizedTripService(tripService,
+                denormalizedBatchService, denormalizedOperationService, config);
+
+            TripFilterVO filter = TripFilterVO.builder().build();
+            List<TripVO> trips = tripService.findAll(filter, 0, 1000, TripVO.Fields.ID, SortDirection.ASC,
+                TripFetchOptions.builder().withChildrenEntities(false).withProgram(true).build());
+            Assume.assumeTrue(trips.size() > 2); // Need many pages
+
+            // Old path: one trip after the other
+            int expectedOperationCount = 0;
+            int expectedBatchCount = 0;
+            int expectedErrorCount = 0;
+            for (TripVO trip : trips) {
+                DenormalizedBatchOptions options = workersService.createForcedOptions(trip.getProgram().getId());
+                try {
+                    DenormalizedTripResultVO tripResult = workersService.denormalizeTrip(trip.getId(), null, options, true);
+                    expectedOperationCount += tripResult.getOperationCount();
+                    expectedBatchCount += tripResult.getBatchCount();
+                } catch (Exception e) {
+                    expectedErrorCount++;
+                }
+            }
+
+            // Workers (with pages of 2 trips)
+            workersService.parallelCount.set(0);
+            workersService.maxRunningCount.set(0);
+            DenormalizedTripResultVO result = workersService.denormalizeByFilter(filter);
+            Assert.assertNotNull(result);
+            Assert.assertEquals(trips.size(), result.getTripCount());
+            Assert.assertEquals(expectedErrorCount, result.getTripErrorCount());
+            Assert.assertEquals(expectedOperationCount, result.getOperationCount());
+            Assert.assertEquals(expectedBatchCount, result.getBatchCount());
+
+            // Operations should be processed in the workers threads (not in the common pool)
+            Assert.assertEquals(0, workersService.parallelCount.get());
+            Assert.assertTrue(workersService.maxRunningCount.get() <= 2);
+
+            // Options should be created once, by program
+            long programCount = trips.stream().map(trip -> trip.getProgram().getId()).distinct().count();
+            Assert.assertEquals(programCount, workersService.optionsCountByProgramId.size());
+            workersService.optionsCountByProgramId.values().forEach(count -> Assert.assertEquals(1, count.get()));
+
+            // Errors should be counted, without stopping other trips
+            workersService.failedTripId = trips.get(0).getId();
+            result = workersService.denormalizeByFilter(filter);
+            Assert.assertEquals(trips.size(), result.getTripCount());
+            Assert.assertEquals(expectedErrorCount + 1, result.getTripErrorCount());
+            Assert.assertNotNull(result.getMessage());
+        }
+        finally {
+            config.getApplicationConfig().setOption(workersKey, previousWorkers != null ? previousWorkers : "0");
+        }
+    }
+
+    static class TestDenormalizedTripService extends DenormalizedTripServiceImpl {
+
+        final Map<Integer, AtomicInteger> optionsCountByProgramId = new ConcurrentHashMap<>();
+        final AtomicInteger runningCount = new AtomicInteger();
+        final AtomicInteger maxRunningCount = new AtomicInteger();
+        final AtomicInteger parallelCount = new AtomicInteger();
+        Integer failedTripId;
+
+        TestDenormalizedTripService(TripService tripService,
+                                    DenormalizedBatchService denormalizedBatchService,
+                                    DenormalizedOperationService denormalizedOperationService,
+                                    SumarisConfiguration configuration) {
+            super(tripService, denormalizedBatchService, denormalizedOperationService, configuration);
+        }
+
+        @Override
+        protected int getPageSize(int workerCount) {
+            return 2;
+        }
+
+        @Override
+        protected DenormalizedBatchOptions createOptionsByProgramId(int programId) {
+            optionsCountByProgramId.computeIfAbsent(programId, key -> new AtomicInteger()).incrementAndGet();
+            return createForcedOptions(programId);
+        }
+
+        DenormalizedBatchOptions createForcedOptions(int programId) {
+            DenormalizedBatchOptions options = super.createOptionsByProgramId(programId);
+            options.setForce(true); // Always recompute, to compare with the old path
+            return options;
+        }
+
+        @Override
+        protected DenormalizedTripResultVO denormalizeTrip(int tripId, Integer[] operationIds, DenormalizedBatchOptions options, boolean parallel) {
+            if (parallel) parallelCount.incrementAndGet();
+            maxRunningCount.accumulateAndGet(runningCount.incrementAndGet(), Math::max);
+            try {
+                if (Objects.equals(failedTripId, tripId)) throw new SumarisTechnicalException("Test failure");
+                return super.denormalizeTrip(tripId, operationIds, options, parallel);
+            } finally {
+                runningCount.decrementAndGet();
+            }
+        }
+    }
 }
@@ -0,0 +1,246 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.core.service.data.vessel;
+
+import net.sumaris.core.config.SumarisConfiguration;
+import net.sumaris.core.dao.administration.programStrategy.ProgramRepository;
+import net.sumaris.core.dao.data.vessel.VesselSnapshotRepository;
+import net.sumaris.core.dao.technical.Page;
+import net.sumaris.core.dao.technical.lucene.vessel.VesselSnapshotLuceneRepository;
+import net.sumaris.core.exception.SumarisTechnicalException;
+import net.sumaris.core.model.ProgressionModel;
+import net.sumaris.core.service.referential.ReferentialService;
+import net.sumaris.core.service.technical.JobExecutionService;
+import net.sumaris.core.service.technical.JobService;
+import net.sumaris.core.util.Beans;
+import net.sumaris.core.vo.administration.programStrategy.ProgramVO;
+import net.sumaris.core.vo.data.VesselSnapshotVO;
+import net.sumaris.core.vo.data.vessel.UpdateVesselSnapshotsResultVO;
+import net.sumaris.core.vo.filter.VesselFilterVO;
+import net.sumaris.core.vo.technical.job.JobVO;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test the vessel snapshots indexation (keyset paging, pipelined bulk index, checkpoint and resume),
+ * using an in-memory index and database
+ */
+public class VesselSnapshotServiceIndexTest {
+
+    private static final int PAGE_SIZE = 5;
+    private static final Date MIN_UPDATE_DATE = new Date(1700000000000L);
+
+    // Database rows, and index documents (by vessel features id)
+    private final List<VesselSnapshotVO> rows = new ArrayList<>();
+    private final Map<Integer, VesselSnapshotVO> documents = new ConcurrentHashMap<>();
+
+    private final AtomicInteger bulkIndexCount = new AtomicInteger();
+    private volatile int failedBulkIndex = -1;
+
+    private VesselSnapshotLuceneRepository indexRepository;
+
+    private VesselSnapshotServiceImpl service;
+
+    private VesselSnapshotJob job;
+
+    private JobExecutionService jobExecutionService;
+
+    @Before
+    public void setUp() {
+        VesselSnapshotRepository repository = mock(VesselSnapshotRepository.class);
+        when(repository.count(any(VesselFilterVO.class))).thenAnswer(invocation -> (long) findRows(invocation.getArgument(0)).size());
+        when(repository.findAll(any(VesselFilterVO.class), any(Page.class), any())).thenAnswer(invocation -> {
+            Page page = invocation.getArgument(1);
+            return findRows(invocation.getArgument(0)).stream()
+                .limit(page.getSize())
+                .map(row -> Beans.clone(row, VesselSnapshotVO.class))
+                .collect(Collectors.toList());
+        });
+
+        indexRepository = mock(VesselSnapshotLuceneRepository.class);
+        when(indexRepository.count()).thenAnswer(invocation -> (long) documents.size());
+        when(indexRepository.bulkIndex(any())).thenAnswer(invocation -> {
+            if (bulkIndexCount.getAndIncrement() == failedBulkIndex) throw new SumarisTechnicalException("Index failure");
+            Iterable<VesselSnapshotVO> items = invocation.getArgument(0);
+            items.forEach(item -> documents.put(item.getVesselFeaturesId(), item));
+            return items;
+        });
+        when(indexRepository.findAllVesselFeaturesIdsByFilter(any())).thenAnswer(invocation -> {
+            VesselFilterVO filter = invocation.getArgument(0);
+            return documents.values().stream()
+                .filter(document -> filter == null || filter.getMinUpdateDate() == null || !document.getUpdateDate().before(filter.getMinUpdateDate()))
+                .map(VesselSnapshotVO::getVesselFeaturesId)
+                .collect(Collectors.toList());
+        });
+        doAnswer(invocation -> {
+            Iterable<Integer> ids = invocation.getArgument(0);
+            ids.forEach(documents::remove);
+            return null;
+        }).when(indexRepository).deleteAllById(any());
+
+        ProgramRepository programRepository = mock(ProgramRepository.class);
+        when(programRepository.getByLabel(anyString(), any())).thenReturn(new ProgramVO());
+
+        service = new VesselSnapshotServiceImpl(mock(SumarisConfiguration.class), repository, programRepository,
+            Optional.empty(), Optional.of(indexRepository), Optional.empty());
+        ReflectionTestUtils.setField(service, "indexPageSize", PAGE_SIZE);
+
+        jobExecutionService = mock(JobExecutionService.class);
+        JobService jobService = mock(JobService.class);
+        when(jobService.findAll(any(), any(Page.class))).thenReturn(List.of());
+        job = new VesselSnapshotJob(mock(SumarisConfiguration.class), service, jobExecutionService, mock(ReferentialService.class), jobService);
+
+        // Vessels #1 to #12 in the database, #1 to #14 in the index (#13 and #14 removed since)
+        for (int id = 1; id <= 14; id++) {
+            VesselSnapshotVO row = newVesselSnapshot(id);
+            if (id <= 12) rows.add(row);
+            documents.put(id, Beans.clone(row, VesselSnapshotVO.class));
+        }
+        // New vessel #15
+        rows.add(newVesselSnapshot(15));
+    }
+
+    @Test
+    public void indexByPages() {
+        VesselFilterVO filter = newFilter();
+        UpdateVesselSnapshotsResultVO result = service.indexVesselSnapshots(filter);
+
+        // 13 rows: 3 pages
+        Assert.assertEquals(3, bulkIndexCount.get());
+        Assert.assertEquals(15, result.getLastVesselFeaturesId().intValue());
+        Assert.assertEquals(12, result.getUpdates());
+        Assert.assertEquals(1, result.getInserts());
+        Assert.assertEquals(2L, result.getDeletes());
+        Assert.assertEquals(0, result.getErrors().intValue());
+
+        // Removed vessels should have been deleted from the index
+        assertIndexedIds(rows);
+        verify(indexRepository, times(1)).deleteAllById(eq(List.of(13, 14)));
+    }
+
+    @Test
+    public void interruptAndResume() {
+        VesselFilterVO filter = newFilter();
+
+        // Fail on the second page
+        failedBulkIndex = 1;
+        UpdateVesselSnapshotsResultVO failedResult = UpdateVesselSnapshotsResultVO.builder().build();
+        try {
+            service.indexVesselSnapshots(failedResult, Beans.clone(filter, VesselFilterVO.class), new ProgressionModel());
+            Assert.fail("Should have failed");
+        } catch (SumarisTechnicalException e) {
+            // OK
+        }
+        Assert.assertFalse(service.isIndexing());
+        Assert.assertEquals(1, failedResult.getErrors().intValue());
+
+        // Checkpoint = last vessel features of the first page (the only one indexed)
+        Assert.assertEquals(5, failedResult.getLastVesselFeaturesId().intValue());
+
+        // Nothing deleted, when failed
+        verify(indexRepository, never()).deleteAllById(any());
+        Assert.assertEquals(14, documents.size());
+
+        // Resume from the failed job's checkpoint
+        JobVO failedJob = JobVO.builder().id(1).build();
+        when(jobExecutionService.readConfiguration(eq(failedJob), eq(VesselFilterVO.class)))
+            .thenAnswer(invocation -> Beans.clone(filter, VesselFilterVO.class));
+        when(jobExecutionService.readReport(eq(failedJob), eq(UpdateVesselSnapshotsResultVO.class))).thenReturn(failedResult);
+        VesselFilterVO resumeFilter = job.getResumeFilter(failedJob).orElse(null);
+        Assert.assertNotNull(resumeFilter);
+        Assert.assertEquals(6, resumeFilter.getMinVesselFeaturesId().intValue());
+        Assert.assertEquals(MIN_UPDATE_DATE, resumeFilter.getMinUpdateDate());
+
+        failedBulkIndex = -1;
+        bulkIndexCount.set(0);
+        UpdateVesselSnapshotsResultVO result = service.indexVesselSnapshots(resumeFilter);
+
+        // Only the remaining rows (#6 to #15): 2 pages
+        Assert.assertEquals(2, bulkIndexCount.get());
+        Assert.assertEquals(15, result.getLastVesselFeaturesId().intValue());
+        Assert.assertEquals(7, result.getUpdates());
+        Assert.assertEquals(1, result.getInserts());
+        Assert.assertEquals(0, result.getErrors().intValue());
+
+        // Removed vessels (after the checkpoint) should be deleted, others (before the checkpoint) should be kept
+        Assert.assertEquals(2L, result.getDeletes());
+        assertIndexedIds(rows);
+    }
+
+    @Test
+    public void resumeOnEmptyIndex() {
+        documents.clear();
+
+        // Checkpoint ignored, if the index is empty (full resync)
+        VesselFilterVO filter = newFilter();
+        filter.setMinVesselFeaturesId(6);
+        UpdateVesselSnapshotsResultVO result = service.indexVesselSnapshots(filter);
+
+        Assert.assertEquals(3, bulkIndexCount.get());
+        Assert.assertEquals(13, result.getInserts());
+        assertIndexedIds(rows);
+        verify(indexRepository, times(1)).recreate();
+    }
+
+    /* -- protected functions -- */
+
+    protected VesselFilterVO newFilter() {
+        VesselFilterVO filter = job.createFilter();
+        filter.setMinUpdateDate(MIN_UPDATE_DATE);
+        return filter;
+    }
+
+    protected List<VesselSnapshotVO> findRows(VesselFilterVO filter) {
+        return rows.stream()
+            .filter(row -> filter.getMinVesselFeaturesId() == null || row.getVesselFeaturesId() >= filter.getMinVesselFeaturesId())
+            .filter(row -> filter.getMinUpdateDate() == null || !row.getUpdateDate().before(filter.getMinUpdateDate()))
+            .sorted(Comparator.comparing(VesselSnapshotVO::getVesselFeaturesId))
+            .collect(Collectors.toList());
+    }
+
+    protected void assertIndexedIds(List<VesselSnapshotVO> expectedRows) {
+        Assert.assertEquals(
+            expectedRows.stream().map(VesselSnapshotVO::getVesselFeaturesId).collect(Collectors.toCollection(TreeSet::new)),
+            new TreeSet<>(documents.keySet()));
+    }
+
+    protected VesselSnapshotVO newVesselSnapshot(int id) {
+        VesselSnapshotVO target = new VesselSnapshotVO();
+        target.setId(id);
+        target.setVesselFeaturesId(id);
+        target.setVesselId(id);
+        target.setName("Vessel " + id);
+        target.setUpdateDate(new Date(MIN_UPDATE_DATE.getTime() + id * 1000L));
+        return target;
+    }
+}
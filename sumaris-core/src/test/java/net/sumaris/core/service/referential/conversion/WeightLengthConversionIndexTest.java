@@ -0,0 +1,156 @@
+package net.sumaris.core.service.referential.conversion;
+
+/*-
+ * #%L
+ * SUMARiS:: Core
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import net.sumaris.core.model.referential.StatusEnum;
+import net.sumaris.core.vo.referential.conversion.WeightLengthConversionFetchOptions;
+import net.sumaris.core.vo.referential.conversion.WeightLengthConversionFilterVO;
+import net.sumaris.core.vo.referential.conversion.WeightLengthConversionVO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class WeightLengthConversionIndexTest {
+
+	private static final int TAXON_ID = 1001;
+	private static final int SEX_ID = 302;
+	private static final int LENGTH_PARAMETER_ID = 350;
+	private static final int LENGTH_PMFM_ID = 81;
+	private static final int AREA_ID = 10; // Conversion location
+	private static final int RECTANGLE_ID = 1000; // Child of AREA_ID
+
+	private final WeightLengthConversionIndex index = new WeightLengthConversionIndex(
+		List.of(
+			createConversion(1, null, 1, 12),
+			createConversion(2, 2020, 1, 6),
+			createConversion(3, 2020, 7, 12),
+			createConversion(4, 2021, 1, 12),
+			createConversion(5, null, 3, 5)
+		),
+		Map.of(RECTANGLE_ID, new int[]{AREA_ID}, AREA_ID, new int[]{AREA_ID}),
+		Map.of(LENGTH_PMFM_ID, LENGTH_PARAMETER_ID)
+	);
+
+	@Test
+	public void findFirst() {
+		Assert.assertEquals(5, index.size());
+
+		// Year + month
+		assertFound(3, filter(2020, 8), true);
+		assertFound(2, filter(2020, 2), true);
+
+		// Year only
+		assertFound(4, filter(2021, null), true);
+		assertNotFound(filter(2019, null), true);
+
+		// Month only, ordered by year (without year last)
+		assertFound(4, filter(null, 4), true);
+
+		// Month only, ordered by start month
+		assertFound(5, filter(null, 4), false);
+
+		// Unknown length pmfm
+		WeightLengthConversionFilterVO filter = filter(2020, 2);
+		filter.setLengthPmfmIds(new Integer[]{-1});
+		assertNotFound(filter, true);
+
+		// Other sex
+		filter = filter(2020, 2);
+		filter.setSexIds(new Integer[]{-1});
+		assertNotFound(filter, true);
+
+		// Any sex
+		filter.setSexIds(null);
+		assertFound(2, filter, true);
+
+		// Location (instead of child location)
+		filter = filter(2021, 1);
+		filter.setChildLocationIds(null);
+		filter.setLocationIds(new Integer[]{AREA_ID});
+		assertFound(4, filter, true);
+	}
+
+	@Test
+	public void getOrder() {
+		// Without year is ranked after the others (= 'NULLS LAST' in a descending order)
+		Assert.assertTrue(WeightLengthConversionIndex.getOrder(true).compare(createConversion(1, null, 1, 12), createConversion(2, 2020, 1, 6)) < 0);
+		Assert.assertTrue(WeightLengthConversionIndex.getOrder(true).compare(createConversion(3, 2020, 7, 12), createConversion(2, 2020, 1, 6)) > 0);
+
+		// By start month, then by year
+		Assert.assertTrue(WeightLengthConversionIndex.getOrder(false).compare(createConversion(5, null, 3, 5), createConversion(2, 2020, 1, 6)) > 0);
+		Assert.assertTrue(WeightLengthConversionIndex.getOrder(false).compare(createConversion(1, null, 1, 12), createConversion(2, 2020, 1, 6)) < 0);
+	}
+
+	@Test
+	public void isSupported() {
+		WeightLengthConversionFilterVO filter = filter(2020, 1);
+		Assert.assertTrue(WeightLengthConversionIndex.isSupported(filter, WeightLengthConversionFetchOptions.DEFAULT));
+
+		Assert.assertFalse(WeightLengthConversionIndex.isSupported(filter, WeightLengthConversionFetchOptions.builder()
+			.withRectangleLabels(true)
+			.build()));
+
+		filter.setStatusIds(null);
+		Assert.assertFalse(WeightLengthConversionIndex.isSupported(filter, WeightLengthConversionFetchOptions.DEFAULT));
+	}
+
+	/* -- internal functions -- */
+
+	private void assertFound(int expectedId, WeightLengthConversionFilterVO filter, boolean orderByYear) {
+		Optional<WeightLengthConversionVO> result = index.findFirst(filter, orderByYear);
+		Assert.assertTrue(result.isPresent());
+		Assert.assertEquals(expectedId, result.get().getId().intValue());
+	}
+
+	private void assertNotFound(WeightLengthConversionFilterVO filter, boolean orderByYear) {
+		Assert.assertTrue(index.findFirst(filter, orderByYear).isEmpty());
+	}
+
+	private static WeightLengthConversionFilterVO filter(Integer year, Integer month) {
+		return WeightLengthConversionFilterVO.builder()
+			.referenceTaxonIds(new Integer[]{TAXON_ID})
+			.sexIds(new Integer[]{SEX_ID})
+			.lengthPmfmIds(new Integer[]{LENGTH_PMFM_ID})
+			.childLocationIds(new Integer[]{RECTANGLE_ID})
+			.statusIds(new Integer[]{StatusEnum.ENABLE.getId()})
+			.year(year)
+			.month(month)
+			.build();
+	}
+
+	private static WeightLengthConversionVO createConversion(int id, Integer year, int startMonth, int endMonth) {
+		WeightLengthConversionVO target = new WeightLengthConversionVO();
+		target.setId(id);
+		target.setReferenceTaxonId(TAXON_ID);
+		target.setSexId(SEX_ID);
+		target.setLengthParameterId(LENGTH_PARAMETER_ID);
+		target.setLocationId(AREA_ID);
+		target.setYear(year);
+		target.setStartMonth(startMonth);
+		target.setEndMonth(endMonth);
+		return target;
+	}
+}
@@ -25,6 +25,7 @@ package net.sumaris.core.service.referential.conversion;
  */
 
 import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.config.SumarisConfigurationOption;
 import net.sumaris.core.dao.DatabaseResource;
 import net.sumaris.core.model.referential.StatusEnum;
 import net.sumaris.core.model.referential.location.LocationLevels;
@@ -42,7 +43,7 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.math.BigDecimal;
-import java.util.List;
+import java.util.*;
 
 @Slf4j
 public class WeightLengthConversionServiceReadTest extends AbstractServiceTest {
@@ -134,6 +135,69 @@ public class WeightLengthConversionServiceReadTest extends AbstractServiceTest {
 		log.info("Computed weight ofr COD (15cm): {}kg", weight);
 	}
 
+	@Test
+	public void loadFirstByFilterWithIndex() {
+
+		List<WeightLengthConversionVO> conversions = service.findByFilter(WeightLengthConversionFilterVO.builder()
+			.statusIds(new Integer[]{StatusEnum.ENABLE.getId()})
+			.build(), null, WeightLengthConversionFetchOptions.DEFAULT);
+		Assume.assumeTrue(conversions.size() > 0);
+
+		// Years to check (including unknown year)
+		Set<Integer> years = new TreeSet<>();
+		conversions.stream().map(WeightLengthConversionVO::getYear).filter(Objects::nonNull).forEach(years::add);
+		years.add(1900);
+		List<Integer> yearsOrNull = new ArrayList<>(years);
+		yearsOrNull.add(null);
+
+		// Same filters, resolved by the index then by SQL queries
+		List<WeightLengthConversionFilterVO> filters = new ArrayList<>();
+		conversions.stream()
+			.map(c -> List.of(c.getReferenceTaxonId(), c.getLocationId(), c.getLengthParameterId()))
+			.distinct()
+			.forEach(key -> {
+				for (Integer year : yearsOrNull) {
+					for (Integer month : Arrays.asList(null, 1, 6, 12)) {
+						filters.add(WeightLengthConversionFilterVO.builder()
+							.referenceTaxonIds(new Integer[]{key.get(0)})
+							.locationIds(new Integer[]{key.get(1)})
+							.lengthParameterIds(new Integer[]{key.get(2)})
+							.statusIds(new Integer[]{StatusEnum.ENABLE.getId()})
+							.year(year)
+							.month(month)
+							.build());
+					}
+				}
+			});
+		// Filter on a length pmfm (should match on its parameter)
+		for (Integer year : yearsOrNull) {
+			filters.add(WeightLengthConversionFilterVO.builder()
+				.referenceTaxonIds(new Integer[]{fixtures.getReferenceTaxonIdCOD()})
+				.locationIds(conversions.stream().map(WeightLengthConversionVO::getLocationId).distinct().toArray(Integer[]::new))
+				.lengthPmfmIds(new Integer[]{PmfmEnum.LENGTH_TOTAL_CM.getId()})
+				.statusIds(new Integer[]{StatusEnum.ENABLE.getId()})
+				.year(year)
+				.build());
+		}
+
+		String indexEnableKey = SumarisConfigurationOption.REFERENTIAL_CONVERSION_INDEX_ENABLE.getKey();
+		try {
+			for (WeightLengthConversionFilterVO filter : filters) {
+				config.getApplicationConfig().setOption(indexEnableKey, Boolean.TRUE.toString());
+				Optional<Integer> indexResult = service.loadFirstByFilter(filter).map(WeightLengthConversionVO::getId);
+
+				config.getApplicationConfig().setOption(indexEnableKey, Boolean.FALSE.toString());
+				Optional<Integer> sqlResult = service.loadFirstByFilter(filter).map(WeightLengthConversionVO::getId);
+
+				Assert.assertEquals(String.format("Index and SQL results should be the same, for filter: %s", filter),
+					sqlResult, indexResult);
+			}
+		}
+		finally {
+			config.getApplicationConfig().setOption(indexEnableKey, SumarisConfigurationOption.REFERENTIAL_CONVERSION_INDEX_ENABLE.getDefaultValue());
+		}
+	}
+
 	/* -- internal function -- */
 
 	protected void assertAllValid(List<WeightLengthConversionVO> sources, WeightLengthConversionFetchOptions fetchOptions) {
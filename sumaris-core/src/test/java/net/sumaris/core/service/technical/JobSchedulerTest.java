@@ -0,0 +1,139 @@
+package net.sumaris.core.service.technical;
+
+
+/*-
+ * #%L
+ * SUMARiS:: Core
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import net.sumaris.core.model.technical.job.JobTypeEnum;
+import net.sumaris.core.vo.technical.job.JobQueueStatsVO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JobSchedulerTest {
+
+    /**
+     * Executor that keeps tasks, to run them later
+     */
+    private final List<Runnable> pendingTasks = new ArrayList<>();
+
+    private final List<Integer> startedJobIds = new ArrayList<>();
+
+    @Test
+    public void priorityAndMaxConcurrency() {
+        JobScheduler scheduler = new JobScheduler(pendingTasks::add, 2);
+
+        // Fill the 2 slots with extractions (max 2)
+        submit(scheduler, 1, JobTypeEnum.EXTRACTION);
+        submit(scheduler, 2, JobTypeEnum.EXTRACTION);
+        submit(scheduler, 3, JobTypeEnum.EXTRACTION);
+        submit(scheduler, 4, JobTypeEnum.VESSEL_SNAPSHOTS_INDEXATION);
+        Assert.assertEquals(2, pendingTasks.size());
+
+        // Higher priority job should start first, when a slot is free
+        runNext();
+        runNext();
+        Assert.assertEquals(List.of(1, 2), startedJobIds);
+        runNext();
+        runNext();
+        Assert.assertEquals(List.of(1, 2, 4, 3), startedJobIds);
+        Assert.assertTrue(pendingTasks.isEmpty());
+    }
+
+    @Test
+    public void maxConcurrencyByType() {
+        JobScheduler scheduler = new JobScheduler(pendingTasks::add, 4);
+
+        // Only one importation at a time: other types should not wait
+        submit(scheduler, 1, JobTypeEnum.SIOP_VESSELS_IMPORTATION);
+        submit(scheduler, 2, JobTypeEnum.SIOP_VESSELS_IMPORTATION);
+        submit(scheduler, 3, JobTypeEnum.FILL_LOCATION_HIERARCHY);
+        Assert.assertEquals(2, pendingTasks.size());
+
+        JobQueueStatsVO stats = getStats(scheduler, JobTypeEnum.SIOP_VESSELS_IMPORTATION);
+        Assert.assertEquals(1, stats.getQueuedCount());
+        Assert.assertEquals(1, stats.getRunningCount());
+
+        // Override limits
+        scheduler.setMaxConcurrency(4, JobScheduler.parseMaxConcurrencyByType("SIOP_VESSELS_IMPORTATION:2, invalid"));
+        Assert.assertEquals(3, pendingTasks.size());
+    }
+
+    @Test
+    public void maxConcurrencyLimitedByExecutor() {
+        JobScheduler scheduler = new JobScheduler(pendingTasks::add, 20, 3);
+
+        // Max concurrency is clamped to the executor pool size
+        for (int jobId = 1; jobId <= 5; jobId++) {
+            scheduler.submit(jobId, "OTHER", () -> {});
+        }
+        Assert.assertEquals(3, pendingTasks.size());
+
+        // Same, when updating limits
+        scheduler.setMaxConcurrency(10, null);
+        Assert.assertEquals(3, pendingTasks.size());
+
+        // Lower limits are kept
+        runNext();
+        scheduler.setMaxConcurrency(1, null);
+        runNext();
+        runNext();
+        Assert.assertEquals(1, pendingTasks.size());
+    }
+
+    @Test
+    public void cancelQueued() {
+        JobScheduler scheduler = new JobScheduler(pendingTasks::add, 1);
+
+        submit(scheduler, 1, JobTypeEnum.EXTRACTION);
+        submit(scheduler, 2, JobTypeEnum.EXTRACTION);
+        Assert.assertTrue(scheduler.isQueued(2));
+
+        Assert.assertTrue(scheduler.cancel(2));
+        Assert.assertFalse(scheduler.isQueued(2));
+        Assert.assertFalse(scheduler.cancel(1)); // Already started
+
+        runNext();
+        Assert.assertEquals(List.of(1), startedJobIds);
+        Assert.assertTrue(pendingTasks.isEmpty());
+        Assert.assertEquals(0, getStats(scheduler, JobTypeEnum.EXTRACTION).getQueuedCount());
+    }
+
+    /* -- internal functions -- */
+
+    private void submit(JobScheduler scheduler, int jobId, JobTypeEnum type) {
+        scheduler.submit(jobId, type.name(), () -> startedJobIds.add(jobId));
+    }
+
+    private void runNext() {
+        pendingTasks.remove(0).run();
+    }
+
+    private JobQueueStatsVO getStats(JobScheduler scheduler, JobTypeEnum type) {
+        return scheduler.getStats().stream()
+            .filter(stats -> type.name().equals(stats.getType()))
+            .findFirst()
+            .orElseThrow();
+    }
+}
@@ -0,0 +1,136 @@
+package net.sumaris.core.vo.data;
+
+/*-
+ * #%L
+ * SUMARiS:: Core
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare PmfmValueMap with HashMap, on batch-like measurements maps (a few pmfms: weight, qualitative values, etc.).
+ * Not a unit test: run it with main(), or with the JMH runner.
+ * Add '-prof gc' (JMH option) to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PmfmValueMapBenchmark {
+
+    // Typical batch measurements: discard/landing, size category, sex, weight, length
+    private static final int[] PMFM_IDS = {90, 176, 80, 50, 81, 57};
+    private static final String[] VALUES = {"190", "1062", "185", "12.5", "0.35", "27"};
+
+    @Param({"1000", "100000"})
+    public int batchCount;
+
+    private Map<Integer, String>[] hashMaps;
+    private Map<Integer, String>[] pmfmValueMaps;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        hashMaps = new Map[batchCount];
+        pmfmValueMaps = new Map[batchCount];
+        for (int i = 0; i < batchCount; i++) {
+            hashMaps[i] = fill(new HashMap<>());
+            pmfmValueMaps[i] = fill(new PmfmValueMap());
+        }
+    }
+
+    @Benchmark
+    public void buildHashMap(Blackhole bh) {
+        for (int i = 0; i < batchCount; i++) {
+            bh.consume(fill(new HashMap<>()));
+        }
+    }
+
+    @Benchmark
+    public void buildPmfmValueMap(Blackhole bh) {
+        for (int i = 0; i < batchCount; i++) {
+            bh.consume(fill(new PmfmValueMap()));
+        }
+    }
+
+    @Benchmark
+    public void readHashMap(Blackhole bh) {
+        read(hashMaps, bh);
+    }
+
+    @Benchmark
+    public void readPmfmValueMap(Blackhole bh) {
+        read(pmfmValueMaps, bh);
+    }
+
+    @Benchmark
+    public void iterateHashMap(Blackhole bh) {
+        iterate(hashMaps, bh);
+    }
+
+    @Benchmark
+    public void iteratePmfmValueMap(Blackhole bh) {
+        iterate(pmfmValueMaps, bh);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(PmfmValueMapBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+
+    /* -- internal functions -- */
+
+    private static Map<Integer, String> fill(Map<Integer, String> map) {
+        for (int i = 0; i < PMFM_IDS.length; i++) {
+            map.put(PMFM_IDS[i], VALUES[i]);
+        }
+        return map;
+    }
+
+    private static void read(Map<Integer, String>[] maps, Blackhole bh) {
+        for (Map<Integer, String> map : maps) {
+            for (int pmfmId : PMFM_IDS) {
+                bh.consume(map.get(pmfmId));
+            }
+        }
+    }
+
+    private static void iterate(Map<Integer, String>[] maps, Blackhole bh) {
+        for (Map<Integer, String> map : maps) {
+            map.forEach((pmfmId, value) -> {
+                bh.consume(pmfmId);
+                bh.consume(value);
+            });
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.sumaris.core.vo.data;
+
+/*-
+ * #%L
+ * SUMARiS:: Core
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PmfmValueMapTest {
+
+    @Test
+    public void putAndGet() {
+        PmfmValueMap map = new PmfmValueMap();
+        String[] values = {"12.5", "325", "-7", "0", "12.50", "007", "-0", "abc", "2024-01-01T00:00:00.000Z", "1.0E-4", "0.0001", "12345678901"};
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertNull(map.put(i + 1, values[i]));
+        }
+        Assert.assertEquals(values.length, map.size());
+
+        // Values should be the same (no format change)
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(values[i], map.get(i + 1));
+        }
+        Assert.assertNull(map.get(999));
+        Assert.assertNull(map.get("1"));
+
+        // Replace
+        Assert.assertEquals("12.5", map.put(1, "abc"));
+        Assert.assertEquals("abc", map.get(1));
+        Assert.assertEquals(12.5d, map.getAsDouble(5), 0d);
+
+        // Null value
+        map.put(100, null);
+        Assert.assertTrue(map.containsKey(100));
+        Assert.assertNull(map.get(100));
+    }
+
+    @Test
+    public void removeAndGrow() {
+        PmfmValueMap map = new PmfmValueMap();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 31, Integer.toString(i));
+            expected.put(i * 31, Integer.toString(i));
+            if (i % 3 == 0) {
+                Assert.assertEquals(Integer.toString(i), map.remove(i * 31));
+                expected.remove(i * 31);
+            }
+        }
+        Assert.assertEquals(expected, map);
+        Assert.assertEquals(map, expected);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+
+        // Remove using the iterator
+        Iterator<Map.Entry<Integer, String>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getKey() % 2 == 0) it.remove();
+        }
+        expected.keySet().removeIf(key -> key % 2 == 0);
+        Assert.assertEquals(expected, map);
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void insertionOrder() {
+        // Same order as a LinkedHashMap (e.g. rank orders are computed from it, when saving)
+        PmfmValueMap map = new PmfmValueMap();
+        Map<Integer, String> expected = new LinkedHashMap<>();
+        int[] keys = {30, 9, 36, 1, 1000, 2, 500, 7, 64, 3};
+        for (int key : keys) {
+            map.put(key, Integer.toString(key));
+            expected.put(key, Integer.toString(key));
+        }
+        Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+
+        // Replace should keep the order. Removed then added key should be last
+        map.put(9, "abc");
+        map.remove(36);
+        map.put(36, "36");
+        expected.put(9, "abc");
+        expected.remove(36);
+        expected.put(36, "36");
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+
+        // Should be kept after a copy or a merge
+        Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(new PmfmValueMap(expected).keySet()));
+        Assert.assertEquals(List.of(30, 9, 1, 1000, 2, 500, 7, 64, 3, 36, 99),
+            new ArrayList<>(PmfmValueMap.merge(map, Map.of(99, "1", 9, "2")).keySet()));
+    }
+
+    @Test
+    public void merge() {
+        Map<Integer, String> map1 = Map.of(1, "1.5", 2, "A");
+        Map<Integer, String> map2 = Map.of(2, "B", 3, "42");
+
+        PmfmValueMap result = PmfmValueMap.merge(map1, map2);
+        Assert.assertEquals(Map.of(1, "1.5", 2, "B", 3, "42"), result);
+
+        Assert.assertNull(PmfmValueMap.merge(null, null));
+        Assert.assertEquals(map1, PmfmValueMap.merge(map1, null));
+    }
+}
@@ -26,7 +26,6 @@ import net.sumaris.core.dao.technical.cache.CacheTTL;
 import net.sumaris.core.dao.technical.cache.Caches;
 import net.sumaris.core.model.technical.extraction.IExtractionType;
 import net.sumaris.core.vo.technical.extraction.ExtractionProductVO;
-import net.sumaris.extraction.core.vo.ExtractionResultVO;
 import net.sumaris.extraction.core.vo.ExtractionTypeVO;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -34,9 +33,6 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.Arrays;
-import java.util.Map;
-
 @Configuration
 @ConditionalOnBean({CacheConfiguration.class})
 @ConditionalOnProperty(
@@ -48,6 +44,7 @@ public class ExtractionCacheConfiguration {
 
     public interface Names {
 
+        // Regions of the extraction result cache (see ExtractionResultCache)
         String EXTRACTION_ROWS_PREFIX = "net.sumaris.core.dao.technical.extraction.extractionRows.";
 
         String EXTRACTION_ROWS_MANY_PREFIX = "net.sumaris.core.dao.technical.extraction.extractionRowsMany.";
@@ -56,6 +53,8 @@ public class ExtractionCacheConfiguration {
         String EXTRACTION_TYPE_BY_EXAMPLE = "net.sumaris.extraction.core.service.productByExample";
 
         String PRODUCT_BY_ID = "net.sumaris.extraction.core.service.productById";
+
+        String AGGREGATION_TILE = "net.sumaris.extraction.server.tile.aggregationTile";
     }
 
     @Bean
@@ -65,15 +64,7 @@ public class ExtractionCacheConfiguration {
             Caches.createCollectionHeapCache(cacheManager, Names.EXTRACTION_TYPES, ExtractionTypeVO.class, CacheTTL.MEDIUM.asDuration(), 100);
             Caches.createHeapCache(cacheManager, Names.EXTRACTION_TYPE_BY_EXAMPLE, String.class, IExtractionType.class, CacheTTL.DEFAULT.asDuration(), 500);
             Caches.createHeapCache(cacheManager, Names.PRODUCT_BY_ID, ExtractionProductVO.class, CacheTTL.DEFAULT.asDuration(), 100);
-
-            Arrays.stream(CacheTTL.values())
-                .filter(ttl -> ttl.asDuration().getSeconds() > 0) // Skip NONE
-                .forEach(ttl -> {
-                    Caches.createHeapCache(cacheManager, Names.EXTRACTION_ROWS_PREFIX + ttl.name(),
-                        Integer.class, ExtractionResultVO.class, ttl.asDuration(), 50);
-                    Caches.createHeapCache(cacheManager, Names.EXTRACTION_ROWS_MANY_PREFIX + ttl.name(),
-                        Integer.class, Map.class, ttl.asDuration(), 25);
-                });
+            Caches.createHeapCache(cacheManager, Names.AGGREGATION_TILE, String.class, byte[].class, CacheTTL.DEFAULT.asDuration(), 2000);
         };
     }
 }
\ No newline at end of file
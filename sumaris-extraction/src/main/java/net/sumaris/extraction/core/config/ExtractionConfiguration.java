@@ -158,6 +158,14 @@ public class ExtractionConfiguration {
         return getApplicationConfig().getOptionAsInt(ExtractionConfigurationOption.EXTRACTION_QUERY_TIMEOUT.getKey());
     }
 
+    /**
+     * Number of rows fetched at once, when reading an extraction table with a database cursor (e.g. to dump it)
+     * @return
+     */
+    public int getExtractionQueryFetchSize() {
+        return getApplicationConfig().getOptionAsInt(ExtractionConfigurationOption.EXTRACTION_QUERY_FETCH_SIZE.getKey());
+    }
+
     public List<Integer> getExtractionAreaLocationLevelIds() {
         return delegate.getConfigurationOptionAsNumbers(ExtractionConfigurationOption.EXTRACTION_AREA_LOCATION_LEVEL_IDS.getKey());
     }
@@ -103,6 +103,13 @@ public enum ExtractionConfigurationOption implements ConfigOptionDef {
         Integer.class,
         false),
 
+    EXTRACTION_QUERY_FETCH_SIZE(
+        "sumaris.extraction.query.fetchSize",
+        n("sumaris.config.option.extraction.query.fetchSize.description"),
+        "1000",
+        Integer.class,
+        false),
+
     EXTRACTION_BATCH_DENORMALISATION_ENABLE(
             "sumaris.extraction.batch.denormalization.enable",
             n("sumaris.config.option.extraction.batch.denormalization.enable.description"),
@@ -53,6 +53,7 @@ import net.sumaris.extraction.core.vo.ExtractionFilterVO;
 import net.sumaris.extraction.core.vo.ExtractionResultVO;
 import net.sumaris.xml.query.XMLQuery;
 import net.sumaris.xml.query.XMLQueryImpl;
+import net.sumaris.xml.query.XMLQueryTemplateCache;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.collections4.SetUtils;
@@ -74,6 +75,7 @@ import javax.persistence.Query;
 import java.io.IOException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -92,6 +94,20 @@ public abstract class ExtractionBaseDaoImpl<C extends ExtractionContextVO, F ext
     protected static final String XML_QUERY_PATH = "xmlQuery";
     protected static final String GROUP_BY_PARAM_NAME = "groupByColumns";
 
+    /**
+     * Parsed XML query files, shared by all extraction DAO.
+     * For small extractions (e.g. preview), parsing the files costs more than the SQL execution
+     */
+    protected static final XMLQueryTemplateCache XML_QUERY_TEMPLATES = new XMLQueryTemplateCache();
+    private static final Map<String, URL> XML_QUERY_URLS = new ConcurrentHashMap<>();
+
+    /**
+     * Get statistics of the parsed XML query files cache (size, hitCount, missCount)
+     */
+    public static Map<String, Long> getXMLQueryTemplateStats() {
+        return XML_QUERY_TEMPLATES.getStats();
+    }
+
     @Autowired
     protected ExtractionConfiguration configuration;
 
@@ -618,7 +634,7 @@ public abstract class ExtractionBaseDaoImpl<C extends ExtractionContextVO, F ext
 
     protected XMLQuery createXMLQuery(String queryName) {
         XMLQueryImpl query = createXMLQuery();
-        query.setQuery(getXMLQueryClasspathURL(queryName));
+        XML_QUERY_TEMPLATES.setQuery(query, getXMLQueryClasspathURL(queryName));
         return query;
     }
 
@@ -627,6 +643,10 @@ public abstract class ExtractionBaseDaoImpl<C extends ExtractionContextVO, F ext
     }
 
     protected URL getXMLQueryClasspathURL(String queryName) {
+        return XML_QUERY_URLS.computeIfAbsent(queryName, this::findXMLQueryClasspathURL);
+    }
+
+    protected URL findXMLQueryClasspathURL(String queryName) {
         Resource resource = resourceLoader.getResource(ResourceLoader.CLASSPATH_URL_PREFIX + XML_QUERY_PATH + "/" + queryName + ".xml");
         if (!resource.exists())
             throw new SumarisTechnicalException(t("sumaris.extraction.xmlQuery.notFound", queryName));
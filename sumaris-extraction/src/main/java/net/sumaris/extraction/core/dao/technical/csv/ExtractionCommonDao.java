@@ -22,11 +22,14 @@ package net.sumaris.extraction.core.dao.technical.csv;
  * #L%
  */
 
+import net.sumaris.core.dao.technical.schema.SumarisTableMetadata;
 import net.sumaris.extraction.core.vo.ExtractionContextVO;
 
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
@@ -58,5 +61,41 @@ public interface ExtractionCommonDao {
                         @Nullable Map<String, String> decimalFormats,
                         @Nullable Set<String> excludeColumnNames) throws IOException;
 
+    /**
+     * <p>dumpQueryToCSV.</p>
+     * Rows are read using a database cursor, and written directly into the given stream.
+     * The stream is flushed but NOT closed (e.g. to write many entries into the same ZIP stream).
+     *
+     * @param os                the output stream
+     * @param query             the query string
+     * @param aliasByColumnMap  output column alias, by column name
+     * @param dateFormats       output format, by column name
+     * @param decimalFormats    output decimal format, by column name
+     * @param excludeColumnNames set of columns to exclude
+     */
+    void dumpQueryToCSV(OutputStream os,
+                        String query,
+                        @Nullable Map<String, String> aliasByColumnMap,
+                        @Nullable Map<String, String> dateFormats,
+                        @Nullable Map<String, String> decimalFormats,
+                        @Nullable Set<String> excludeColumnNames) throws IOException;
+
+    /**
+     * <p>dumpQueryToParquet.</p>
+     * The Parquet schema is computed from the table metadata. Rows are read using a database cursor.
+     * The stream is NOT closed.
+     *
+     * @param os                the output stream
+     * @param query             the query string, that select the given columns (in the same order)
+     * @param table             the table metadata, used to compute the schema
+     * @param columnNames       the selected columns
+     * @param aliasByColumnMap  output column alias, by column name
+     */
+    void dumpQueryToParquet(OutputStream os,
+                            String query,
+                            SumarisTableMetadata table,
+                            Collection<String> columnNames,
+                            @Nullable Map<String, String> aliasByColumnMap) throws IOException;
+
     void clean(ExtractionContextVO context);
 }
@@ -26,10 +26,22 @@ import au.com.bytecode.opencsv.CSVWriter;
 import au.com.bytecode.opencsv.ResultSetHelperService;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.dao.technical.Daos;
+import net.sumaris.core.dao.technical.schema.SumarisTableMetadata;
+import net.sumaris.extraction.core.dao.technical.parquet.ParquetSchemas;
+import net.sumaris.extraction.core.dao.technical.parquet.StreamOutputFile;
 import net.sumaris.extraction.core.dao.ExtractionBaseDaoImpl;
 import net.sumaris.extraction.core.vo.ExtractionContextVO;
 import net.sumaris.extraction.core.vo.ExtractionFilterVO;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,6 +57,7 @@ import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.text.DecimalFormat;
+import java.time.ZoneOffset;
 import java.util.*;
 
 /**
@@ -76,22 +89,63 @@ public class ExtractionCommonDaoImpl extends ExtractionBaseDaoImpl<ExtractionCon
                                Set<String> excludeColumnNames) throws IOException {
 
         // create output file
-        Writer fileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+            dumpQueryToCSV(os, query, aliasByColumnMap, dateFormatsByColumnMap, decimalFormatsByColumnMap, excludeColumnNames);
+        }
+    }
+
+    @Override
+    public void dumpQueryToCSV(OutputStream os, String query,
+                               Map<String, String> aliasByColumnMap,
+                               Map<String, String> dateFormatsByColumnMap,
+                               Map<String, String> decimalFormatsByColumnMap,
+                               Set<String> excludeColumnNames) throws IOException {
+
+        // create output writer (not closed, because the stream is owned by the caller)
+        Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
 
         // write special character for encoding recognition
-        fileWriter.write(UTF8_BOM);
+        writer.write(UTF8_BOM);
 
         // create csv writer
-        CSVWriter csvWriter = new CSVWriter(fileWriter, configuration.getCsvSeparator());
+        CSVWriter csvWriter = new CSVWriter(writer, configuration.getCsvSeparator());
 
         // fill result set
         CsvResultSetExtractor extractor = new CsvResultSetExtractor(csvWriter, true, aliasByColumnMap, dateFormatsByColumnMap, decimalFormatsByColumnMap, excludeColumnNames);
-        queryAllowEmptyResultSet(query, extractor);
+        try {
+            queryAllowEmptyResultSet(query, extractor);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
 
-        // flush result set in file and close
+        // flush result set in stream
         csvWriter.flush();
-        csvWriter.close();
+    }
 
+    @Override
+    public void dumpQueryToParquet(OutputStream os, String query,
+                                   SumarisTableMetadata table,
+                                   Collection<String> columnNames,
+                                   Map<String, String> aliasByColumnMap) throws IOException {
+
+        MessageType schema = ParquetSchemas.toMessageType(table.getName(), table, columnNames, aliasByColumnMap);
+
+        // create parquet writer (the stream is owned by the caller, so cannot be closed by the writer)
+        ExampleParquetWriter.Builder builder = ExampleParquetWriter.builder(new StreamOutputFile(CloseShieldOutputStream.wrap(os)))
+            .withType(schema)
+            .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+            .withCompressionCodec(CompressionCodecName.SNAPPY)
+            .withDictionaryEncoding(false);
+        schema.getFields().stream()
+            .filter(ParquetSchemas::useDictionary)
+            .forEach(field -> builder.withDictionaryEncoding(field.getName(), true));
+
+        try (ParquetWriter<Group> writer = builder.build()) {
+            // fill result set
+            queryAllowEmptyResultSet(query, new ParquetResultSetExtractor(writer, schema));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     @Override
@@ -101,25 +155,41 @@ public class ExtractionCommonDaoImpl extends ExtractionBaseDaoImpl<ExtractionCon
 
     /* -- private methods -- */
 
-    private void queryAllowEmptyResultSet(String query, CsvResultSetExtractor csvResultSetExtractor) {
+    private void queryAllowEmptyResultSet(String query, ResultSetExtractor<?> resultSetExtractor) {
 
         Connection connection = DataSourceUtils.getConnection(dataSource);
         PreparedStatement statement = null;
         ResultSet rs = null;
+        boolean restoreAutoCommit = false;
         try {
             if (showSql) {
                 hibernateLog.debug(query);
             }
 
+            // Some drivers (e.g. PostgreSQL) use a cursor only outside auto-commit mode
+            if (connection.getAutoCommit()) {
+                connection.setAutoCommit(false);
+                restoreAutoCommit = true;
+            }
+
             statement = Daos.prepareQuery(connection, query);
+            // Fetch rows by pages, to avoid loading the whole result set in memory
+            statement.setFetchSize(configuration.getExtractionQueryFetchSize());
             rs = statement.executeQuery();
-            csvResultSetExtractor.extractData(rs);
+            resultSetExtractor.extractData(rs);
 
         } catch (SQLException e) {
             throw new DataAccessResourceFailureException(String.format("Error while executing query [%s]: %s", query, e.getMessage()), e);
         } finally {
             Daos.closeSilently(rs);
             Daos.closeSilently(statement);
+            if (restoreAutoCommit) {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    log.warn("Cannot restore connection auto-commit: " + e.getMessage());
+                }
+            }
             DataSourceUtils.releaseConnection(connection, dataSource);
         }
     }
@@ -152,12 +222,80 @@ public class ExtractionCommonDaoImpl extends ExtractionBaseDaoImpl<ExtractionCon
                     log.debug(String.format("%s rows written%s", helperService.getNbRowsWritten(), writer.checkError() ? "- with error" : ""));
                 }
             } catch (IOException e) {
-                log.error(e.getLocalizedMessage());
+                // Propagate (e.g. when the client has closed the connection)
+                throw new UncheckedIOException(e);
             }
             return writer;
         }
     }
 
+    private static class ParquetResultSetExtractor implements ResultSetExtractor<Integer> {
+
+        private final ParquetWriter<Group> writer;
+        private final List<Type> fields;
+        private final SimpleGroupFactory groupFactory;
+
+        ParquetResultSetExtractor(ParquetWriter<Group> writer, MessageType schema) {
+            this.writer = writer;
+            this.fields = schema.getFields();
+            this.groupFactory = new SimpleGroupFactory(schema);
+        }
+
+        @Override
+        public Integer extractData(ResultSet rs) throws SQLException {
+            int rowCount = 0;
+            try {
+                while (rs.next()) {
+                    Group group = groupFactory.newGroup();
+                    for (int i = 0; i < fields.size(); i++) {
+                        addValue(group, i, fields.get(i), rs, i + 1);
+                    }
+                    writer.write(group);
+                    rowCount++;
+                }
+            } catch (IOException e) {
+                // Propagate (e.g. when the client has closed the connection)
+                throw new UncheckedIOException(e);
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("%s rows written", rowCount));
+            }
+            return rowCount;
+        }
+
+        private void addValue(Group group, int fieldIndex, Type field, ResultSet rs, int columnIndex) throws SQLException {
+            switch (field.asPrimitiveType().getPrimitiveTypeName()) {
+                case INT32 -> {
+                    int value = rs.getInt(columnIndex);
+                    if (!rs.wasNull()) group.add(fieldIndex, value);
+                }
+                case INT64 -> {
+                    if (ParquetSchemas.isTimestamp(field)) {
+                        // Local date time (not adjusted to UTC)
+                        Timestamp value = rs.getTimestamp(columnIndex);
+                        if (value != null) group.add(fieldIndex, value.toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli());
+                    } else {
+                        long value = rs.getLong(columnIndex);
+                        if (!rs.wasNull()) group.add(fieldIndex, value);
+                    }
+                }
+                case DOUBLE -> {
+                    double value = rs.getDouble(columnIndex);
+                    if (!rs.wasNull()) group.add(fieldIndex, value);
+                }
+                case BOOLEAN -> {
+                    boolean value = rs.getBoolean(columnIndex);
+                    if (!rs.wasNull()) group.add(fieldIndex, value);
+                }
+                default -> {
+                    String value = rs.getString(columnIndex);
+                    if (value != null) group.add(fieldIndex, value);
+                }
+            }
+        }
+    }
+
     private class CsvResultSetHelperService extends ResultSetHelperService {
 
         private final Map<String, String> aliasByColumnMap;
@@ -0,0 +1,108 @@
+/*
+ * #%L
+ * SUMARiS:: Extraction
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.extraction.core.dao.technical.parquet;
+
+import lombok.NonNull;
+import net.sumaris.core.dao.technical.schema.SumarisColumnMetadata;
+import net.sumaris.core.dao.technical.schema.SumarisTableMetadata;
+import org.apache.parquet.schema.*;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Helper class, to build a Parquet schema from the table metadata
+ */
+public class ParquetSchemas {
+
+    protected ParquetSchemas() {
+        // helper class
+    }
+
+    public static MessageType toMessageType(@NonNull String name,
+                                            @NonNull SumarisTableMetadata table,
+                                            @NonNull Collection<String> columnNames,
+                                            @Nullable Map<String, String> aliasByColumnMap) {
+        Types.MessageTypeBuilder builder = Types.buildMessage();
+        columnNames.forEach(columnName -> {
+            String fieldName = aliasByColumnMap != null ? aliasByColumnMap.getOrDefault(columnName.toUpperCase(), columnName) : columnName;
+            builder.addField(toPrimitiveType(table.getColumnMetadata(columnName), fieldName));
+        });
+        return builder.named(name);
+    }
+
+    public static PrimitiveType toPrimitiveType(@NonNull SumarisColumnMetadata column, @NonNull String fieldName) {
+        switch (column.getTypeCode()) {
+            case java.sql.Types.INTEGER:
+            case java.sql.Types.SMALLINT:
+            case java.sql.Types.TINYINT:
+                return Types.optional(PrimitiveTypeName.INT32).named(fieldName);
+            case java.sql.Types.BIGINT:
+                return Types.optional(PrimitiveTypeName.INT64).named(fieldName);
+            case java.sql.Types.NUMERIC:
+            case java.sql.Types.DECIMAL:
+                // Integer numbers (e.g. ids, counts)
+                if (column.getDecimalDigits() == 0 && column.getColumnSize() > 0) {
+                    if (column.getColumnSize() <= 9) return Types.optional(PrimitiveTypeName.INT32).named(fieldName);
+                    if (column.getColumnSize() <= 18) return Types.optional(PrimitiveTypeName.INT64).named(fieldName);
+                }
+                return Types.optional(PrimitiveTypeName.DOUBLE).named(fieldName);
+            case java.sql.Types.DOUBLE:
+            case java.sql.Types.FLOAT:
+            case java.sql.Types.REAL:
+                return Types.optional(PrimitiveTypeName.DOUBLE).named(fieldName);
+            case java.sql.Types.BOOLEAN:
+            case java.sql.Types.BIT:
+                return Types.optional(PrimitiveTypeName.BOOLEAN).named(fieldName);
+            case java.sql.Types.DATE:
+            case java.sql.Types.TIMESTAMP:
+                return Types.optional(PrimitiveTypeName.INT64)
+                    .as(LogicalTypeAnnotation.timestampType(false, LogicalTypeAnnotation.TimeUnit.MILLIS))
+                    .named(fieldName);
+            default:
+                return Types.optional(PrimitiveTypeName.BINARY)
+                    .as(LogicalTypeAnnotation.stringType())
+                    .named(fieldName);
+        }
+    }
+
+    public static boolean isString(@NonNull Type type) {
+        return type.isPrimitive()
+            && type.asPrimitiveType().getPrimitiveTypeName() == PrimitiveTypeName.BINARY
+            && LogicalTypeAnnotation.stringType().equals(type.getLogicalTypeAnnotation());
+    }
+
+    public static boolean isTimestamp(@NonNull Type type) {
+        return type.getLogicalTypeAnnotation() instanceof LogicalTypeAnnotation.TimestampLogicalTypeAnnotation;
+    }
+
+    /**
+     * Text columns are mostly codes (e.g. species, metier, area), with few distinct values: use a dictionary.
+     * Numeric and date columns are too various (e.g. ids, positions, times) to benefit from it.
+     */
+    public static boolean useDictionary(@NonNull Type type) {
+        return isString(type);
+    }
+}
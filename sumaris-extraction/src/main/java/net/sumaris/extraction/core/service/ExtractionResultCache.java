@@ -0,0 +1,418 @@
+/*
+ * #%L
+ * SUMARiS:: Extraction
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.extraction.core.service;
+
+import com.google.common.base.Joiner;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.config.ExtractionAutoConfiguration;
+import net.sumaris.core.dao.technical.Page;
+import net.sumaris.core.dao.technical.cache.CacheTTL;
+import net.sumaris.core.event.entity.*;
+import net.sumaris.core.model.data.*;
+import net.sumaris.core.model.technical.extraction.IExtractionType;
+import net.sumaris.core.util.Beans;
+import net.sumaris.core.util.StringUtils;
+import net.sumaris.core.vo.technical.extraction.AggregationStrataVO;
+import net.sumaris.core.vo.technical.extraction.ExtractionTableColumnVO;
+import net.sumaris.extraction.core.util.ExtractionTypes;
+import net.sumaris.extraction.core.vo.ExtractionFilterCriterionVO;
+import net.sumaris.extraction.core.vo.ExtractionFilterOperatorEnum;
+import net.sumaris.extraction.core.vo.ExtractionFilterVO;
+import net.sumaris.extraction.core.vo.ExtractionResultVO;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of extraction results (rows), used by previews (table, map).
+ * <ul>
+ *     <li>Keys are computed from a normalized filter, so equivalent filters share the same entry;</li>
+ *     <li>The cache is bounded by an estimated size in bytes (least recently used entries are evicted first);</li>
+ *     <li>Results of live extractions are evicted when data changed (trips, operations, batches, etc.).
+ *     Results of products are kept until their TTL expires.</li>
+ * </ul>
+ *
+ * @author benoit.lavenier@e-is.pro
+ */
+@Component
+@ConditionalOnBean({ExtractionAutoConfiguration.class})
+@Slf4j
+public class ExtractionResultCache {
+
+    protected static final long STRING_OVERHEAD_BYTES = 40;
+    protected static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    private final Optional<EntityEventService> entityEventService;
+
+    @Value("${sumaris.extraction.cache.maxBytes:67108864}")
+    private long maxBytes = 64 * 1024 * 1024;
+
+    // Access order, for LRU eviction
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    // Incremented on each clear, so that a result computed before a clear is never stored
+    private long generation = 0;
+    private long liveGeneration = 0;
+
+    private EntityEventService.Disposable listenerDisposable;
+
+    public ExtractionResultCache(Optional<EntityEventService> entityEventService) {
+        this.entityEventService = entityEventService;
+
+        // Evict live results, when data changed
+        this.listenerDisposable = entityEventService
+            .map(service -> service.registerListener(new EntityEventService.Listener() {
+                @Override
+                public void onInsert(EntityInsertEvent event) {
+                    onDataChanged(event);
+                }
+
+                @Override
+                public void onUpdate(EntityUpdateEvent event) {
+                    onDataChanged(event);
+                }
+
+                @Override
+                public void onDelete(EntityDeleteEvent event) {
+                    onDataChanged(event);
+                }
+            }, Trip.class, Operation.class, Batch.class, Sale.class, Landing.class, ObservedLocation.class, ActivityCalendar.class))
+            .orElse(null);
+    }
+
+    @PreDestroy
+    protected void destroy() {
+        if (listenerDisposable != null) {
+            listenerDisposable.dispose();
+            listenerDisposable = null;
+        }
+    }
+
+    public <R> R getOrCompute(@NonNull String region,
+                              @NonNull IExtractionType type,
+                              @Nullable ExtractionFilterVO filter,
+                              @Nullable AggregationStrataVO strata,
+                              @Nullable Page page,
+                              @NonNull CacheTTL ttl,
+                              @NonNull Supplier<R> supplier) {
+        String key = computeKey(region, type, filter, strata, page);
+        long now = System.currentTimeMillis();
+        boolean live = ExtractionTypes.isLive(type);
+        long startGeneration;
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expirationTime > now) {
+                    hitCount++;
+                    // Return a copy, so callers can never change the cached value
+                    return (R) copy(entry.value);
+                }
+                // Expired
+                remove(key);
+            }
+            missCount++;
+            startGeneration = live ? liveGeneration : generation;
+        }
+
+        // Compute the value (outside the lock)
+        R result = supplier.get();
+        if (result == null) return null;
+
+        long bytes = estimateBytes(result);
+        if (bytes > maxBytes / 4) {
+            // Too large to be cached (would evict too many entries)
+            if (log.isDebugEnabled()) log.debug("Extraction result too large to be cached ({} bytes). Skipping", bytes);
+            return result;
+        }
+
+        // Keep a copy, so the caller can never change the cached value
+        Object cachedValue = copy(result);
+
+        synchronized (entries) {
+            // Cache has been cleared while computing: the result may be stale
+            if ((live ? liveGeneration : generation) != startGeneration) return result;
+
+            remove(key);
+            entries.put(key, new Entry(cachedValue, bytes, now + ttl.asDuration().toMillis(), live));
+            totalBytes += bytes;
+
+            // Evict least recently used entries
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Entry evicted = it.next().getValue();
+                it.remove();
+                totalBytes -= evicted.bytes;
+                evictionCount++;
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            totalBytes = 0;
+            generation++;
+            liveGeneration++;
+        }
+    }
+
+    /**
+     * Remove results of live extractions (e.g. after a data change)
+     * @return the number of removed entries
+     */
+    public int clearLive() {
+        int count = 0;
+        synchronized (entries) {
+            liveGeneration++;
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next().getValue();
+                if (entry.live) {
+                    it.remove();
+                    totalBytes -= entry.bytes;
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public Map<String, Long> getStatistics() {
+        synchronized (entries) {
+            Map<String, Long> result = new LinkedHashMap<>();
+            result.put("size", (long) entries.size());
+            result.put("bytes", totalBytes);
+            result.put("maxBytes", maxBytes);
+            result.put("hits", hitCount);
+            result.put("misses", missCount);
+            result.put("evictions", evictionCount);
+            return result;
+        }
+    }
+
+    /* -- protected functions -- */
+
+    protected void onDataChanged(IEntityEvent event) {
+        int count = clearLive();
+        if (count > 0 && log.isDebugEnabled()) {
+            log.debug("{} extraction results evicted from cache, after a change on {}#{}", count, event.getEntityName(), event.getId());
+        }
+    }
+
+    protected void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) totalBytes -= entry.bytes;
+    }
+
+    protected String computeKey(String region,
+                                IExtractionType type,
+                                @Nullable ExtractionFilterVO filter,
+                                @Nullable AggregationStrataVO strata,
+                                @Nullable Page page) {
+        StringBuilder sb = new StringBuilder(region);
+
+        // Type
+        sb.append("|type:").append(type.getId())
+            .append(',').append(type.getLabel())
+            .append(',').append(StringUtils.upperCase(type.getFormat()))
+            .append(',').append(type.getVersion());
+
+        // Filter
+        sb.append("|filter:").append(normalize(filter));
+
+        // Strata (only properties used by aggregation)
+        if (strata != null) {
+            sb.append("|strata:").append(Joiner.on(',').useForNull("").join(
+                strata.getId(),
+                strata.getSheetName(),
+                strata.getTimeColumnName(),
+                strata.getSpatialColumnName(),
+                strata.getAggColumnName(),
+                strata.getAggFunction(),
+                strata.getTechColumnName()));
+        }
+
+        // Page
+        if (page != null) {
+            sb.append("|page:").append(page.getOffset())
+                .append(',').append(page.getSize())
+                .append(',').append(page.getSortBy())
+                .append(',').append(page.getSortDirection());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compute a canonical string of the filter: criteria are sorted, 'IN' values are sorted and deduplicated,
+     * a 'IN' with one value becomes a '=', and unset options are replaced by their defaults
+     */
+    protected String normalize(@Nullable ExtractionFilterVO filter) {
+        if (filter == null || (filter.isEmpty() && CollectionUtils.isEmpty(filter.getSheetNames()) && !filter.isPreview())) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(StringUtils.isNotBlank(filter.getOperator()) ? filter.getOperator().trim().toUpperCase() : "AND");
+        sb.append(";sheet:").append(StringUtils.trimToEmpty(filter.getSheetName()));
+        sb.append(";sheets:").append(sortedJoin(filter.getSheetNames()));
+        sb.append(";distinct:").append(filter.isDistinct());
+        sb.append(";preview:").append(filter.isPreview());
+        sb.append(";include:").append(sortedJoin(filter.getIncludeColumnNames()));
+        sb.append(";exclude:").append(sortedJoin(filter.getExcludeColumnNames()));
+        sb.append(";criteria:").append(Beans.getStream(filter.getCriteria())
+            .filter(Objects::nonNull)
+            .map(this::normalize)
+            .sorted()
+            .collect(Collectors.joining("&")));
+        if (MapUtils.isNotEmpty(filter.getMeta())) {
+            sb.append(";meta:").append(new TreeMap<>(filter.getMeta()));
+        }
+        return sb.toString();
+    }
+
+    protected String normalize(@NonNull ExtractionFilterCriterionVO criterion) {
+        String operator = StringUtils.isNotBlank(criterion.getOperator())
+            ? criterion.getOperator().trim().toUpperCase()
+            : ExtractionFilterOperatorEnum.EQUALS.getSymbol();
+        String value = criterion.getValue();
+
+        boolean isIn = ExtractionFilterOperatorEnum.IN.getSymbol().equals(operator);
+        boolean isNotIn = ExtractionFilterOperatorEnum.NOT_IN.getSymbol().equals(operator);
+        if (isIn || isNotIn) {
+            SortedSet<String> values = new TreeSet<>();
+            if (ArrayUtils.isNotEmpty(criterion.getValues())) {
+                Arrays.stream(criterion.getValues()).filter(Objects::nonNull).forEach(values::add);
+            }
+            if (value != null) values.add(value);
+
+            // Only one value: same as '=' or '!='
+            if (values.size() == 1) {
+                operator = isIn ? ExtractionFilterOperatorEnum.EQUALS.getSymbol() : ExtractionFilterOperatorEnum.NOT_EQUALS.getSymbol();
+                return String.format("%s.%s %s %s",
+                    StringUtils.trimToEmpty(criterion.getSheetName()),
+                    StringUtils.lowerCase(criterion.getName()),
+                    operator,
+                    values.first());
+            }
+            return String.format("%s.%s %s (%s)",
+                StringUtils.trimToEmpty(criterion.getSheetName()),
+                StringUtils.lowerCase(criterion.getName()),
+                operator,
+                String.join(",", values));
+        }
+
+        return String.format("%s.%s %s %s%s",
+            StringUtils.trimToEmpty(criterion.getSheetName()),
+            StringUtils.lowerCase(criterion.getName()),
+            operator,
+            StringUtils.trimToEmpty(value),
+            ArrayUtils.isNotEmpty(criterion.getValues()) ? "(" + String.join(",", criterion.getValues()) + ")" : "");
+    }
+
+    protected String sortedJoin(@Nullable Collection<String> values) {
+        if (CollectionUtils.isEmpty(values)) return "";
+        return values.stream().filter(Objects::nonNull).sorted().collect(Collectors.joining(","));
+    }
+
+    /**
+     * Estimate the memory used by a result (rows are the biggest part)
+     */
+    protected long estimateBytes(Object value) {
+        if (value instanceof ExtractionResultVO result) {
+            long bytes = ENTRY_OVERHEAD_BYTES + CollectionUtils.size(result.getColumns()) * ENTRY_OVERHEAD_BYTES;
+            for (String[] row : Beans.getList(result.getRows())) {
+                if (row == null) continue;
+                bytes += 16 + row.length * 8L;
+                for (String cell : row) {
+                    if (cell != null) bytes += STRING_OVERHEAD_BYTES + cell.length() * 2L;
+                }
+            }
+            return bytes;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long bytes = ENTRY_OVERHEAD_BYTES;
+            for (Object item : map.values()) {
+                bytes += estimateBytes(item);
+            }
+            return bytes;
+        }
+        return ENTRY_OVERHEAD_BYTES;
+    }
+
+    /**
+     * Copy a cached value (result, or map of results). Rows and columns are copied, not shared.
+     */
+    protected Object copy(Object value) {
+        if (value instanceof ExtractionResultVO source) {
+            ExtractionResultVO target = new ExtractionResultVO();
+            target.setType(source.getType() != null ? Beans.clone(source.getType(), source.getType().getClass()) : null);
+            target.setColumns(source.getColumns() == null ? null : source.getColumns().stream()
+                .map(column -> {
+                    ExtractionTableColumnVO columnCopy = Beans.clone(column, ExtractionTableColumnVO.class);
+                    if (column.getValues() != null) columnCopy.setValues(new ArrayList<>(column.getValues()));
+                    return columnCopy;
+                })
+                .collect(Collectors.toList()));
+            target.setRows(source.getRows() == null ? null : source.getRows().stream()
+                .map(row -> row != null ? row.clone() : null)
+                .collect(Collectors.toList()));
+            target.setTotal(source.getTotal());
+            return target;
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> target = new LinkedHashMap<>();
+            map.forEach((k, v) -> target.put(k, copy(v)));
+            return target;
+        }
+        return value;
+    }
+
+    protected static class Entry {
+        final Object value;
+        final long bytes;
+        final long expirationTime;
+        final boolean live;
+
+        Entry(Object value, long bytes, long expirationTime, boolean live) {
+            this.value = value;
+            this.bytes = bytes;
+            this.expirationTime = expirationTime;
+            this.live = live;
+        }
+    }
+}
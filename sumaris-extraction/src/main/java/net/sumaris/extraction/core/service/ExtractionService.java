@@ -34,6 +34,7 @@ import net.sumaris.core.vo.filter.VesselFilterVO;
 import net.sumaris.core.vo.technical.extraction.AggregationStrataVO;
 import net.sumaris.core.vo.technical.extraction.ExtractionProductFetchOptions;
 import net.sumaris.core.vo.technical.extraction.ExtractionProductVO;
+import net.sumaris.extraction.core.type.ExtractionOutputTypeEnum;
 import net.sumaris.extraction.core.type.LiveExtractionTypeEnum;
 import net.sumaris.extraction.core.vo.*;
 import net.sumaris.extraction.core.vo.administration.ExtractionStrategyFilterVO;
@@ -44,6 +45,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -113,6 +115,28 @@ public interface ExtractionService {
 
     File dumpTablesToFile(ExtractionContextVO context, @Nullable ExtractionFilterVO filter);
 
+    /**
+     * Dump all tables of the context into a file (a zip archive, if many sheets)
+     * @param context the extraction context
+     * @param filter the extraction filter
+     * @param outputType the file type of each sheet (CSV or Parquet)
+     * @return the output file, or null if no tables
+     */
+    File dumpTablesToFile(ExtractionContextVO context, @Nullable ExtractionFilterVO filter, ExtractionOutputTypeEnum outputType);
+
+    /**
+     * Write all tables of the context into the given stream, as a zip archive (one entry per sheet).
+     * Rows are read from a database cursor and written directly, so memory use does not depend on the extraction size.
+     * The stream is NOT closed.
+     * @param context the extraction context
+     * @param filter the extraction filter
+     * @param outputType the file type of each sheet (default: CSV)
+     * @param os the output stream (e.g. an HTTP response)
+     * @throws IOException if the stream could not be written
+     */
+    void dumpTablesToZip(ExtractionContextVO context, @Nullable ExtractionFilterVO filter,
+                         @Nullable ExtractionOutputTypeEnum outputType, OutputStream os) throws IOException;
+
     void executeAll(ProcessingFrequencyEnum frequency);
 
     AggregationTechResultVO readByTech(IExtractionType type,
@@ -73,6 +73,7 @@ import net.sumaris.extraction.core.dao.vessel.ExtractionVesselDao;
 import net.sumaris.extraction.core.specification.administration.StratSpecification;
 import net.sumaris.extraction.core.specification.data.trip.RdbSpecification;
 import net.sumaris.extraction.core.specification.vessel.VesselSpecification;
+import net.sumaris.extraction.core.type.ExtractionOutputTypeEnum;
 import net.sumaris.extraction.core.type.LiveExtractionTypeEnum;
 import net.sumaris.extraction.core.util.ExtractionProducts;
 import net.sumaris.extraction.core.util.ExtractionTypes;
@@ -83,7 +84,6 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.SetUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.nuiton.i18n.I18n;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -95,14 +95,13 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
-import javax.cache.Cache;
 import javax.cache.CacheManager;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.ZipOutputStream;
 
 /**
  * @author blavenie
@@ -130,6 +129,7 @@ public class ExtractionServiceImpl implements ExtractionService {
 
     private final ObjectMapper objectMapper;
     private final Optional<CacheManager> cacheManager;
+    private final ExtractionResultCache resultCache;
 
     private final ExtractionDispatcher extractionDispatcher;
 
@@ -370,6 +370,13 @@ public class ExtractionServiceImpl implements ExtractionService {
     @Override
     public File dumpTablesToFile(ExtractionContextVO context,
                                  @Nullable ExtractionFilterVO filter) {
+        return dumpTablesToFile(context, filter, ExtractionOutputTypeEnum.CSV);
+    }
+
+    @Override
+    public File dumpTablesToFile(ExtractionContextVO context,
+                                 @Nullable ExtractionFilterVO filter,
+                                 @NonNull ExtractionOutputTypeEnum outputType) {
         Preconditions.checkNotNull(context);
         Preconditions.checkNotNull(context.getFormat());
 
@@ -377,78 +384,67 @@ public class ExtractionServiceImpl implements ExtractionService {
             return null;
         }
 
-        // Dump table to CSV files
-        log.debug(String.format("Extraction #%s > Creating CSV files...", context.getId()));
-
         Date date = context.getUpdateDate() != null ? context.getUpdateDate() : new Date();
         String dateStr = Dates.formatDate(date, "yyyy-MM-dd-HHmm");
-        String basename = context.getFormat() + "-" + dateStr;
-
-        final ExtractionFilterVO tableFilter = ExtractionFilterVO.nullToEmpty(filter);
-        final Set<String> defaultExcludeColumns = SetUtils.emptyIfNull(tableFilter.getExcludeColumnNames());
-        final boolean defaultEnableDistinct = filter != null && filter.isDistinct();
-
-        File outputDirectory = createTempDirectory(basename);
-        List<File> outputFiles = Beans.getStream(context.getTableNames())
-                .map(tableName -> {
-                    try {
-                        // Add table's hidden columns has excluded columns
-                        Set<String> hiddenColumns = context.getHiddenColumns(tableName);
-
-                        boolean enableDistinct = defaultEnableDistinct ||
-                                // Force distinct, when excluded columns AND distinct option on the XML query
-                                (CollectionUtils.isNotEmpty(hiddenColumns) && context.isDistinctEnable(tableName));
-
-                        tableFilter.setExcludeColumnNames(SetUtils.union(defaultExcludeColumns,
-                                SetUtils.emptyIfNull(hiddenColumns)));
-                        tableFilter.setDistinct(enableDistinct);
-
-                        // Compute the table output file
-                        File tempCsvFile = new File(outputDirectory, context.findSheetNameByTableName(tableName).orElse(tableName)
-                            + ".csv");
-                        dumpTableToFile(tableName, tableFilter, tempCsvFile);
-                        return tempCsvFile;
-                    } catch (IOException e) {
-                        log.error(String.format("Could not generate CSV file for table {%s}", tableName), e);
-                        throw new SumarisTechnicalException(e);
-                    }
-                })
-                .toList();
 
         File outputFile;
-
-        // One file: copy to result file
-        if (outputFiles.size() == 1) {
-            File uniqueFile = outputFiles.get(0);
-            basename = String.format("%s-%s-%s.%s",
+        try {
+            // One table: dump to a single file
+            if (context.getTableNames().size() == 1) {
+                String tableName = context.getTableNames().iterator().next();
+                String basename = String.format("%s-%s-%s",
                     context.getFormat(),
-                    Files.getNameWithoutExtension(uniqueFile),
-                    dateStr,
-                    Files.getExtension(uniqueFile).orElse("csv"));
-            outputFile = new File(outputDirectory.getParent(), basename);
-            try {
-                FileUtils.moveFile(uniqueFile, outputFile);
-            } catch (IOException e) {
-                throw new SumarisTechnicalException(e);
+                    getSheetName(context, tableName),
+                    dateStr);
+                outputFile = createTempFile(basename, outputType.getExtension());
+                log.debug(String.format("Extraction #%s > Creating extraction file {%s}...", context.getId(), outputFile.getPath()));
+                dumpTableToFile(tableName, toTableFilter(context, tableName, filter), outputType, outputFile);
             }
-            log.debug(String.format("Extraction file created at {%s}", outputFile.getPath()));
-        }
 
-        // Many files: create a zip archive
-        else {
-            outputFile = new File(outputDirectory.getParent(), basename + ".zip");
-            log.debug(String.format("Creating extraction file {%s}...", outputFile.getPath()));
-            try {
-                ZipUtils.compressFilesInPath(outputDirectory, outputFile, false);
-            } catch (IOException e) {
-                throw new SumarisTechnicalException(e);
+            // Many tables: stream each table into a zip archive
+            else {
+                outputFile = createTempFile(context.getFormat() + "-" + dateStr, "zip");
+                log.debug(String.format("Extraction #%s > Creating extraction file {%s}...", context.getId(), outputFile.getPath()));
+                try (OutputStream os = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+                    dumpTablesToZip(context, filter, outputType, os);
+                }
             }
-            log.debug(String.format("Extraction file created at {%s}", outputFile.getPath()));
+        } catch (IOException e) {
+            throw new SumarisTechnicalException(e);
         }
 
+        log.debug(String.format("Extraction file created at {%s}", outputFile.getPath()));
         return outputFile;
     }
 
+    @Override
+    public void dumpTablesToZip(@NonNull ExtractionContextVO context,
+                                @Nullable ExtractionFilterVO filter,
+                                @Nullable ExtractionOutputTypeEnum outputType,
+                                @NonNull OutputStream os) throws IOException {
+        long startTime = System.currentTimeMillis();
+        final ExtractionOutputTypeEnum entryType = outputType != null ? outputType : ExtractionOutputTypeEnum.CSV;
+        log.debug(String.format("Extraction #%s > Streaming %s files into a zip archive...", context.getId(), entryType.name()));
+
+        ZipOutputStream zos = new ZipOutputStream(os);
+        for (String tableName : SetUtils.emptyIfNull(context.getTableNames())) {
+            SumarisTableMetadata table = findTable(tableName);
+            if (table == null) continue; // Skip
+
+            ExtractionFilterVO tableFilter = toTableFilter(context, tableName, filter);
+            String entryName = getSheetName(context, tableName) + "." + entryType.getExtension();
+
+            // Rows are written from the database cursor, directly into the zip entry
+            ZipUtils.writeEntry(zos, entryName, entryStream -> dumpTableToStream(tableName, table, tableFilter, entryType, entryStream));
+        }
+
+        // Write the zip directory, but let the caller close the stream
+        zos.finish();
+        zos.flush();
+
+        log.debug(String.format("Extraction #%s > Zip archive streamed in %s", context.getId(), TimeUtils.printDurationFrom(startTime)));
+    }
+
     @Override
     public void executeAll(@NonNull ProcessingFrequencyEnum frequency) {
         if (!enableProduct) {
@@ -507,39 +503,10 @@ public class ExtractionServiceImpl implements ExtractionService {
         @CacheEvict(cacheNames = ExtractionCacheConfiguration.Names.PRODUCT_BY_ID, allEntries = true)
     })
     protected void clearCache() {
-        if (this.cacheManager.isEmpty()) {
-            return; // Skip
-        }
-
         log.debug("Cleaning {Extraction} caches...");
 
-        // Clear all rows cache (by TTL)
-        Arrays.stream(CacheTTL.values())
-            .map(ttl -> {
-                try {
-                    return cacheManager.get().getCache(ExtractionCacheConfiguration.Names.EXTRACTION_ROWS_PREFIX + ttl.name());
-                }
-                catch (Exception e) {
-                    // Cache not exists: skip
-                    return null;
-                }
-            })
-            .filter(Objects::nonNull)
-            .forEach(Cache::clear);
-
-        // Clear all rows (many sheetNames) cache (by TTL)
-        Arrays.stream(CacheTTL.values())
-            .map(ttl -> {
-                try {
-                    return cacheManager.get().getCache(ExtractionCacheConfiguration.Names.EXTRACTION_ROWS_MANY_PREFIX + ttl.name());
-                }
-                catch (Exception e) {
-                    // Cache not exists: skip
-                    return null;
-                }
-            })
-            .filter(Objects::nonNull)
-            .forEach(Cache::clear);
+        // Clear all rows cache
+        resultCache.clear();
     }
 
     @Override
@@ -855,15 +822,17 @@ public class ExtractionServiceImpl implements ExtractionService {
     }
 
 
-    protected void dumpTableToFile(String tableName, ExtractionFilterVO filter, File outputFile) throws IOException {
-        SumarisTableMetadata table;
-        try {
-            table = databaseMetadata.getTable(tableName);
-        } catch (Exception e) {
-            log.debug(String.format("Table %s not found. Skipping", tableName));
-            return;
+    protected void dumpTableToFile(String tableName, ExtractionFilterVO filter, ExtractionOutputTypeEnum outputType, File outputFile) throws IOException {
+        SumarisTableMetadata table = findTable(tableName);
+        if (table == null) return; // Skip
+
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            dumpTableToStream(tableName, table, filter, outputType, os);
         }
+    }
 
+    protected void dumpTableToStream(String tableName, SumarisTableMetadata table, ExtractionFilterVO filter,
+                                     ExtractionOutputTypeEnum outputType, OutputStream os) throws IOException {
         boolean enableDistinct = filter != null && filter.isDistinct();
 
         Set<String> columnNames = table.getColumnNames();
@@ -882,17 +851,23 @@ public class ExtractionServiceImpl implements ExtractionService {
                 .collect(Collectors.toCollection(LinkedHashSet::new));
         }
 
-        Map<String, String> dateFormats = Maps.newHashMap();
-        columnNames.stream().map(table::getColumnMetadata)
-            .filter(SumarisTableUtils::isDateColumn)
-            .forEach(column -> dateFormats.put(column.getName(), Dates.CSV_DATE_TIME));
-
         String whereClause = SumarisTableUtils.getSqlWhereClause(table, filter);
         String query = table.getSelectQuery(enableDistinct, columnNames, whereClause, null, null);
 
         Map<String, String> aliases = getAliasByColumnMap(columnNames);
 
-        extractionCommonDao.dumpQueryToCSV(outputFile, query,
+        // Columnar file: schema is computed from the column types
+        if (outputType == ExtractionOutputTypeEnum.PARQUET) {
+            extractionCommonDao.dumpQueryToParquet(os, query, table, columnNames, aliases);
+            return;
+        }
+
+        Map<String, String> dateFormats = Maps.newHashMap();
+        columnNames.stream().map(table::getColumnMetadata)
+            .filter(SumarisTableUtils::isDateColumn)
+            .forEach(column -> dateFormats.put(column.getName(), Dates.CSV_DATE_TIME));
+
+        extractionCommonDao.dumpQueryToCSV(os, query,
             aliases,
             dateFormats,
             null,
@@ -900,17 +875,49 @@ public class ExtractionServiceImpl implements ExtractionService {
 
     }
 
-    protected File createTempDirectory(String dirName) {
+    protected SumarisTableMetadata findTable(String tableName) {
         try {
-            File outputDirectory = new File(configuration.getTempDirectory(), dirName);
+            return databaseMetadata.getTable(tableName);
+        } catch (Exception e) {
+            log.debug(String.format("Table %s not found. Skipping", tableName));
+            return null;
+        }
+    }
+
+    protected String getSheetName(ExtractionContextVO context, String tableName) {
+        return context.findSheetNameByTableName(tableName).orElse(tableName);
+    }
+
+    /**
+     * Create the filter used to dump a table: add table's hidden columns as excluded columns,
+     * and force distinct when need
+     */
+    protected ExtractionFilterVO toTableFilter(ExtractionContextVO context, String tableName, @Nullable ExtractionFilterVO filter) {
+        ExtractionFilterVO tableFilter = filter != null ? filter.clone() : new ExtractionFilterVO();
+        Set<String> hiddenColumns = context.getHiddenColumns(tableName);
+
+        boolean enableDistinct = tableFilter.isDistinct() ||
+            // Force distinct, when excluded columns AND distinct option on the XML query
+            (CollectionUtils.isNotEmpty(hiddenColumns) && context.isDistinctEnable(tableName));
+
+        tableFilter.setExcludeColumnNames(SetUtils.union(SetUtils.emptyIfNull(tableFilter.getExcludeColumnNames()),
+            SetUtils.emptyIfNull(hiddenColumns)));
+        tableFilter.setDistinct(enableDistinct);
+        return tableFilter;
+    }
+
+    protected File createTempFile(String basename, String extension) {
+        try {
+            File directory = configuration.getTempDirectory();
+            FileUtils.forceMkdir(directory);
+            File outputFile = new File(directory, basename + "." + extension);
             int counter = 1;
-            while (outputDirectory.exists()) {
-                outputDirectory = new File(configuration.getTempDirectory(), dirName + "_" + counter++);
+            while (outputFile.exists()) {
+                outputFile = new File(directory, basename + "_" + counter++ + "." + extension);
             }
-            FileUtils.forceMkdir(outputDirectory);
-            return outputDirectory;
+            return outputFile;
         } catch (IOException e) {
-            throw new SumarisTechnicalException("Could not create temporary directory for extraction", e);
+            throw new SumarisTechnicalException("Could not create temporary file for extraction", e);
         }
     }
 
@@ -1126,17 +1133,6 @@ public class ExtractionServiceImpl implements ExtractionService {
             });
     }
 
-    protected Integer computeCacheKey(IExtractionType type, ExtractionFilterVO filter, AggregationStrataVO strata, Page page) {
-        // Compute a cache key
-        // note: Not need to use TTL in cache key, because using a cache by TTL
-        return new HashCodeBuilder(17, 37)
-            .append(type)
-            .append(filter)
-            .append(strata)
-            .append(page)
-            .build();
-    }
-
     protected <R> R getCachedResultOrPut(@NonNull IExtractionType type,
                                                                     @NonNull ExtractionFilterVO filter,
                                                                     @Nullable AggregationStrataVO strata, Page page,
@@ -1150,27 +1146,7 @@ public class ExtractionServiceImpl implements ExtractionService {
             return supplier.get();
         }
 
-        // Compute a cache key
-        Integer cacheKey = computeCacheKey(type, filter, strata, page);
-
-        // Get the cache
-        Cache<Integer, R> cache = cacheManager.get()
-            .getCache(cacheNamePrefix + ttl.name());
-
-        // Reuse cached value if exists
-        R result = cache.get(cacheKey);
-        if (result != null) {
-            return result;
-        }
-
-        // Not exists in cache: compute it
-        result = supplier.get();
-        if (result == null) {
-            return null;
-        }
-
-        // Add to cache
-        cache.put(cacheKey, result);
-        return result;
+        // Get from cache, or compute it
+        return resultCache.getOrCompute(cacheNamePrefix, type, filter, strata, page, ttl, supplier);
     }
 }
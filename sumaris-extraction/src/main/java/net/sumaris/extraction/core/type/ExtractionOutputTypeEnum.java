@@ -0,0 +1,55 @@
+/*
+ * #%L
+ * SUMARiS:: Extraction
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.extraction.core.type;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * File type used to dump an extraction table
+ */
+public enum ExtractionOutputTypeEnum {
+
+    CSV("csv"),
+
+    // Columnar format (e.g. for R or Spark)
+    PARQUET("parquet")
+    ;
+
+    public static Optional<ExtractionOutputTypeEnum> fromExtension(String extension) {
+        if (extension == null) return Optional.empty();
+        return Arrays.stream(values())
+            .filter(type -> type.extension.equalsIgnoreCase(extension))
+            .findFirst();
+    }
+
+    private final String extension;
+
+    ExtractionOutputTypeEnum(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -47,8 +47,12 @@ import java.util.stream.Collectors;
 @Component("extractionGeoJsonConverter")
 public class ExtractionGeoJsonConverter {
 
+    private static final int MAX_GEOMETRY_CACHE_SIZE = 200000;
+
     private Map<String, Function<String, Geometry>> convertersByColumnNames = Maps.newConcurrentMap();
 
+    private Map<String, org.locationtech.jts.geom.Geometry> geometriesByLabel = Maps.newConcurrentMap();
+
     public FeatureCollection toFeatureCollection(final ExtractionResultVO result,
                                                  @NonNull final String spatialColumnName) {
         return toFeatureCollection(result, spatialColumnName,
@@ -101,38 +105,57 @@ public class ExtractionGeoJsonConverter {
         Function<String, Geometry> converter = convertersByColumnNames.get(spatialColumnName);
         if (converter != null) return Optional.of(converter);
 
-        // Square 10'x10'
-        if (AggRdbSpecification.COLUMN_SQUARE.equals(spatialColumnName)) {
+        // Create converter, from the JTS geometry
+        converter = findJtsGeometryByColumnName(spatialColumnName)
+            .map(jtsConverter -> (Function<String, Geometry>) value -> {
+                org.locationtech.jts.geom.Geometry geom = jtsConverter.apply(value);
+                return geom != null ? GeoJsonGeometries.jtsGeometry(geom) : null;
+            })
+            .orElse(null);
+        if (converter == null) return Optional.empty();
 
-            // Create converter
-            converter = (value) -> {
-                if (value == null) return null;
-                org.locationtech.jts.geom.Geometry geom = Locations.getGeometryFromMinuteSquareLabel(value, 10, false);
-                return GeoJsonGeometries.jtsGeometry(geom);
-            };
+        // Add to map, for the next time
+        convertersByColumnNames.put(spatialColumnName, converter);
 
-            // Add to map, for the next time
-            convertersByColumnNames.put(spatialColumnName, converter);
+        return Optional.of(converter);
+    }
 
-            return Optional.of(converter);
-        }
+    /**
+     * Get a function that compute the JTS geometry (in WGS84) of a spatial value (e.g. a rectangle label).
+     * Geometries are memoized by label, because many results (and tiles) use the same labels
+     */
+    public Optional<Function<String, org.locationtech.jts.geom.Geometry>> findJtsGeometryByColumnName(String spatialColumnName) {
 
-        // Statistical rectangle (ICES or CGPM)
-        else if (AggRdbSpecification.COLUMN_STATISTICAL_RECTANGLE.equals(spatialColumnName)) {
+        // Replace alias, and convert to lowercase
+        final String columnName = AggRdbSpecification.resolveColumnName(spatialColumnName);
 
-            // Create converter
-            converter = (value) -> {
-                if (value == null) return null;
-                org.locationtech.jts.geom.Geometry geom = Locations.getGeometryFromRectangleLabel(value, false);
-                return GeoJsonGeometries.jtsGeometry(geom);
-            };
+        final Function<String, org.locationtech.jts.geom.Geometry> factory;
 
-            // Add to map, for the next time
-            convertersByColumnNames.put(spatialColumnName, converter);
+        // Square 10'x10'
+        if (AggRdbSpecification.COLUMN_SQUARE.equals(columnName)) {
+            factory = (value) -> Locations.getGeometryFromMinuteSquareLabel(value, 10, false);
+        }
 
-            return Optional.of(converter);
+        // Statistical rectangle (ICES or CGPM)
+        else if (AggRdbSpecification.COLUMN_STATISTICAL_RECTANGLE.equals(columnName)) {
+            factory = (value) -> Locations.getGeometryFromRectangleLabel(value, false);
+        }
+        else {
+            return Optional.empty();
         }
 
-        return Optional.empty();
+        return Optional.of((value) -> {
+            if (value == null) return null;
+            String key = columnName + ':' + value;
+            org.locationtech.jts.geom.Geometry geom = geometriesByLabel.get(key);
+            if (geom == null) {
+                geom = factory.apply(value);
+                // Limit the memory used, when too many labels
+                if (geometriesByLabel.size() < MAX_GEOMETRY_CACHE_SIZE) {
+                    geometriesByLabel.put(key, geom);
+                }
+            }
+            return geom;
+        });
     }
 }
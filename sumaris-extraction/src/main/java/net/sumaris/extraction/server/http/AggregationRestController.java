@@ -37,6 +37,8 @@ import net.sumaris.extraction.core.vo.ExtractionResultVO;
 import net.sumaris.extraction.core.vo.ExtractionTypeVO;
 import net.sumaris.extraction.server.geojson.ExtractionGeoJsonConverter;
 import net.sumaris.extraction.server.security.ExtractionSecurityService;
+import net.sumaris.extraction.server.tile.AggregationTileService;
+import net.sumaris.extraction.server.tile.MvtTiles;
 import net.sumaris.extraction.server.util.QueryParamUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.geojson.FeatureCollection;
@@ -63,6 +65,9 @@ public class AggregationRestController implements ExtractionRestPaths {
     @Autowired
     private ExtractionSecurityService securityService;
 
+    @Autowired
+    private AggregationTileService tileService;
+
     @ResponseBody
     @RequestMapping(value = {
                         GEOJSON_LABEL_PATH,
@@ -83,6 +88,55 @@ public class AggregationRestController implements ExtractionRestPaths {
                                                @RequestParam(value = "agg", required = false) String aggStrata,
                                                @RequestParam(value = "q", required = false) String queryString) {
 
+        ExtractionProductVO product = getSpatialProduct(label);
+        ExtractionFilterVO filter = parseFilter(queryString);
+
+        int offset = offsetParam != null ? offsetParam : 0;
+        int size = sizeParam != null ? sizeParam : 100;
+        // Limit to 1000 rows
+        if (size > 1000) size = 1000;
+
+        AggregationStrataVO strata = toStrata(spaceStrata, timeStrata, aggStrata);
+
+        ExtractionResultVO result = extractionService.executeAndRead(product, filter, strata,
+            Page.builder()
+                .offset(offset)
+                .size(size)
+                .build(), null);
+
+        return geoJsonConverter.toFeatureCollection(result, strata.getSpatialColumnName());
+    }
+
+    @ResponseBody
+    @RequestMapping(value = {
+                        TILE_LABEL_PATH,
+                        TILE_LABEL_WITH_SPACE_PATH
+                    },
+                    method = RequestMethod.GET,
+                    produces = AggregationTileService.MVT_MEDIA_TYPE)
+    public byte[] getGeoAggregationTile(@PathVariable(name = "label") String label,
+                                        @PathVariable(name = "space", required = false) String spaceStrata,
+                                        @PathVariable(name = "z") int z,
+                                        @PathVariable(name = "x") int x,
+                                        @PathVariable(name = "y") int y,
+                                        @RequestParam(value = "time", required = false) String timeStrata,
+                                        @RequestParam(value = "agg", required = false) String aggStrata,
+                                        @RequestParam(value = "q", required = false) String queryString) {
+
+        ExtractionProductVO product = getSpatialProduct(label);
+        ExtractionFilterVO filter = parseFilter(queryString);
+        AggregationStrataVO strata = toStrata(spaceStrata, timeStrata, aggStrata);
+
+        try {
+            MvtTiles.checkTile(z, x, y);
+        } catch (IllegalArgumentException e) {
+            throw new SumarisTechnicalException(ErrorCodes.BAD_REQUEST, e.getMessage());
+        }
+
+        return tileService.getTile(product, strata, filter, z, x, y);
+    }
+
+    protected ExtractionProductVO getSpatialProduct(String label) {
         // Check type
         ExtractionProductVO product = getProductByExample(ExtractionTypeVO.builder()
             .label(label)
@@ -96,32 +150,24 @@ public class AggregationRestController implements ExtractionRestPaths {
         // Check access right
         securityService.checkReadAccess(product);
 
-        ExtractionFilterVO filter;
+        return product;
+    }
+
+    protected ExtractionFilterVO parseFilter(String queryString) {
         try {
-            filter = QueryParamUtils.parseFilterQueryString(queryString);
+            return QueryParamUtils.parseFilterQueryString(queryString);
         } catch (ParseException e) {
             throw new SumarisTechnicalException(ErrorCodes.BAD_REQUEST, "Invalid query: " + queryString);
         }
+    }
 
-        int offset = offsetParam != null ? offsetParam : 0;
-        int size = sizeParam != null ? sizeParam : 100;
-        // Limit to 1000 rows
-        if (size > 1000) size = 1000;
-
-        AggregationStrataVO strata = AggregationStrataVO.builder()
+    protected AggregationStrataVO toStrata(String spaceStrata, String timeStrata, String aggStrata) {
+        return AggregationStrataVO.builder()
             .timeColumnName(StringUtils.isNotBlank(timeStrata) ? timeStrata : AggRdbSpecification.COLUMN_YEAR)
             .spatialColumnName(StringUtils.isNotBlank(spaceStrata) ? spaceStrata : AggRdbSpecification.COLUMN_SQUARE)
             .aggColumnName(StringUtils.isNotBlank(aggStrata) ? aggStrata : AggRdbSpecification.COLUMN_FISHING_TIME)
             .techColumnName(null)
             .build();
-
-        ExtractionResultVO result = extractionService.executeAndRead(product, filter, strata,
-            Page.builder()
-                .offset(offset)
-                .size(size)
-                .build(), null);
-
-        return geoJsonConverter.toFeatureCollection(result, strata.getSpatialColumnName());
     }
 
     protected ExtractionProductVO getProductByExample(IExtractionType source, ExtractionProductFetchOptions fetchOptions) {
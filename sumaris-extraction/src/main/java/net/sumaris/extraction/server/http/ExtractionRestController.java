@@ -34,6 +34,7 @@ import net.sumaris.core.config.SumarisConfiguration;
 import net.sumaris.core.exception.ErrorCodes;
 import net.sumaris.core.exception.SumarisTechnicalException;
 import net.sumaris.core.model.referential.StatusEnum;
+import net.sumaris.core.util.Dates;
 import net.sumaris.core.util.Files;
 import net.sumaris.core.util.I18nUtil;
 import net.sumaris.core.util.ResourceUtils;
@@ -42,6 +43,7 @@ import net.sumaris.core.vo.technical.extraction.ExtractionTypeFilterVO;
 import net.sumaris.extraction.core.service.ExtractionDocumentationService;
 import net.sumaris.extraction.core.service.ExtractionService;
 import net.sumaris.extraction.core.service.ExtractionTypeService;
+import net.sumaris.extraction.core.type.ExtractionOutputTypeEnum;
 import net.sumaris.extraction.core.util.ExtractionProducts;
 import net.sumaris.extraction.core.vo.ExtractionContextVO;
 import net.sumaris.extraction.core.vo.ExtractionFilterVO;
@@ -74,9 +76,11 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.Optional;
 
 
 @RestController
@@ -86,6 +90,8 @@ import java.util.Objects;
 @ConditionalOnWebApplication
 public class ExtractionRestController implements ExtractionRestPaths {
 
+    protected static final String APPLICATION_ZIP_VALUE = "application/zip";
+
     protected static final String HTML_PREVIEW_PATH = "classpath:static/api/extraction/preview.html";
 
     protected static final Collection<MediaType> HTML_MEDIA_TYPES = ImmutableList.of(
@@ -199,6 +205,8 @@ public class ExtractionRestController implements ExtractionRestPaths {
                                              @PathVariable(name = "version", required = false) String version,
                                              @PathVariable(name = "extension", required = false) String extension,
                                              @RequestParam(value = "q", required = false) String queryString,
+                                             @RequestParam(value = "stream", required = false, defaultValue = "false") boolean stream,
+                                             @RequestParam(value = "output", required = false) String output,
                                              HttpServletResponse response) throws IOException {
 
         ExtractionTypeVO type = ExtractionTypeVO.builder()
@@ -214,10 +222,29 @@ public class ExtractionRestController implements ExtractionRestPaths {
             return ResponseEntity.badRequest().build();
         }
 
+        // Output file type (CSV by default)
+        ExtractionOutputTypeEnum outputType = ExtractionOutputTypeEnum.CSV;
+        if (StringUtils.isNotBlank(output)) {
+            Optional<ExtractionOutputTypeEnum> userOutputType = ExtractionOutputTypeEnum.fromExtension(output);
+            if (userOutputType.isEmpty()) return ResponseEntity.badRequest().build();
+            outputType = userOutputType.get();
+        }
+
         extractionSecurityService.checkReadAccess(type);
 
         ExtractionContextVO context = extractionService.execute(type, filter, null);
-        File tempFile = extractionService.dumpTablesToFile(context, filter);
+
+        // Stream the zip archive directly into the response (no temporary file)
+        if (stream) {
+            String fileName = String.format("%s-%s.zip", context.getFormat(), Dates.formatDate(new Date(), "yyyy-MM-dd-HHmm"));
+            response.setContentType(APPLICATION_ZIP_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + fileName);
+            extractionService.dumpTablesToZip(context, filter, outputType, response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        }
+
+        File tempFile = extractionService.dumpTablesToFile(context, filter, outputType);
 
         // Add to file register
         String path = downloadController.registerFile(tempFile, true);
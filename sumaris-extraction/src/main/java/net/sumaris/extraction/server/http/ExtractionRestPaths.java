@@ -49,6 +49,12 @@ public interface ExtractionRestPaths {
     String GEOJSON_LABEL_PATH = PRODUCT_BASE_PATH + "/{label:[a-zA-Z0-9-_]+}";
     String GEOJSON_LABEL_WITH_SPACE_PATH = GEOJSON_LABEL_PATH + "/{space}";
 
+    // Vector tiles
+    String MVT_EXTENSION = ".mvt";
+    String TILE_XYZ_PATH = "/{z:[0-9]+}/{x:[0-9]+}/{y:[0-9]+}" + MVT_EXTENSION;
+    String TILE_LABEL_PATH = GEOJSON_LABEL_PATH + TILE_XYZ_PATH;
+    String TILE_LABEL_WITH_SPACE_PATH = GEOJSON_LABEL_WITH_SPACE_PATH + TILE_XYZ_PATH;
+
 
 
 }
@@ -0,0 +1,169 @@
+/*
+ * #%L
+ * SUMARiS:: Extraction
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.extraction.server.tile;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.config.ExtractionAutoConfiguration;
+import net.sumaris.core.config.ExtractionCacheConfiguration;
+import net.sumaris.core.dao.technical.Page;
+import net.sumaris.core.exception.SumarisTechnicalException;
+import net.sumaris.core.util.Beans;
+import net.sumaris.core.vo.technical.extraction.AggregationStrataVO;
+import net.sumaris.core.vo.technical.extraction.ExtractionProductVO;
+import net.sumaris.core.vo.technical.extraction.ExtractionTableColumnVO;
+import net.sumaris.extraction.core.service.ExtractionService;
+import net.sumaris.extraction.core.specification.data.trip.AggRdbSpecification;
+import net.sumaris.extraction.core.vo.ExtractionFilterVO;
+import net.sumaris.extraction.core.vo.ExtractionResultVO;
+import net.sumaris.extraction.server.geojson.ExtractionGeoJsonConverter;
+import org.apache.commons.lang3.StringUtils;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Build vector tiles (MVT) from a spatial aggregation product.
+ * All rows of the product (for the given strata and filter) are read (using the extraction rows cache),
+ * then each row's geometry (memoized by spatial label) is clipped and simplified to the tile.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnBean({ExtractionAutoConfiguration.class})
+@Slf4j
+public class AggregationTileService {
+
+    public static final String MVT_MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+
+    // Tile buffer, to avoid seams between adjacent tiles (in percent of the tile size)
+    protected static final double TILE_BUFFER = 1d / 64;
+
+    protected static final int READ_PAGE_SIZE = 5000;
+    protected static final int READ_MAX_ROWS = 100000;
+
+    protected static final Pattern INTEGER_PATTERN = Pattern.compile("-?[0-9]{1,18}");
+    protected static final Pattern DECIMAL_PATTERN = Pattern.compile("-?[0-9]+\\.[0-9]+");
+
+    private final ExtractionService extractionService;
+
+    private final ExtractionGeoJsonConverter geoJsonConverter;
+
+    @Cacheable(cacheNames = ExtractionCacheConfiguration.Names.AGGREGATION_TILE,
+        key = "#product.id + ':' + #product.updateDate?.time + ':' + #strata + ':' + #filter + ':' + #z + '/' + #x + '/' + #y")
+    public byte[] getTile(@NonNull ExtractionProductVO product,
+                          @NonNull AggregationStrataVO strata,
+                          @Nullable ExtractionFilterVO filter,
+                          int z, int x, int y) {
+        MvtTiles.checkTile(z, x, y);
+
+        String spatialColumnName = strata.getSpatialColumnName();
+        Function<String, Geometry> geometryFunction = geoJsonConverter.findJtsGeometryByColumnName(spatialColumnName)
+            .orElseThrow(() -> new SumarisTechnicalException("Not a spatial column: " + spatialColumnName));
+
+        MvtEncoder encoder = new MvtEncoder();
+        Envelope tileEnvelope = MvtTiles.getTileEnvelope(z, x, y, TILE_BUFFER);
+        String layerName = StringUtils.lowerCase(product.getLabel());
+
+        readAll(product, filter, strata, (propertyNames, rows) -> {
+            int spatialIndex = propertyNames.indexOf(AggRdbSpecification.resolveColumnName(spatialColumnName));
+            if (spatialIndex == -1) throw new SumarisTechnicalException("Missing spatial column in result: " + spatialColumnName);
+
+            rows.forEach(row -> {
+                Geometry geometry = geometryFunction.apply(row[spatialIndex]);
+                if (geometry == null) return;
+
+                Geometry tileGeometry = MvtTiles.clipAndSimplify(geometry, tileEnvelope, encoder.getExtent());
+                if (tileGeometry == null) return;
+
+                encoder.addFeature(layerName,
+                    MvtTiles.toTileCoordinates(tileGeometry, z, x, y, encoder.getExtent()),
+                    toProperties(propertyNames, row, spatialIndex));
+            });
+        });
+
+        return encoder.encode();
+    }
+
+    /* -- protected functions -- */
+
+    protected void readAll(ExtractionProductVO product,
+                           ExtractionFilterVO filter,
+                           AggregationStrataVO strata,
+                           RowsConsumer consumer) {
+        int offset = 0;
+        while (offset < READ_MAX_ROWS) {
+            ExtractionResultVO result = extractionService.executeAndRead(product, filter, strata,
+                Page.builder().offset(offset).size(READ_PAGE_SIZE).build(), null);
+            List<String[]> rows = Beans.getList(result.getRows());
+            if (rows.isEmpty()) break;
+
+            List<String> propertyNames = Beans.getStream(result.getColumns())
+                .map(ExtractionTableColumnVO::getColumnName)
+                .map(String::toLowerCase)
+                .collect(Collectors.toList());
+            consumer.accept(propertyNames, rows);
+
+            if (rows.size() < READ_PAGE_SIZE) break;
+            offset += READ_PAGE_SIZE;
+        }
+        if (offset >= READ_MAX_ROWS) {
+            log.warn("Too many rows in aggregation {{}}: tile limited to the first {} rows", product.getLabel(), READ_MAX_ROWS);
+        }
+    }
+
+    protected Map<String, Object> toProperties(List<String> propertyNames, String[] row, int spatialIndex) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (int index = 0; index < propertyNames.size(); index++) {
+            String property = propertyNames.get(index);
+            String value = row[index];
+            if (value == null) continue;
+            // Keep numbers as numbers (for data-driven styles). Spatial labels must stay strings
+            if (index == spatialIndex) {
+                properties.put(property, value);
+            }
+            else if (INTEGER_PATTERN.matcher(value).matches()) {
+                properties.put(property, Long.parseLong(value));
+            }
+            else if (DECIMAL_PATTERN.matcher(value).matches()) {
+                properties.put(property, Double.parseDouble(value));
+            }
+            else {
+                properties.put(property, value);
+            }
+        }
+        return properties;
+    }
+
+    protected interface RowsConsumer {
+        void accept(List<String> propertyNames, List<String[]> rows);
+    }
+}
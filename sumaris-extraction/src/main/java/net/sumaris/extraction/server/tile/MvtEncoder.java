@@ -0,0 +1,300 @@
+/*
+ * #%L
+ * SUMARiS:: Extraction
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.extraction.server.tile;
+
+import lombok.NonNull;
+import org.locationtech.jts.geom.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Encode polygons into a Mapbox Vector Tile (MVT, version 2).
+ * See <a href="https://github.com/mapbox/vector-tile-spec/tree/master/2.1">the specification</a>.
+ * <br/>
+ * Geometries must be given in tile coordinates (see {@link MvtTiles#toTileCoordinates(Geometry, int, int, int, int)}).
+ * Only polygons are supported, because aggregated spatial values are areas (rectangles, squares).
+ */
+public class MvtEncoder {
+
+    public static final int DEFAULT_EXTENT = 4096;
+
+    private static final int VERSION = 2;
+    private static final int GEOM_TYPE_POLYGON = 3;
+    private static final int CMD_MOVE_TO = 1;
+    private static final int CMD_LINE_TO = 2;
+    private static final int CMD_CLOSE_PATH = 7;
+
+    private final int extent;
+    private final Map<String, Layer> layers = new LinkedHashMap<>();
+
+    public MvtEncoder() {
+        this(DEFAULT_EXTENT);
+    }
+
+    public MvtEncoder(int extent) {
+        this.extent = extent;
+    }
+
+    public int getExtent() {
+        return extent;
+    }
+
+    /**
+     * Add a feature
+     * @param layerName the layer name
+     * @param geometry a polygon (or multi polygon), in tile coordinates
+     * @param properties feature's properties (string, numbers or booleans)
+     * @return true if the feature has been added, false if the geometry is empty
+     */
+    public boolean addFeature(@NonNull String layerName, @NonNull Geometry geometry, @NonNull Map<String, Object> properties) {
+        List<Integer> commands = toCommands(geometry);
+        if (commands.isEmpty()) return false;
+
+        Layer layer = layers.computeIfAbsent(layerName, Layer::new);
+        List<Integer> tags = new ArrayList<>(properties.size() * 2);
+        properties.forEach((key, value) -> {
+            if (value == null) return;
+            tags.add(layer.keys.computeIfAbsent(key, k -> layer.keys.size()));
+            tags.add(layer.values.computeIfAbsent(value, v -> layer.values.size()));
+        });
+        layer.features.add(new Feature(layer.features.size() + 1, tags, commands));
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return layers.isEmpty();
+    }
+
+    public byte[] encode() {
+        ProtobufWriter tile = new ProtobufWriter();
+        layers.values().forEach(layer -> tile.writeMessage(3, encodeLayer(layer)));
+        return tile.toByteArray();
+    }
+
+    /* -- protected functions -- */
+
+    protected ProtobufWriter encodeLayer(Layer layer) {
+        ProtobufWriter writer = new ProtobufWriter();
+        writer.writeVarint(15, VERSION);
+        writer.writeString(1, layer.name);
+        layer.features.forEach(feature -> {
+            ProtobufWriter featureWriter = new ProtobufWriter();
+            featureWriter.writeVarint(1, feature.id);
+            featureWriter.writePacked(2, feature.tags);
+            featureWriter.writeVarint(3, GEOM_TYPE_POLYGON);
+            featureWriter.writePacked(4, feature.geometry);
+            writer.writeMessage(2, featureWriter);
+        });
+        layer.keys.keySet().forEach(key -> writer.writeString(3, key));
+        layer.values.keySet().forEach(value -> writer.writeMessage(4, encodeValue(value)));
+        writer.writeVarint(5, extent);
+        return writer;
+    }
+
+    protected ProtobufWriter encodeValue(Object value) {
+        ProtobufWriter writer = new ProtobufWriter();
+        if (value instanceof Boolean bool) {
+            writer.writeVarint(7, bool ? 1 : 0);
+        }
+        else if (value instanceof Integer || value instanceof Long) {
+            writer.writeVarint(6, zigZag(((Number) value).longValue()));
+        }
+        else if (value instanceof Number number) {
+            writer.writeDouble(3, number.doubleValue());
+        }
+        else {
+            writer.writeString(1, value.toString());
+        }
+        return writer;
+    }
+
+    protected List<Integer> toCommands(Geometry geometry) {
+        List<Integer> commands = new ArrayList<>();
+        int[] cursor = {0, 0};
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            Geometry part = geometry.getGeometryN(i);
+            if (!(part instanceof Polygon polygon) || part.isEmpty()) continue;
+
+            // Exterior ring must be clockwise (positive area, with Y axis down)
+            List<int[]> exterior = toRing(polygon.getExteriorRing());
+            if (exterior == null) continue;
+            writeRing(commands, cursor, exterior, true);
+
+            // Interior rings (holes) must be counter-clockwise
+            for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+                List<int[]> hole = toRing(polygon.getInteriorRingN(j));
+                if (hole != null) writeRing(commands, cursor, hole, false);
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Convert a ring into integer coordinates, without repeated points
+     * @return the ring points (without the closing point), or null if the ring collapsed
+     */
+    protected List<int[]> toRing(LinearRing ring) {
+        Coordinate[] coordinates = ring.getCoordinates();
+        List<int[]> points = new ArrayList<>(coordinates.length);
+        for (Coordinate coordinate : coordinates) {
+            int[] point = {(int) Math.round(coordinate.x), (int) Math.round(coordinate.y)};
+            int[] previous = points.isEmpty() ? null : points.get(points.size() - 1);
+            if (previous == null || previous[0] != point[0] || previous[1] != point[1]) {
+                points.add(point);
+            }
+        }
+        // Remove the closing point
+        if (points.size() > 1) {
+            int[] first = points.get(0);
+            int[] last = points.get(points.size() - 1);
+            if (first[0] == last[0] && first[1] == last[1]) points.remove(points.size() - 1);
+        }
+        if (points.size() < 3 || signedArea(points) == 0) return null;
+        return points;
+    }
+
+    protected void writeRing(List<Integer> commands, int[] cursor, List<int[]> points, boolean exterior) {
+        long area = signedArea(points);
+        if ((area > 0) != exterior) Collections.reverse(points);
+
+        int[] first = points.get(0);
+        commands.add(command(CMD_MOVE_TO, 1));
+        commands.add(zigZag(first[0] - cursor[0]));
+        commands.add(zigZag(first[1] - cursor[1]));
+        cursor[0] = first[0];
+        cursor[1] = first[1];
+
+        commands.add(command(CMD_LINE_TO, points.size() - 1));
+        for (int i = 1; i < points.size(); i++) {
+            int[] point = points.get(i);
+            commands.add(zigZag(point[0] - cursor[0]));
+            commands.add(zigZag(point[1] - cursor[1]));
+            cursor[0] = point[0];
+            cursor[1] = point[1];
+        }
+        commands.add(command(CMD_CLOSE_PATH, 1));
+    }
+
+    /**
+     * Surveyor's formula (twice the area). Positive when clockwise, in tile coordinates (Y axis down)
+     */
+    protected static long signedArea(List<int[]> points) {
+        long sum = 0;
+        for (int i = 0; i < points.size(); i++) {
+            int[] p1 = points.get(i);
+            int[] p2 = points.get((i + 1) % points.size());
+            sum += (long) p1[0] * p2[1] - (long) p2[0] * p1[1];
+        }
+        return sum;
+    }
+
+    protected static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    protected static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    protected static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    protected static class Layer {
+        final String name;
+        final List<Feature> features = new ArrayList<>();
+        final Map<String, Integer> keys = new LinkedHashMap<>();
+        final Map<Object, Integer> values = new LinkedHashMap<>();
+
+        Layer(String name) {
+            this.name = name;
+        }
+    }
+
+    protected record Feature(long id, List<Integer> tags, List<Integer> geometry) {
+    }
+
+    /**
+     * Minimal protocol buffers writer (only wire types used by MVT)
+     */
+    protected static class ProtobufWriter {
+
+        private static final int WIRE_VARINT = 0;
+        private static final int WIRE_FIXED64 = 1;
+        private static final int WIRE_LENGTH_DELIMITED = 2;
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void writeVarint(int field, long value) {
+            writeTag(field, WIRE_VARINT);
+            writeRawVarint(value);
+        }
+
+        void writeDouble(int field, double value) {
+            writeTag(field, WIRE_FIXED64);
+            long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                out.write((int) (bits >>> (8 * i)) & 0xFF);
+            }
+        }
+
+        void writeString(int field, String value) {
+            writeBytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeMessage(int field, ProtobufWriter message) {
+            writeBytes(field, message.toByteArray());
+        }
+
+        void writePacked(int field, List<Integer> values) {
+            if (values.isEmpty()) return;
+            ProtobufWriter packed = new ProtobufWriter();
+            values.forEach(value -> packed.writeRawVarint(Integer.toUnsignedLong(value)));
+            writeMessage(field, packed);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void writeBytes(int field, byte[] bytes) {
+            writeTag(field, WIRE_LENGTH_DELIMITED);
+            writeRawVarint(bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        private void writeTag(int field, int wireType) {
+            writeRawVarint(((long) field << 3) | wireType);
+        }
+
+        private void writeRawVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
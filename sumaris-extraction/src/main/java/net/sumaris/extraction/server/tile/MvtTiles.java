@@ -0,0 +1,122 @@
+/*
+ * #%L
+ * SUMARiS:: Extraction
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.extraction.server.tile;
+
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+
+/**
+ * Helper class, for web mercator tiles (XYZ scheme, as used by Mapbox or OpenLayers)
+ */
+public class MvtTiles {
+
+    public static final int MAX_ZOOM = 22;
+
+    // Limit of the web mercator projection
+    public static final double MAX_LATITUDE = 85.05112878;
+
+    protected MvtTiles() {
+        // helper class
+    }
+
+    public static void checkTile(int z, int x, int y) {
+        Preconditions.checkArgument(z >= 0 && z <= MAX_ZOOM, "Invalid tile zoom: " + z);
+        int count = 1 << z;
+        Preconditions.checkArgument(x >= 0 && x < count, "Invalid tile x: " + x);
+        Preconditions.checkArgument(y >= 0 && y < count, "Invalid tile y: " + y);
+    }
+
+    /**
+     * Compute the tile bounds, in WGS84 (longitude/latitude)
+     * @param buffer a buffer, in percent of the tile size (e.g. 1/64)
+     */
+    public static Envelope getTileEnvelope(int z, int x, int y, double buffer) {
+        double count = 1 << z;
+        return new Envelope(
+            tileXToLongitude(x - buffer, count),
+            tileXToLongitude(x + 1 + buffer, count),
+            tileYToLatitude(y + 1 + buffer, count),
+            tileYToLatitude(y - buffer, count)
+        );
+    }
+
+    /**
+     * Clip a geometry (in WGS84) to the tile envelope, then simplify it, using a tolerance of one tile unit
+     */
+    public static Geometry clipAndSimplify(@NonNull Geometry geometry, @NonNull Envelope tileEnvelope, int extent) {
+        Envelope envelope = geometry.getEnvelopeInternal();
+        if (!tileEnvelope.intersects(envelope)) return null;
+
+        // Clip, only if need
+        Geometry result = geometry;
+        if (!tileEnvelope.contains(envelope)) {
+            result = geometry.intersection(geometry.getFactory().toGeometry(tileEnvelope));
+            if (result.isEmpty()) return null;
+        }
+
+        // Simplify (rectangles are already simple: skip)
+        if (result.getNumPoints() > 5 * result.getNumGeometries()) {
+            double tolerance = tileEnvelope.getWidth() / extent;
+            result = TopologyPreservingSimplifier.simplify(result, tolerance);
+        }
+        return result;
+    }
+
+    /**
+     * Project a geometry (in WGS84) to the tile coordinates (from 0 to extent, Y axis down)
+     */
+    public static Geometry toTileCoordinates(@NonNull Geometry geometry, int z, int x, int y, int extent) {
+        final double count = 1 << z;
+        Geometry result = geometry.copy();
+        result.apply(new CoordinateFilter() {
+            @Override
+            public void filter(Coordinate coordinate) {
+                coordinate.x = (longitudeToWorldX(coordinate.x) * count - x) * extent;
+                coordinate.y = (latitudeToWorldY(coordinate.y) * count - y) * extent;
+            }
+        });
+        result.geometryChanged();
+        return result;
+    }
+
+    /* -- protected functions -- */
+
+    protected static double longitudeToWorldX(double longitude) {
+        return (longitude + 180.0) / 360.0;
+    }
+
+    protected static double latitudeToWorldY(double latitude) {
+        double lat = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        return (1 - Math.log(Math.tan(lat) + 1 / Math.cos(lat)) / Math.PI) / 2;
+    }
+
+    protected static double tileXToLongitude(double x, double count) {
+        return x / count * 360.0 - 180.0;
+    }
+
+    protected static double tileYToLatitude(double y, double count) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / count))));
+    }
+}
@@ -23,6 +23,7 @@
 package net.sumaris.extraction.core;
 
 import net.sumaris.extraction.core.dao.technical.DaosTest;
+import net.sumaris.extraction.core.service.ExtractionResultCacheTest;
 import net.sumaris.extraction.core.service.ExtractionTypeServiceReadTest;
 import net.sumaris.extraction.core.service.hsqldb.ExtractionServiceHsqlDbTest;
 import net.sumaris.extraction.core.service.hsqldb.ExtractionProductServiceHsqlDbTest;
@@ -39,6 +40,7 @@ import org.junit.runners.Suite;
     DaosTest.class,
     // Service
     ExtractionTypeServiceReadTest.class,
+    ExtractionResultCacheTest.class,
     ExtractionProductServiceHsqlDbTest.class,
     ExtractionServiceHsqlDbTest.class
 })
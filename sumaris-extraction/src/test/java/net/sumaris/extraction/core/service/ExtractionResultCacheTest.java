@@ -0,0 +1,190 @@
+/*
+ * #%L
+ * SUMARiS:: Extraction
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.extraction.core.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import net.sumaris.core.dao.technical.Page;
+import net.sumaris.core.dao.technical.cache.CacheTTL;
+import net.sumaris.core.config.ExtractionCacheConfiguration;
+import net.sumaris.core.vo.technical.extraction.ExtractionTableColumnVO;
+import net.sumaris.extraction.core.type.LiveExtractionTypeEnum;
+import net.sumaris.extraction.core.vo.ExtractionFilterCriterionVO;
+import net.sumaris.extraction.core.vo.ExtractionFilterOperatorEnum;
+import net.sumaris.extraction.core.vo.ExtractionFilterVO;
+import net.sumaris.extraction.core.vo.ExtractionResultVO;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExtractionResultCacheTest {
+
+    private static final String REGION = ExtractionCacheConfiguration.Names.EXTRACTION_ROWS_PREFIX;
+
+    private ExtractionResultCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ExtractionResultCache(Optional.empty());
+    }
+
+    @Test
+    public void equivalentFiltersShareEntry() {
+        AtomicInteger counter = new AtomicInteger();
+        Page page = Page.builder().offset(0).size(100).build();
+
+        ExtractionFilterVO filter1 = ExtractionFilterVO.builder()
+            .sheetName("TR")
+            .criteria(ImmutableList.of(
+                criterion("project", ExtractionFilterOperatorEnum.IN, "ADAP-MER"),
+                criterion("year", ExtractionFilterOperatorEnum.IN, "2019", "2018")))
+            .build();
+
+        // Same filter: criteria in another order, 'IN' values unsorted, '=' instead of a single 'IN'
+        ExtractionFilterVO filter2 = ExtractionFilterVO.builder()
+            .operator("and")
+            .sheetName("TR")
+            .criteria(ImmutableList.of(
+                criterion("year", ExtractionFilterOperatorEnum.IN, "2018", "2019", "2018"),
+                ExtractionFilterCriterionVO.builder().name("project").operator("=").value("ADAP-MER").build()))
+            .build();
+
+        ExtractionResultVO result1 = getOrCompute(filter1, page, counter);
+        ExtractionResultVO result2 = getOrCompute(filter2, page, counter);
+        Assert.assertEquals(1, counter.get());
+        Assert.assertArrayEquals(result1.getRows().get(0), result2.getRows().get(0));
+
+        // Another page
+        getOrCompute(filter2, Page.builder().offset(100).size(100).build(), counter);
+        Assert.assertEquals(2, counter.get());
+
+        // Another value
+        getOrCompute(ExtractionFilterVO.builder()
+            .sheetName("TR")
+            .criteria(ImmutableList.of(criterion("year", ExtractionFilterOperatorEnum.IN, "2018")))
+            .build(), page, counter);
+        Assert.assertEquals(3, counter.get());
+    }
+
+    @Test
+    public void evictLiveResults() {
+        AtomicInteger counter = new AtomicInteger();
+        ExtractionFilterVO filter = ExtractionFilterVO.builder()
+            .sheetNames(ImmutableSet.of("TR", "HH"))
+            .build();
+
+        getOrCompute(filter, null, counter);
+        Assert.assertEquals(1, cache.clearLive());
+
+        // Must be computed again
+        getOrCompute(filter, null, counter);
+        Assert.assertEquals(2, counter.get());
+        Assert.assertEquals(Long.valueOf(1), cache.getStatistics().get("size"));
+    }
+
+    @Test
+    public void clearWhileComputing() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        ExtractionFilterVO filter = ExtractionFilterVO.builder()
+            .sheetName("TR")
+            .build();
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch cleared = new CountDownLatch(1);
+
+        // Compute a result, and clear the cache meanwhile (e.g. data changed)
+        Thread thread = new Thread(() -> cache.getOrCompute(REGION, LiveExtractionTypeEnum.RDB, filter, null, null, CacheTTL.DEFAULT, () -> {
+            counter.incrementAndGet();
+            computing.countDown();
+            try {
+                cleared.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ExtractionResultVO();
+        }));
+        thread.start();
+        computing.await();
+        cache.clearLive();
+        cleared.countDown();
+        thread.join();
+
+        // The (stale) result should not have been stored
+        Assert.assertEquals(Long.valueOf(0), cache.getStatistics().get("size"));
+        getOrCompute(filter, null, counter);
+        Assert.assertEquals(2, counter.get());
+        Assert.assertEquals(Long.valueOf(1), cache.getStatistics().get("size"));
+    }
+
+    @Test
+    public void returnCopies() {
+        AtomicInteger counter = new AtomicInteger();
+        ExtractionFilterVO filter = ExtractionFilterVO.builder()
+            .sheetName("TR")
+            .build();
+
+        // Change the computed result, and a cached result
+        ExtractionResultVO result1 = getOrCompute(filter, null, counter);
+        result1.getRows().get(0)[1] = "2000";
+        ExtractionResultVO result2 = getOrCompute(filter, null, counter);
+        Assert.assertNotSame(result1, result2);
+        Assert.assertEquals("2018", result2.getRows().get(0)[1]);
+        result2.getRows().get(0)[1] = "2001";
+        result2.getColumns().get(0).setLabel("changed");
+        result2.setTotal(0);
+
+        // Cached value should be unchanged
+        ExtractionResultVO result3 = getOrCompute(filter, null, counter);
+        Assert.assertEquals(1, counter.get());
+        Assert.assertEquals("2018", result3.getRows().get(0)[1]);
+        Assert.assertEquals("year", result3.getColumns().get(0).getLabel());
+        Assert.assertEquals(1, result3.getTotal());
+    }
+
+    /* -- protected functions -- */
+
+    protected ExtractionResultVO getOrCompute(ExtractionFilterVO filter, Page page, AtomicInteger counter) {
+        return cache.getOrCompute(REGION, LiveExtractionTypeEnum.RDB, filter, null, page, CacheTTL.DEFAULT, () -> {
+            counter.incrementAndGet();
+            ExtractionResultVO result = new ExtractionResultVO();
+            ExtractionTableColumnVO column = new ExtractionTableColumnVO();
+            column.setLabel("year");
+            result.setColumns(Lists.newArrayList(column));
+            result.setRows(Lists.<String[]>newArrayList(new String[]{"TR", "2018"}));
+            result.setTotal(1);
+            return result;
+        });
+    }
+
+    protected ExtractionFilterCriterionVO criterion(String name, ExtractionFilterOperatorEnum operator, String... values) {
+        return ExtractionFilterCriterionVO.builder()
+            .name(name)
+            .operator(operator.getSymbol())
+            .values(values)
+            .build();
+    }
+}
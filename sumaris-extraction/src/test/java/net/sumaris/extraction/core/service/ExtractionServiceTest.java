@@ -46,20 +46,24 @@ import net.sumaris.extraction.core.specification.data.activityCalendar.ActivityM
 import net.sumaris.extraction.core.specification.administration.StratSpecification;
 import net.sumaris.extraction.core.specification.data.trip.*;
 import net.sumaris.extraction.core.type.AggExtractionTypeEnum;
+import net.sumaris.extraction.core.type.ExtractionOutputTypeEnum;
 import net.sumaris.extraction.core.type.LiveExtractionTypeEnum;
 import net.sumaris.extraction.core.vo.*;
 import net.sumaris.extraction.core.vo.administration.ExtractionStrategyFilterVO;
 import net.sumaris.extraction.core.vo.trip.ExtractionTripFilterVO;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.LocalInputFile;
 import org.junit.Assert;
 import org.junit.Assume;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.ZipFile;
 
 /**
  * @author Benoit LAVENIER <benoit.lavenier@e-is.pro>
@@ -194,6 +198,68 @@ public abstract class ExtractionServiceTest extends AbstractServiceTest {
     }
 
 
+    public void executeRdbToParquet() throws IOException {
+
+        // Dump the RDB format, as Parquet files
+        ExtractionContextVO context = service.execute(LiveExtractionTypeEnum.RDB, null, null);
+        context.setType(LiveExtractionTypeEnum.RDB);
+        File outputFile = service.dumpTablesToFile(context, null, ExtractionOutputTypeEnum.PARQUET);
+        Assert.assertTrue(outputFile.exists());
+        File root = unpack(outputFile, LiveExtractionTypeEnum.RDB.getLabel() + "_parquet");
+
+        // TR.parquet
+        File tripFile = new File(root, RdbSpecification.TR_SHEET_NAME + ".parquet");
+        Assert.assertTrue(tripFile.exists());
+        try (ParquetFileReader reader = ParquetFileReader.open(new LocalInputFile(tripFile.toPath()))) {
+            Assert.assertTrue(reader.getRecordCount() > 0);
+            Assert.assertTrue(reader.getFileMetaData().getSchema().getFieldCount() > 0);
+        }
+    }
+
+    public void executeRdbToZipStream() throws IOException {
+
+        ExtractionContextVO context = service.execute(LiveExtractionTypeEnum.RDB, null, null);
+        context.setType(LiveExtractionTypeEnum.RDB);
+        Assume.assumeTrue(context.getTableNames().size() > 1);
+
+        // Stream all tables into a zip archive
+        File zipFile = new File("target/result/" + LiveExtractionTypeEnum.RDB.getLabel() + "_stream.zip");
+        FileUtils.forceMkdirParent(zipFile);
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(zipFile))) {
+            service.dumpTablesToZip(context, null, ExtractionOutputTypeEnum.CSV, os);
+        }
+
+        // Read the zip entries back
+        List<String> entryNames = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            zip.stream().forEach(entry -> entryNames.add(entry.getName()));
+        }
+        File root = unpack(zipFile, LiveExtractionTypeEnum.RDB.getLabel() + "_stream");
+
+        // Compare with the file-based dump, table by table
+        List<String> expectedEntryNames = new ArrayList<>();
+        for (String tableName : context.getTableNames()) {
+            String sheetName = context.findSheetNameByTableName(tableName).orElse(tableName);
+            ExtractionContextVO tableContext = new ExtractionContextVO(context.getId());
+            tableContext.setType(LiveExtractionTypeEnum.RDB);
+            tableContext.setUpdateDate(context.getUpdateDate());
+            tableContext.addTableName(tableName, sheetName);
+            tableContext.getHiddenColumnNames().putAll(context.getHiddenColumnNames());
+            tableContext.getTableNameWithDistinct().addAll(context.getTableNameWithDistinct());
+
+            File tableFile = service.dumpTablesToFile(tableContext, null, ExtractionOutputTypeEnum.CSV);
+            Assert.assertNotNull(tableFile);
+
+            String entryName = sheetName + ".csv";
+            expectedEntryNames.add(entryName);
+            File entryFile = new File(root, entryName);
+            Assert.assertTrue(String.format("Missing zip entry %s", entryName), entryFile.exists());
+            Assert.assertEquals(String.format("Row count mismatch in %s", entryName),
+                countLineInCsvFile(tableFile), countLineInCsvFile(entryFile));
+        }
+        Assert.assertEquals(expectedEntryNames, entryNames);
+    }
+
     public void executeCost() throws IOException {
 
         // Test the RDB format
@@ -68,6 +68,16 @@ public class ExtractionServiceHsqlDbTest extends ExtractionServiceTest {
         super.executeRdb();
     }
 
+    @Override @Test
+    public void executeRdbToParquet() throws IOException {
+        super.executeRdbToParquet();
+    }
+
+    @Override @Test
+    public void executeRdbToZipStream() throws IOException {
+        super.executeRdbToZipStream();
+    }
+
     @Override @Test
     public void executeCost() throws IOException {
         super.executeCost();
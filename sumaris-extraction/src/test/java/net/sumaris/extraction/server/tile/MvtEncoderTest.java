@@ -0,0 +1,71 @@
+/*
+ * #%L
+ * SUMARiS:: Extraction
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.extraction.server.tile;
+
+import com.google.common.collect.ImmutableMap;
+import net.sumaris.core.dao.referential.location.Locations;
+import org.junit.Assert;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+public class MvtEncoderTest {
+
+    @Test
+    public void tileEnvelope() {
+        Envelope world = MvtTiles.getTileEnvelope(0, 0, 0, 0);
+        Assert.assertEquals(-180, world.getMinX(), 1e-9);
+        Assert.assertEquals(180, world.getMaxX(), 1e-9);
+        Assert.assertEquals(MvtTiles.MAX_LATITUDE, world.getMaxY(), 1e-6);
+
+        // North-east quarter
+        Envelope tile = MvtTiles.getTileEnvelope(1, 1, 0, 0);
+        Assert.assertEquals(0, tile.getMinX(), 1e-9);
+        Assert.assertEquals(0, tile.getMinY(), 1e-9);
+    }
+
+    @Test
+    public void encodeRectangle() {
+        // ICES rectangle, in the Bay of Biscay
+        Geometry rectangle = Locations.getGeometryFromRectangleLabel("24E6", false);
+        int z = 6, x = 31, y = 22;
+
+        Envelope tileEnvelope = MvtTiles.getTileEnvelope(z, x, y, 0);
+        Geometry clipped = MvtTiles.clipAndSimplify(rectangle, tileEnvelope, MvtEncoder.DEFAULT_EXTENT);
+        Assert.assertNotNull(clipped);
+
+        // Outside the tile
+        Assert.assertNull(MvtTiles.clipAndSimplify(rectangle, MvtTiles.getTileEnvelope(z, 0, 0, 0), MvtEncoder.DEFAULT_EXTENT));
+
+        MvtEncoder encoder = new MvtEncoder();
+        Assert.assertTrue(encoder.isEmpty());
+        boolean added = encoder.addFeature("agg", MvtTiles.toTileCoordinates(clipped, z, x, y, encoder.getExtent()),
+            ImmutableMap.of("rect", "24E6", "year", 2020L, "fishing_time", 12.5));
+        Assert.assertTrue(added);
+
+        byte[] tile = encoder.encode();
+        Assert.assertTrue(tile.length > 0);
+        // First byte: field 'layers' (3), length delimited
+        Assert.assertEquals((3 << 3) | 2, tile[0]);
+    }
+}
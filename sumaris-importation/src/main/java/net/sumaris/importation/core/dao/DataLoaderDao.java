@@ -58,6 +58,19 @@ public interface DataLoaderDao {
 	 */
 	DataLoadError[] load(FileReader fileReader, DatabaseTableEnum table) throws IOException;
 
+	/**
+	 * Import a file into the database, validating it in the same pass.
+	 * If validate is true and the file has errors, nothing is imported
+	 *
+	 * @param fileReader
+	 *            the file reader
+	 * @param table the table to load
+	 * @param validate should nothing be imported, when errors are found ?
+	 * @return
+	 * @throws IOException
+	 */
+	DataLoadError[] load(FileReader fileReader, DatabaseTableEnum table, boolean validate) throws IOException;
+
 	/**
 	 * Remove a file table
 	 * @param userId
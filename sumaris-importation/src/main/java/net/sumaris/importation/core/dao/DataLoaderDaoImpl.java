@@ -25,7 +25,9 @@ package net.sumaris.importation.core.dao;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.config.SumarisConfiguration;
 import net.sumaris.core.dao.technical.Daos;
 import net.sumaris.core.dao.technical.hibernate.HibernateDaoSupport;
 import net.sumaris.core.dao.technical.schema.DatabaseTableEnum;
@@ -56,6 +58,7 @@ import javax.persistence.EntityManager;
 import javax.sql.DataSource;
 import java.io.IOException;
 import java.io.Serializable;
+import java.math.BigDecimal;
 import java.sql.*;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
@@ -64,6 +67,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.*;
 
 import static net.sumaris.importation.core.service.vo.DataLoadError.ErrorType;
 
@@ -76,10 +80,13 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 
 	public final static int MAX_LOG_ERRORS = 500;
 	private final static int BATCH_ROW_COUNT = 10000;
+	private final static int CHUNK_ROW_COUNT = 1000;
 
 	private final static Integer NULL_VALUE = -1;
+	private final static Object INVALID_VALUE = new Object();
 
-	protected static NumberFormat numberFormat = NumberFormat.getInstance();
+	// NumberFormat is not thread-safe
+	protected static ThreadLocal<NumberFormat> numberFormat = ThreadLocal.withInitial(NumberFormat::getInstance);
 	protected static char decimalSeparator = '\0';
 	protected static char inverseDecimalSeparator = ',';
 	static {
@@ -104,6 +111,9 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 	@Autowired
 	protected DataSource datasource;
 
+	@Autowired
+	protected SumarisConfiguration configuration;
+
 	private final boolean showSql;
 
 	@Autowired
@@ -129,23 +139,16 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 		return load(fileReader, table, false);
 	}
 
+	@Override
 	public DataLoadError[] load(FileReader reader, DatabaseTableEnum table, boolean validate) throws IOException {
 		Preconditions.checkNotNull(reader);
 		DataLoadResult result = new DataLoadResult();
 
-		// Validate file, if need
-		if (validate) {
-			validate(reader, table, result);
-
-			if (!result.isSuccess()) return result.getErrors();
-		}
-
 		SumarisTableMetadata tableMetadata = sumarisDatabaseMetadata.getTable(table.name());
 
 		// Import file :
 		log.info(FileMessageFormatter.format(tableMetadata, null, reader.getCurrentLine(), "Importing file: " + reader.getFileName()));
 
-
 		try {
 			// Read column headers :
 			String[] headers = reader.getHeaders();
@@ -157,61 +160,64 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 
 			Connection conn = DataSourceUtils.getConnection(dataSource);
 			boolean isTransactional = DataSourceUtils.isConnectionTransactional(conn, dataSource);
+			boolean restoreAutoCommit = !isTransactional && conn.getAutoCommit();
+
+			// Single pass: one reader thread, N converter threads, and the writer (this thread, that owns the connection)
+			int workerCount = getWorkerCount();
+			ExecutorService readerExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+				.setNameFormat("data-loader-reader-%d")
+				.setDaemon(true)
+				.build());
+			ExecutorService converterExecutor = Executors.newFixedThreadPool(workerCount, new ThreadFactoryBuilder()
+				.setNameFormat("data-loader-converter-%d")
+				.setDaemon(true)
+				.build());
+			// Bounded queue, to limit memory usage. Chunks are queued in the file order
+			BlockingQueue<Future<RowChunk>> chunks = new ArrayBlockingQueue<>(workerCount * 2);
+
+			String insertQuery = tableMetadata.getInsertQuery(headerColumns);
+			Savepoint savepoint = null;
+			try (PreparedStatement insertStatement = conn.prepareStatement(insertQuery)) {
+				if (restoreAutoCommit) conn.setAutoCommit(false);
+
+				// When validating, nothing should be inserted if the file has errors.
+				// Inside a transaction, a savepoint is also needed to undo a partial import
+				if (validate || isTransactional) savepoint = conn.setSavepoint();
+
+				readerExecutor.execute(() -> readChunks(reader, tableMetadata, headerColumns, result, converterExecutor, chunks));
 
-			try {
-				String insertQuery = tableMetadata.getInsertQuery(headerColumns);
-				PreparedStatement insertStatement = conn.prepareStatement(insertQuery);
-
-				String[] cols = null;
 				int insertCount = 0;
-				boolean rowHasErrors = false;
-				while ((cols = reader.readNext()) != null) {
-					int parameterIndex = 1;
-
-					// Generate a new id (only if the previous row was not skipped)
-					if (!rowHasErrors) {
-						Serializable id = sumarisDatabaseMetadata.generateIdentifier(conn, tableMetadata);
-						insertStatement.setObject(parameterIndex++, id);
-					} else {
-						parameterIndex++;
-					}
-					if (log.isTraceEnabled()) {
-						log.trace(FileMessageFormatter.format(tableMetadata, null, reader.getCurrentLine(), "Importing line with values:"));
-					}
-					rowHasErrors = false;
-					int colIndex = 0;
-					for (SumarisColumnMetadata columnMetadata : headerColumns) {
-						// If column is not skipped
-						if (columnMetadata != null) {
-							String cellValue = null;
-							if (colIndex < cols.length) {
-								cellValue = cols[colIndex];
-								if (log.isTraceEnabled()) {
-									log.trace("\t" + columnMetadata.getName() + "=" + cellValue);
-								}
-							} else {
-								cellValue = columnMetadata.getDefaultValue();
+				RowChunk chunk;
+				while ((chunk = takeChunk(chunks)) != RowChunk.END) {
+					// When validating, stop inserting after the first error (but continue to collect errors)
+					boolean skipInsert = validate && !result.isSuccess();
+
+					for (int i = 0; i < chunk.rows.length; i++) {
+						Object[] row = chunk.rows[i];
+
+						// Row with errors
+						if (row == null) {
+							if (log.isDebugEnabled()) {
+								log.debug(FileMessageFormatter.format(tableMetadata, null, chunk.lineNumbers[i], " Errors found -> Line skipped"));
 							}
-							boolean parameterOK = setParameterValue(parameterIndex++, insertStatement, reader, tableMetadata, columnMetadata, colIndex,
-									cellValue, result);
-							rowHasErrors = rowHasErrors || !parameterOK;
+							continue;
 						}
-						colIndex++;
-					}
+						if (skipInsert) continue;
+
+						// Generate a new id
+						// Ids are reserved by blocks, so this will not call the sequence for each row
+						Serializable id = sumarisDatabaseMetadata.generateIdentifier(conn, tableMetadata);
+						insertStatement.setObject(1, id);
+						setParameterValues(insertStatement, headerColumns, row);
 
-					if (rowHasErrors) {
-						if (log.isDebugEnabled()) {
-							log.debug( FileMessageFormatter.format(tableMetadata, null,  reader.getCurrentLine(), " Errors found -> Line skipped"));
-						}
-					} else {
 						if (showSql) {
 							hibernateLog.debug(insertQuery);
 						}
 						insertStatement.addBatch();
 						insertCount++;
 
-						if (insertCount > 0 && insertCount % BATCH_ROW_COUNT == 0) {
-							log.debug(FileMessageFormatter.format(tableMetadata, null,  reader.getCurrentLine(), "read " + insertCount + " lines..."));
+						if (insertCount % BATCH_ROW_COUNT == 0) {
+							log.debug(FileMessageFormatter.format(tableMetadata, null, chunk.lineNumbers[i], "read " + insertCount + " lines..."));
 							insertStatement.executeBatch();
 						}
 					}
@@ -219,17 +225,31 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 				if (insertCount > 0 && insertCount % BATCH_ROW_COUNT != 0) {
 					insertStatement.executeBatch();
 				}
-				if (log.isInfoEnabled()) {
-					log.info(FileMessageFormatter.format(tableMetadata, null, reader.getCurrentLine(), "INSERT count: " + insertCount));
+
+				if (validate && !result.isSuccess()) {
+					log.info(FileMessageFormatter.format(tableMetadata, null, reader.getCurrentLine(), "Errors found in file: nothing imported"));
+					conn.rollback(savepoint);
+				}
+				else {
+					if (log.isInfoEnabled()) {
+						log.info(FileMessageFormatter.format(tableMetadata, null, reader.getCurrentLine(), "INSERT count: " + insertCount));
+					}
+					if (savepoint != null) conn.releaseSavepoint(savepoint);
 				}
 
 				if (!isTransactional) conn.commit();
 
-			} catch (BatchUpdateException bue) {
-				if (!isTransactional) conn.rollback();
-				bue.getNextException().printStackTrace();
-				throw bue;
+			} catch (Throwable t) {
+				// Undo the partial import, BEFORE restoring auto-commit (that would commit pending rows)
+				rollbackQuietly(conn, savepoint, isTransactional);
+				if (t instanceof BatchUpdateException bue && bue.getNextException() != null) {
+					log.error(FileMessageFormatter.format(tableMetadata, null, reader.getCurrentLine(), "Batch update failed: " + bue.getNextException().getMessage()), bue.getNextException());
+				}
+				throw t;
 			} finally {
+				readerExecutor.shutdownNow();
+				converterExecutor.shutdownNow();
+				if (restoreAutoCommit) conn.setAutoCommit(true);
 				if (!isTransactional) DataSourceUtils.releaseConnection(conn, dataSource);
 				reader.close();
 			}
@@ -241,6 +261,11 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 		}
 	}
 
+	public int getWorkerCount() {
+		int workerCount = configuration.getImportationWorkers();
+		return workerCount > 0 ? workerCount : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	}
+
 
 	/* -- protected methods -- */
 
@@ -273,10 +298,173 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 	}
 
 
-	private boolean setParameterValue(int parameterIndex, PreparedStatement insertStatement, FileReader reader,
-                                      SumarisTableMetadata tableMetadata,
-                                      SumarisColumnMetadata columnMetadata, int columnNumber, String cellValue,
-                                      DataLoadResult result) throws SQLException {
+	/**
+	 * Rollback the current import (to the savepoint, if any, then the whole connection when not transactional).
+	 * Errors are logged, to keep the original exception
+	 */
+	protected void rollbackQuietly(Connection conn, Savepoint savepoint, boolean isTransactional) {
+		if (savepoint != null) {
+			try {
+				conn.rollback(savepoint);
+			} catch (SQLException e) {
+				log.error("Cannot rollback to savepoint: " + e.getMessage(), e);
+			}
+		}
+		if (!isTransactional) {
+			try {
+				conn.rollback();
+			} catch (SQLException e) {
+				log.error("Cannot rollback connection: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Read the file by chunks (in the reader thread), and submit each chunk to the converter workers.
+	 * The queue is bounded, so the reader will wait if the writer is too slow.
+	 */
+	protected void readChunks(FileReader reader,
+							  SumarisTableMetadata tableMetadata,
+							  SumarisColumnMetadata[] headerColumns,
+							  DataLoadResult result,
+							  ExecutorService converterExecutor,
+							  BlockingQueue<Future<RowChunk>> chunks) {
+		try {
+			try {
+				String[] cols;
+				List<String[]> lines = Lists.newArrayListWithCapacity(CHUNK_ROW_COUNT);
+				int[] lineNumbers = new int[CHUNK_ROW_COUNT];
+				while ((cols = reader.readNext()) != null) {
+					lineNumbers[lines.size()] = reader.getCurrentLine();
+					lines.add(cols);
+
+					if (lines.size() == CHUNK_ROW_COUNT) {
+						chunks.put(submitChunk(tableMetadata, headerColumns, result, lines, lineNumbers, converterExecutor));
+						lines = Lists.newArrayListWithCapacity(CHUNK_ROW_COUNT);
+						lineNumbers = new int[CHUNK_ROW_COUNT];
+					}
+				}
+				if (!lines.isEmpty()) {
+					chunks.put(submitChunk(tableMetadata, headerColumns, result, lines, lineNumbers, converterExecutor));
+				}
+				chunks.put(CompletableFuture.completedFuture(RowChunk.END));
+			} catch (IOException | RuntimeException e) {
+				CompletableFuture<RowChunk> failure = new CompletableFuture<>();
+				failure.completeExceptionally(e);
+				chunks.put(failure);
+			}
+		} catch (InterruptedException e) {
+			// Writer has stopped
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	protected Future<RowChunk> submitChunk(SumarisTableMetadata tableMetadata,
+										   SumarisColumnMetadata[] headerColumns,
+										   DataLoadResult result,
+										   List<String[]> lines,
+										   int[] lineNumbers,
+										   ExecutorService converterExecutor) {
+		return CompletableFuture.supplyAsync(() -> {
+			Object[][] rows = new Object[lines.size()][];
+			for (int i = 0; i < rows.length; i++) {
+				rows[i] = convertRow(tableMetadata, headerColumns, lines.get(i), lineNumbers[i], result);
+			}
+			return new RowChunk(rows, lineNumbers);
+		}, converterExecutor);
+	}
+
+	protected RowChunk takeChunk(BlockingQueue<Future<RowChunk>> chunks) throws IOException {
+		try {
+			return chunks.take().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Importation interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException) cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Convert a line into typed values (one by header column)
+	 * @return the row values, or null if the line has errors
+	 */
+	protected Object[] convertRow(SumarisTableMetadata tableMetadata,
+								  SumarisColumnMetadata[] headerColumns,
+								  String[] cols,
+								  int lineNumber,
+								  DataLoadResult result) {
+		if (log.isTraceEnabled()) {
+			log.trace(FileMessageFormatter.format(tableMetadata, null, lineNumber, "Importing line with values:"));
+		}
+		Object[] row = new Object[headerColumns.length];
+		boolean rowHasErrors = false;
+		for (int colIndex = 0; colIndex < headerColumns.length; colIndex++) {
+			SumarisColumnMetadata columnMetadata = headerColumns[colIndex];
+			// If column is not skipped
+			if (columnMetadata != null) {
+				String cellValue;
+				if (colIndex < cols.length) {
+					cellValue = cols[colIndex];
+					if (log.isTraceEnabled()) {
+						log.trace("\t" + columnMetadata.getName() + "=" + cellValue);
+					}
+				} else {
+					cellValue = columnMetadata.getDefaultValue();
+				}
+				Object value = convertValue(lineNumber, tableMetadata, columnMetadata, colIndex, cellValue, result);
+				if (value == INVALID_VALUE) {
+					rowHasErrors = true;
+				} else {
+					row[colIndex] = value;
+				}
+			}
+		}
+		return rowHasErrors ? null : row;
+	}
+
+	protected void setParameterValues(PreparedStatement insertStatement,
+									  SumarisColumnMetadata[] headerColumns,
+									  Object[] row) throws SQLException {
+		int parameterIndex = 2; // First parameter is the id
+		for (int colIndex = 0; colIndex < headerColumns.length; colIndex++) {
+			SumarisColumnMetadata columnMetadata = headerColumns[colIndex];
+			if (columnMetadata == null) continue; // Skipped column
+
+			Object value = row[colIndex];
+			int sqlType = columnMetadata.getTypeCode();
+			if (value == null) {
+				insertStatement.setNull(parameterIndex, sqlType);
+			} else if (value instanceof Long) {
+				insertStatement.setLong(parameterIndex, (Long) value);
+			} else if (value instanceof Double) {
+				insertStatement.setDouble(parameterIndex, (Double) value);
+			} else if (value instanceof Integer) {
+				insertStatement.setInt(parameterIndex, (Integer) value);
+			} else if (value instanceof Float) {
+				insertStatement.setFloat(parameterIndex, (Float) value);
+			} else if (value instanceof Boolean) {
+				insertStatement.setBoolean(parameterIndex, (Boolean) value);
+			} else if (value instanceof Number) {
+				insertStatement.setObject(parameterIndex, value, sqlType);
+			} else {
+				insertStatement.setObject(parameterIndex, value);
+			}
+			parameterIndex++;
+		}
+	}
+
+	/**
+	 * Convert a cell value, using the column type
+	 * @return the typed value, null, or INVALID_VALUE if the value has errors
+	 */
+	protected Object convertValue(int lineNumber,
+								  SumarisTableMetadata tableMetadata,
+								  SumarisColumnMetadata columnMetadata, int columnNumber, String cellValue,
+								  DataLoadResult result) {
 		int sqlType = columnMetadata.getTypeCode();
 		try {
 
@@ -287,23 +475,20 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 				if (StringUtils.isNotBlank(columnMetadata.getDefaultValue())) {
 					cellValue = columnMetadata.getDefaultValue();
 				} else {
-					// TODO BLA: manage this - ask IRL with NULL ?
-					insertStatement.setNull(parameterIndex, sqlType);
-
 					// Mandatory
 					if (!columnMetadata.isNullable()) {
 
-						addError(reader, result,
+						addError(lineNumber, result,
 								tableMetadata, columnMetadata,
 								columnNumber,
 								ErrorType.ERROR,
 								"NULL_VALUE",
 								I18n.t("import.validation.error.NULL_VALUE",
 										columnMetadata.getName() ));
-						return false;
+						return INVALID_VALUE;
 					}
 
-					return true;
+					return null;
 				}
 			}
 
@@ -330,50 +515,43 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 			int columnSize = getColumnSize(tableMetadata, columnMetadata);
 			int decimalDigits = columnMetadata.getDecimalDigits();
 			if (columnSize > 0 && cellValue.trim().length() > columnSize && (sqlType != Types.NUMERIC || decimalDigits == 0)) {
-				addError(reader, result, tableMetadata, columnMetadata,
+				addError(lineNumber, result, tableMetadata, columnMetadata,
 						columnNumber,
 						ErrorType.ERROR,
 						"TOO_LONG_VALUE",
 						I18n.t("import.validation.error.TOO_LONG_VALUE",
 								cellValue, columnMetadata.getName(), columnSize ));
-				insertStatement.setNull(parameterIndex, sqlType);
-				return false;
+				return INVALID_VALUE;
 			}
 			if (sqlType == Types.NUMERIC) {
 				cellValue = StringUtils.deleteWhitespace(cellValue);
 				if (decimalDigits == 0) {
-					long value = Long.parseLong(cellValue);
-					insertStatement.setLong(parameterIndex, value);
-				} else {
-					if (cellValue.indexOf(inverseDecimalSeparator) != -1) {
-						cellValue = cellValue.replace(inverseDecimalSeparator, decimalSeparator);
-					}
-					// If value is too long (whole length)
-					if (columnSize > 0 && cellValue.length() > columnSize - 1) {
-						int integerLength = columnSize - decimalDigits;
-						if (cellValue.indexOf(decimalSeparator) > integerLength) {
-							addError(reader, result, tableMetadata, columnMetadata,
-									columnNumber,
-									ErrorType.ERROR,
-									"TOO_LONG_VALUE_WITH_SCALE",
-									I18n.t("import.validation.error.TOO_LONG_VALUE_WITH_SCALE",
-											cellValue, columnMetadata.getName(), columnSize, decimalDigits ));
-							insertStatement.setNull(parameterIndex, sqlType);
-							return false;
-						} else {
-							addErrorOnce(reader, result, tableMetadata, columnMetadata,
-									columnNumber,
-									ErrorType.WARNING,
-									"ROUND_VALUES",
-									I18n.t("import.validation.error.ROUND_VALUES",
-											columnMetadata.getName(), decimalDigits ));
-						}
+					return Long.parseLong(cellValue);
+				}
+				if (cellValue.indexOf(inverseDecimalSeparator) != -1) {
+					cellValue = cellValue.replace(inverseDecimalSeparator, decimalSeparator);
+				}
+				// If value is too long (whole length)
+				if (columnSize > 0 && cellValue.length() > columnSize - 1) {
+					int integerLength = columnSize - decimalDigits;
+					if (cellValue.indexOf(decimalSeparator) > integerLength) {
+						addError(lineNumber, result, tableMetadata, columnMetadata,
+								columnNumber,
+								ErrorType.ERROR,
+								"TOO_LONG_VALUE_WITH_SCALE",
+								I18n.t("import.validation.error.TOO_LONG_VALUE_WITH_SCALE",
+										cellValue, columnMetadata.getName(), columnSize, decimalDigits ));
+						return INVALID_VALUE;
+					} else {
+						addErrorOnce(lineNumber, result, tableMetadata, columnMetadata,
+								columnNumber,
+								ErrorType.WARNING,
+								"ROUND_VALUES",
+								I18n.t("import.validation.error.ROUND_VALUES",
+										columnMetadata.getName(), decimalDigits ));
 					}
-					Number value = numberFormat.parse(cellValue);
-					//DecimalFormat.getInstance().parse(cellValue);
-					insertStatement.setObject(parameterIndex, value, sqlType);
 				}
-				return true;
+				return numberFormat.get().parse(cellValue);
 			}
 
 			// Double
@@ -381,23 +559,20 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 				if (cellValue.indexOf(',') != -1) {
 					cellValue = cellValue.replace(',', '.');
 				}
-				double value = Double.parseDouble(cellValue);
-				insertStatement.setDouble(parameterIndex, value);
-				return true;
+				return Double.parseDouble(cellValue);
 			}
 
 			// Integer
 			if (sqlType == IntegerType.INSTANCE.sqlType()) {
-				int value = Integer.parseInt(cellValue);
-				insertStatement.setInt(parameterIndex, value);
-				return true;
+				return Integer.parseInt(cellValue);
 			}
 
 			// Decimal
 			if (sqlType == Types.DECIMAL) {
-				//int value = DecimalFormat.parseInt(cellValue);
-				//insertStatement.setInt(parameterIndex, value);
-				return true;
+				if (cellValue.indexOf(',') != -1) {
+					cellValue = cellValue.replace(',', '.');
+				}
+				return new BigDecimal(cellValue);
 			}
 
 			// Float
@@ -405,53 +580,26 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 				if (cellValue.indexOf(',') != -1) {
 					cellValue = cellValue.replace(',', '.');
 				}
-				float value = Float.parseFloat(cellValue);
-				insertStatement.setFloat(parameterIndex, value);
-				return true;
+				return Float.parseFloat(cellValue);
 			}
 
 			// Boolean
 			if (sqlType == BooleanType.INSTANCE.sqlType()) {
-				boolean value = false;
-				if ("yes".equalsIgnoreCase(cellValue)
+				return "yes".equalsIgnoreCase(cellValue)
 						|| "true".equalsIgnoreCase(cellValue)
-						|| "1".equalsIgnoreCase(cellValue)) {
-					value = true;
-				}
-				insertStatement.setBoolean(parameterIndex, value);
-				return true;
+						|| "1".equalsIgnoreCase(cellValue);
 			}
 
-			insertStatement.setObject(parameterIndex++, cellValue);
-			return true;
-		} catch (SQLDataException sqlde) {
-			addError(reader, result, tableMetadata, columnMetadata,
-					columnNumber,
-					ErrorType.ERROR,
-					"SQL_DATA_EXCEPTION",
-					I18n.t("import.validation.error.SQL_DATA_EXCEPTION",
-							columnMetadata.getName(), cellValue, sqlde.getMessage(), sqlde.getNextException().getMessage()));
-			insertStatement.setNull(parameterIndex, sqlType);
-			return false;
-		} catch (SQLException sqle) {
-			addError(reader, result, tableMetadata, columnMetadata,
-					columnNumber,
-					ErrorType.ERROR,
-					"SQL_EXCEPTION",
-					I18n.t("import.validation.error.SQL_EXCEPTION",
-							columnMetadata.getName(), cellValue, sqle.getMessage() ));
-			insertStatement.setNull(parameterIndex, sqlType);
-			return false;
+			return cellValue;
 		}
 		catch (ParseException | NumberFormatException pe) {
-			addError(reader, result, tableMetadata, columnMetadata,
+			addError(lineNumber, result, tableMetadata, columnMetadata,
 					columnNumber,
 					ErrorType.ERROR,
 					"SQL_EXCEPTION",
 					I18n.t("import.validation.error.PARSE_EXCEPTION",
 							columnMetadata.getName(), cellValue, pe.getMessage() ));
-			insertStatement.setNull(parameterIndex, sqlType);
-			return false;
+			return INVALID_VALUE;
 		}
 	}
 
@@ -752,6 +900,40 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 		logError(error, result);
 	}
 
+	protected void addError(
+			int lineNumber,
+			DataLoadResult result,
+			SumarisTableMetadata tableMetadata, SumarisColumnMetadata colMeta,
+			int columnNumber,
+			ErrorType errorType,
+			String errorCode, String description) {
+		DataLoadError error = DataLoadError.Builder.create(tableMetadata, colMeta, lineNumber, description)
+				.setColumnNumber(columnNumber != -1 ? columnNumber : null)
+				.setErrorCode(errorCode)
+				.setErrorType(errorType)
+				.build();
+
+		result.addError(error);
+		logError(error, result);
+	}
+
+	protected void addErrorOnce(
+			int lineNumber,
+			DataLoadResult result,
+			SumarisTableMetadata tableMetadata, SumarisColumnMetadata colMeta,
+			int columnNumber,
+			ErrorType errorType,
+			String errorCode, String description) {
+		DataLoadError error = DataLoadError.Builder.create(tableMetadata, colMeta, lineNumber, description)
+				.setColumnNumber(columnNumber != -1 ? columnNumber : null)
+				.setErrorCode(errorCode)
+				.setErrorType(errorType)
+				.build();
+
+		result.addErrorOnce(error);
+		logError(error, result);
+	}
+
 	protected void logError(DataLoadError error, DataLoadResult result) {
 		if (result.errorCount() < MAX_LOG_ERRORS) {
 
@@ -769,4 +951,16 @@ public class DataLoaderDaoImpl extends HibernateDaoSupport implements DataLoader
 			}
 		}
 	}
+
+	protected static class RowChunk {
+		static final RowChunk END = new RowChunk(new Object[0][], new int[0]);
+
+		final Object[][] rows; // null rows have errors
+		final int[] lineNumbers;
+
+		RowChunk(Object[][] rows, int[] lineNumbers) {
+			this.rows = rows;
+			this.lineNumbers = lineNumbers;
+		}
+	}
 }
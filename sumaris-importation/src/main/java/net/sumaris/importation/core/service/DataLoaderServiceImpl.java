@@ -68,16 +68,12 @@ public class DataLoaderServiceImpl implements DataLoaderService {
 		DataLoadError[] errors;
 		Files.checkExists(inputFile);
 
-		// Validate if need
-		if (validate) {
-			validate(inputFile, table);
-		}
-
 		// Creating a new reader
 		FileReader reader = new CSVFileReader(inputFile, true);
 
 		try {
-			errors = dao.load(reader, table);
+			// Validate and load in a single pass (nothing is imported if validation failed)
+			errors = dao.load(reader, table, validate);
 
 			// Stop if result KO
 			if (hasErrorOrFatal(errors)) throw new FileValidationException(errors);
@@ -23,6 +23,7 @@ package net.sumaris.importation.core.service.activitycalendar;
  */
 
 import net.sumaris.core.model.IProgressionModel;
+import net.sumaris.core.vo.data.activity.ActivityCalendarVO;
 import net.sumaris.importation.core.service.activitycalendar.vo.ActivityCalendarImportContextVO;
 import net.sumaris.importation.core.service.activitycalendar.vo.ActivityCalendarImportResultVO;
 import org.springframework.scheduling.annotation.Async;
@@ -30,6 +31,7 @@ import org.springframework.scheduling.annotation.Async;
 import javax.annotation.Nullable;
 import javax.transaction.Transactional;
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.Future;
 
 public interface ActivityCalendarImportService {
@@ -43,10 +45,19 @@ public interface ActivityCalendarImportService {
      * @return
      * @throws IOException
      */
-    @Transactional
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     ActivityCalendarImportResultVO importFromFile(ActivityCalendarImportContextVO context, @Nullable IProgressionModel progressionModel) throws IOException;
 
 
+    /**
+     * Import a chunk of activity calendars (read from the file), in its own transaction
+     *
+     * @param context the importation context, holding the process state (counters, processed keys, etc.)
+     * @param sources activity calendars read from the file
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    void importChunk(ActivityCalendarImportContextVO context, List<ActivityCalendarVO> sources);
+
     @Async("jobTaskExecutor")
     Future<ActivityCalendarImportResultVO> asyncImportFromFile(ActivityCalendarImportContextVO context,
                                                                @Nullable IProgressionModel progressionModel);
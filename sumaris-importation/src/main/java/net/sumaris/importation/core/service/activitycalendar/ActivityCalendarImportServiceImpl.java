@@ -58,10 +58,10 @@ import net.sumaris.core.vo.filter.VesselFilterVO;
 import net.sumaris.importation.core.service.activitycalendar.vo.ActivityCalendarImportContextVO;
 import net.sumaris.importation.core.service.activitycalendar.vo.ActivityCalendarImportResultVO;
 import net.sumaris.importation.core.util.csv.CSVFileReader;
+import net.sumaris.importation.core.util.csv.CSVRecord;
 import org.apache.commons.beanutils.NestedNullException;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.apache.commons.lang3.mutable.MutableShort;
 import org.springframework.context.ApplicationContext;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Service;
@@ -99,6 +99,7 @@ public class ActivityCalendarImportServiceImpl implements ActivityCalendarImport
     private boolean running = false;
 
 
+
     @Override
     public ActivityCalendarImportResultVO importFromFile(ActivityCalendarImportContextVO context, @Nullable IProgressionModel progressionModel) throws IOException {
         Files.checkExists(context.getProcessingFile());
@@ -121,7 +122,7 @@ public class ActivityCalendarImportServiceImpl implements ActivityCalendarImport
             // Init progression model
             progressionModel.setTotal(1);
             progressionModel.setMessage(t("sumaris.import.start", context.getProcessingFile().getName()));
-            PersonVO recorderPerson = personService.getById(context.getRecorderPersonId());
+            context.setRecorderPerson(personService.getById(context.getRecorderPersonId()));
             File tempFile = null;
 
             try {
@@ -131,164 +132,71 @@ public class ActivityCalendarImportServiceImpl implements ActivityCalendarImport
                 //Remove because is not in csv actually
                 requiredHeaders.remove(ActivityCalendarVO.Fields.DIRECT_SURVEY_INVESTIGATION);
 
+                // Estimate the row count (without the header row)
+                long rowCount = Math.max(0, Files.countLines(tempFile) - 1);
+
                 // Do load
                 try (CSVFileReader reader = new CSVFileReader(tempFile, true, true, Charsets.UTF_8.name())) {
 
-                    MutableShort inserts = new MutableShort(0);
-                    MutableShort updates = new MutableShort(0);
-                    MutableShort errors = new MutableShort(0);
-                    MutableShort warnings = new MutableShort(0);
-                    MutableShort rowCounter = new MutableShort(1);
-                    List<String> messages = new ArrayList<>();
-                    List<ActivityCalendarVO> processedActivityCalendar = Lists.newArrayList();
-
-                    // Read file rows
-                    List<Map<String, String>> rows = readRows(reader, includedHeaders);
-
                     // Check if headers is valid
                     if (!containsAllHeaders(reader.getHeaders(), requiredHeaders)) {
-                        errors.increment();
+                        context.setErrors(context.getErrors() + 1);
                         String message = t("sumaris.import.activityCalendar.error.invalidHeaderRow");
-                        messages.add(message);
+                        context.getMessages().add(message);
                         log.warn(message);
                     }
 
-                    progressionModel.setTotal(rows.size() + 3 /*read file + get existing + update comments step*/);
+                    progressionModel.setTotal(rowCount + 2 /*read file + update comments step*/);
                     progressionModel.setCurrent(0);
                     progressionModel.setMessage(t("sumaris.import.activityCalendar.readingFile"));
-
-                    // Convert csv calendar to vo
-                    List<ActivityCalendarVO> sources = rows.stream()
-                        .map(this::toVO)
-                        .toList();
-
-                    // Get all years in csv
-                    Set<String> years = rows.stream()
-                            .map(row -> row.get(ActivityCalendarVO.Fields.YEAR))
-                            .filter(StringUtils::isNotBlank)
-                            .collect(Collectors.toSet());
-                    Set<String> processedKeys = Sets.newHashSet();
-
-                    progressionModel.increments(t("sumaris.import.activityCalendar.loadingExistingData"));
-
-                    // Load existing activity calendars
-                    Map<String, ActivityCalendarVO> existingCalendarIdsByUniqueKey = findAllActivityCalendarByYears(years)
-                        .stream()
-                        .filter(this::hasValidVessel)
-                        .distinct()
-                        .collect(
-                            Collectors.toMap(this::getUniqueKey, calendar -> calendar,
-                                // Merge (should not occur, maybe on test data)
-                                (a1, a2) -> a1)
-                        );
-
-                    progressionModel.increments(t("sumaris.import.activityCalendar.progress", 0, sources.size()));
-
-                    for (ActivityCalendarVO source : sources) {
-
-                        try {
-
-                            //  Check if is valid calendar
-                            if (!hasValidVessel(source)) {
-                                warnings.increment();
-
-                                String message = String.format(t("sumaris.import.activityCalendar.error.invalidRow", rowCounter, source.getQualificationComments(), source.getYear() ));
-                                messages.add(message);
-                                log.warn(message);
-                            }
-                            else {
-                                // Fill unique key for the calendar (year + registration code)
-                                String uniqueKey = getUniqueKey(source);
-
-                                // Get the ID if it exists
-                                ActivityCalendarVO existingCalendar = existingCalendarIdsByUniqueKey.get(uniqueKey);
-
-                                // Fill recorder department and person
-                                fillActivityCalendar(source, recorderPerson);
-
-                                //  Check if it has already been executed
-                                if (processedKeys.contains(uniqueKey)) {
-                                    warnings.increment();
-                                    String message = String.format(t("sumaris.import.activityCalendar.error.duplicateRow", rowCounter, source.getQualificationComments(), source.getYear()));
-                                    messages.add(message);
-                                    log.warn(message);
-                                }
-                                else {
-
-                                    // Check if already exist in database
-                                    if (existingCalendar != null) {
-                                        source.setId(existingCalendar.getId());
-                                        // Keep the existing qualification comments (as we use it to store the registration code)
-                                        source.setQualificationComments(existingCalendar.getQualificationComments());
-                                        source = update(source, existingCalendar);
-                                        updates.increment();
-                                    }
-                                    // Not exists: create it
-                                    else {
-                                        // Clear qualification comments (as we use it to store the registration code)
-                                        source.setQualificationComments(null);
-
-                                        source = insert(source);
-                                        inserts.increment();
-                                    }
-                                }
-
-                                processedActivityCalendar.add(source);
-                                processedKeys.add(uniqueKey);
-                            }
-
-
-                        } catch (Exception e) {
-                            errors.increment();
-                            String message = t("sumaris.import.error.row", rowCounter, e.getMessage());
-                            log.error(message);
-                            messages.add(message);
-                        } finally {
-                            rowCounter.increment();
-                            if (rowCounter.intValue() % 10 == 0) {
-                                progressionModel.setCurrent(rowCounter.intValue());
-                                progressionModel.setMessage(t("sumaris.import.activityCalendar.progress", rowCounter, sources.size()));
+                    progressionModel.increments(t("sumaris.import.activityCalendar.progress", 0, rowCount));
+
+                    // Read rows, and import them by chunk (one transaction by chunk)
+                    ActivityCalendarImportService self = applicationContext.getBean(ActivityCalendarImportService.class);
+                    CSVRecord record = new CSVRecord(reader.getHeaders(), includedHeaders, true);
+                    if (!record.isEmpty()) {
+                        int chunkSize = config.getImportationChunkSize();
+                        List<ActivityCalendarVO> chunk = Lists.newArrayListWithCapacity(chunkSize);
+                        while (record.readNext(reader)) {
+                            chunk.add(toVO(record));
+                            if (chunk.size() == chunkSize) {
+                                processChunk(self, context, chunk, rowCount, progressionModel);
+                                chunk = Lists.newArrayListWithCapacity(chunkSize);
                             }
                         }
-
+                        if (!chunk.isEmpty()) {
+                            processChunk(self, context, chunk, rowCount, progressionModel);
+                        }
                     }
                     progressionModel.setCurrent(progressionModel.getTotal() - 1);
 
                     // Update comments, using previous year comments (see issue sumaris-app#866)
                     {
-                        ListMultimap<Integer, ActivityCalendarVO> activityCalendarsByYear = Beans.splitByNotUniqueProperty(
-                            processedActivityCalendar,
-                            ActivityCalendarVO.Fields.YEAR);
-                        List<Integer> sortedYears = activityCalendarsByYear.keySet().stream().sorted().toList();
+                        ListMultimap<Integer, Integer> idsByYear = context.getIdsWithoutCommentsByYear();
+                        List<Integer> sortedYears = idsByYear.keySet().stream().sorted().toList();
 
                         try {
                             for (Integer year : sortedYears) {
-                                List<Integer> ids = activityCalendarsByYear.get(year)
-                                    .stream().filter(ac -> StringUtils.isBlank(ac.getComments()))
-                                    .map(ActivityCalendarVO::getId)
-                                    .filter(Objects::nonNull)
-                                    .toList();
-
                                 // Copy previous year comments - see issue sumaris-app#866
-                                activityCalendarService.copyPreviousYearCommentsByIds(ids);
+                                activityCalendarService.copyPreviousYearCommentsByIds(idsByYear.get(year));
                             }
                         } catch (Exception e) {
-                            errors.increment();
+                            context.setErrors(context.getErrors() + 1);
                             String message = t("sumaris.import.activityCalendar.error.copyComments", e.getMessage());
                             log.error(message);
-                            messages.add(message);
+                            context.getMessages().add(message);
                             // Continue
                         }
                     }
 
                     // Update result
-                    result.setInserts(inserts.intValue());
-                    result.setUpdates(updates.intValue());
-                    result.setWarnings(warnings.intValue());
-                    result.setErrors(errors.intValue());
+                    result.setInserts(context.getInserts());
+                    result.setUpdates(context.getUpdates());
+                    result.setWarnings(context.getWarnings());
+                    result.setErrors(context.getErrors());
 
-                    if (CollectionUtils.isNotEmpty(messages)) {
-                        result.setMessage(String.join("\n", messages));
+                    if (CollectionUtils.isNotEmpty(context.getMessages())) {
+                        result.setMessage(String.join("\n", context.getMessages()));
                     }
 
                     progressionModel.setCurrent(progressionModel.getTotal());
@@ -332,6 +240,98 @@ public class ActivityCalendarImportServiceImpl implements ActivityCalendarImport
          return new AsyncResult<>(result);
     }
 
+    @Override
+    public void importChunk(@NonNull ActivityCalendarImportContextVO context, @NonNull List<ActivityCalendarVO> sources) {
+        PersonVO recorderPerson = context.getRecorderPerson();
+        Set<String> processedKeys = context.getProcessedKeys();
+        List<String> messages = context.getMessages();
+
+        // Load existing activity calendars, for vessels of this chunk
+        Map<String, VesselSnapshotVO> vesselByUniqueKey = findVesselsByUniqueKey(sources);
+        Map<String, ActivityCalendarVO> existingCalendarIdsByUniqueKey = findAllActivityCalendarByVessels(vesselByUniqueKey)
+            .stream()
+            .filter(this::hasValidVessel)
+            .distinct()
+            .collect(
+                Collectors.toMap(this::getUniqueKey, calendar -> calendar,
+                    // Merge (should not occur, maybe on test data)
+                    (a1, a2) -> a1)
+            );
+
+        for (ActivityCalendarVO source : sources) {
+            int rowCounter = context.getRowCounter();
+            try {
+
+                //  Check if is valid calendar
+                if (!hasValidVessel(source)) {
+                    context.setWarnings(context.getWarnings() + 1);
+
+                    String message = String.format(t("sumaris.import.activityCalendar.error.invalidRow", rowCounter, source.getQualificationComments(), source.getYear() ));
+                    messages.add(message);
+                    log.warn(message);
+                }
+                else {
+                    // Fill unique key for the calendar (year + registration code)
+                    String uniqueKey = getUniqueKey(source);
+
+                    // Get the ID if it exists
+                    ActivityCalendarVO existingCalendar = existingCalendarIdsByUniqueKey.get(uniqueKey);
+
+                    // Fill recorder department and person
+                    fillActivityCalendar(source, recorderPerson);
+
+                    //  Check if it has already been executed
+                    if (processedKeys.contains(uniqueKey)) {
+                        context.setWarnings(context.getWarnings() + 1);
+                        String message = String.format(t("sumaris.import.activityCalendar.error.duplicateRow", rowCounter, source.getQualificationComments(), source.getYear()));
+                        messages.add(message);
+                        log.warn(message);
+                    }
+                    else {
+
+                        // Check if already exist in database
+                        if (existingCalendar != null) {
+                            source.setId(existingCalendar.getId());
+                            // Keep the existing qualification comments (as we use it to store the registration code)
+                            source.setQualificationComments(existingCalendar.getQualificationComments());
+                            source = update(source, existingCalendar);
+                            context.setUpdates(context.getUpdates() + 1);
+                        }
+                        // Not exists: create it
+                        else {
+                            // Clear qualification comments (as we use it to store the registration code)
+                            source.setQualificationComments(null);
+
+                            // Reuse the vessel resolved for this chunk
+                            VesselSnapshotVO vesselSnapshot = vesselByUniqueKey.get(uniqueKey);
+                            if (vesselSnapshot != null) {
+                                source.setVesselSnapshot(vesselSnapshot);
+                                source.setVesselId(vesselSnapshot.getVesselId());
+                            }
+
+                            source = insert(source);
+                            context.setInserts(context.getInserts() + 1);
+                        }
+                    }
+
+                    if (source.getId() != null && StringUtils.isBlank(source.getComments())) {
+                        context.getIdsWithoutCommentsByYear().put(source.getYear(), source.getId());
+                    }
+                    processedKeys.add(uniqueKey);
+                }
+
+
+            } catch (Exception e) {
+                context.setErrors(context.getErrors() + 1);
+                String message = t("sumaris.import.error.row", rowCounter, e.getMessage());
+                log.error(message);
+                messages.add(message);
+            } finally {
+                context.setRowCounter(rowCounter + 1);
+            }
+        }
+    }
+
     protected File prepareFile(File inputFile) throws IOException {
         char separator = detectSeparator(inputFile);
 
@@ -366,8 +366,45 @@ public class ActivityCalendarImportServiceImpl implements ActivityCalendarImport
         }
     }
 
-    protected List<ActivityCalendarVO> findAllActivityCalendarByYears(Set<String> years) {
+    protected void processChunk(ActivityCalendarImportService self,
+                                ActivityCalendarImportContextVO context,
+                                List<ActivityCalendarVO> chunk,
+                                long rowCount,
+                                IProgressionModel progressionModel) {
+        self.importChunk(context, chunk);
+
+        progressionModel.setCurrent(context.getRowCounter());
+        progressionModel.setMessage(t("sumaris.import.activityCalendar.progress", context.getRowCounter() - 1, rowCount));
+    }
+
+    /**
+     * Resolve vessels of the given calendars, by unique key (year + registration code)
+     */
+    protected Map<String, VesselSnapshotVO> findVesselsByUniqueKey(List<ActivityCalendarVO> sources) {
+        Map<String, VesselSnapshotVO> result = Maps.newHashMap();
+        for (ActivityCalendarVO source : sources) {
+            if (!hasValidVessel(source) || source.getYear() == null) continue;
+            String uniqueKey = getUniqueKey(source);
+            if (result.containsKey(uniqueKey)) continue;
+            try {
+                result.put(uniqueKey, findVesselByRegistrationCode(source.getYear(), source.getVesselSnapshot().getRegistrationCode()));
+            } catch (DataNotFoundException e) {
+                // Skip (will fail when inserting)
+            }
+        }
+        return result;
+    }
+
+    protected List<ActivityCalendarVO> findAllActivityCalendarByVessels(Map<String, VesselSnapshotVO> vesselByUniqueKey) {
         List<ActivityCalendarVO> result = new ArrayList<>();
+        if (vesselByUniqueKey.isEmpty()) return result;
+
+        // Group vessel ids by year
+        SetMultimap<Integer, Integer> vesselIdsByYear = HashMultimap.create();
+        vesselByUniqueKey.forEach((uniqueKey, vessel) -> {
+            int year = Integer.parseInt(uniqueKey.substring(0, uniqueKey.indexOf('-')));
+            vesselIdsByYear.put(year, vessel.getVesselId());
+        });
 
         ActivityCalendarFetchOptions fetchOptions = ActivityCalendarFetchOptions.builder()
             .withVesselSnapshot(true)
@@ -375,7 +412,7 @@ public class ActivityCalendarImportServiceImpl implements ActivityCalendarImport
             .withObservers(true) // Required to be able to update a calendar, otherwise will be reset
             .build();
 
-        for (String year : years) {
+        for (Integer year : vesselIdsByYear.keySet()) {
             Page page = Page.builder()
                     .offset(0)
                     .size(100)
@@ -388,14 +425,15 @@ public class ActivityCalendarImportServiceImpl implements ActivityCalendarImport
                 List<ActivityCalendarVO> activityCalendars = activityCalendarService.findAll(
                         ActivityCalendarFilterVO.builder()
                                 .programLabel(ProgramEnum.SIH_ACTIFLOT.getLabel())
-                                .year(Integer.parseInt(year))
+                                .year(year)
+                                .vesselIds(vesselIdsByYear.get(year).toArray(Integer[]::new))
                                 .build(),
                         page, fetchOptions
                 );
 
                 activityCalendars.forEach(calendar -> {
                     try {
-                        result.addAll(activityCalendars);
+                        result.add(calendar);
 
                     } catch (NestedNullException ne) {
                         log.debug("Getting an unexpected error NestedNullException:", ne);
@@ -410,42 +448,7 @@ public class ActivityCalendarImportServiceImpl implements ActivityCalendarImport
         return result;
     }
 
-    /**
-     * Read file's rows, as map
-     *
-     * @param reader CSV reader
-     * @param includedHeaders headers to include
-     */
-    public List<Map<String, String>> readRows(final CSVFileReader reader,
-                                              Set<String> includedHeaders) throws IOException {
-        List<Map<String, String>> rows = Lists.newArrayList();
-        // Read column headers :
-        String[] headers = reader.getHeaders();
-
-        // Read rows
-        String[] cols;
-        while ((cols = reader.readNext()) != null) {
-            int colIndex = 0;
-
-            Map<String, String> row = new HashMap<>();
-            for (String cellValue : cols) {
-                String headerName = headers[colIndex++];
-                if (includedHeaders.contains(headerName)) {
-                    if (Objects.equals(cellValue, "")) {
-                        cellValue = null;
-                    }
-                    row.put(headerName, cellValue);
-                }
-            }
-
-            if (!row.isEmpty()) {
-                rows.add(row);
-            }
-        }
-        return rows;
-    }
-
-    protected ActivityCalendarVO toVO(Map<String, String> source) {
+    protected ActivityCalendarVO toVO(CSVRecord source) {
         ActivityCalendarVO target = new ActivityCalendarVO();
         //Check if all mandatory fields are present
         if (source.get(ActivityCalendarVO.Fields.YEAR) == null
@@ -507,35 +510,48 @@ public class ActivityCalendarImportServiceImpl implements ActivityCalendarImport
         }
     }
 
-    protected VesselSnapshotVO findVesselByRegistrationCode(int year, String registrationCode) {
+    /**
+     * Find the vessel with the given registration code (exact match).
+     * The search text is a prefix search, so each page of candidates must be filtered (e.g. 'AB12' should not resolve to 'AB123')
+     */
+    protected VesselSnapshotVO findVesselByRegistrationCode(int year, @NonNull String registrationCode) {
         Date startDate = Dates.getFirstDayOfYear(year);
         Date endDate = Dates.getLastSecondOfYear(year);
-        List<VesselSnapshotVO> vessels = VesselSnapshotService.findAll(
-            VesselFilterVO.builder()
-                .startDate(startDate)
-                .endDate(endDate)
-                .searchText(registrationCode)
-                .searchAttributes(new String[]{VesselSnapshotVO.Fields.REGISTRATION_CODE})
-                .build(),
-            Page.builder()
-                .offset(0)
-                .size(1)
-                .sortBy(VesselSnapshotVO.Fields.START_DATE)
-                .sortDirection(SortDirection.ASC)
-                .build(),
-            VesselFetchOptions.DEFAULT
-        );
-        if (CollectionUtils.isNotEmpty(vessels)) return vessels.get(0);
+        VesselFilterVO filter = VesselFilterVO.builder()
+            .startDate(startDate)
+            .endDate(endDate)
+            .searchText(registrationCode)
+            .searchAttributes(new String[]{VesselSnapshotVO.Fields.REGISTRATION_CODE})
+            .build();
+        Page page = Page.builder()
+            .offset(0)
+            .size(20)
+            .sortBy(VesselSnapshotVO.Fields.START_DATE)
+            .sortDirection(SortDirection.ASC)
+            .build();
+        boolean fetchMore;
+        do {
+            List<VesselSnapshotVO> vessels = VesselSnapshotService.findAll(filter, page, VesselFetchOptions.DEFAULT);
+            Optional<VesselSnapshotVO> vessel = vessels.stream()
+                .filter(v -> registrationCode.equalsIgnoreCase(StringUtils.trim(v.getRegistrationCode())))
+                .findFirst();
+            if (vessel.isPresent()) return vessel.get();
+
+            fetchMore = vessels.size() >= page.getSize();
+            page.setOffset(page.getOffset() + page.getSize());
+        } while (fetchMore);
 
         throw new DataNotFoundException(String.format("No vessel found for registration code '%s' in year %s", registrationCode, year));
     }
 
     protected ActivityCalendarVO insert(ActivityCalendarVO source) {
 
-        // Resolve vessel
-        VesselSnapshotVO vesselSnapshot = findVesselByRegistrationCode(source.getYear(), source.getVesselSnapshot().getRegistrationCode());
-        source.setVesselSnapshot(vesselSnapshot);
-        source.setVesselId(vesselSnapshot.getVesselId());
+        // Resolve vessel (if not already resolved)
+        if (source.getVesselId() == null) {
+            VesselSnapshotVO vesselSnapshot = findVesselByRegistrationCode(source.getYear(), source.getVesselSnapshot().getRegistrationCode());
+            source.setVesselSnapshot(vesselSnapshot);
+            source.setVesselId(vesselSnapshot.getVesselId());
+        }
 
         return activityCalendarService.save(source, ActivityCalendarSaveOptions.WITHOUT_CHILDREN);
     }
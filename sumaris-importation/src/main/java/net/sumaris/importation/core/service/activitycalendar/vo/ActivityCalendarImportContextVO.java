@@ -23,11 +23,16 @@ package net.sumaris.importation.core.service.activitycalendar.vo;
  */
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NonNull;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import lombok.*;
+import net.sumaris.core.vo.administration.user.PersonVO;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @Data
 @Builder
@@ -43,4 +48,55 @@ public class ActivityCalendarImportContextVO {
     @Builder.Default
     @JsonIgnore
     private ActivityCalendarImportResultVO result = new ActivityCalendarImportResultVO();
+
+    // Process state, shared by chunks
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private PersonVO recorderPerson;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int inserts;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int updates;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int warnings;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int errors;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Builder.Default
+    private int rowCounter = 1;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Builder.Default
+    private List<String> messages = new ArrayList<>();
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Builder.Default
+    private Set<String> processedKeys = new HashSet<>();
+
+    // Processed calendar ids, without comments (by year)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Builder.Default
+    private ListMultimap<Integer, Integer> idsWithoutCommentsByYear = ArrayListMultimap.create();
 }
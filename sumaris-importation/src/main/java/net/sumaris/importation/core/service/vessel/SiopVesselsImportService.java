@@ -23,6 +23,7 @@
 package net.sumaris.importation.core.service.vessel;
 
 import net.sumaris.core.model.IProgressionModel;
+import net.sumaris.core.vo.data.VesselVO;
 import net.sumaris.importation.core.service.vessel.vo.SiopVesselImportContextVO;
 import net.sumaris.importation.core.service.vessel.vo.SiopVesselImportResultVO;
 import org.springframework.scheduling.annotation.Async;
@@ -30,6 +31,7 @@ import org.springframework.scheduling.annotation.Async;
 import javax.annotation.Nullable;
 import javax.transaction.Transactional;
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.Future;
 
 
@@ -44,10 +46,19 @@ public interface SiopVesselsImportService {
      * @return
      * @throws IOException
      */
-    @Transactional
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     SiopVesselImportResultVO importFromFile(SiopVesselImportContextVO context, @Nullable IProgressionModel progressionModel) throws IOException;
 
 
+    /**
+     * Import a chunk of vessels (read from the file), in its own transaction
+     *
+     * @param context the importation context, holding the process state (counters, processed keys, etc.)
+     * @param vessels vessels read from the file
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    void importChunk(SiopVesselImportContextVO context, List<VesselVO> vessels);
+
     @Async("jobTaskExecutor")
     Future<SiopVesselImportResultVO> asyncImportFromFile(SiopVesselImportContextVO context,
                                                          @Nullable IProgressionModel progressionModel);
@@ -70,11 +70,11 @@ import net.sumaris.core.vo.referential.location.LocationVO;
 import net.sumaris.importation.core.service.vessel.vo.SiopVesselImportContextVO;
 import net.sumaris.importation.core.service.vessel.vo.SiopVesselImportResultVO;
 import net.sumaris.importation.core.util.csv.CSVFileReader;
+import net.sumaris.importation.core.util.csv.CSVRecord;
 import org.apache.commons.beanutils.NestedNullException;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.apache.commons.lang3.mutable.MutableShort;
 import org.springframework.context.ApplicationContext;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Service;
@@ -85,6 +85,7 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.util.*;
 import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import static org.nuiton.i18n.I18n.t;
@@ -213,6 +214,7 @@ public class SiopVesselsImportServiceImpl implements SiopVesselsImportService {
 
 	private boolean running = false;
 
+
 	@Override
 	public SiopVesselImportResultVO importFromFile(@NonNull SiopVesselImportContextVO context,
 												   @Nullable IProgressionModel progressionModel) throws IOException {
@@ -236,11 +238,12 @@ public class SiopVesselsImportServiceImpl implements SiopVesselsImportService {
 			// Init progression model
 			progressionModel.setMessage(t("sumaris.import.start", context.getProcessingFile().getName()));
 
-			PersonVO recorderPerson = personService.getById(context.getRecorderPersonId());
+			context.setRecorderPerson(personService.getById(context.getRecorderPersonId()));
 
 			String uniqueKeyPropertyName = StringUtils.doting(
 				VesselVO.Fields.VESSEL_REGISTRATION_PERIOD, VesselRegistrationPeriodVO.Fields.INT_REGISTRATION_CODE
 			);
+			context.setUniqueKeyPropertyName(uniqueKeyPropertyName);
 
 			// Make sure to create all locations
 			locationByFilterCache.clear();
@@ -249,169 +252,118 @@ public class SiopVesselsImportServiceImpl implements SiopVesselsImportService {
 			}
 
 			Date startDate = Dates.resetTime(new Date());
+			context.setStartDate(startDate);
 
 			File tempFile = null;
 			try {
 				tempFile = prepareFile(context.getProcessingFile());
 
-				Set<String> includedHeaders = new HashSet<>(headerReplacements.values());
-				String uniqueKeyHeaderName = headerReplacements.entrySet().stream()
+				// Sorted, so that properties without suffix (e.g. 'basePortLocation') come before fallbacks ('basePortLocation.2', ...)
+				Set<String> includedHeaders = new TreeSet<>(headerReplacements.values());
+				context.setUniqueKeyHeaderName(headerReplacements.entrySet().stream()
 					.filter(entry -> uniqueKeyPropertyName.equals(entry.getValue()))
 					.map(Map.Entry::getKey)
-					.findFirst().orElseThrow(() -> new IllegalArgumentException("Cannot resolve CSV header corresponding to the model property " + uniqueKeyPropertyName));
+					.findFirst().orElseThrow(() -> new IllegalArgumentException("Cannot resolve CSV header corresponding to the model property " + uniqueKeyPropertyName)));
+
+				// Estimate the row count (without the header row)
+				long rowCount = Math.max(0, Files.countLines(tempFile) - 1);
+				progressionModel.setTotal(rowCount + 1 /*disable vessels*/);
 
 				// Do load
 				try (CSVFileReader reader = new CSVFileReader(tempFile, true, true, Charsets.UTF_8.name())) {
 
-					Map<String, Integer> existingKeys = collectExistingVessels(uniqueKeyPropertyName);
-					Set<String> processedKeys = Sets.newHashSet();
-
-					MutableShort inserts = new MutableShort(0);
-					MutableShort updates = new MutableShort(0);
-					MutableShort disables = new MutableShort(0);
-					MutableShort errors = new MutableShort(0);
-					MutableShort warnings = new MutableShort(0);
-					MutableShort rowCounter = new MutableShort(1);
-					List<String> messages = new ArrayList<>();
-
-					List<VesselVO> vessels = readRows(reader, includedHeaders).stream()
-						.map(this::toVO)
-						.toList();
-
-					progressionModel.setTotal(vessels.size() + 1 /*disable vessels*/);
-
-					for (VesselVO vessel: vessels) {
-
-						try {
-							// Get the unique key
-							String uniqueKey = Beans.getProperty(vessel, uniqueKeyPropertyName);
-							if (uniqueKey == null) {
-								warnings.increment();
-								String message = String.format("Invalid row #%s: no value for the required header '%s'. Skipping", rowCounter, uniqueKeyHeaderName);
-								messages.add(message);
-								log.warn(message);
-							}
-
-							// Check if not already processed (duplicated key)
-							else if (processedKeys.contains(uniqueKey)) {
-								warnings.increment();
-								String message = String.format("Invalid row #%s: duplicated value '%s=%s' (same value has been already processed). Skipping", rowCounter, uniqueKeyHeaderName, uniqueKey);
-								messages.add(message);
-								log.warn(message);
-							}
-							else {
-								// Fill default properties
-								fillVessel(vessel, recorderPerson);
-
-								try {
-									boolean isNew = !existingKeys.containsKey(uniqueKey);
-
-									if (isNew) {
-										log.debug("Inserting new vessel {} ...", uniqueKey);
-										insert(vessel);
-										inserts.increment();
-
-									} else {
-										log.debug("Updating existing vessel: {}", uniqueKey);
-										Integer vesselId = existingKeys.get(uniqueKey);
-										vessel.setId(vesselId);
-										boolean updated = update(vessel, startDate);
-										if (updated) updates.increment();
-									}
-
-									processedKeys.add(uniqueKey);
-								}
-								catch (SumarisBusinessException e) {
-									errors.increment();
-									String message = String.format("Failed to import vessel %s at line #%s: %s", uniqueKey, rowCounter, e.getMessage());
-									messages.add(message);
-									log.error(message);
-									// Continue
-								}
-								catch (Exception e) {
-									errors.increment();
-									String message = String.format("Failed to import vessel %s at line #%s: %s", uniqueKey, rowCounter, e.getMessage());
-									messages.add(message);
-									if (log.isDebugEnabled()) log.error(message, e);
-									else log.error(message);
-									// Continue
-								}
+					// Read rows, and import them by chunk (one transaction by chunk)
+					SiopVesselsImportService self = applicationContext.getBean(SiopVesselsImportService.class);
+					CSVRecord record = new CSVRecord(reader.getHeaders(), includedHeaders, false);
+					if (!record.isEmpty()) {
+						int chunkSize = config.getImportationChunkSize();
+						List<VesselVO> chunk = Lists.newArrayListWithCapacity(chunkSize);
+						while (record.readNext(reader)) {
+							chunk.add(toVO(record));
+							if (chunk.size() == chunkSize) {
+								processChunk(self, context, chunk, rowCount, progressionModel);
+								chunk = Lists.newArrayListWithCapacity(chunkSize);
 							}
 						}
-						finally {
-							rowCounter.increment();
-							if (rowCounter.intValue() % 10 == 0) {
-								progressionModel.setCurrent(rowCounter.intValue());
-								progressionModel.setMessage(t("sumaris.import.vessel.siop.progress", rowCounter.intValue(), vessels.size()));
-							}
+						if (!chunk.isEmpty()) {
+							processChunk(self, context, chunk, rowCount, progressionModel);
 						}
 					}
-					progressionModel.setCurrent(vessels.size());
-
-					// Disabled existing but absents vessel
-					// (only if sometimes was processed in the import - skip if not - eg. empty file)
-					if (inserts.intValue() > 0 || updates.intValue() > 0) {
-						progressionModel.setMessage(t("sumaris.import.vessel.siop.disabling"));
-
-						// Disable not present vessels
-						Set<Integer> vesselIdsToDisable = existingKeys.entrySet().stream()
-							.filter(e -> !processedKeys.contains(e.getKey()))
-							.map(Map.Entry::getValue)
-							.collect(Collectors.toSet());
-						if (CollectionUtils.isNotEmpty(vesselIdsToDisable)) {
-
-							vesselIdsToDisable.forEach(vesselId -> {
-								try {
-									disable(vesselId, startDate);
-									disables.increment();
-								} catch (Exception e) {
-									errors.increment();
-									String message = String.format("Failed to disable vessel %s: %s", vesselId, e.getMessage());
-									messages.add(message);
-									if (log.isDebugEnabled()) log.error(message, e);
-									else log.error(message);
-								}
-							});
-						}
+				}
+				progressionModel.setCurrent(rowCount);
+
+				List<String> messages = context.getMessages();
+
+				// Disabled existing but absents vessel
+				// (only if sometimes was processed in the import - skip if not - eg. empty file)
+				if (context.getInserts() > 0 || context.getUpdates() > 0) {
+					progressionModel.setMessage(t("sumaris.import.vessel.siop.disabling"));
+
+					// Disable not present vessels
+					Set<String> processedKeys = context.getProcessedKeys();
+					Set<Integer> vesselIdsToDisable = Sets.newHashSet();
+					this.<String>forEachExistingVessel(uniqueKeyPropertyName, null, (uniqueKey, vesselId) -> {
+						if (!processedKeys.contains(uniqueKey)) vesselIdsToDisable.add(vesselId);
+					});
+					if (CollectionUtils.isNotEmpty(vesselIdsToDisable)) {
+
+						vesselIdsToDisable.forEach(vesselId -> {
+							try {
+								disable(vesselId, startDate);
+								context.setDisables(context.getDisables() + 1);
+							} catch (Exception e) {
+								context.setErrors(context.getErrors() + 1);
+								String message = String.format("Failed to disable vessel %s: %s", vesselId, e.getMessage());
+								messages.add(message);
+								if (log.isDebugEnabled()) log.error(message, e);
+								else log.error(message);
+							}
+						});
 					}
+				}
 
-					Set<String> temporaryHarbourNames = findAllTemporaryLocationNames(LocationLevelEnum.HARBOUR.getId());
-					if (CollectionUtils.isNotEmpty(temporaryHarbourNames)) {
-						warnings.increment();
-						String message = String.format("Some temporary harbours exists in database. Please check: name(s):\n\t- %s",
-							String.join("\n\t- ", temporaryHarbourNames));
-						messages.add(message);
-						log.warn(message);
-					}
+				Set<String> temporaryHarbourNames = findAllTemporaryLocationNames(LocationLevelEnum.HARBOUR.getId());
+				if (CollectionUtils.isNotEmpty(temporaryHarbourNames)) {
+					context.setWarnings(context.getWarnings() + 1);
+					String message = String.format("Some temporary harbours exists in database. Please check: name(s):\n\t- %s",
+						String.join("\n\t- ", temporaryHarbourNames));
+					messages.add(message);
+					log.warn(message);
+				}
 
-					// Final message
-					if (errors.intValue() == 0) {
-						String message = String.format("Successfully import vessels, with errors. %s inserts, %s updates, %s disables, %s warnings", inserts, updates, disables, warnings);
-						messages.add(message);
-						log.info(message);
-					}
-					else {
-						String message = String.format("Successfully import vessels. %s inserts, %s updates, %s disables, %s warnings, %s errors", inserts, updates, disables, warnings, errors);
-						messages.add(message);
-						log.warn(message);
-					}
+				int inserts = context.getInserts();
+				int updates = context.getUpdates();
+				int disables = context.getDisables();
+				int warnings = context.getWarnings();
+				int errors = context.getErrors();
+
+				// Final message
+				if (errors == 0) {
+					String message = String.format("Successfully import vessels, with errors. %s inserts, %s updates, %s disables, %s warnings", inserts, updates, disables, warnings);
+					messages.add(message);
+					log.info(message);
+				}
+				else {
+					String message = String.format("Successfully import vessels. %s inserts, %s updates, %s disables, %s warnings, %s errors", inserts, updates, disables, warnings, errors);
+					messages.add(message);
+					log.warn(message);
+				}
 
 
-					// Update result
-					result.setInserts(inserts.intValue());
-					result.setUpdates(updates.intValue());
-					result.setDisables(disables.intValue());
-					result.setWarnings(warnings.intValue());
-					result.setErrors(errors.intValue());
+				// Update result
+				result.setInserts(inserts);
+				result.setUpdates(updates);
+				result.setDisables(disables);
+				result.setWarnings(warnings);
+				result.setErrors(errors);
 
-					if (CollectionUtils.isNotEmpty(messages)) {
-						result.setMessage(String.join("\n", messages));
-					}
+				if (CollectionUtils.isNotEmpty(messages)) {
+					result.setMessage(String.join("\n", messages));
+				}
 
-					progressionModel.setCurrent(progressionModel.getTotal());
+				progressionModel.setCurrent(progressionModel.getTotal());
 
-					return result;
-				}
+				return result;
 			}
 			catch(Exception e) {
 				log.error(e.getMessage(), e);
@@ -454,8 +406,99 @@ public class SiopVesselsImportServiceImpl implements SiopVesselsImportService {
 		return new AsyncResult<>(result);
 	}
 
+	@Override
+	public void importChunk(@NonNull SiopVesselImportContextVO context, @NonNull List<VesselVO> vessels) {
+		PersonVO recorderPerson = context.getRecorderPerson();
+		Date startDate = context.getStartDate();
+		String uniqueKeyPropertyName = context.getUniqueKeyPropertyName();
+		String uniqueKeyHeaderName = context.getUniqueKeyHeaderName();
+		Set<String> processedKeys = context.getProcessedKeys();
+		List<String> messages = context.getMessages();
+
+		// Load existing vessels, for keys of this chunk
+		Set<String> uniqueKeys = vessels.stream()
+			.map(vessel -> Beans.<VesselVO, String>getProperty(vessel, uniqueKeyPropertyName))
+			.filter(Objects::nonNull)
+			.collect(Collectors.toSet());
+		Map<String, Integer> existingKeys = collectExistingVessels(uniqueKeyPropertyName, uniqueKeys);
+
+		for (VesselVO vessel: vessels) {
+			int rowCounter = context.getRowCounter();
+			try {
+				// Get the unique key
+				String uniqueKey = Beans.getProperty(vessel, uniqueKeyPropertyName);
+				if (uniqueKey == null) {
+					context.setWarnings(context.getWarnings() + 1);
+					String message = String.format("Invalid row #%s: no value for the required header '%s'. Skipping", rowCounter, uniqueKeyHeaderName);
+					messages.add(message);
+					log.warn(message);
+				}
+
+				// Check if not already processed (duplicated key)
+				else if (processedKeys.contains(uniqueKey)) {
+					context.setWarnings(context.getWarnings() + 1);
+					String message = String.format("Invalid row #%s: duplicated value '%s=%s' (same value has been already processed). Skipping", rowCounter, uniqueKeyHeaderName, uniqueKey);
+					messages.add(message);
+					log.warn(message);
+				}
+				else {
+					// Fill default properties
+					fillVessel(vessel, recorderPerson);
+
+					try {
+						boolean isNew = !existingKeys.containsKey(uniqueKey);
+
+						if (isNew) {
+							log.debug("Inserting new vessel {} ...", uniqueKey);
+							insert(vessel);
+							context.setInserts(context.getInserts() + 1);
+
+						} else {
+							log.debug("Updating existing vessel: {}", uniqueKey);
+							Integer vesselId = existingKeys.get(uniqueKey);
+							vessel.setId(vesselId);
+							boolean updated = update(vessel, startDate);
+							if (updated) context.setUpdates(context.getUpdates() + 1);
+						}
+
+						processedKeys.add(uniqueKey);
+					}
+					catch (SumarisBusinessException e) {
+						context.setErrors(context.getErrors() + 1);
+						String message = String.format("Failed to import vessel %s at line #%s: %s", uniqueKey, rowCounter, e.getMessage());
+						messages.add(message);
+						log.error(message);
+						// Continue
+					}
+					catch (Exception e) {
+						context.setErrors(context.getErrors() + 1);
+						String message = String.format("Failed to import vessel %s at line #%s: %s", uniqueKey, rowCounter, e.getMessage());
+						messages.add(message);
+						if (log.isDebugEnabled()) log.error(message, e);
+						else log.error(message);
+						// Continue
+					}
+				}
+			}
+			finally {
+				context.setRowCounter(rowCounter + 1);
+			}
+		}
+	}
+
 	/* -- protected methods -- */
 
+	protected void processChunk(SiopVesselsImportService self,
+								SiopVesselImportContextVO context,
+								List<VesselVO> chunk,
+								long rowCount,
+								IProgressionModel progressionModel) {
+		self.importChunk(context, chunk);
+
+		progressionModel.setCurrent(context.getRowCounter());
+		progressionModel.setMessage(t("sumaris.import.vessel.siop.progress", context.getRowCounter() - 1, rowCount));
+	}
+
 	protected File prepareFile(File inputFile) throws IOException {
 		char separator = detectSeparator(inputFile);
 
@@ -486,56 +529,48 @@ public class SiopVesselsImportServiceImpl implements SiopVesselsImportService {
 		}
 	}
 
-	/**
-	 * Read file's rows, as map
-	 * @param reader
-	 * @param includedHeaders
-	 * @return
-	 */
-	public List<Map<String, String>> readRows(final CSVFileReader reader,
-											  Set<String> includedHeaders) throws IOException {
-		List<Map<String, String>> rows = Lists.newArrayList();
-		// Read column headers :
-		String[] headers = reader.getHeaders();
-
-		// Read rows
-		String[] cols;
-		while ((cols = reader.readNext()) != null) {
-			int colIndex = 0;
-
-			Map<String, String> row = new HashMap<>();
-			for (String cellValue : cols) {
-				String headerName =  headers[colIndex++];
-				if (includedHeaders.contains(headerName)) {
-					row.put(headerName, cellValue);
-				}
-			}
-
-			if (!row.isEmpty()) {
-				rows.add(row);
-			}
-		}
-		return rows;
-	}
-
 	protected char detectSeparator(File inputFile) throws IOException {
 		try (CSVFileReader reader = new CSVFileReader(inputFile, true, true, Charsets.UTF_8.name())) {
 			return reader.getSeparator();
 		}
 	}
 
-	protected <T>  Map<T, Integer> collectExistingVessels(final String uniquePropertyName) {
+	/**
+	 * Collect existing vessels, by unique key
+	 * @param uniquePropertyName the unique key property (should be the international registration code)
+	 * @param uniqueKeys keys to look for
+	 */
+	protected Map<String, Integer> collectExistingVessels(final String uniquePropertyName, Collection<String> uniqueKeys) {
+		Map<String, Integer> result = Maps.newHashMap();
+		if (CollectionUtils.isEmpty(uniqueKeys)) return result;
+		Preconditions.checkArgument(uniquePropertyName.endsWith(VesselRegistrationPeriodVO.Fields.INT_REGISTRATION_CODE),
+			"Only the international registration code can be used as unique key");
+
+		this.<String>forEachExistingVessel(uniquePropertyName, uniqueKeys.toArray(String[]::new), (uniqueKey, vesselId) -> {
+			if (uniqueKeys.contains(uniqueKey)) result.put(uniqueKey, vesselId);
+		});
+		return result;
+	}
+
+	/**
+	 * Visit existing (enabled) vessels, page by page
+	 * @param uniquePropertyName the unique key property
+	 * @param intRegistrationCodes international registration codes, to restrict the search (optional)
+	 */
+	protected <T> void forEachExistingVessel(final String uniquePropertyName,
+											 @Nullable String[] intRegistrationCodes,
+											 BiConsumer<T, Integer> consumer) {
 		Page page = Page.builder()
 			.offset(0)
 			.size(100)
 			.sortBy(VesselVO.Fields.ID)
 			.build();
 		boolean fetchMore;
-		Map<T, Integer> result = Maps.newHashMap();
 		do {
 			List<VesselVO> vessels = vesselService.findAll(VesselFilterVO.builder()
 				.programLabel(ProgramEnum.SIH.getLabel())
 				.statusIds(Lists.newArrayList(StatusEnum.ENABLE.getId()))
+				.intRegistrationCodes(intRegistrationCodes)
 				.build(), page, VesselFetchOptions.builder()
 					.withVesselRegistrationPeriod(uniquePropertyName.startsWith(VesselVO.Fields.VESSEL_REGISTRATION_PERIOD))
 					.withVesselFeatures(uniquePropertyName.startsWith(VesselVO.Fields.VESSEL_FEATURES))
@@ -544,7 +579,7 @@ public class SiopVesselsImportServiceImpl implements SiopVesselsImportService {
 				try {
 					T uniqueKeyValue = Beans.<VesselVO, T>getProperty(v, uniquePropertyName);
 					if (uniqueKeyValue != null) {
-						result.put(uniqueKeyValue, v.getId());
+						consumer.accept(uniqueKeyValue, v.getId());
 					}
 				}
 				catch (NestedNullException ne) {
@@ -554,8 +589,6 @@ public class SiopVesselsImportServiceImpl implements SiopVesselsImportService {
 			fetchMore = vessels.size() >= page.getSize();
 			page.setOffset(page.getOffset() + page.getSize());
 		} while (fetchMore);
-
-		return result;
 	}
 
 	protected VesselVO insert(VesselVO source) {
@@ -735,7 +768,7 @@ public class SiopVesselsImportServiceImpl implements SiopVesselsImportService {
 		}
 	}
 
-	protected VesselVO toVO(Map<String, String> source) {
+	protected VesselVO toVO(CSVRecord source) {
 		VesselVO target = new VesselVO();
 		VesselFeaturesVO features = new VesselFeaturesVO();
 		target.setVesselFeatures(features);
@@ -754,7 +787,7 @@ public class SiopVesselsImportServiceImpl implements SiopVesselsImportService {
 		program.setLabel(ProgramEnum.SIH.getLabel());
 		target.setProgram(program);
 
-		// Fill properties, using the map key (= replaced headers) as propertyName
+		// Fill properties, using the header (= replaced headers) as propertyName
 		source.forEach((propertyName, value) -> {
 			try {
 				setProperty(target, propertyName, value);
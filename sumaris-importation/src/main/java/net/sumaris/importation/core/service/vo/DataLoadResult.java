@@ -33,13 +33,13 @@ public class DataLoadResult {
     protected List<DataLoadError> errors = Lists.newArrayList();
     protected List<String> errorsOnceList = Lists.newArrayList();
 
-    public void addError(DataLoadError error) {
+    public synchronized void addError(DataLoadError error) {
         if (errors.size() < MAX_ERRORS_COUNT) {
             errors.add(error);
         }
     }
 
-    public void addErrorOnce(DataLoadError error) {
+    public synchronized void addErrorOnce(DataLoadError error) {
         if (errorsOnceList.contains(error.getErrorCode())) {
             return;
         }
@@ -48,15 +48,15 @@ public class DataLoadResult {
         addError(error);
     }
 
-    public DataLoadError[] getErrors(){
+    public synchronized DataLoadError[] getErrors(){
         return this.errors.toArray(new DataLoadError[errors.size()]);
     }
 
-    public int errorCount() {
+    public synchronized int errorCount() {
         return errors.size();
     }
 
-    public boolean isSuccess(){
+    public synchronized boolean isSuccess(){
         if (errors.size() > 0) {
             for (DataLoadError error : errors) {
                 if (error.getErrorType() == DataLoadError.ErrorType.ERROR
@@ -0,0 +1,108 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.importation.core.util.csv;
+
+import com.google.common.collect.Maps;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A CSV row, reused for each line of the file.
+ * Values are kept in the array read by the file reader, and header indexes are computed once,
+ * so reading a cell does not need any map per row.
+ */
+public class CSVRecord {
+
+	private final Map<String, Integer> indexByHeader;
+	private final String[] includedHeaders;
+	private final int[] includedIndexes;
+	private final boolean emptyAsNull;
+
+	private String[] values;
+
+	/**
+	 * @param headers file headers
+	 * @param includedHeaders headers to include (iteration order is used by forEach())
+	 * @param emptyAsNull should empty cells be read as null ?
+	 */
+	public CSVRecord(@NonNull String[] headers, @NonNull Collection<String> includedHeaders, boolean emptyAsNull) {
+		this.emptyAsNull = emptyAsNull;
+		this.indexByHeader = Maps.newHashMapWithExpectedSize(headers.length);
+		for (int i = 0; i < headers.length; i++) {
+			// Keep the first column, if duplicated
+			this.indexByHeader.putIfAbsent(headers[i], i);
+		}
+
+		this.includedHeaders = includedHeaders.stream()
+			.filter(indexByHeader::containsKey)
+			.toArray(String[]::new);
+		this.includedIndexes = new int[this.includedHeaders.length];
+		for (int i = 0; i < this.includedHeaders.length; i++) {
+			this.includedIndexes[i] = indexByHeader.get(this.includedHeaders[i]);
+		}
+	}
+
+	/**
+	 * Read the next line into this record
+	 * @return false if end of file
+	 */
+	public boolean readNext(@NonNull FileReader reader) throws IOException {
+		this.values = reader.readNext();
+		return this.values != null;
+	}
+
+	public int indexOf(String header) {
+		Integer index = indexByHeader.get(header);
+		return index != null ? index : -1;
+	}
+
+	public String get(int index) {
+		if (index < 0 || values == null || index >= values.length) return null;
+		String value = values[index];
+		return (emptyAsNull && "".equals(value)) ? null : value;
+	}
+
+	public String get(String header) {
+		return get(indexOf(header));
+	}
+
+	/**
+	 * Is there no included columns ?
+	 */
+	public boolean isEmpty() {
+		return includedIndexes.length == 0;
+	}
+
+	/**
+	 * Visit included columns
+	 */
+	public void forEach(BiConsumer<String, String> consumer) {
+		for (int i = 0; i < includedIndexes.length; i++) {
+			consumer.accept(includedHeaders[i], get(includedIndexes[i]));
+		}
+	}
+}
@@ -24,6 +24,7 @@ package net.sumaris.importation;
  * #L%
  */
 
+import net.sumaris.importation.dao.DataLoaderDaoTest;
 import net.sumaris.importation.service.rdb.RdbLoaderWriteTest;
 import net.sumaris.importation.service.vessel.SiopVesselLoaderWriteTest;
 import org.junit.ClassRule;
@@ -36,6 +37,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
 	// DAO
+	DataLoaderDaoTest.class,
 
 	// Service
 	RdbLoaderWriteTest.class,
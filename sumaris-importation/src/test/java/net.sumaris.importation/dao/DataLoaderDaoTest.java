@@ -0,0 +1,213 @@
+package net.sumaris.importation.dao;
+
+/*-
+ * #%L
+ * SUMARiS:: Core Importation
+ * %%
+ * Copyright (C) 2018 - 2019 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.google.common.collect.Sets;
+import net.sumaris.core.config.SumarisConfiguration;
+import net.sumaris.core.dao.technical.schema.DatabaseTableEnum;
+import net.sumaris.core.dao.technical.schema.SumarisColumnMetadata;
+import net.sumaris.core.dao.technical.schema.SumarisDatabaseMetadata;
+import net.sumaris.core.dao.technical.schema.SumarisTableMetadata;
+import net.sumaris.importation.core.dao.DataLoaderDaoImpl;
+import net.sumaris.importation.core.service.vo.DataLoadResult;
+import net.sumaris.importation.core.util.csv.FileReader;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Check that a failing import never leaves rows in the database.
+ * The JDBC connection is simulated, with pending (not committed) and committed rows.
+ */
+public class DataLoaderDaoTest {
+
+    private static final int ROW_COUNT = 15000; // More than one JDBC batch
+
+    private final List<Object> batchRows = new ArrayList<>();
+    private final List<Object> pendingRows = new ArrayList<>();
+    private final List<Object> committedRows = new ArrayList<>();
+    private final AtomicBoolean autoCommit = new AtomicBoolean(true);
+    private final AtomicInteger executeBatchCount = new AtomicInteger();
+
+    private DataLoaderDaoImpl dao;
+
+    @Before
+    public void setUp() throws SQLException {
+        batchRows.clear();
+        pendingRows.clear();
+        committedRows.clear();
+        autoCommit.set(true);
+        executeBatchCount.set(0);
+
+        // Fake statement: the second batch always fails
+        PreparedStatement statement = mock(PreparedStatement.class);
+        doAnswer(invocation -> batchRows.add(new Object())).when(statement).addBatch();
+        when(statement.executeBatch()).thenAnswer(invocation -> {
+            if (executeBatchCount.incrementAndGet() > 1) {
+                BatchUpdateException bue = new BatchUpdateException("Batch failed", new int[0]);
+                bue.setNextException(new SQLException("Constraint violation"));
+                throw bue;
+            }
+            pendingRows.addAll(batchRows);
+            int[] result = new int[batchRows.size()];
+            batchRows.clear();
+            return result;
+        });
+
+        // Fake connection: enabling auto-commit commits the pending rows (as specified by JDBC)
+        Connection conn = mock(Connection.class);
+        when(conn.prepareStatement(anyString())).thenReturn(statement);
+        when(conn.getAutoCommit()).thenAnswer(invocation -> autoCommit.get());
+        doAnswer(invocation -> {
+            boolean enable = invocation.getArgument(0);
+            if (enable && !autoCommit.get()) commit();
+            autoCommit.set(enable);
+            return null;
+        }).when(conn).setAutoCommit(Mockito.anyBoolean());
+        doAnswer(invocation -> commit()).when(conn).commit();
+        doAnswer(invocation -> rollback()).when(conn).rollback();
+        doAnswer(invocation -> rollback()).when(conn).rollback(any(Savepoint.class));
+        when(conn.setSavepoint()).thenReturn(mock(Savepoint.class));
+        DatabaseMetaData jdbcMeta = mock(DatabaseMetaData.class);
+        when(jdbcMeta.getDatabaseProductName()).thenReturn("HSQL Database Engine");
+        when(conn.getMetaData()).thenReturn(jdbcMeta);
+
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(conn);
+
+        // Table with a single integer column
+        SumarisColumnMetadata column = mock(SumarisColumnMetadata.class);
+        when(column.getName()).thenReturn("value");
+        when(column.getTypeCode()).thenReturn(Types.INTEGER);
+        when(column.isNullable()).thenReturn(true);
+        SumarisTableMetadata table = mock(SumarisTableMetadata.class);
+        when(table.getName()).thenReturn(DatabaseTableEnum.P01_RDB_LANDING.name());
+        when(table.getColumnMetadata("value")).thenReturn(column);
+        when(table.getNotNullNames()).thenReturn(Sets.newHashSet());
+        when(table.getInsertQuery(any(SumarisColumnMetadata[].class))).thenReturn("INSERT INTO P01_RDB_LANDING (ID, VALUE) VALUES (?, ?)");
+
+        AtomicInteger sequence = new AtomicInteger();
+        SumarisDatabaseMetadata dbMeta = mock(SumarisDatabaseMetadata.class);
+        when(dbMeta.getTable(anyString())).thenReturn(table);
+        when(dbMeta.generateIdentifier(any(Connection.class), any(SumarisTableMetadata.class)))
+            .thenAnswer(invocation -> sequence.incrementAndGet());
+
+        dao = new DataLoaderDaoImpl(mock(EntityManager.class), dataSource);
+        ReflectionTestUtils.setField(dao, "sumarisDatabaseMetadata", dbMeta);
+        ReflectionTestUtils.setField(dao, "configuration", mock(SumarisConfiguration.class));
+    }
+
+    @Test
+    public void loadWithBatchFailure() {
+        assertNothingImported(false);
+    }
+
+    @Test
+    public void loadAndValidateWithBatchFailure() {
+        assertNothingImported(true);
+    }
+
+    /* -- protected methods -- */
+
+    protected void assertNothingImported(boolean validate) {
+        try {
+            dao.load(new IntegerFileReader(ROW_COUNT), DatabaseTableEnum.P01_RDB_LANDING, validate);
+            Assert.fail("Should have failed on the second batch");
+        } catch (Exception e) {
+            // OK
+        }
+
+        // First batch has been sent, then the second failed
+        Assert.assertEquals(2, executeBatchCount.get());
+
+        // No rows should remain
+        Assert.assertTrue(autoCommit.get());
+        Assert.assertEquals(0, pendingRows.size());
+        Assert.assertEquals(0, committedRows.size());
+    }
+
+    private Object commit() {
+        committedRows.addAll(pendingRows);
+        pendingRows.clear();
+        return null;
+    }
+
+    private Object rollback() {
+        pendingRows.clear();
+        batchRows.clear();
+        return null;
+    }
+
+    static class IntegerFileReader implements FileReader {
+        private final int rowCount;
+        private int currentLine = 1; // Headers
+
+        IntegerFileReader(int rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        @Override
+        public String[] readNext() {
+            if (currentLine > rowCount) return null;
+            return new String[]{String.valueOf(currentLine++)};
+        }
+
+        @Override
+        public String[] getHeaders() {
+            return new String[]{"value"};
+        }
+
+        @Override
+        public int getCurrentLine() {
+            return currentLine;
+        }
+
+        @Override
+        public DataLoadResult getResult() {
+            return null;
+        }
+
+        @Override
+        public String getFileName() {
+            return "test.csv";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
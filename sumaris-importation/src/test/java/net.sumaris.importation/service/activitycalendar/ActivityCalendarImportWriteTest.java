@@ -180,6 +180,40 @@ public class ActivityCalendarImportWriteTest extends AbstractServiceTest {
         }
     }
 
+    @Test
+    public void importPrefixFile() {
+        // '8517' is a prefix of an existing registration code ('851751'), but no vessel has this exact code
+        // Blank lines should be skipped
+        String fileName = "activity-calendars-list-prefix.csv";
+        String basePath = "src/test/data/activity-calendar/";
+        File file = new File(basePath, fileName);
+
+        ActivityCalendarImportContextVO context = ActivityCalendarImportContextVO.builder()
+                .recorderPersonId(1)
+                .processingFile(file)
+                .build();
+
+        Future<ActivityCalendarImportResultVO> future = activityCalendarImportService.asyncImportFromFile(context, null);
+        try {
+
+            ActivityCalendarImportResultVO result = future.get();
+
+            // Should NOT insert a duplicated calendar, for the vessel '851751'
+            ActivityCalendarImportResultVO expectedResult = new ActivityCalendarImportResultVO();
+            expectedResult.setStatus(JobStatusEnum.ERROR);
+            expectedResult.setInserts(0);
+            expectedResult.setUpdates(1);
+            expectedResult.setWarnings(0);
+            expectedResult.setErrors(1);
+
+            assertEquals(expectedResult, result, false);
+
+        } catch (InterruptedException | ExecutionException e) {
+            log.error("Unexpected exception: {}", e.getMessage(), e);
+            Assert.fail(e.getMessage());
+        }
+    }
+
     @Test
     public void importWarningFile() {
         String fileName = "activity-calendars-list-warning.csv";
@@ -34,6 +34,7 @@ import org.nuiton.version.VersionBuilder;
 import org.springframework.core.env.ConfigurableEnvironment;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 import java.util.TimeZone;
 
@@ -315,6 +316,38 @@ public class SumarisServerConfiguration extends SumarisConfiguration {
         return applicationConfig.getOption(SumarisServerConfigurationOption.GRAVATAR_URL.getKey());
     }
 
+    public boolean enableReferentialSnapshot() {
+        return applicationConfig.getOptionAsBoolean(SumarisServerConfigurationOption.REFERENTIAL_SNAPSHOT_ENABLED.getKey());
+    }
+
+    public List<String> getReferentialSnapshotEntityNames() {
+        String value = applicationConfig.getOption(SumarisServerConfigurationOption.REFERENTIAL_SNAPSHOT_ENTITY_NAMES.getKey());
+        if (StringUtils.isBlank(value)) return List.of();
+        return Arrays.stream(value.split(","))
+            .map(String::trim)
+            .filter(StringUtils::isNotBlank)
+            .distinct()
+            .toList();
+    }
+
+    public int getReferentialSnapshotDeltaCount() {
+        return applicationConfig.getOptionAsInt(SumarisServerConfigurationOption.REFERENTIAL_SNAPSHOT_DELTA_COUNT.getKey());
+    }
+
+    /**
+     * Max age of the image cache references, in days (0 = no limit)
+     */
+    public int getImageCacheMaxAge() {
+        return applicationConfig.getOptionAsInt(SumarisServerConfigurationOption.IMAGE_CACHE_MAX_AGE.getKey());
+    }
+
+    /**
+     * Max size of the image cache, in MB (0 = no limit)
+     */
+    public int getImageCacheMaxSize() {
+        return applicationConfig.getOptionAsInt(SumarisServerConfigurationOption.IMAGE_CACHE_MAX_SIZE.getKey());
+    }
+
     /* -- Internal methods -- */
 
 
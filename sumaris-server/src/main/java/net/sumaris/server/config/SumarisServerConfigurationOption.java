@@ -173,6 +173,13 @@ public enum SumarisServerConfigurationOption implements ConfigOptionDef {
         Integer.class,
         false),
 
+    AUTH_TOKEN_CACHE_MAX_SIZE(
+        "sumaris.auth.token.cache.maxSize",
+        n("sumaris.config.option.auth.token.cache.maxSize.description"),
+        "10000",
+        Integer.class,
+        false),
+
     ACCESS_NOT_SELF_DATA_MIN_ROLE(
             "sumaris.data.accessNotSelfData.role",
             n("sumaris.config.option.data.accessNotSelfData.role.description"),
@@ -308,6 +315,41 @@ public enum SumarisServerConfigurationOption implements ConfigOptionDef {
         "true",
         Boolean.class,
         false),
+
+    REFERENTIAL_SNAPSHOT_ENABLED(
+        "sumaris.referential.snapshot.enabled",
+        n("sumaris.config.option.referential.snapshot.enabled.description"),
+        "false",
+        Boolean.class,
+        false),
+
+    REFERENTIAL_SNAPSHOT_ENTITY_NAMES(
+        "sumaris.referential.snapshot.entityNames",
+        n("sumaris.config.option.referential.snapshot.entityNames.description"),
+        "Location,LocationLevel,Gear,Metier,TaxonGroup,TaxonName,Pmfm,QualitativeValue",
+        String.class,
+        false),
+
+    REFERENTIAL_SNAPSHOT_DELTA_COUNT(
+        "sumaris.referential.snapshot.delta.count",
+        n("sumaris.config.option.referential.snapshot.delta.count.description"),
+        "10",
+        Integer.class,
+        false),
+
+    IMAGE_CACHE_MAX_AGE(
+        "sumaris.image.cache.maxAge",
+        n("sumaris.config.option.image.cache.maxAge.description"),
+        "30",
+        Integer.class,
+        false),
+
+    IMAGE_CACHE_MAX_SIZE(
+        "sumaris.image.cache.maxSize",
+        n("sumaris.config.option.image.cache.maxSize.description"),
+        "500",
+        Integer.class,
+        false),
     ;
 
     /**
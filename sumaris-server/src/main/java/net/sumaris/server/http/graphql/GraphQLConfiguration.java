@@ -49,6 +49,7 @@ import net.sumaris.core.util.StringUtils;
 import net.sumaris.server.http.graphql.technical.DefaultTypeTransformer;
 import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -133,6 +134,11 @@ public class GraphQLConfiguration implements WebSocketConfigurer {
         return new PerConnectionWebSocketHandler(SubscriptionWebSocketHandler.class);
     }
 
+    @Bean
+    public GraphQLDataLoaderRegistryFactory graphQLDataLoaderRegistryFactory(ObjectProvider<GraphQLDataLoaderConfigurer> configurers) {
+        return new GraphQLDataLoaderRegistryFactory(configurers);
+    }
+
     @Bean
     public GraphQL graphQL() {
         return GraphQL.newGraphQL(graphQLSchema())
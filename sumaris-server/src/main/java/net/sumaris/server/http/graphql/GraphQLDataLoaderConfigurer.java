@@ -0,0 +1,34 @@
+/*
+ * #%L
+ * SUMARiS:: Server
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.server.http.graphql;
+
+import org.dataloader.DataLoaderRegistry;
+
+/**
+ * Register data loaders, into the registry of a GraphQL request.
+ * Called once per request, so loaders (and their cache) never outlive the request.
+ */
+@FunctionalInterface
+public interface GraphQLDataLoaderConfigurer {
+    void configureDataLoaders(DataLoaderRegistry registry);
+}
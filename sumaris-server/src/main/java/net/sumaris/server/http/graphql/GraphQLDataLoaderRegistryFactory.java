@@ -0,0 +1,45 @@
+/*
+ * #%L
+ * SUMARiS:: Server
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.server.http.graphql;
+
+import lombok.NonNull;
+import org.dataloader.DataLoaderRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Create a new data loader registry, for each GraphQL request
+ */
+public class GraphQLDataLoaderRegistryFactory {
+
+    private final ObjectProvider<GraphQLDataLoaderConfigurer> configurers;
+
+    public GraphQLDataLoaderRegistryFactory(@NonNull ObjectProvider<GraphQLDataLoaderConfigurer> configurers) {
+        this.configurers = configurers;
+    }
+
+    public DataLoaderRegistry create() {
+        DataLoaderRegistry registry = new DataLoaderRegistry();
+        configurers.orderedStream().forEach(configurer -> configurer.configureDataLoaders(registry));
+        return registry;
+    }
+}
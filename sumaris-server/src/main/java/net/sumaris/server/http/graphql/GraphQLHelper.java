@@ -33,6 +33,7 @@ import graphql.GraphQLException;
 import graphql.execution.AbortExecutionException;
 import graphql.execution.ResultPath;
 import graphql.kickstart.execution.error.GenericGraphQLError;
+import io.leangen.graphql.execution.ResolutionEnvironment;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.exception.SumarisBusinessException;
 import net.sumaris.core.exception.SumarisTechnicalException;
@@ -42,12 +43,15 @@ import net.sumaris.server.http.security.AnonymousUserDetails;
 import net.sumaris.server.http.security.AuthService;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.dataloader.DataLoader;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.security.access.AccessDeniedException;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 @Slf4j
 public class GraphQLHelper extends GraphQLUtils {
@@ -82,6 +86,20 @@ public class GraphQLHelper extends GraphQLUtils {
         }
     }
 
+    /**
+     * Load a value using the data loader of the current request. If no loader has been registered
+     * (e.g. websocket execution), load it directly
+     */
+    public static <K, V> CompletableFuture<V> load(ResolutionEnvironment env, String dataLoaderName, K key, Function<K, V> directLoader) {
+        DataLoader<K, V> dataLoader = (env != null && env.dataFetchingEnvironment != null)
+            ? env.dataFetchingEnvironment.getDataLoader(dataLoaderName)
+            : null;
+        if (dataLoader == null) {
+            return CompletableFuture.completedFuture(directLoader.apply(key));
+        }
+        return dataLoader.load(key);
+    }
+
     public static Map<String, Object> processExecutionResult(ExecutionResult executionResult) {
         if (CollectionUtils.isEmpty(executionResult.getErrors())) return executionResult.toSpecification();
 
@@ -46,13 +46,16 @@ public class GraphQLRestController {
 
     private final GraphQL graphQL;
     private final ObjectMapper objectMapper;
+    private final GraphQLDataLoaderRegistryFactory dataLoaderRegistryFactory;
     private boolean ready = false;
 
     @Autowired
     public GraphQLRestController(GraphQL graphQL,
-                                 ObjectMapper objectMapper) {
+                                 ObjectMapper objectMapper,
+                                 GraphQLDataLoaderRegistryFactory dataLoaderRegistryFactory) {
         this.graphQL = graphQL;
         this.objectMapper = objectMapper;
+        this.dataLoaderRegistryFactory = dataLoaderRegistryFactory;
         log.info("Starting GraphQL endpoint {{}}...", GraphQLPaths.BASE_PATH);
     }
 
@@ -84,6 +87,8 @@ public class GraphQLRestController {
                 .operationName((String) request.get("operationName"))
                 .variables(GraphQLHelper.getVariables(request, objectMapper))
                 .context(rawRequest)
+                // New registry for each request: loaders cache must not be shared between requests
+                .dataLoaderRegistry(dataLoaderRegistryFactory.create())
                 .build());
         }
 
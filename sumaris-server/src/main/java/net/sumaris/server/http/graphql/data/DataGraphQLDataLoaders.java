@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * SUMARiS:: Server
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.server.http.graphql.data;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.service.data.*;
+import net.sumaris.server.http.graphql.GraphQLDataLoaderConfigurer;
+import org.dataloader.DataLoaderFactory;
+import org.dataloader.DataLoaderOptions;
+import org.dataloader.DataLoaderRegistry;
+import org.dataloader.MappedBatchLoader;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Data loaders used by {@link DataGraphQLService}, to resolve children of many parents (e.g. gears of all trips)
+ * using one query, instead of one query per parent.
+ *
+ * @author benoit.lavenier@e-is.pro
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DataGraphQLDataLoaders implements GraphQLDataLoaderConfigurer {
+
+    public interface Names {
+        String TRIP_GEARS = "tripGears";
+        String TRIP_SALES = "tripSales";
+        String TRIP_METIERS = "tripMetiers";
+        String TRIP_VESSEL_USE_MEASUREMENTS_MAP = "tripVesselUseMeasurementsMap";
+        String OPERATION_VESSEL_USE_MEASUREMENTS_MAP = "operationVesselUseMeasurementsMap";
+        String OPERATION_GEAR_USE_MEASUREMENTS_MAP = "operationGearUseMeasurementsMap";
+        String OPERATION_FISHING_AREAS = "operationFishingAreas";
+    }
+
+    /**
+     * Limit the size of the 'IN (...)' clause (Oracle allow 1000 items max)
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private final PhysicalGearService physicalGearService;
+
+    private final SaleService saleService;
+
+    private final OperationGroupService operationGroupService;
+
+    private final MeasurementService measurementService;
+
+    private final FishingAreaService fishingAreaService;
+
+    @Override
+    public void configureDataLoaders(DataLoaderRegistry registry) {
+        // Trip
+        register(registry, Names.TRIP_GEARS,
+            tripIds -> physicalGearService.getAllByTripIds(tripIds, null),
+            ImmutableList::of);
+        register(registry, Names.TRIP_SALES,
+            tripIds -> saleService.getAllByTripIds(tripIds, null),
+            ImmutableList::of);
+        register(registry, Names.TRIP_METIERS,
+            operationGroupService::getMetiersByTripIds,
+            ImmutableList::of);
+        register(registry, Names.TRIP_VESSEL_USE_MEASUREMENTS_MAP,
+            measurementService::getTripsVesselUseMeasurementsMap,
+            ImmutableMap::of);
+
+        // Operation (and operation group)
+        register(registry, Names.OPERATION_VESSEL_USE_MEASUREMENTS_MAP,
+            measurementService::getOperationsVesselUseMeasurementsMap,
+            ImmutableMap::of);
+        register(registry, Names.OPERATION_GEAR_USE_MEASUREMENTS_MAP,
+            measurementService::getOperationsGearUseMeasurementsMap,
+            ImmutableMap::of);
+        register(registry, Names.OPERATION_FISHING_AREAS,
+            fishingAreaService::getAllByOperationIds,
+            ImmutableList::of);
+    }
+
+    /* -- protected functions -- */
+
+    protected <V> void register(DataLoaderRegistry registry,
+                                String name,
+                                Function<Set<Integer>, Map<Integer, ? extends V>> loader,
+                                Supplier<V> defaultValue) {
+        MappedBatchLoader<Integer, V> batchLoader = parentIds -> {
+            if (log.isDebugEnabled()) log.debug("Loading {} for {} parents, in one query", name, parentIds.size());
+            Map<Integer, ? extends V> loadedValues = loader.apply(parentIds);
+
+            // Fill missing parents (same result as a parent without children)
+            Map<Integer, V> result = Maps.newHashMapWithExpectedSize(parentIds.size());
+            parentIds.forEach(parentId -> {
+                V value = loadedValues != null ? loadedValues.get(parentId) : null;
+                result.put(parentId, value != null ? value : defaultValue.get());
+            });
+            return CompletableFuture.completedFuture(result);
+        };
+        registry.register(name, DataLoaderFactory.newMappedDataLoader(batchLoader,
+            DataLoaderOptions.newOptions().setMaxBatchSize(MAX_BATCH_SIZE)));
+    }
+}
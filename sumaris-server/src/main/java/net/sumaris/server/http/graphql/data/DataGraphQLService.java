@@ -89,6 +89,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @GraphQLApi
@@ -460,10 +461,12 @@ public class DataGraphQLService {
     }
 
     @GraphQLQuery(name = "gears", description = "Get operation's gears")
-    public List<PhysicalGearVO> getGearsByTrip(@GraphQLContext TripVO trip) {
-        if (trip.getGears() != null) return trip.getGears();
-        if (trip.getId() == null) return null;
-        return physicalGearService.getAllByTripId(trip.getId(), null);
+    public CompletableFuture<List<PhysicalGearVO>> getGearsByTrip(@GraphQLContext TripVO trip,
+                                                                  @GraphQLEnvironment ResolutionEnvironment env) {
+        if (trip.getGears() != null) return CompletableFuture.completedFuture(trip.getGears());
+        if (trip.getId() == null) return CompletableFuture.completedFuture(null);
+        return GraphQLHelper.load(env, DataGraphQLDataLoaders.Names.TRIP_GEARS, trip.getId(),
+            tripId -> physicalGearService.getAllByTripId(tripId, null));
     }
 
     @GraphQLQuery(name = "trip", description = "Get physical gear's trip")
@@ -497,11 +500,13 @@ public class DataGraphQLService {
     }
 
     @GraphQLQuery(name = "metiers", description = "Get trip metiers")
-    public List<MetierVO> getTripMetiers(@GraphQLContext TripVO trip) {
+    public CompletableFuture<List<MetierVO>> getTripMetiers(@GraphQLContext TripVO trip,
+                                                            @GraphQLEnvironment ResolutionEnvironment env) {
         if (trip.getMetiers() != null) {
-            return trip.getMetiers();
+            return CompletableFuture.completedFuture(trip.getMetiers());
         }
-        return operationGroupService.getMetiersByTripId(trip.getId());
+        return GraphQLHelper.load(env, DataGraphQLDataLoaders.Names.TRIP_METIERS, trip.getId(),
+            operationGroupService::getMetiersByTripId);
     }
 
 
@@ -715,13 +720,15 @@ public class DataGraphQLService {
     /* -- Sales -- */
 
     @GraphQLQuery(name = "sales", description = "Get trip's sales")
-    public List<SaleVO> getSalesByTrip(@GraphQLContext TripVO trip) {
+    public CompletableFuture<List<SaleVO>> getSalesByTrip(@GraphQLContext TripVO trip,
+                                                          @GraphQLEnvironment ResolutionEnvironment env) {
         // Optimization: avoid fetching expected sale when not need (fix #IMAGINE-651)
-        if (trip.getHasSales() == Boolean.FALSE) return null;
+        if (trip.getHasSales() == Boolean.FALSE) return CompletableFuture.completedFuture(null);
 
-        if (trip.getSales() != null) return trip.getSales();
-        if (trip.getId() == null) return null;
-        return saleService.getAllByTripId(trip.getId(), null);
+        if (trip.getSales() != null) return CompletableFuture.completedFuture(trip.getSales());
+        if (trip.getId() == null) return CompletableFuture.completedFuture(null);
+        return GraphQLHelper.load(env, DataGraphQLDataLoaders.Names.TRIP_SALES, trip.getId(),
+            tripId -> saleService.getAllByTripId(tripId, null));
     }
 
     @GraphQLQuery(name = "sales", description = "Get landing's sales")
@@ -1546,10 +1553,12 @@ public class DataGraphQLService {
     }
 
     @GraphQLQuery(name = "measurementValues", description = "Get trip's measurements")
-    public Map<Integer, String> getTripVesselUseMeasurementsMap(@GraphQLContext TripVO trip) {
-        if (trip.getMeasurementValues() != null) return trip.getMeasurementValues();
-        if (trip.getId() == null) return null;
-        return measurementService.getTripVesselUseMeasurementsMap(trip.getId());
+    public CompletableFuture<Map<Integer, String>> getTripVesselUseMeasurementsMap(@GraphQLContext TripVO trip,
+                                                                                  @GraphQLEnvironment ResolutionEnvironment env) {
+        if (trip.getMeasurementValues() != null) return CompletableFuture.completedFuture(trip.getMeasurementValues());
+        if (trip.getId() == null) return CompletableFuture.completedFuture(null);
+        return GraphQLHelper.load(env, DataGraphQLDataLoaders.Names.TRIP_VESSEL_USE_MEASUREMENTS_MAP, trip.getId(),
+            measurementService::getTripVesselUseMeasurementsMap);
     }
 
     // Operation
@@ -1562,10 +1571,12 @@ public class DataGraphQLService {
     }
 
     @GraphQLQuery(name = "measurementValues", description = "Get operation's measurements")
-    public Map<Integer, String> getOperationVesselUseMeasurementsMap(@GraphQLContext OperationVO operation) {
-        if (operation.getMeasurementValues() != null) return operation.getMeasurementValues();
-        if (operation.getId() == null) return null;
-        return measurementService.getOperationVesselUseMeasurementsMap(operation.getId());
+    public CompletableFuture<Map<Integer, String>> getOperationVesselUseMeasurementsMap(@GraphQLContext OperationVO operation,
+                                                                                       @GraphQLEnvironment ResolutionEnvironment env) {
+        if (operation.getMeasurementValues() != null) return CompletableFuture.completedFuture(operation.getMeasurementValues());
+        if (operation.getId() == null) return CompletableFuture.completedFuture(null);
+        return GraphQLHelper.load(env, DataGraphQLDataLoaders.Names.OPERATION_VESSEL_USE_MEASUREMENTS_MAP, operation.getId(),
+            measurementService::getOperationVesselUseMeasurementsMap);
     }
 
     @GraphQLQuery(name = "gearMeasurements", description = "Get operation's gear measurements")
@@ -1576,10 +1587,12 @@ public class DataGraphQLService {
     }
 
     @GraphQLQuery(name = "gearMeasurementValues", description = "Get operation's gear measurements")
-    public Map<Integer, String> getOperationGearUseMeasurementsMap(@GraphQLContext OperationVO operation) {
-        if (operation.getGearMeasurementValues() != null) return operation.getGearMeasurementValues();
-        if (operation.getId() == null) return null;
-        return measurementService.getOperationGearUseMeasurementsMap(operation.getId());
+    public CompletableFuture<Map<Integer, String>> getOperationGearUseMeasurementsMap(@GraphQLContext OperationVO operation,
+                                                                                     @GraphQLEnvironment ResolutionEnvironment env) {
+        if (operation.getGearMeasurementValues() != null) return CompletableFuture.completedFuture(operation.getGearMeasurementValues());
+        if (operation.getId() == null) return CompletableFuture.completedFuture(null);
+        return GraphQLHelper.load(env, DataGraphQLDataLoaders.Names.OPERATION_GEAR_USE_MEASUREMENTS_MAP, operation.getId(),
+            measurementService::getOperationGearUseMeasurementsMap);
     }
 
     // Operation Group
@@ -1591,10 +1604,12 @@ public class DataGraphQLService {
     }
 
     @GraphQLQuery(name = "measurementValues", description = "Get operation group's measurements")
-    public Map<Integer, String> getOperationGroupVesselUseMeasurementsMap(@GraphQLContext OperationGroupVO operationGroup) {
-        if (operationGroup.getMeasurementValues() != null) return operationGroup.getMeasurementValues();
-        if (operationGroup.getId() == null) return null;
-        return measurementService.getOperationVesselUseMeasurementsMap(operationGroup.getId());
+    public CompletableFuture<Map<Integer, String>> getOperationGroupVesselUseMeasurementsMap(@GraphQLContext OperationGroupVO operationGroup,
+                                                                                            @GraphQLEnvironment ResolutionEnvironment env) {
+        if (operationGroup.getMeasurementValues() != null) return CompletableFuture.completedFuture(operationGroup.getMeasurementValues());
+        if (operationGroup.getId() == null) return CompletableFuture.completedFuture(null);
+        return GraphQLHelper.load(env, DataGraphQLDataLoaders.Names.OPERATION_VESSEL_USE_MEASUREMENTS_MAP, operationGroup.getId(),
+            measurementService::getOperationVesselUseMeasurementsMap);
     }
 
     @GraphQLQuery(name = "gearMeasurements", description = "Get operation group's gear measurements")
@@ -1605,10 +1620,12 @@ public class DataGraphQLService {
     }
 
     @GraphQLQuery(name = "gearMeasurementValues", description = "Get operation group's gear measurements")
-    public Map<Integer, String> getOperationGroupGearUseMeasurementsMap(@GraphQLContext OperationGroupVO operationGroup) {
-        if (operationGroup.getGearMeasurementValues() != null) return operationGroup.getGearMeasurementValues();
-        if (operationGroup.getId() == null) return null;
-        return measurementService.getOperationGearUseMeasurementsMap(operationGroup.getId());
+    public CompletableFuture<Map<Integer, String>> getOperationGroupGearUseMeasurementsMap(@GraphQLContext OperationGroupVO operationGroup,
+                                                                                          @GraphQLEnvironment ResolutionEnvironment env) {
+        if (operationGroup.getGearMeasurementValues() != null) return CompletableFuture.completedFuture(operationGroup.getGearMeasurementValues());
+        if (operationGroup.getId() == null) return CompletableFuture.completedFuture(null);
+        return GraphQLHelper.load(env, DataGraphQLDataLoaders.Names.OPERATION_GEAR_USE_MEASUREMENTS_MAP, operationGroup.getId(),
+            measurementService::getOperationGearUseMeasurementsMap);
     }
 
 
@@ -1636,18 +1653,20 @@ public class DataGraphQLService {
     }
 
     @GraphQLQuery(name = "fishingAreas", description = "Get operation's fishing areas")
-    public List<FishingAreaVO> getOperationFishingAreas(@GraphQLContext OperationVO operation) {
+    public CompletableFuture<List<FishingAreaVO>> getOperationFishingAreas(@GraphQLContext OperationVO operation,
+                                                                           @GraphQLEnvironment ResolutionEnvironment env) {
         if (operation.getFishingAreas() != null) {
             // FIXME: after the first save (when id = null), the id is not set
             boolean hasAllIds = operation.getFishingAreas().stream()
                     .map(FishingAreaVO::getId)
                     .noneMatch(Objects::isNull);
-            if (hasAllIds) return operation.getFishingAreas();
+            if (hasAllIds) return CompletableFuture.completedFuture(operation.getFishingAreas());
         }
 
-        if (operation.getId() == null) return null; // Cannot load
+        if (operation.getId() == null) return CompletableFuture.completedFuture(null); // Cannot load
 
-        return fishingAreaService.getAllByOperationId(operation.getId());
+        return GraphQLHelper.load(env, DataGraphQLDataLoaders.Names.OPERATION_FISHING_AREAS, operation.getId(),
+            fishingAreaService::getAllByOperationId);
     }
 
     @GraphQLQuery(name = "fishingAreas", description = "Get operation group's fishing areas")
@@ -134,6 +134,7 @@ public class JobGraphQLService {
 
         JobFilterVO finalFilter = filter;
         return entityWatchService.watchEntities(ProcessingHistory.class,
+                filter, // Share the watch, between subscribers of the same filter
                 Observables.distinctUntilChanged(() -> {
                     log.debug("Checking jobs for {} ...", finalFilter.getIssuer());
                     // find next 10 events
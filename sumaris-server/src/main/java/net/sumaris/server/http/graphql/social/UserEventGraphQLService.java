@@ -135,6 +135,7 @@ public class UserEventGraphQLService {
 
         return entityWatchService.watchEntities(
                 UserEvent.class,
+                filter, // Share the watch, between subscribers of the same filter
                 Observables.distinctUntilChanged(() -> {
                     log.debug("Checking events for User#{} from {}", finalFilter.getRecipients(), finalFilter.getStartDate());
 
@@ -183,6 +184,7 @@ public class UserEventGraphQLService {
         UserEventFilterVO finalFilter = filter;
         return entityWatchService.watchEntitiesCount(
                 UserEvent.class,
+                filter, // Share the watch, between subscribers of the same filter
                 Observables.distinctUntilChanged(() -> {
                     log.debug("Checking events count for users {} from {}", finalFilter.getRecipients(), finalFilter.getStartDate());
                     // find new user events
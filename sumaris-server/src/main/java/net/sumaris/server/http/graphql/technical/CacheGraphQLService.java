@@ -25,11 +25,14 @@ package net.sumaris.server.http.graphql.technical;
 import io.leangen.graphql.annotations.GraphQLArgument;
 import io.leangen.graphql.annotations.GraphQLQuery;
 import lombok.RequiredArgsConstructor;
+import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.dao.technical.cache.CacheManager;
 import net.sumaris.core.dao.technical.cache.ICacheManager;
 import net.sumaris.core.util.StringUtils;
+import net.sumaris.extraction.core.dao.ExtractionBaseDaoImpl;
 import net.sumaris.server.http.graphql.GraphQLApi;
+import net.sumaris.server.http.security.AuthService;
 import net.sumaris.server.http.security.IsAdmin;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.stereotype.Component;
@@ -46,10 +49,20 @@ public class CacheGraphQLService {
 
     private final ICacheManager cacheManager;
 
+    private final AuthService authService;
+
     @GraphQLQuery(name = "cacheStatistics", description = "Get cache statistics")
     @IsAdmin
     public Map<String, Map<String, Long>> getCacheStats() {
-        return cacheManager.getCacheStats();
+        Map<String, Map<String, Long>> result = Maps.newTreeMap();
+        result.putAll(cacheManager.getCacheStats());
+
+        // Add the verified auth tokens cache (not managed by the cache manager)
+        result.put("authTokens", authService.getTokenCacheStats());
+
+        // Add the parsed XML query files cache, used by extractions (not managed by the cache manager)
+        result.put("xmlQueryTemplates", ExtractionBaseDaoImpl.getXMLQueryTemplateStats());
+        return result;
     }
 
     @GraphQLQuery(name = "clearCache", description = "Clear a single cache or all caches")
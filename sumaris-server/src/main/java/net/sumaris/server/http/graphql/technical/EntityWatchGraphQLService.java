@@ -0,0 +1,49 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.server.http.graphql.technical;
+
+import io.leangen.graphql.annotations.GraphQLQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.server.http.graphql.GraphQLApi;
+import net.sumaris.server.http.security.IsAdmin;
+import net.sumaris.server.service.technical.EntityWatchService;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Slf4j
+@Component
+@GraphQLApi
+@RequiredArgsConstructor
+public class EntityWatchGraphQLService {
+
+    private final EntityWatchService entityWatchService;
+
+    @GraphQLQuery(name = "entityWatchStatistics", description = "Get statistics of shared entity watches (subscribers, database hits, events)")
+    @IsAdmin
+    public Map<String, Map<String, Long>> getWatchStatistics() {
+        return entityWatchService.getWatchStatistics();
+    }
+
+}
@@ -35,6 +35,7 @@ import net.sumaris.server.config.ServerCacheConfiguration;
 import net.sumaris.server.config.SumarisServerConfiguration;
 import net.sumaris.server.config.SumarisServerConfigurationOption;
 import net.sumaris.server.http.MediaTypes;
+import net.sumaris.server.service.administration.ImageBlobCache;
 import net.sumaris.server.service.administration.ImageService;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.collections4.MapUtils;
@@ -42,16 +43,20 @@ import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.ResourceLoaderAware;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.view.RedirectView;
 
+import javax.annotation.Nullable;
 import javax.servlet.ServletContext;
 import java.io.*;
+import java.util.function.Supplier;
 
 @RestController
 @Slf4j
@@ -69,6 +74,9 @@ public class ImageRestController implements ResourceLoaderAware {
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private ImageBlobCache imageBlobCache;
+
     @Autowired
     private ConfigurationService configurationService;
 
@@ -84,28 +92,33 @@ public class ImageRestController implements ResourceLoaderAware {
     @ResponseBody
     @RequestMapping(value = RestPaths.PERSON_AVATAR_PATH, method = RequestMethod.GET,
             produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE})
-    public ResponseEntity<?> getPersonAvatar(@PathVariable(name="pubkey") String pubkey) throws IOException {
-        return personService.findAvatarByPubkey(pubkey)
-            .map(this::getImageResponse)
-            .orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<?> getPersonAvatar(@PathVariable(name="pubkey") String pubkey,
+                                             @RequestParam(name="size", required = false) Integer size,
+                                             WebRequest request) throws IOException {
+        ImageAttachmentVO image = personService.findAvatarByPubkey(pubkey).orElse(null);
+        return getImageResponse(image, size, request);
     }
 
     @ResponseBody
     @RequestMapping(value = RestPaths.DEPARTMENT_LOGO_PATH, method = RequestMethod.GET,
             produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE})
-    public ResponseEntity<?> getDepartmentLogo(@PathVariable(name="label") String label) throws IOException {
-        return departmentService.findLogoByLabel(label)
-            .map(this::getImageResponse)
-            .orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<?> getDepartmentLogo(@PathVariable(name="label") String label,
+                                               @RequestParam(name="size", required = false) Integer size,
+                                               WebRequest request) throws IOException {
+        ImageAttachmentVO image = departmentService.findLogoByLabel(label).orElse(null);
+        return getImageResponse(image, size, request);
     }
 
     @ResponseBody
     @RequestMapping(value = RestPaths.IMAGE_PATH, method = RequestMethod.GET,
             produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE})
-    public ResponseEntity<?> getImage(@NonNull @PathVariable(name="id") Integer id) throws IOException {
+    public ResponseEntity<?> getImage(@NonNull @PathVariable(name="id") Integer id,
+                                      @RequestParam(name="size", required = false) Integer size,
+                                      WebRequest request) throws IOException {
         try {
-            ImageAttachmentVO image = imageService.find(id, ImageAttachmentFetchOptions.WITH_CONTENT);
-            return getImageResponse(image);
+            // Content will be loaded only if not in the cache
+            ImageAttachmentVO image = imageService.find(id, ImageAttachmentFetchOptions.MINIMAL);
+            return getImageResponse(image, size, request);
         }
         catch (Exception e) {
             log.error("Error while fetching image #{}: {}", id, e.getMessage());
@@ -130,7 +143,7 @@ public class ImageRestController implements ResourceLoaderAware {
         // Parse URI like 'image:<ID>'
         if (favicon.startsWith(ImageService.URI_IMAGE_SUFFIX)) {
             String imageId = favicon.substring(ImageService.URI_IMAGE_SUFFIX.length());
-            return getImage(Integer.parseInt(imageId));
+            return getImage(Integer.parseInt(imageId), null, null);
         }
 
         // Redirect to the URL
@@ -160,7 +173,7 @@ public class ImageRestController implements ResourceLoaderAware {
 
     }
 
-    protected ResponseEntity<?> getImageResponse(ImageAttachmentVO image) {
+    protected ResponseEntity<?> getImageResponse(ImageAttachmentVO image, @Nullable Integer size, @Nullable WebRequest request) {
         if (image == null) {
             return ResponseEntity.notFound().build();
         }
@@ -188,12 +201,24 @@ public class ImageRestController implements ResourceLoaderAware {
             }
 
             log.debug("Request to image {} of type {}", filename, mediaType);
-            InputStreamResource resource = null;
-            try {
-                resource = new InputStreamResource(new FileInputStream(file));
-            } catch (FileNotFoundException e) {
-                log.error("Cannot read image file: {}", file.getAbsolutePath(), e);
-                ResponseEntity.internalServerError().build();
+
+            // Thumbnail: use the cache
+            Integer thumbnailSize = ImageBlobCache.toThumbnailSize(size);
+            if (thumbnailSize != null) {
+                String ref = String.format("file:%s:%s", filename, file.lastModified());
+                return getBlobResponse(ref, file.lastModified(), thumbnailSize, request, () -> {
+                    try {
+                        return java.nio.file.Files.readAllBytes(file.toPath());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, mediaType.toString());
+            }
+
+            // Weak ETag, from the file size and date
+            String eTag = String.format("W/\"%s-%s\"", file.length(), file.lastModified());
+            if (request != null && request.checkNotModified(eTag, file.lastModified())) {
+                return null; // 304 Not Modified
             }
 
             return ResponseEntity.ok()
@@ -201,16 +226,60 @@ public class ImageRestController implements ResourceLoaderAware {
                 .contentType(mediaType)
                 // Content-Length
                 .contentLength(file.length())
-                .body(resource);
+                .eTag(eTag)
+                .lastModified(file.lastModified())
+                .cacheControl(CacheControl.noCache())
+                .body(new FileSystemResource(file));
+        }
+
+        // Decoded image is cached, by image id and update date
+        long lastModified = image.getUpdateDate() != null ? image.getUpdateDate().getTime() : -1L;
+        String ref = image.getId() != null && image.getUpdateDate() != null
+            ? String.format("image:%s:%s", image.getId(), lastModified)
+            : null;
+        return getBlobResponse(ref, lastModified, ImageBlobCache.toThumbnailSize(size), request, () -> {
+            // Load the content, if need
+            String content = image.getContent();
+            if (content == null && image.getId() != null) {
+                content = imageService.find(image.getId(), ImageAttachmentFetchOptions.WITH_CONTENT).getContent();
+            }
+            return content != null ? Base64.decodeBase64(content) : null;
+        }, image.getContentType());
+    }
+
+    protected ResponseEntity<?> getBlobResponse(@Nullable String ref,
+                                                long lastModified,
+                                                @Nullable Integer thumbnailSize,
+                                                @Nullable WebRequest request,
+                                                Supplier<byte[]> contentLoader,
+                                                String contentType) {
+        // Find in cache, or load the content
+        ImageBlobCache.Blob blob = ref != null ? imageBlobCache.findByRef(ref).orElse(null) : null;
+        if (blob == null) {
+            byte[] content = contentLoader.get();
+            if (content == null) return ResponseEntity.notFound().build();
+            blob = imageBlobCache.put(ref, content, StringUtils.defaultIfBlank(contentType, MediaType.APPLICATION_OCTET_STREAM_VALUE));
+        }
+
+        // Check if the client already has this version (before creating the thumbnail)
+        String eTag = new ImageBlobCache.Blob(blob.hash(), blob.file(), blob.contentType(), thumbnailSize).getETag();
+        if (request != null && request.checkNotModified(eTag, lastModified)) {
+            return null; // 304 Not Modified
+        }
+
+        if (thumbnailSize != null) {
+            blob = imageBlobCache.getThumbnail(blob, thumbnailSize);
         }
 
-        byte[] bytes = Base64.decodeBase64(image.getContent());
-        return ResponseEntity.ok()
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
             // Content-Type
-            .contentType(MediaType.parseMediaType(image.getContentType()))
+            .contentType(MediaType.parseMediaType(blob.contentType()))
             // Content-Length
-            .contentLength(bytes.length)
-            .body(bytes);
+            .contentLength(blob.file().length())
+            .eTag(eTag)
+            .cacheControl(CacheControl.noCache());
+        if (lastModified >= 0) response.lastModified(lastModified);
+        return response.body(new FileSystemResource(blob.file()));
     }
 
 }
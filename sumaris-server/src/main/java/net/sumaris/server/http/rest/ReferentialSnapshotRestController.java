@@ -0,0 +1,105 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.server.http.rest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.server.service.referential.ReferentialSnapshotService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Download referential snapshots (full or delta), as binary files.
+ * <p>
+ * Use 'since=&lt;version&gt;' to get the delta to the next version. If there is no delta from this version
+ * (e.g. too old), the last full snapshot is returned. Check the 'X-Snapshot-From-Version' header
+ * (0 if full snapshot) then repeat, until the 'X-Snapshot-Version' header equals to the last version.
+ * </p>
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+public class ReferentialSnapshotRestController {
+
+    public static final String VERSION_HEADER = "X-Snapshot-Version";
+    public static final String FROM_VERSION_HEADER = "X-Snapshot-From-Version";
+
+    private final ReferentialSnapshotService snapshotService;
+
+    @ResponseBody
+    @GetMapping(value = RestPaths.REFERENTIAL_SNAPSHOTS_PATH, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Long>> getVersions() {
+        if (!snapshotService.isEnabled()) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noCache())
+            .body(snapshotService.getVersions());
+    }
+
+    @ResponseBody
+    @GetMapping(value = RestPaths.REFERENTIAL_SNAPSHOT_PATH, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> getSnapshot(@PathVariable(name = "entityName") String entityName,
+                                         @RequestParam(name = "since", required = false) Long sinceVersion,
+                                         WebRequest request) {
+        Long version = snapshotService.isEnabled() ? snapshotService.getVersions().get(entityName) : null;
+        if (version == null) return ResponseEntity.notFound().build();
+
+        // Already up to date
+        if (Objects.equals(sinceVersion, version)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .header(VERSION_HEADER, String.valueOf(version))
+                .build();
+        }
+
+        // Delta from the given version, or the full snapshot
+        Optional<ReferentialSnapshotService.SnapshotFile> delta = sinceVersion != null
+            ? snapshotService.findDelta(entityName, sinceVersion)
+            : Optional.empty();
+        ReferentialSnapshotService.SnapshotFile snapshot = delta
+            .or(() -> snapshotService.findSnapshot(entityName))
+            .orElse(null);
+        if (snapshot == null) return ResponseEntity.notFound().build();
+
+        String eTag = snapshot.getETag();
+        if (request != null && request.checkNotModified(eTag)) {
+            return null; // 304 Not Modified
+        }
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .contentLength(snapshot.file().length())
+            .eTag(eTag)
+            .cacheControl(CacheControl.noCache())
+            .header(VERSION_HEADER, String.valueOf(snapshot.version()))
+            .header(FROM_VERSION_HEADER, String.valueOf(snapshot.fromVersion()))
+            .body(new FileSystemResource(snapshot.file()));
+    }
+}
@@ -44,6 +44,10 @@ public interface RestPaths {
 
     String NODE_HEALTH_PATH = BASE_API_PATH + "/node/health";
 
+    String REFERENTIAL_SNAPSHOTS_PATH = BASE_API_PATH + "/referential/snapshot";
+
+    String REFERENTIAL_SNAPSHOT_PATH = REFERENTIAL_SNAPSHOTS_PATH + "/{entityName}";
+
     String DOWNLOAD_PATH = "/download";
 
     String UPLOAD_PATH = "/upload";
@@ -35,6 +35,7 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface AuthService extends ISecurityContext<PersonVO> {
@@ -89,6 +90,11 @@ public interface AuthService extends ISecurityContext<PersonVO> {
 
     void invalidateToken(String token);
 
+    /**
+     * Get statistics of the verified tokens cache (size, maxSize, hitCount, missCount, evictionCount)
+     */
+    Map<String, Long> getTokenCacheStats();
+
     AuthTokenVO createResetToken(String username);
 
     AuthUserDetails validateResetPasswordToken(@NonNull AuthTokenVO token);
@@ -30,12 +30,14 @@ import net.sumaris.core.event.entity.EntityDeleteEvent;
 import net.sumaris.core.event.entity.EntityEventService;
 import net.sumaris.core.event.entity.EntityUpdateEvent;
 import net.sumaris.core.model.administration.user.Person;
+import net.sumaris.core.model.administration.user.UserToken;
 import net.sumaris.core.model.referential.UserProfileEnum;
 import net.sumaris.core.service.administration.PersonService;
 import net.sumaris.core.util.Beans;
 import net.sumaris.core.util.crypto.CryptoUtils;
 import net.sumaris.core.vo.administration.user.PersonVO;
 import net.sumaris.core.vo.administration.user.Persons;
+import net.sumaris.core.vo.administration.user.UserTokenVO;
 import net.sumaris.server.config.SumarisServerConfiguration;
 import net.sumaris.server.config.SumarisServerConfigurationOption;
 import net.sumaris.server.service.administration.AccountService;
@@ -59,6 +61,7 @@ import org.springframework.stereotype.Service;
 import java.text.ParseException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -100,7 +103,8 @@ public class AuthServiceImpl implements AuthService {
         this.challenges = new ValidationExpiredCache(challengeLifeTimeInSeconds);
 
         int tokenLifeTimeInSeconds = Integer.parseInt(environment.getProperty(SumarisServerConfigurationOption.AUTH_TOKEN_LIFE_TIME.getKey(), SumarisServerConfigurationOption.AUTH_TOKEN_LIFE_TIME.getDefaultValue()));
-        this.checkedTokens = new ValidationExpiredCacheMap<>(tokenLifeTimeInSeconds);
+        int tokenCacheMaxSize = Integer.parseInt(environment.getProperty(SumarisServerConfigurationOption.AUTH_TOKEN_CACHE_MAX_SIZE.getKey(), SumarisServerConfigurationOption.AUTH_TOKEN_CACHE_MAX_SIZE.getDefaultValue()));
+        this.checkedTokens = new ValidationExpiredCacheMap<>(tokenLifeTimeInSeconds, tokenCacheMaxSize);
         this.checkedUsernames = new ValidationExpiredCacheMap<>(tokenLifeTimeInSeconds);
         this.checkedPubkeys = new ValidationExpiredCacheMap<>(tokenLifeTimeInSeconds);
 
@@ -126,6 +130,14 @@ public class AuthServiceImpl implements AuthService {
             }
         }, Person.class);
 
+        // Listen deleted tokens (e.g. after a logout or a pubkey change, on another node)
+        entityEventService.registerListener(new EntityEventService.Listener() {
+            @Override
+            public void onDelete(EntityDeleteEvent event) {
+                onUserTokenDeleteEvent(event);
+            }
+        }, UserToken.class);
+
         // Change security context holder strategy to inheritable thread local
         SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_INHERITABLETHREADLOCAL);
     }
@@ -138,19 +150,20 @@ public class AuthServiceImpl implements AuthService {
 
             if (Persons.isDisableOrDeleted(person)) {
                 log.info("Disabling authentication for user with pubkey {{}}", person.getPubkey());
-                // Delete all tokens in database (and cache) to force user to logout
-                List<String> tokens =  accountService.deleteAllTokensByPubkey(person.getPubkey());
-                Beans.getStream(tokens).forEach(checkedTokens::remove);
+                // Delete all tokens in database, to force user to logout
+                // (will emit delete events, to clean the cache of other nodes)
+                accountService.deleteAllTokensByPubkey(person.getPubkey());
             }
             else {
                 log.info("Clean authentication cache, for user with pubkey {{}}", person.getPubkey());
-
-                // Clean all tokens cache, to force user profile to be reload
-                // But keep existing token in database
-                List<String> tokens =  accountService.getAllTokensByPubkey(person.getPubkey());
-                Beans.getStream(tokens).forEach(checkedTokens::remove);
+                // Keep existing token in database
             }
 
+            // Clean all cached tokens, to force user profile to be reload
+            // (use the cache content, because tokens may have been deleted from database by another node)
+            final String pubkey = person.getPubkey();
+            checkedTokens.removeIf(details -> pubkey.equals(details.getPubkey()));
+
             checkedPubkeys.remove(person.getPubkey());
         }
         else {
@@ -169,7 +182,8 @@ public class AuthServiceImpl implements AuthService {
         if (AnonymousUserDetails.TOKEN.equals(token)) return AnonymousUserDetails.INSTANCE;
 
         // Check if present in cache
-        if (checkedTokens.contains(token)) return checkedTokens.get(token);
+        AuthUserDetails cachedUserDetails = StringUtils.isNotBlank(token) ? checkedTokens.get(toTokenKey(token)) : null;
+        if (cachedUserDetails != null) return cachedUserDetails;
 
         // Parse the token
         AuthTokenVO authData;
@@ -190,7 +204,7 @@ public class AuthServiceImpl implements AuthService {
         log.debug("Authentication succeed for user with pubkey {{}}", CryptoUtils.minifyPubkey(user.getPubkey()));
 
         // Add token to cache
-        checkedTokens.add(token, userDetails);
+        checkedTokens.add(toTokenKey(token), userDetails);
 
         return userDetails;
     }
@@ -255,7 +269,12 @@ public class AuthServiceImpl implements AuthService {
     @Override
     public void invalidateToken(String token) {
         Preconditions.checkArgument(enableAuthToken);
-        checkedTokens.remove(token);
+        checkedTokens.remove(toTokenKey(token));
+    }
+
+    @Override
+    public Map<String, Long> getTokenCacheStats() {
+        return checkedTokens.getStats();
     }
 
     @Override
@@ -361,8 +380,9 @@ public class AuthServiceImpl implements AuthService {
             if (principal instanceof AuthUserDetails) return Optional.of((AuthUserDetails) principal);
 
             String tokenOrPassword = String.valueOf(authToken.getCredentials());
-            if (enableAuthToken && this.checkedTokens.contains(tokenOrPassword)) {
-                return Optional.of(this.checkedTokens.get(tokenOrPassword));
+            if (enableAuthToken && StringUtils.isNotBlank(tokenOrPassword)) {
+                AuthUserDetails userDetails = this.checkedTokens.get(toTokenKey(tokenOrPassword));
+                if (userDetails != null) return Optional.of(userDetails);
             }
 
             return Optional.ofNullable(this.checkedUsernames.get(authToken.getName()));
@@ -383,6 +403,19 @@ public class AuthServiceImpl implements AuthService {
         cleanCacheForUser(person);
     }
 
+    protected void onUserTokenDeleteEvent(EntityDeleteEvent event) {
+        if (event.getData() instanceof UserTokenVO userToken && userToken.getTokenHash() != null) {
+            checkedTokens.remove(userToken.getTokenHash());
+        }
+    }
+
+    /**
+     * Cached tokens are keyed by their hash, so that delete events can be sent to other nodes without the token
+     */
+    protected String toTokenKey(String token) {
+        return CryptoUtils.sha256Hex(token);
+    }
+
     protected PersonVO validateToken(AuthTokenVO authData) throws AuthenticationException {
         final String pubkey = authData != null ? authData.getPubkey() : null;
 
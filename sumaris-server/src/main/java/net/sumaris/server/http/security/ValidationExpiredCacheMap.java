@@ -25,11 +25,16 @@ package net.sumaris.server.http.security;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 /**
  * Expiring cache URI_2_CLASS
@@ -41,15 +46,29 @@ public class ValidationExpiredCacheMap<T extends UserDetails> implements UserCac
     public static final int MIN_LIFE_TIME_SECONDS = 60; // 1min at least
 
     private final Cache<String, T> cache;
+    private final long maximumSize;
 
     public ValidationExpiredCacheMap() {
         this(MIN_LIFE_TIME_SECONDS);
     }
 
     public ValidationExpiredCacheMap(final int lifeTimeInSeconds) {
-        this.cache = CacheBuilder.newBuilder()
-                .expireAfterWrite(Math.max(lifeTimeInSeconds, MIN_LIFE_TIME_SECONDS), TimeUnit.SECONDS)
-                .build();
+        this(lifeTimeInSeconds, -1);
+    }
+
+    /**
+     * @param lifeTimeInSeconds time to live, after write
+     * @param maximumSize max entries (least recently used are evicted first), or -1 if unbounded. Statistics will be recorded if > 0
+     */
+    public ValidationExpiredCacheMap(final int lifeTimeInSeconds, final long maximumSize) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .expireAfterWrite(Math.max(lifeTimeInSeconds, MIN_LIFE_TIME_SECONDS), TimeUnit.SECONDS);
+        if (maximumSize > 0) {
+            builder.maximumSize(maximumSize)
+                .recordStats();
+        }
+        this.cache = builder.build();
+        this.maximumSize = maximumSize;
     }
 
     public boolean contains(String key) {
@@ -69,10 +88,41 @@ public class ValidationExpiredCacheMap<T extends UserDetails> implements UserCac
         cache.put(key, data);
     }
 
+    /**
+     * Remove all entries matching the predicate (e.g. all tokens of a pubkey)
+     * @return the number of removed entries
+     */
+    public int removeIf(Predicate<T> predicate) {
+        int count = 0;
+        Iterator<T> it = cache.asMap().values().iterator();
+        while (it.hasNext()) {
+            if (predicate.test(it.next())) {
+                it.remove();
+                count++;
+            }
+        }
+        return count;
+    }
+
     public void clean() {
         this.cache.invalidateAll();
     }
 
+    public long size() {
+        return cache.size();
+    }
+
+    public Map<String, Long> getStats() {
+        CacheStats stats = cache.stats();
+        return ImmutableMap.<String, Long>builder()
+            .put("size", cache.size())
+            .put("maxSize", maximumSize)
+            .put("hitCount", stats.hitCount())
+            .put("missCount", stats.missCount())
+            .put("evictionCount", stats.evictionCount())
+            .build();
+    }
+
     @Override
     public UserDetails getUserFromCache(String username) {
         return (UserDetails)cache.getIfPresent(username);
@@ -32,6 +32,7 @@ import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import net.sumaris.core.dao.administration.user.PersonRepository;
 import net.sumaris.core.dao.administration.user.UserTokenRepository;
+import net.sumaris.core.event.entity.EntityDeleteEvent;
 import net.sumaris.core.event.config.ConfigurationEvent;
 import net.sumaris.core.event.config.ConfigurationReadyEvent;
 import net.sumaris.core.event.config.ConfigurationUpdatedEvent;
@@ -50,6 +51,7 @@ import net.sumaris.core.util.crypto.CryptoUtils;
 import net.sumaris.core.vo.administration.user.AccountVO;
 import net.sumaris.core.vo.administration.user.PersonVO;
 import net.sumaris.core.vo.administration.user.UserSettingsVO;
+import net.sumaris.core.vo.administration.user.UserTokenVO;
 import net.sumaris.core.vo.filter.PersonFilterVO;
 import net.sumaris.server.config.SumarisServerConfiguration;
 import net.sumaris.server.exception.ErrorCodes;
@@ -59,6 +61,7 @@ import net.sumaris.server.service.social.UserMessageService;
 import org.apache.commons.collections.CollectionUtils;
 import org.nuiton.i18n.I18n;
 import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.convert.support.GenericConversionService;
 import org.springframework.stereotype.Service;
@@ -84,6 +87,7 @@ public class AccountServiceImpl implements AccountService {
     private final UserMessageService userMessageService;
     private final ServerCryptoService serverCryptoService;
     private final UserEventService userEventService;
+    private final ApplicationEventPublisher publisher;
 
     private String serverUrl;
     private UserProfileEnum confirmedUserProfile;
@@ -95,7 +99,8 @@ public class AccountServiceImpl implements AccountService {
                               UserTokenRepository userTokenRepository,
                               ServerCryptoService serverCryptoService,
                               GenericConversionService conversionService,
-                              UserMessageService userMessageService, UserEventService userEventService) {
+                              UserMessageService userMessageService, UserEventService userEventService,
+                              ApplicationEventPublisher publisher) {
         this.personService = personService;
         this.personRepository = personRepository;
         this.userSettingsService = userSettingsService;
@@ -108,6 +113,7 @@ public class AccountServiceImpl implements AccountService {
         conversionService.addConverter(PersonVO.class, AccountVO.class, this::toAccountVO);
         conversionService.addConverter(Person.class, AccountVO.class, p -> getByPubkey(p.getPubkey()));
         this.userEventService = userEventService;
+        this.publisher = publisher;
     }
 
     @EventListener({ConfigurationReadyEvent.class, ConfigurationUpdatedEvent.class})
@@ -386,6 +392,17 @@ public class AccountServiceImpl implements AccountService {
     public List<String> deleteAllTokensByPubkey(String pubkey) {
         List<UserToken> tokens = userTokenRepository.findByPubkey(pubkey);
         userTokenRepository.deleteAll(tokens);
+
+        // Emit delete events (e.g. to invalidate auth caches, on all nodes)
+        tokens.forEach(token -> {
+            UserTokenVO eventData = new UserTokenVO();
+            eventData.setId(token.getId());
+            eventData.setPubkey(token.getPubkey());
+            // Never send the token itself (events can be sent to other nodes, through JMS)
+            eventData.setTokenHash(CryptoUtils.sha256Hex(token.getToken()));
+            publisher.publishEvent(new EntityDeleteEvent(token.getId(), UserToken.class.getSimpleName(), eventData));
+        });
+
         return tokens.stream()
                 .map(UserToken::getToken)
                 .collect(Collectors.toList());
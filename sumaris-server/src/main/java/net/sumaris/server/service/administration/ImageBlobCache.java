@@ -0,0 +1,352 @@
+package net.sumaris.server.service.administration;
+
+
+/*-
+ * #%L
+ * SUMARiS:: Server
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.google.common.hash.Hashing;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.exception.SumarisTechnicalException;
+import net.sumaris.core.util.Files;
+import net.sumaris.core.util.StringUtils;
+import net.sumaris.server.config.SumarisServerConfiguration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * On-disk cache of decoded images, addressed by a hash of their content.
+ * <p>
+ * A reference (e.g. an image id and its update date) points to a blob, so a cached image
+ * can be served without loading its (base64) content from the database.
+ * Thumbnails are generated lazily, for a fixed set of sizes.
+ * </p>
+ * <p>
+ * Expired references, and the blobs they no more point to, are removed periodically (see cleanUp()).
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImageBlobCache {
+
+    public static final int[] THUMBNAIL_SIZES = {64, 128, 256, 512, 1024};
+
+    private static final String CACHE_DIRECTORY_NAME = "images";
+    private static final String BLOBS_DIRECTORY_NAME = "blobs";
+    private static final String REFS_DIRECTORY_NAME = "refs";
+    private static final char REF_SEPARATOR = '\t';
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final char THUMBNAIL_SEPARATOR = '_';
+
+    // Min age of an unreferenced blob, before removal (its reference may be written just after the blob)
+    private static final long UNREFERENCED_BLOB_MIN_AGE_MS = TimeUnit.HOURS.toMillis(1);
+
+    public record Blob(String hash, File file, String contentType, @Nullable Integer size) {
+
+        /**
+         * Strong ETag, computed from the content hash (and the thumbnail size)
+         */
+        public String getETag() {
+            return "\"" + hash + (size != null ? "-" + size : "") + "\"";
+        }
+    }
+
+    private final SumarisServerConfiguration configuration;
+
+    /**
+     * Find a blob, by reference
+     * @param ref a reference (e.g. 'image:<id>:<updateDate>')
+     */
+    public Optional<Blob> findByRef(@NonNull String ref) {
+        File refFile = getRefFile(ref);
+        if (!refFile.exists()) return Optional.empty();
+        try {
+            String content = Files.readContent(refFile, Files.CHARSET_UTF8);
+            int separatorIndex = content.indexOf(REF_SEPARATOR);
+            if (separatorIndex <= 0) return Optional.empty();
+            String hash = content.substring(0, separatorIndex).trim();
+            String contentType = content.substring(separatorIndex + 1).trim();
+            File blobFile = getBlobFile(hash, null);
+            if (!blobFile.exists()) return Optional.empty();
+            return Optional.of(new Blob(hash, blobFile, contentType, null));
+        } catch (IOException e) {
+            log.warn("Cannot read image cache reference {}: {}", refFile.getAbsolutePath(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store a decoded image (if not already stored) and link the reference to it
+     */
+    public Blob put(@Nullable String ref, @NonNull byte[] content, @NonNull String contentType) {
+        String hash = Hashing.sha256().hashBytes(content).toString();
+        File blobFile = getBlobFile(hash, null);
+        try {
+            if (!blobFile.exists()) {
+                writeAtomically(blobFile, content);
+            }
+            if (ref != null) {
+                writeAtomically(getRefFile(ref), (hash + REF_SEPARATOR + contentType).getBytes(Files.CHARSET_UTF8));
+            }
+        } catch (IOException e) {
+            throw new SumarisTechnicalException("Cannot write image into cache: " + e.getMessage(), e);
+        }
+        return new Blob(hash, blobFile, contentType, null);
+    }
+
+    /**
+     * Get a downscaled image (generated at first call). Return the source, if not an image, or if already small enough.
+     * @param size max width or height, in pixels (see toThumbnailSize())
+     */
+    public Blob getThumbnail(@NonNull Blob source, int size) {
+        String formatName = getThumbnailFormatName(source.contentType());
+        String contentType = "image/" + ("jpg".equals(formatName) ? "jpeg" : formatName);
+        File thumbnailFile = getBlobFile(source.hash(), size);
+        if (thumbnailFile.exists()) return new Blob(source.hash(), thumbnailFile, contentType, size);
+
+        try {
+            BufferedImage image = ImageIO.read(source.file());
+            if (image == null || (image.getWidth() <= size && image.getHeight() <= size)) {
+                return source; // Unknown format (e.g. SVG), or already small
+            }
+
+            // Downscale, keeping the ratio
+            double ratio = Math.min((double) size / image.getWidth(), (double) size / image.getHeight());
+            int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+            int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+            BufferedImage thumbnail = new BufferedImage(width, height,
+                "png".equals(formatName) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = thumbnail.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(image, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            // Write (using a temp file, to avoid serving a partial file)
+            File tempFile = new File(thumbnailFile.getParentFile(), thumbnailFile.getName() + TEMP_FILE_SUFFIX + Thread.currentThread().getId());
+            if (!ImageIO.write(thumbnail, formatName, tempFile)) return source;
+            java.nio.file.Files.move(tempFile.toPath(), thumbnailFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            return new Blob(source.hash(), thumbnailFile, contentType, size);
+        } catch (IOException e) {
+            log.warn("Cannot create thumbnail of image {}: {}", source.hash(), e.getMessage());
+            return source;
+        }
+    }
+
+    /**
+     * Round a requested size, to one of the thumbnail sizes
+     * @return null if no thumbnail is need (no size, or larger than the max thumbnail size)
+     */
+    public static Integer toThumbnailSize(@Nullable Integer size) {
+        if (size == null || size <= 0) return null;
+        return Arrays.stream(THUMBNAIL_SIZES)
+            .filter(thumbnailSize -> thumbnailSize >= size)
+            .boxed()
+            .findFirst()
+            .orElse(null);
+    }
+
+    /**
+     * Remove expired references, and blobs (with their thumbnails) that are no more referenced.
+     * Then, if the cache is still too large, remove the least recently created blobs
+     * (a reference to a removed blob will be resolved again, from the database).
+     */
+    @Scheduled(cron = "${sumaris.image.cache.cleanup.cron:0 0 4 * * ?}")
+    public void cleanUp() {
+        cleanUp(TimeUnit.DAYS.toMillis(configuration.getImageCacheMaxAge()),
+            configuration.getImageCacheMaxSize() * 1024L * 1024L);
+    }
+
+    /**
+     * @param maxAgeMillis max age of a reference, in milliseconds (0 = no limit)
+     * @param maxSizeBytes max size of all blobs, in bytes (0 = no limit)
+     */
+    public synchronized void cleanUp(long maxAgeMillis, long maxSizeBytes) {
+        long now = System.currentTimeMillis();
+        long minRefLastModified = maxAgeMillis > 0 ? now - maxAgeMillis : Long.MIN_VALUE;
+        long minBlobLastModified = now - UNREFERENCED_BLOB_MIN_AGE_MS;
+
+        // Remove expired references, and collect the referenced hashes
+        Set<String> referencedHashes = new HashSet<>();
+        int refDeletedCount = 0;
+        for (File refFile : listFiles(new File(getCacheDirectory(), REFS_DIRECTORY_NAME))) {
+            boolean expired = refFile.lastModified() < minRefLastModified
+                || (isTempFile(refFile) && refFile.lastModified() < minBlobLastModified);
+            if (expired) {
+                if (deleteQuietly(refFile)) refDeletedCount++;
+                continue;
+            }
+            if (isTempFile(refFile)) continue;
+            try {
+                String content = Files.readContent(refFile, Files.CHARSET_UTF8);
+                int separatorIndex = content.indexOf(REF_SEPARATOR);
+                if (separatorIndex > 0) referencedHashes.add(content.substring(0, separatorIndex).trim());
+            } catch (IOException e) {
+                log.warn("Cannot read image cache reference {}: {}", refFile.getAbsolutePath(), e.getMessage());
+            }
+        }
+
+        // Remove old temp files, then group blob files by hash (a blob and its thumbnails)
+        List<File> blobFiles = new ArrayList<>();
+        for (File file : listFiles(new File(getCacheDirectory(), BLOBS_DIRECTORY_NAME))) {
+            if (!isTempFile(file)) blobFiles.add(file);
+            else if (file.lastModified() < minBlobLastModified) deleteQuietly(file);
+        }
+        Map<String, List<File>> filesByHash = blobFiles.stream()
+            .collect(Collectors.groupingBy(this::getBlobHash));
+
+        // Remove unreferenced blobs
+        int blobDeletedCount = 0;
+        long totalSize = 0L;
+        List<List<File>> remainingBlobs = new ArrayList<>();
+        for (Map.Entry<String, List<File>> entry : filesByHash.entrySet()) {
+            List<File> files = entry.getValue();
+            boolean unreferenced = !referencedHashes.contains(entry.getKey())
+                && getLastModified(files) < minBlobLastModified;
+            if (unreferenced) {
+                if (deleteQuietly(files)) blobDeletedCount++;
+            } else {
+                remainingBlobs.add(files);
+                totalSize += getSize(files);
+            }
+        }
+
+        // Cache too large: remove the oldest blobs
+        if (maxSizeBytes > 0 && totalSize > maxSizeBytes) {
+            remainingBlobs.sort(Comparator.comparingLong(this::getLastModified));
+            for (List<File> files : remainingBlobs) {
+                if (totalSize <= maxSizeBytes) break;
+                totalSize -= getSize(files);
+                if (deleteQuietly(files)) blobDeletedCount++;
+            }
+        }
+
+        if (refDeletedCount > 0 || blobDeletedCount > 0) {
+            log.info("Image cache cleaned: {} references and {} blobs removed - {} bytes remaining", refDeletedCount, blobDeletedCount, totalSize);
+        }
+    }
+
+    /* -- protected functions -- */
+
+    protected File getCacheDirectory() {
+        return new File(configuration.getCacheDirectory(), CACHE_DIRECTORY_NAME);
+    }
+
+    protected File getBlobFile(String hash, @Nullable Integer size) {
+        File directory = new File(new File(getCacheDirectory(), BLOBS_DIRECTORY_NAME), hash.substring(0, 2));
+        return new File(directory, size != null ? hash + THUMBNAIL_SEPARATOR + size : hash);
+    }
+
+    protected File getRefFile(String ref) {
+        String refHash = Hashing.sha256().hashString(ref, Files.CHARSET_UTF8).toString();
+        File directory = new File(new File(getCacheDirectory(), REFS_DIRECTORY_NAME), refHash.substring(0, 2));
+        return new File(directory, refHash);
+    }
+
+    protected String getThumbnailFormatName(String contentType) {
+        String subtype = StringUtils.substringAfter(StringUtils.trimToEmpty(contentType).toLowerCase(), "/");
+        return switch (subtype) {
+            case "png", "gif" -> "png"; // Keep transparency
+            default -> "jpg";
+        };
+    }
+
+    protected void writeAtomically(File file, byte[] content) throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+            throw new IOException("Cannot create directory " + directory.getAbsolutePath());
+        }
+        File tempFile = new File(directory, file.getName() + TEMP_FILE_SUFFIX + Thread.currentThread().getId());
+        java.nio.file.Files.write(tempFile.toPath(), content);
+        java.nio.file.Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Get the content hash of a blob file (or of a thumbnail)
+     */
+    protected String getBlobHash(File file) {
+        String name = file.getName();
+        int separatorIndex = name.indexOf(THUMBNAIL_SEPARATOR);
+        return separatorIndex != -1 ? name.substring(0, separatorIndex) : name;
+    }
+
+    protected boolean isTempFile(File file) {
+        return file.getName().contains(TEMP_FILE_SUFFIX);
+    }
+
+    protected List<File> listFiles(File directory) {
+        File[] subDirectories = directory.listFiles(File::isDirectory);
+        if (subDirectories == null) return List.of();
+        return Arrays.stream(subDirectories)
+            .map(subDirectory -> subDirectory.listFiles(File::isFile))
+            .filter(Objects::nonNull)
+            .flatMap(Arrays::stream)
+            .toList();
+    }
+
+    protected long getLastModified(List<File> files) {
+        return files.stream().mapToLong(File::lastModified).max().orElse(0L);
+    }
+
+    protected long getSize(List<File> files) {
+        return files.stream().mapToLong(File::length).sum();
+    }
+
+    protected boolean deleteQuietly(List<File> files) {
+        boolean deleted = true;
+        for (File file : files) {
+            deleted = deleteQuietly(file) && deleted;
+        }
+        return deleted;
+    }
+
+    protected boolean deleteQuietly(File file) {
+        if (file.delete() || !file.exists()) return true;
+        log.warn("Cannot delete image cache file {}", file.getAbsolutePath());
+        return false;
+    }
+}
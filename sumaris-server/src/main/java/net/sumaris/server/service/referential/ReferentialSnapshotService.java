@@ -0,0 +1,79 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.server.service.referential;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Produce versioned binary snapshots of referential entities, and deltas between consecutive versions,
+ * so that offline clients can download one file instead of paging through the referential.
+ * @see ReferentialSnapshots for the file format
+ */
+public interface ReferentialSnapshotService {
+
+    /**
+     * A snapshot file (full, or a delta if fromVersion > 0)
+     */
+    record SnapshotFile(String entityName, long fromVersion, long version, File file) {
+
+        public boolean isDelta() {
+            return fromVersion > 0;
+        }
+
+        /**
+         * Strong ETag, computed from the entity name and the version(s). Versions are computed from the content,
+         * so the same ETag is returned by all nodes for the same content
+         */
+        public String getETag() {
+            return "\"" + entityName + "-" + (isDelta() ? fromVersion + "-" : "") + version + "\"";
+        }
+    }
+
+    boolean isEnabled();
+
+    /**
+     * Get the last version, by entity name.
+     * Versions are a hash of the snapshot content (not ordered): nodes reading the same database produce the same version
+     */
+    Map<String, Long> getVersions();
+
+    /**
+     * Get the last full snapshot of an entity
+     */
+    Optional<SnapshotFile> findSnapshot(String entityName);
+
+    /**
+     * Get the delta from the given version, to the next version
+     */
+    Optional<SnapshotFile> findDelta(String entityName, long fromVersion);
+
+    /**
+     * Create a new version of the entity snapshot, if the referential changed since the last version
+     * @return the last version
+     */
+    Optional<SnapshotFile> build(String entityName);
+
+    void buildAll();
+}
@@ -0,0 +1,328 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.server.service.referential;
+
+import com.google.common.collect.ImmutableMap;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.dao.technical.SortDirection;
+import net.sumaris.core.event.config.ConfigurationEvent;
+import net.sumaris.core.event.config.ConfigurationReadyEvent;
+import net.sumaris.core.event.config.ConfigurationUpdatedEvent;
+import net.sumaris.core.exception.SumarisTechnicalException;
+import net.sumaris.core.model.administration.programStrategy.Program;
+import net.sumaris.core.service.referential.ReferentialService;
+import net.sumaris.core.util.StringUtils;
+import net.sumaris.core.util.TimeUtils;
+import net.sumaris.core.vo.filter.ReferentialFilterVO;
+import net.sumaris.core.vo.referential.ReferentialFetchOptions;
+import net.sumaris.core.vo.referential.ReferentialVO;
+import net.sumaris.server.config.SumarisServerConfiguration;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service("referentialSnapshotService")
+@RequiredArgsConstructor
+@Slf4j
+public class ReferentialSnapshotServiceImpl implements ReferentialSnapshotService {
+
+    private static final String DIRECTORY_NAME = "referential-snapshots";
+    private static final String FULL_FILE_PREFIX = "full-";
+    private static final String DELTA_FILE_PREFIX = "delta-";
+    private static final String FILE_EXTENSION = ".bin.gz";
+    private static final int PAGE_SIZE = 1000;
+
+    private static final Set<String> RESTRICTED_ENTITY_NAMES = Set.of(Program.ENTITY_NAME);
+
+    private static final ReferentialFetchOptions FETCH_OPTIONS = ReferentialFetchOptions.builder()
+        .withLevelId(true)
+        .withParentId(true)
+        .withProperties(false)
+        .build();
+
+    private final SumarisServerConfiguration configuration;
+
+    private final ReferentialService referentialService;
+
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    // Max update date and count of each entity, at the last build
+    private final Map<String, String> sourceStates = new ConcurrentHashMap<>();
+
+    private volatile Set<String> entityNames = Set.of();
+
+    private volatile boolean enable = false;
+
+    /**
+     * Normalize configured entity names (trim, skip blank), and remove entities with a restricted access (snapshots are public)
+     */
+    protected static Set<String> toPublicEntityNames(Collection<String> entityNames) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String entityName : entityNames) {
+            entityName = StringUtils.trimToNull(entityName);
+            if (entityName == null) continue;
+            if (RESTRICTED_ENTITY_NAMES.stream().anyMatch(entityName::equalsIgnoreCase)) {
+                log.warn("Cannot create referential snapshots of {}: access is restricted", entityName);
+                continue;
+            }
+            result.add(entityName);
+        }
+        return result;
+    }
+
+    @Async
+    @EventListener({ConfigurationReadyEvent.class, ConfigurationUpdatedEvent.class})
+    public void onConfigurationReady(ConfigurationEvent event) {
+        Set<String> entityNames = toPublicEntityNames(configuration.getReferentialSnapshotEntityNames());
+        this.entityNames = entityNames;
+
+        boolean enable = configuration.enableReferentialSnapshot() && !entityNames.isEmpty();
+        if (this.enable != enable) {
+            this.enable = enable;
+            if (enable) {
+                log.info("Starting referential snapshots... {entityNames: {}}", entityNames);
+            }
+        }
+
+        // Load existing versions
+        versions.clear();
+        if (enable) {
+            entityNames.forEach(entityName -> findLastVersion(entityName)
+                .ifPresent(version -> versions.put(entityName, version)));
+
+            // Build snapshots now (do not wait the next scheduled execution)
+            buildAll();
+        }
+    }
+
+    @Scheduled(cron = "${sumaris.referential.snapshot.scheduling.cron:0 */15 * * * ?}")
+    public void schedule() {
+        if (!enable) return; // Skip
+        buildAll();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enable;
+    }
+
+    @Override
+    public Map<String, Long> getVersions() {
+        return ImmutableMap.copyOf(versions);
+    }
+
+    @Override
+    public Optional<SnapshotFile> findSnapshot(@NonNull String entityName) {
+        Long version = versions.get(entityName);
+        if (version == null) return Optional.empty();
+        File file = getFullFile(entityName, version);
+        if (!file.exists()) return Optional.empty();
+        return Optional.of(new SnapshotFile(entityName, 0L, version, file));
+    }
+
+    @Override
+    public Optional<SnapshotFile> findDelta(@NonNull String entityName, long fromVersion) {
+        Long version = versions.get(entityName);
+        if (version == null) return Optional.empty();
+        File[] files = getDirectory(entityName).listFiles((dir, name) ->
+            name.startsWith(DELTA_FILE_PREFIX + fromVersion + "-") && name.endsWith(FILE_EXTENSION));
+        if (files == null || files.length == 0) return Optional.empty();
+
+        // Prefer the delta to the last version, then the most recent one
+        File file = Arrays.stream(files)
+            .max(Comparator.<File>comparingInt(f -> parseVersions(f.getName(), DELTA_FILE_PREFIX)[1] == version ? 1 : 0)
+                .thenComparingLong(File::lastModified))
+            .get();
+        long[] fileVersions = parseVersions(file.getName(), DELTA_FILE_PREFIX);
+        return Optional.of(new SnapshotFile(entityName, fileVersions[0], fileVersions[1], file));
+    }
+
+    @Override
+    public void buildAll() {
+        entityNames.forEach(entityName -> {
+            try {
+                build(entityName);
+            } catch (Exception e) {
+                log.error("Cannot build referential snapshot of {}: {}", entityName, e.getMessage(), e);
+            }
+        });
+    }
+
+    @Override
+    public synchronized Optional<SnapshotFile> build(@NonNull String entityName) {
+
+        // Skip if nothing changed since the last build (same max update date, and same count)
+        Date lastUpdateDate = referentialService.getLastUpdateDate(List.of(entityName));
+        Long count = referentialService.count(entityName);
+        String sourceState = String.format("%s|%s", lastUpdateDate != null ? lastUpdateDate.getTime() : 0, count);
+        Long previousVersion = versions.get(entityName);
+        if (previousVersion != null && sourceState.equals(sourceStates.get(entityName))) {
+            return findSnapshot(entityName);
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<ReferentialVO> sources = loadAll(entityName);
+
+        // Versions are computed from the content, so that nodes sharing the same database produce the same version
+        ReferentialSnapshots.Snapshot current = ReferentialSnapshots.newFullSnapshot(entityName, sources);
+        long version = current.version();
+
+        // Same content: keep the previous version
+        if (previousVersion != null && previousVersion == version && getFullFile(entityName, version).exists()) {
+            sourceStates.put(entityName, sourceState);
+            return findSnapshot(entityName);
+        }
+        ReferentialSnapshots.Snapshot previous = previousVersion != null ? readOrNull(getFullFile(entityName, previousVersion)) : null;
+
+        try {
+            ReferentialSnapshots.write(current, getFullFile(entityName, version));
+            int deltaSize = 0;
+            if (previous != null) {
+                ReferentialSnapshots.Snapshot delta = ReferentialSnapshots.diff(previous, current);
+                ReferentialSnapshots.write(delta, getDeltaFile(entityName, previous.version(), version));
+                deltaSize = delta.records().size() + delta.deletedIds().length;
+            }
+            versions.put(entityName, version);
+            sourceStates.put(entityName, sourceState);
+
+            log.info("Referential snapshot of {} created {version: {}, count: {}, deltaSize: {}} in {}",
+                entityName, version, sources.size(), deltaSize, TimeUtils.printDurationFrom(startTime));
+        } catch (IOException e) {
+            throw new SumarisTechnicalException(String.format("Cannot write referential snapshot of %s: %s", entityName, e.getMessage()), e);
+        }
+
+        cleanOldFiles(entityName, version, previousVersion);
+
+        return findSnapshot(entityName);
+    }
+
+    /* -- protected functions -- */
+
+    protected List<ReferentialVO> loadAll(String entityName) {
+        List<ReferentialVO> result = new ArrayList<>();
+        List<ReferentialVO> page;
+        do {
+            page = referentialService.findByFilterNoCache(entityName, new ReferentialFilterVO(),
+                result.size(), PAGE_SIZE,
+                ReferentialVO.Fields.ID, SortDirection.ASC,
+                FETCH_OPTIONS);
+            result.addAll(page);
+        } while (page.size() == PAGE_SIZE);
+        return result;
+    }
+
+    protected ReferentialSnapshots.Snapshot readOrNull(File file) {
+        if (!file.exists()) return null;
+        try {
+            return ReferentialSnapshots.read(file);
+        } catch (IOException e) {
+            log.warn("Cannot read referential snapshot {}: {}", file.getAbsolutePath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get the version of the most recent full snapshot (versions are not ordered)
+     */
+    protected Optional<Long> findLastVersion(String entityName) {
+        File[] files = getDirectory(entityName).listFiles((dir, name) ->
+            name.startsWith(FULL_FILE_PREFIX) && name.endsWith(FILE_EXTENSION));
+        if (files == null) return Optional.empty();
+        return Arrays.stream(files)
+            .max(Comparator.comparingLong(File::lastModified))
+            .map(file -> parseVersions(file.getName(), FULL_FILE_PREFIX)[0]);
+    }
+
+    /**
+     * Remove old full snapshots (keep the previous one, that can still be downloaded), and the deltas that cannot
+     * lead to the last version (keep the last deltas of the chain, up to the configured count)
+     */
+    protected void cleanOldFiles(String entityName, long version, Long previousVersion) {
+        File[] files = getDirectory(entityName).listFiles();
+        if (files == null) return;
+
+        int maxDeltaCount = Math.max(0, configuration.getReferentialSnapshotDeltaCount());
+        Map<Long, File> deltaFilesByVersion = new HashMap<>();
+        List<File> deltaFiles = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(FILE_EXTENSION)) continue; // e.g. temp files
+            if (name.startsWith(DELTA_FILE_PREFIX)) {
+                deltaFiles.add(file);
+                // Index by target version (keep the most recent, if many)
+                deltaFilesByVersion.merge(parseVersions(name, DELTA_FILE_PREFIX)[1], file,
+                    (f1, f2) -> f1.lastModified() >= f2.lastModified() ? f1 : f2);
+            }
+            else if (name.startsWith(FULL_FILE_PREFIX)) {
+                long fileVersion = parseVersions(name, FULL_FILE_PREFIX)[0];
+                if (fileVersion != version && !Objects.equals(fileVersion, previousVersion)) deleteQuietly(file);
+            }
+        }
+
+        // Walk the chain of deltas, back from the last version
+        Set<File> keptDeltaFiles = new HashSet<>();
+        long toVersion = version;
+        while (keptDeltaFiles.size() < maxDeltaCount) {
+            File file = deltaFilesByVersion.get(toVersion);
+            if (file == null || !keptDeltaFiles.add(file)) break; // End of the chain (or a cycle)
+            toVersion = parseVersions(file.getName(), DELTA_FILE_PREFIX)[0];
+        }
+        deltaFiles.stream()
+            .filter(file -> !keptDeltaFiles.contains(file))
+            .forEach(this::deleteQuietly);
+    }
+
+    protected void deleteQuietly(File file) {
+        if (!file.delete()) {
+            log.warn("Cannot delete referential snapshot {}", file.getAbsolutePath());
+        }
+    }
+
+    protected File getDirectory(String entityName) {
+        return new File(new File(configuration.getCacheDirectory(), DIRECTORY_NAME), entityName);
+    }
+
+    protected File getFullFile(String entityName, long version) {
+        return new File(getDirectory(entityName), FULL_FILE_PREFIX + version + FILE_EXTENSION);
+    }
+
+    protected File getDeltaFile(String entityName, long fromVersion, long version) {
+        return new File(getDirectory(entityName), DELTA_FILE_PREFIX + fromVersion + "-" + version + FILE_EXTENSION);
+    }
+
+    /**
+     * Parse versions from a file name (e.g. 'full-<version>.bin.gz' or 'delta-<fromVersion>-<version>.bin.gz')
+     */
+    protected long[] parseVersions(String fileName, String prefix) {
+        String[] parts = fileName.substring(prefix.length(), fileName.length() - FILE_EXTENSION.length()).split("-");
+        return Arrays.stream(parts).mapToLong(Long::parseLong).toArray();
+    }
+}
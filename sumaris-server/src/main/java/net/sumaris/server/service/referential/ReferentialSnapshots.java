@@ -0,0 +1,294 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.server.service.referential;
+
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+import net.sumaris.core.util.Files;
+import net.sumaris.core.vo.referential.ReferentialVO;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary snapshots of a referential entity, used by offline clients.
+ * <p>
+ * A snapshot file is gzipped, and contains: a header (magic, format version, entity name, from version, version),
+ * the records (sorted by id, each one prefixed by its length), then the deleted ids.
+ * A full snapshot has a 'from version' equals to 0, and no deleted ids. A delta snapshot contains only the records
+ * inserted or updated since the 'from version', and the ids deleted since.
+ * Versions are a hash of the records: they identify a content, but are not ordered.
+ * </p>
+ * Each record starts with its id and a bit mask of non-null attributes, followed by the non-null values.
+ */
+public abstract class ReferentialSnapshots {
+
+    public static final int MAGIC = 0x53524653; // 'SRFS'
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final int LABEL = 1;
+    private static final int NAME = 1 << 1;
+    private static final int DESCRIPTION = 1 << 2;
+    private static final int COMMENTS = 1 << 3;
+    private static final int STATUS_ID = 1 << 4;
+    private static final int VALIDITY_STATUS_ID = 1 << 5;
+    private static final int LEVEL_ID = 1 << 6;
+    private static final int PARENT_ID = 1 << 7;
+    private static final int RANK_ORDER = 1 << 8;
+    private static final int UPDATE_DATE = 1 << 9;
+    private static final int CREATION_DATE = 1 << 10;
+
+    /**
+     * @param fromVersion 0 if a full snapshot, or the version a delta applies to
+     * @param records encoded records, by id
+     * @param deletedIds deleted ids (only in a delta)
+     */
+    public record Snapshot(String entityName, long fromVersion, long version,
+                           SortedMap<Integer, byte[]> records, int[] deletedIds) {
+
+        public boolean isDelta() {
+            return fromVersion > 0;
+        }
+
+        /**
+         * Same records (ignoring versions) ?
+         */
+        public boolean hasSameRecords(@NonNull Snapshot other) {
+            if (records.size() != other.records.size() || !Arrays.equals(deletedIds, other.deletedIds)) return false;
+            for (Map.Entry<Integer, byte[]> entry : records.entrySet()) {
+                if (!Arrays.equals(entry.getValue(), other.records.get(entry.getKey()))) return false;
+            }
+            return true;
+        }
+    }
+
+    protected ReferentialSnapshots() {
+        // Helper class
+    }
+
+    /**
+     * Create a full snapshot, versioned by its content (see {@link #computeVersion(SortedMap)})
+     */
+    public static Snapshot newFullSnapshot(@NonNull String entityName, @NonNull Collection<ReferentialVO> sources) {
+        SortedMap<Integer, byte[]> records = encodeAll(sources);
+        return new Snapshot(entityName, 0L, computeVersion(records), records, new int[0]);
+    }
+
+    public static Snapshot newFullSnapshot(@NonNull String entityName, long version, @NonNull Collection<ReferentialVO> sources) {
+        return new Snapshot(entityName, 0L, version, encodeAll(sources), new int[0]);
+    }
+
+    /**
+     * Compute a version from the records (a positive SHA-256 prefix), so that two nodes reading the same data
+     * always produce the same version, and different data never share a version
+     */
+    public static long computeVersion(@NonNull SortedMap<Integer, byte[]> records) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (byte[] record : records.values()) {
+                digest.update(ByteBuffer.allocate(4).putInt(record.length).array());
+                digest.update(record);
+            }
+            long version = ByteBuffer.wrap(digest.digest()).getLong() & Long.MAX_VALUE;
+            return version == 0L ? 1L : version; // 0 is reserved for full snapshots' 'from version'
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compute the delta, from a full snapshot to a newer full snapshot
+     */
+    public static Snapshot diff(@NonNull Snapshot previous, @NonNull Snapshot current) {
+        Preconditions.checkArgument(!previous.isDelta() && !current.isDelta(), "Expected full snapshots");
+        Preconditions.checkArgument(Objects.equals(previous.entityName(), current.entityName()), "Not the same entity");
+        Preconditions.checkArgument(previous.version() != current.version(), "Expected another version");
+
+        SortedMap<Integer, byte[]> records = new TreeMap<>();
+        current.records().forEach((id, record) -> {
+            if (!Arrays.equals(record, previous.records().get(id))) records.put(id, record);
+        });
+        int[] deletedIds = previous.records().keySet().stream()
+            .filter(id -> !current.records().containsKey(id))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        return new Snapshot(current.entityName(), previous.version(), current.version(), records, deletedIds);
+    }
+
+    /**
+     * Apply a delta to a full snapshot (e.g. as an offline client will do)
+     */
+    public static Snapshot apply(@NonNull Snapshot full, @NonNull Snapshot delta) {
+        Preconditions.checkArgument(!full.isDelta() && delta.isDelta(), "Expected a full snapshot and a delta");
+        Preconditions.checkArgument(full.version() == delta.fromVersion(),
+            String.format("Cannot apply delta from version %s, to version %s", delta.fromVersion(), full.version()));
+
+        SortedMap<Integer, byte[]> records = new TreeMap<>(full.records());
+        Arrays.stream(delta.deletedIds()).forEach(records::remove);
+        records.putAll(delta.records());
+        return new Snapshot(full.entityName(), 0L, delta.version(), records, new int[0]);
+    }
+
+    public static byte[] encode(@NonNull ReferentialVO source) {
+        Preconditions.checkNotNull(source.getId(), "Missing id");
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bos);
+
+            int mask = (source.getLabel() != null ? LABEL : 0)
+                | (source.getName() != null ? NAME : 0)
+                | (source.getDescription() != null ? DESCRIPTION : 0)
+                | (source.getComments() != null ? COMMENTS : 0)
+                | (source.getStatusId() != null ? STATUS_ID : 0)
+                | (source.getValidityStatusId() != null ? VALIDITY_STATUS_ID : 0)
+                | (source.getLevelId() != null ? LEVEL_ID : 0)
+                | (source.getParentId() != null ? PARENT_ID : 0)
+                | (source.getRankOrder() != null ? RANK_ORDER : 0)
+                | (source.getUpdateDate() != null ? UPDATE_DATE : 0)
+                | (source.getCreationDate() != null ? CREATION_DATE : 0);
+
+            out.writeInt(source.getId());
+            out.writeShort(mask);
+            if (source.getLabel() != null) writeString(out, source.getLabel());
+            if (source.getName() != null) writeString(out, source.getName());
+            if (source.getDescription() != null) writeString(out, source.getDescription());
+            if (source.getComments() != null) writeString(out, source.getComments());
+            if (source.getStatusId() != null) out.writeInt(source.getStatusId());
+            if (source.getValidityStatusId() != null) out.writeInt(source.getValidityStatusId());
+            if (source.getLevelId() != null) out.writeInt(source.getLevelId());
+            if (source.getParentId() != null) out.writeInt(source.getParentId());
+            if (source.getRankOrder() != null) out.writeInt(source.getRankOrder());
+            if (source.getUpdateDate() != null) out.writeLong(source.getUpdateDate().getTime());
+            if (source.getCreationDate() != null) out.writeLong(source.getCreationDate().getTime());
+            out.flush();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static ReferentialVO decode(@NonNull byte[] record, String entityName) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            ReferentialVO target = new ReferentialVO();
+            target.setEntityName(entityName);
+            target.setId(in.readInt());
+            int mask = in.readUnsignedShort();
+            if ((mask & LABEL) != 0) target.setLabel(readString(in));
+            if ((mask & NAME) != 0) target.setName(readString(in));
+            if ((mask & DESCRIPTION) != 0) target.setDescription(readString(in));
+            if ((mask & COMMENTS) != 0) target.setComments(readString(in));
+            if ((mask & STATUS_ID) != 0) target.setStatusId(in.readInt());
+            if ((mask & VALIDITY_STATUS_ID) != 0) target.setValidityStatusId(in.readInt());
+            if ((mask & LEVEL_ID) != 0) target.setLevelId(in.readInt());
+            if ((mask & PARENT_ID) != 0) target.setParentId(in.readInt());
+            if ((mask & RANK_ORDER) != 0) target.setRankOrder(in.readInt());
+            if ((mask & UPDATE_DATE) != 0) target.setUpdateDate(new Date(in.readLong()));
+            if ((mask & CREATION_DATE) != 0) target.setCreationDate(new Date(in.readLong()));
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write a snapshot (using a temp file, to avoid serving a partial file)
+     */
+    public static void write(@NonNull Snapshot snapshot, @NonNull File file) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile), 64 * 1024)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            writeString(out, snapshot.entityName());
+            out.writeLong(snapshot.fromVersion());
+            out.writeLong(snapshot.version());
+            out.writeInt(snapshot.records().size());
+            for (byte[] record : snapshot.records().values()) {
+                out.writeInt(record.length);
+                out.write(record);
+            }
+            out.writeInt(snapshot.deletedIds().length);
+            for (int id : snapshot.deletedIds()) {
+                out.writeInt(id);
+            }
+        }
+        java.nio.file.Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Snapshot read(@NonNull File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 64 * 1024)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a referential snapshot file: " + file.getName());
+            byte formatVersion = in.readByte();
+            if (formatVersion != FORMAT_VERSION) throw new IOException("Unsupported referential snapshot format: " + formatVersion);
+            String entityName = readString(in);
+            long fromVersion = in.readLong();
+            long version = in.readLong();
+            int recordCount = in.readInt();
+            SortedMap<Integer, byte[]> records = new TreeMap<>();
+            for (int i = 0; i < recordCount; i++) {
+                byte[] record = new byte[in.readInt()];
+                in.readFully(record);
+                records.put(readId(record), record);
+            }
+            int[] deletedIds = new int[in.readInt()];
+            for (int i = 0; i < deletedIds.length; i++) {
+                deletedIds[i] = in.readInt();
+            }
+            return new Snapshot(entityName, fromVersion, version, records, deletedIds);
+        }
+    }
+
+    /* -- internal functions -- */
+
+    private static SortedMap<Integer, byte[]> encodeAll(Collection<ReferentialVO> sources) {
+        SortedMap<Integer, byte[]> records = new TreeMap<>();
+        sources.forEach(source -> records.put(source.getId(), encode(source)));
+        return records;
+    }
+
+    private static int readId(byte[] record) {
+        return ((record[0] & 0xFF) << 24) | ((record[1] & 0xFF) << 16) | ((record[2] & 0xFF) << 8) | (record[3] & 0xFF);
+    }
+
+    /**
+     * Write a string, as UTF-8 (not limited to 64KB, as DataOutput.writeUTF())
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(Files.CHARSET_UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, Files.CHARSET_UTF8);
+    }
+}
@@ -31,6 +31,7 @@ import javax.annotation.Nullable;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.function.Function;
@@ -59,6 +60,20 @@ public interface EntityWatchService {
                   @Nullable Integer intervalInSeconds,
                   boolean startWithActualValue);
 
+    /**
+     * Same as watchEntities(), but share the watch (loader, event listener and timer) between all subscribers
+     * of the same filter (using the filter's hash code, computed before the first call of the loader).
+     */
+    <ID extends Serializable, D extends Date,
+        T extends IUpdateDateEntity<ID, D>,
+        V extends IUpdateDateEntity<ID, D>,
+        L extends Collection<V>> Observable<L>
+    watchEntities(Class<T> entityClass,
+                  @Nullable Object filter,
+                  Callable<Optional<L>> loader,
+                  @Nullable Integer intervalInSeconds,
+                  boolean startWithActualValue);
+
     <ID extends Serializable, D extends Date, V extends IUpdateDateEntity<ID, D>, L extends Collection<V>> Observable<L>
     watchEntities(Function<D, Optional<L>> loader,
                   int intervalInSeconds,
@@ -78,6 +93,19 @@ public interface EntityWatchService {
                        @Nullable Integer intervalInSeconds,
                        boolean startWithActualValue);
 
+    /**
+     * Same as watchEntitiesCount(), but share the watch between all subscribers of the same filter
+     */
+    <ID extends Serializable, D extends Date,
+        T extends IUpdateDateEntity<ID, D>,
+        V extends IUpdateDateEntity<ID, D>,
+        L extends Collection<V>> Observable<Long>
+    watchEntitiesCount(Class<T> entityClass,
+                       @Nullable Object filter,
+                       Callable<Optional<L>> loader,
+                       @Nullable Integer intervalInSeconds,
+                       boolean startWithActualValue);
+
     <ID extends Serializable, T extends IEntity<ID>>
     Observable<IEntityEvent> watchEntityEvents(Class<T> entityClass);
 
@@ -85,4 +113,9 @@ public interface EntityWatchService {
                                      int intervalInSeconds,
                                      boolean startWithActualValue);
 
+    /**
+     * Statistics of shared watches (subscribers, database hits and received events), by watch key
+     */
+    Map<String, Map<String, Long>> getWatchStatistics();
+
 }
@@ -22,13 +22,18 @@ package net.sumaris.server.service.technical;
  * #L%
  */
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.schedulers.Timed;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import net.sumaris.core.dao.technical.cache.CacheManager;
 import net.sumaris.core.event.entity.*;
 import net.sumaris.core.exception.DataNotFoundException;
 import net.sumaris.core.exception.SumarisTechnicalException;
@@ -36,7 +41,9 @@ import net.sumaris.core.model.Entities;
 import net.sumaris.core.model.IEntity;
 import net.sumaris.core.model.IUpdateDateEntity;
 import net.sumaris.core.util.reactive.Observables;
+import net.sumaris.core.vo.administration.user.PersonVO;
 import net.sumaris.server.dao.technical.EntityDao;
+import net.sumaris.server.security.ISecurityContext;
 import org.jetbrains.annotations.Nullable;
 import org.nuiton.i18n.I18n;
 import org.springframework.beans.factory.annotation.Value;
@@ -48,12 +55,16 @@ import org.springframework.transaction.annotation.Transactional;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -68,22 +79,31 @@ public class EntityWatchServiceImpl implements EntityWatchService {
 
     private final ConversionService conversionService;
 
-    private final CacheManager cacheManager;
-
     private final EntityEventService entityEventService;
 
     private final AtomicLong timerObserverCount = new AtomicLong(0);
 
+    /**
+     * Watches shared by all subscribers, by key (entity class, and id or filter hash)
+     */
+    private final Map<Object, SharedWatch<?>> sharedWatches = Maps.newConcurrentMap();
+
+    private final ObjectMapper objectMapper;
+
+    private final Optional<ISecurityContext<PersonVO>> securityContext;
+
     public EntityWatchServiceImpl(Optional<TaskExecutor> taskExecutor,
                                   EntityDao entityDao,
                                   ConversionService conversionService,
-                                  CacheManager cacheManager,
-                                  EntityEventService userEventService) {
+                                  EntityEventService userEventService,
+                                  ObjectMapper objectMapper,
+                                  Optional<ISecurityContext<PersonVO>> securityContext) {
         this.taskExecutor = taskExecutor;
         this.entityDao = entityDao;
         this.conversionService = conversionService;
-        this.cacheManager = cacheManager;
         this.entityEventService = userEventService;
+        this.objectMapper = objectMapper;
+        this.securityContext = securityContext;
     }
 
     @Override
@@ -94,36 +114,64 @@ public class EntityWatchServiceImpl implements EntityWatchService {
                 Integer intervalInSeconds,
                 boolean startWithActualValue) {
 
-        final AtomicReference<D> lastUpdateDate = new AtomicReference<>();
-
-        // Watch entity, using update events
-        Observable<V> result = watchEntityByUpdateEvent(entityClass, targetClass, id);
-
-        // Add watch at interval
-        if (intervalInSeconds != null && intervalInSeconds > 0) {
-            Observable<V> timer = watchEntityAtInterval(
-                entityClass, targetClass, id, lastUpdateDate,
-                intervalInSeconds);
-            result = Observable.merge(result, timer);
-        }
-
-        // Keep only more recent
-        result = Observables.latest(result, lastUpdateDate);
-
-        // Starting with the actual value
-        if (startWithActualValue) {
-            V initialVO = findAndConvert(entityClass, targetClass, id)
-                .orElseThrow(() -> new DataNotFoundException("Unable to get actual value: data not found"));
-            lastUpdateDate.set(initialVO.getUpdateDate());
-            result = result.startWithItem(initialVO);
-        }
+        String watchKey = computeCacheKey(entityClass, targetClass, id);
+
+        // Share the same watch, between all subscribers (only one loader, event listener and timer)
+        Observable<Optional<V>> shared = watchShared(watchKey, watch -> {
+            final AtomicReference<D> lastUpdateDate = new AtomicReference<>();
+
+            // Starting with the actual value (empty if the entity not exists yet)
+            Observable<Optional<V>> source = Observable.fromCallable(() -> {
+                watch.dbHitCount.incrementAndGet();
+                Optional<V> initialVO = findAndConvert(entityClass, targetClass, id);
+                initialVO.ifPresent(vo -> lastUpdateDate.set(vo.getUpdateDate()));
+                return initialVO;
+            });
+
+            // Watch entity, using update events
+            Observable<V> changes = watchEntityByUpdateEvent(entityClass, targetClass, id, () -> {
+                watch.dbHitCount.incrementAndGet();
+                return findAndConvert(entityClass, targetClass, id);
+            }).doOnNext(vo -> watch.markEvent());
+
+            // Add a fallback timer, that skip database access when an event has been received recently
+            if (intervalInSeconds != null && intervalInSeconds > 0) {
+                int interval = Math.max(minIntervalInSeconds, intervalInSeconds);
+                Observable<V> timer = watchAtInterval(() -> {
+                    if (watch.hasEventSince(interval)) return Optional.empty(); // Skip
+                    watch.dbHitCount.incrementAndGet();
+                    return findNewerById(entityClass, targetClass, id, lastUpdateDate.get());
+                }, interval);
+                changes = Observable.merge(changes, timer);
+            }
 
-        String listenerId = computeListenerId(entityClass, id);
+            // Keep only more recent (or the first one, if the entity did not exist at start)
+            changes = changes.filter(vo -> {
+                D previousUpdateDate = lastUpdateDate.get();
+                if (previousUpdateDate != null && !previousUpdateDate.before(vo.getUpdateDate())) return false;
+                lastUpdateDate.set(vo.getUpdateDate());
+                return true;
+            });
+
+            return source.concatWith(changes.map(Optional::of));
+        }, false);
+
+        // The actual value is emitted first, or replayed to late subscribers:
+        // - skip it, if not requested (even if not found, to wait for the entity creation)
+        // - or fail, if requested but not found
+        Observable<V> result = Observable.defer(() -> {
+            final AtomicBoolean isActualValue = new AtomicBoolean(true);
+            return shared.concatMap(item -> {
+                if (isActualValue.getAndSet(false) && !startWithActualValue) return Observable.empty();
+                return item.map(Observable::just)
+                    .orElseGet(() -> Observable.error(new DataNotFoundException("Unable to get actual value: data not found")));
+            });
+        });
 
         return result
             .doOnLifecycle(
-                (subscription) -> log.info("Watching {} every {}s ({} observers)", listenerId, intervalInSeconds, timerObserverCount.get() + 1),
-                () -> log.info("Stop watching {} ({} observers)", listenerId, timerObserverCount.get())
+                (subscription) -> log.info("Watching {} every {}s ({} observers)", watchKey, intervalInSeconds, getSubscriberCount(watchKey)),
+                () -> log.info("Stop watching {} ({} observers)", watchKey, getSubscriberCount(watchKey))
             );
 
     }
@@ -167,36 +215,30 @@ public class EntityWatchServiceImpl implements EntityWatchService {
                                 Callable<Optional<L>> loader,
                                 Integer intervalInSeconds,
                                 boolean startWithActualValue) {
-        AtomicReference<Integer> hashCode = new AtomicReference<>();
-
-        // Watch entity events
-        Observable<L> result = watchEntityEvents(entityClass)
-            .map(event -> loader.call())
-            .filter(Optional::isPresent)
-            .map(Optional::get);
-
-        // Add timer
-        if (intervalInSeconds != null && intervalInSeconds > 0) {
-            result = Observable.merge(result,
-                watchAtInterval(loader, intervalInSeconds));
-        }
+        // No filter: cannot share with other subscribers
+        return createEntitiesWatch(entityClass, loader, intervalInSeconds, startWithActualValue, new SharedWatch<>(computeListenerId(entityClass)));
+    }
 
-        // Distinguish changed (by hash code)
-        result = Observables.distinctUntilChanged(result, hashCode);
+    @Override
+    public <ID extends Serializable,
+        D extends Date,
+        T extends IUpdateDateEntity<ID, D>,
+        V extends IUpdateDateEntity<ID, D>,
+        L extends Collection<V>>
+    Observable<L> watchEntities(Class<T> entityClass,
+                                Object filter,
+                                Callable<Optional<L>> loader,
+                                Integer intervalInSeconds,
+                                boolean startWithActualValue) {
+        if (filter == null) return watchEntities(entityClass, loader, intervalInSeconds, startWithActualValue);
 
-        if (startWithActualValue) {
-            try {
-                L initialVOs = loader.call().orElse(null);
-                if (initialVOs != null) {
-                    hashCode.set(initialVOs.hashCode());
-                    result = result.startWithItem(initialVOs);
-                }
-            } catch (Exception e) {
-                throw new SumarisTechnicalException(e);
-            }
-        }
+        WatchKey watchKey = computeWatchKey(entityClass, filter, startWithActualValue);
+        // Filter cannot be compared: cannot share with other subscribers
+        if (watchKey == null) return watchEntities(entityClass, loader, intervalInSeconds, startWithActualValue);
 
-        return result;
+        return watchShared(watchKey,
+            watch -> createEntitiesWatch(entityClass, loader, intervalInSeconds, startWithActualValue, watch),
+            !startWithActualValue);
     }
 
     @Override
@@ -346,34 +388,174 @@ public class EntityWatchServiceImpl implements EntityWatchService {
 
     @Override
     public <ID extends Serializable, D extends Date, T extends IUpdateDateEntity<ID, D>, V extends IUpdateDateEntity<ID, D>, L extends Collection<V>> Observable<Long> watchEntitiesCount(Class<T> entityClass, Callable<Optional<L>> loader, @Nullable Integer intervalInSeconds, boolean startWithActualValue) {
+        // No filter: cannot share with other subscribers
+        return createEntitiesCountWatch(entityClass, loader, intervalInSeconds, startWithActualValue, new SharedWatch<>(computeListenerId(entityClass)));
+    }
+
+    @Override
+    public <ID extends Serializable, D extends Date, T extends IUpdateDateEntity<ID, D>, V extends IUpdateDateEntity<ID, D>, L extends Collection<V>> Observable<Long> watchEntitiesCount(Class<T> entityClass, @Nullable Object filter, Callable<Optional<L>> loader, @Nullable Integer intervalInSeconds, boolean startWithActualValue) {
+        if (filter == null) return watchEntitiesCount(entityClass, loader, intervalInSeconds, startWithActualValue);
+
+        WatchKey watchKey = computeWatchKey(entityClass, filter, startWithActualValue);
+        // Filter cannot be compared: cannot share with other subscribers
+        if (watchKey == null) return watchEntitiesCount(entityClass, loader, intervalInSeconds, startWithActualValue);
+
+        return watchShared(watchKey.forCount(),
+            watch -> createEntitiesCountWatch(entityClass, loader, intervalInSeconds, startWithActualValue, watch),
+            !startWithActualValue);
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getWatchStatistics() {
+        return sharedWatches.values().stream()
+            .collect(Collectors.toMap(
+                watch -> watch.getKey().toString(),
+                watch -> ImmutableMap.of(
+                    "subscribers", (long) watch.subscriberCount.get(),
+                    "dbHits", watch.dbHitCount.get(),
+                    "events", watch.eventCount.get()
+                ),
+                (stats1, stats2) -> stats1));
+    }
+
+    /* -- protected functions -- */
+
+    /**
+     * Get (or create) a watch, shared by all subscribers of the same key. The source is subscribed only once,
+     * and the latest value is replayed to late subscribers (unless skipReplayed=true).
+     * Subscribers are counted inside the map lock, so a watch is never removed while a new subscriber is joining it
+     */
+    @SuppressWarnings("unchecked")
+    protected <V> Observable<V> watchShared(@NonNull Object watchKey,
+                                            @NonNull Function<SharedWatch<V>, Observable<V>> sourceFactory,
+                                            boolean skipReplayed) {
+        return Observable.defer(() -> {
+            SharedWatch<V> watch = (SharedWatch<V>) sharedWatches.compute(watchKey, (key, existingWatch) -> {
+                SharedWatch<V> sharedWatch = (SharedWatch<V>) existingWatch;
+                if (sharedWatch == null) {
+                    sharedWatch = new SharedWatch<>(key);
+                    sharedWatch.observable = sourceFactory.apply(sharedWatch)
+                        .timestamp(TimeUnit.MILLISECONDS)
+                        .replay(1)
+                        .refCount();
+                }
+                sharedWatch.subscriberCount.incrementAndGet();
+                return sharedWatch;
+            });
+
+            Observable<Timed<V>> result = watch.observable;
+
+            // Skip value emitted before the subscription
+            if (skipReplayed) {
+                final long subscriptionTime = System.currentTimeMillis();
+                result = result.filter(timed -> timed.time() >= subscriptionTime);
+            }
+
+            return result
+                .map(Timed::value)
+                // Forget the watch, when the last subscriber has gone
+                .doFinally(() -> releaseShared(watch));
+        });
+    }
+
+    protected void releaseShared(@NonNull SharedWatch<?> watch) {
+        sharedWatches.compute(watch.getKey(), (key, existingWatch) -> {
+            int subscriberCount = watch.subscriberCount.decrementAndGet();
+            // Remove only this watch (not another one, created after it)
+            if (existingWatch == watch && subscriberCount <= 0) return null;
+            return existingWatch;
+        });
+    }
+
+    protected <ID extends Serializable,
+        D extends Date,
+        T extends IUpdateDateEntity<ID, D>,
+        V extends IUpdateDateEntity<ID, D>,
+        L extends Collection<V>>
+    Observable<L> createEntitiesWatch(Class<T> entityClass,
+                                      Callable<Optional<L>> loader,
+                                      Integer intervalInSeconds,
+                                      boolean startWithActualValue,
+                                      SharedWatch<L> watch) {
         AtomicReference<Integer> hashCode = new AtomicReference<>();
+        Callable<Optional<L>> countedLoader = () -> {
+            watch.dbHitCount.incrementAndGet();
+            return loader.call();
+        };
+
+        // Watch entity events
+        Observable<L> result = watchEntityEvents(entityClass)
+            .doOnNext(event -> watch.markEvent())
+            .map(event -> countedLoader.call())
+            .filter(Optional::isPresent)
+            .map(Optional::get);
+
+        // Add a fallback timer, that skip database access when an event has been received recently
+        if (intervalInSeconds != null && intervalInSeconds > 0) {
+            int interval = Math.max(minIntervalInSeconds, intervalInSeconds);
+            result = Observable.merge(result,
+                watchAtInterval(() -> watch.hasEventSince(interval) ? Optional.empty() : countedLoader.call(), interval));
+        }
+
+        // Distinguish changed (by hash code)
+        result = Observables.distinctUntilChanged(result, hashCode);
+
+        if (startWithActualValue) {
+            result = Observable.<L>defer(() -> {
+                L initialVOs = countedLoader.call().orElse(null);
+                if (initialVOs == null) return Observable.empty();
+                hashCode.set(initialVOs.hashCode());
+                return Observable.just(initialVOs);
+            }).concatWith(result);
+        }
+
+        return result;
+    }
+
+    protected <ID extends Serializable,
+        D extends Date,
+        T extends IUpdateDateEntity<ID, D>,
+        V extends IUpdateDateEntity<ID, D>,
+        L extends Collection<V>>
+    Observable<Long> createEntitiesCountWatch(Class<T> entityClass,
+                                              Callable<Optional<L>> loader,
+                                              @Nullable Integer intervalInSeconds,
+                                              boolean startWithActualValue,
+                                              SharedWatch<Long> watch) {
+        AtomicReference<Integer> hashCode = new AtomicReference<>();
+        Callable<Optional<L>> countedLoader = () -> {
+            watch.dbHitCount.incrementAndGet();
+            return loader.call();
+        };
 
         // Watch entity events
         Observable<Long> result = watchEntityEvents(entityClass)
-            .map(event -> loader.call())
+            .doOnNext(event -> watch.markEvent())
+            .map(event -> countedLoader.call())
             .filter(Optional::isPresent)
             .map(Optional::get)
             .map(vs -> ((long) vs.size()));
 
-        // Add timer
+        // Add a fallback timer, that skip database access when an event has been received recently
         if (intervalInSeconds != null && intervalInSeconds > 0) {
+            int interval = Math.max(minIntervalInSeconds, intervalInSeconds);
             result = Observable.merge(result,
-                watchCollectionSize(entityClass, loader, intervalInSeconds, false));
+                watchCollectionSize(entityClass,
+                    () -> watch.hasEventSince(interval) ? Optional.empty() : countedLoader.call(),
+                    interval, false));
         }
 
         // Distinguish changed (by hash code)
         result = Observables.distinctUntilChanged(result, hashCode);
 
         if (startWithActualValue) {
-            try {
-                L initialVOs = loader.call().orElse(null);
-                if (initialVOs != null) {
-                    hashCode.set(initialVOs.hashCode());
-                    result = result.startWithItem((long) initialVOs.size());
-                }
-            } catch (Exception e) {
-                throw new SumarisTechnicalException(e);
-            }
+            result = Observable.<Long>defer(() -> {
+                L initialVOs = countedLoader.call().orElse(null);
+                if (initialVOs == null) return Observable.empty();
+                long initialCount = initialVOs.size();
+                hashCode.set(Long.hashCode(initialCount));
+                return Observable.just(initialCount);
+            }).concatWith(result);
         }
 
         String listenerId = computeListenerId(entityClass);
@@ -384,25 +566,6 @@ public class EntityWatchServiceImpl implements EntityWatchService {
         );
     }
 
-    /* -- protected functions -- */
-
-    protected <ID extends Serializable,
-        D extends Date,
-        T extends IUpdateDateEntity<ID, D>,
-        V extends IUpdateDateEntity<ID, D>>
-    Observable<V> watchEntityByUpdateEvent(Class<T> entityClass, Class<V> targetClass, ID id) {
-        String cacheKey = computeCacheKey(entityClass, targetClass, id);
-        int cacheDuration = minIntervalInSeconds / 2;
-        return watchEntityByUpdateEvent(entityClass, targetClass, id,
-            // We use cache to avoid to many fetch of the same entity, from many user sessions
-            cacheManager.cacheable(null,
-                    cacheKey,
-                    () -> findAndConvert(entityClass, targetClass, id),
-                    cacheDuration, TimeUnit.SECONDS)
-        );
-    }
-
-
     protected <ID extends Serializable,
         D extends Date,
         T extends IUpdateDateEntity<ID, D>,
@@ -444,26 +607,6 @@ public class EntityWatchServiceImpl implements EntityWatchService {
         });
     }
 
-    protected <K extends Serializable,
-        D extends Date,
-        T extends IUpdateDateEntity<K, D>,
-        V extends IUpdateDateEntity<K, D>>
-    Observable<V> watchEntityAtInterval(final Class<T> entityClass,
-                                        final Class<V> targetClass,
-                                        final K id,
-                                        final AtomicReference<D> lastUpdateDate,
-                                        int intervalInSecond) {
-        String cacheKey = computeCacheKey(entityClass, targetClass, id);
-        int cacheDuration = Math.round((float) Math.max(minIntervalInSeconds, intervalInSecond) / 2);
-        return watchAtInterval(
-            // We use cache to avoid to many fetch of the same entity, from many user sessions
-            cacheManager.cacheable(null,
-                    cacheKey,
-                    () -> findNewerById(entityClass, targetClass, id, lastUpdateDate.get()),
-                    cacheDuration, TimeUnit.SECONDS),
-            intervalInSecond);
-    }
-
     protected <V> Observable<V> watchAtInterval(@NonNull final Callable<Optional<V>> getter, int intervalInSecond) {
 
         Preconditions.checkArgument(intervalInSecond >= minIntervalInSeconds, "Invalid interval: " + intervalInSecond);
@@ -485,6 +628,32 @@ public class EntityWatchServiceImpl implements EntityWatchService {
         );
     }
 
+    /**
+     * Compute the key of a shared watch. The filter is serialized, so the key is immutable (loaders may update the filter)
+     * and compared by value. The authenticated user is part of the key, as loaders can depend on user's rights.
+     * @return the key, or null if the filter cannot be serialized (the watch should not be shared)
+     */
+    protected WatchKey computeWatchKey(@NonNull Class<?> entityClass,
+                                       @NonNull Object filter,
+                                       boolean startWithActualValue) {
+        try {
+            return new WatchKey(
+                computeListenerId(entityClass),
+                filter.getClass().getName() + objectMapper.writeValueAsString(filter),
+                securityContext.flatMap(ISecurityContext::getAuthenticatedUsername).orElse(null),
+                startWithActualValue
+            );
+        } catch (JsonProcessingException e) {
+            log.warn("Cannot share the watch on {}, because filter cannot be serialized: {}", computeListenerId(entityClass), e.getMessage());
+            return null;
+        }
+    }
+
+    protected int getSubscriberCount(Object watchKey) {
+        SharedWatch<?> watch = sharedWatches.get(watchKey);
+        return watch != null ? watch.subscriberCount.get() : 0;
+    }
+
     protected String computeListenerId(@NonNull Class<?> entityClass, @NonNull Serializable id) {
         return computeListenerId(entityClass.getSimpleName(), id);
     }
@@ -613,4 +782,41 @@ public class EntityWatchServiceImpl implements EntityWatchService {
         );
     }
 
+    protected record WatchKey(@NonNull String listenerId,
+                              @NonNull String filter,
+                              @Nullable String principal,
+                              boolean startWithActualValue) {
+
+        protected WatchKey forCount() {
+            return new WatchKey("count:" + listenerId, filter, principal, startWithActualValue);
+        }
+
+        @Override
+        public String toString() {
+            return Joiner.on('|').useForNull("").join(listenerId, filter, principal, startWithActualValue);
+        }
+    }
+
+    @Getter
+    protected static class SharedWatch<V> {
+        private final Object key;
+        private final AtomicInteger subscriberCount = new AtomicInteger(0);
+        private final AtomicLong dbHitCount = new AtomicLong(0);
+        private final AtomicLong eventCount = new AtomicLong(0);
+        private volatile long lastEventTime = 0L;
+        private Observable<Timed<V>> observable;
+
+        protected SharedWatch(Object key) {
+            this.key = key;
+        }
+
+        protected void markEvent() {
+            eventCount.incrementAndGet();
+            lastEventTime = System.currentTimeMillis();
+        }
+
+        protected boolean hasEventSince(int seconds) {
+            return lastEventTime > 0 && (System.currentTimeMillis() - lastEventTime) < seconds * 1000L;
+        }
+    }
 }
@@ -27,6 +27,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.Serializable;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -45,4 +46,10 @@ public interface TrashService {
 
     long count(String entityName);
 
+    /**
+     * Remove entities deleted before the given date
+     * @return the number of removed entities
+     */
+    int purge(String entityName, Date deletedBefore);
+
 }
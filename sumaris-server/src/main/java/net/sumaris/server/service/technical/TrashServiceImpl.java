@@ -23,9 +23,7 @@
 package net.sumaris.server.service.technical;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -48,7 +46,6 @@ import net.sumaris.core.model.data.Trip;
 import net.sumaris.core.util.Files;
 import net.sumaris.core.util.StringUtils;
 import net.sumaris.core.vo.data.OperationVO;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.io.FileUtils;
 import org.nuiton.i18n.I18n;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -60,12 +57,11 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Service("trashService")
 @RequiredArgsConstructor
@@ -74,7 +70,7 @@ import java.util.stream.Stream;
 public class TrashServiceImpl implements TrashService, EntityEventService.Listener {
 
     private static final String CLASS_FILE_NAME = "class.info";
-    private static final String FILE_PREFIX_PARENT = "%s#%s_";
+    private static final String PARENT_KEY_FORMAT = "%s#%s";
     private static final String JSON_FILE_EXTENSION = "json";
 
     private boolean enable;
@@ -87,13 +83,15 @@ public class TrashServiceImpl implements TrashService, EntityEventService.Listen
 
     private EntityEventService.Disposable entityEventSubscription = null;
 
+    private final Map<String, TrashStore> stores = new ConcurrentHashMap<>();
+
 
     @Override
     public <V> Page<V> findAll(@NonNull String entityName, @NonNull Pageable pageable, Class<? extends V> clazz) {
 
         // Make sure sort attribute is updateDate
-        // This is because we don't want to deserialize all files, then sort, but we prefer sort on file date,
-        // then only deserialize files from the current page
+        // This is because we don't want to deserialize all entities, then sort, but we prefer sort on deletion date (from the index),
+        // then only deserialize entities from the current page
         String sortAttribute = IUpdateDateEntity.Fields.UPDATE_DATE;
         if (pageable.getSort() != null && pageable.getSort().isSorted()) {
             sortAttribute = pageable.getSort().stream().map(Sort.Order::getProperty)
@@ -106,45 +104,18 @@ public class TrashServiceImpl implements TrashService, EntityEventService.Listen
         // Get sort direction
         boolean isDescending = SortDirection.fromSort(pageable.getSort()).orElse(SortDirection.DESC) == SortDirection.DESC;
 
-        File directory = new File(trashDirectory, entityName);
-        if (!directory.isDirectory()) return Page.empty(); // If not exists = empty
-        if (!directory.canRead()) throw new SumarisTechnicalException("Cannot read the trash directory " + entityName);
+        TrashStore store = getStore(entityName, false);
+        if (store == null) return Page.empty(); // If not exists = empty
 
-        // Get all files in trash
-        List<File> files = FileUtils.listFiles(directory, new String[]{JSON_FILE_EXTENSION}, false).stream()
-            // Sort by date
-            .sorted((f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()) * (isDescending ? -1 : 1))
-            .toList();
+        // Read the page from the index
+        int total = store.count();
+        List<TrashStore.Content> contents = store.readPage((int)pageable.getOffset(), pageable.getPageSize(), isDescending);
 
-        // Slice result
-        int total = files.size();
-        int fromIndex = (int)pageable.getOffset();
-        int endIndex = Math.min(fromIndex + pageable.getPageSize(), total);
-        Stream<File> fileStream = files.subList(fromIndex, endIndex).stream();
-
-        // If only string is expected: return file content
-        Stream<V> result;
-        if (clazz != null && String.class.isAssignableFrom(clazz)) {
-            result = fileStream.map(file -> {
-                try {
-                    return Files.readContent(file, Files.CHARSET_UTF8);
-                }
-                catch(IOException e) {
-                    return null; // Keep null, because of page's total
-                }
-            })
-            .map(content -> (V)content);
-        }
-        else {
-            // Create readers for each classes
-            List<ObjectReader> readers = getObjectReaders(directory, clazz);
-
-            // Try to deserialize
-            result = fileStream.map(file -> readAsObject(file, readers, clazz)
-                    // Keep null values (e.g. when cannot deserialize), because of page's total
-                    .orElse(null));
-        }
-        return new PageImpl<>(result.collect(Collectors.toList()), pageable, total);
+        // Keep null values (e.g. when cannot deserialize), because of page's total
+        List<V> result = contents.stream()
+            .map(content -> this.<V>readEntry(content, clazz).orElse(null))
+            .collect(Collectors.toList());
+        return new PageImpl<>(result, pageable, total);
     }
 
     @Override
@@ -160,61 +131,59 @@ public class TrashServiceImpl implements TrashService, EntityEventService.Listen
 
     @Override
     public <V> Optional<V> findById(String entityName, Serializable id, Class<? extends V> clazz) {
+        TrashStore store = getStore(entityName, false);
+        if (store == null) return Optional.empty();
 
-        File directory = new File(trashDirectory, entityName);
-        if (!directory.isDirectory()) return Optional.empty();
-        if (!directory.canRead()) throw new SumarisTechnicalException("Cannot read the trash directory " + entityName);
-
-        // Compute the file
-        File file = new File(directory, getFileBasename(entityName, id));
-
-        // Read as String
-        if (clazz != null && String.class.isAssignableFrom(clazz)) {
-            try {
-                return Optional.of((V) Files.readContent(file, Files.CHARSET_UTF8));
-            }
-            catch(IOException e) {
-                return Optional.empty();
-            }
-        }
-
-        // Read as object
-        else {
-            return readAsObject(file, clazz);
-        }
+        return store.findContent(String.valueOf(id))
+            .flatMap(content -> readEntry(content, clazz));
     }
 
     @Override
     public void delete(String entityName, Serializable id) {
-        File directory = new File(trashDirectory, entityName);
-        if (!directory.isDirectory()) return; // Not exists (or already deleted)
-        if (!directory.canRead()) throw new SumarisTechnicalException("Cannot read the trash directory " + entityName);
-
-        // Compute the file
-        String filename = getFileBasename(entityName, id);
+        TrashStore store = getStore(entityName, false);
+        if (store == null) return; // Not exists (or already deleted)
 
         if (log.isInfoEnabled()) {
-            log.info("Delete {}#{} from trash {path: '{}/{}'}", entityName, id, entityName, filename);
+            log.info("Delete {}#{} from trash", entityName, id);
         }
 
-        File file = new File(directory, filename);
-        Files.deleteQuietly(file);
+        try {
+            store.remove(String.valueOf(id));
+        }
+        catch (IOException e) {
+            throw new SumarisTechnicalException(String.format("Cannot delete %s#%s from trash: %s", entityName, id, e.getMessage()), e);
+        }
     }
 
     @Override
     public long count(String entityName) {
         Preconditions.checkNotNull(entityName);
-        File directory = new File(trashDirectory, entityName);
-        if (!directory.isDirectory()) return 0L; // If not exists = empty
-        checkCanRead(directory);
+        TrashStore store = getStore(entityName, false);
+        if (store == null) return 0L; // If not exists = empty
+
+        return store.count();
+    }
 
-        // Get all files in trash
-        return FileUtils.listFiles(directory, new String[]{JSON_FILE_EXTENSION}, false).size();
+    @Override
+    public int purge(@NonNull String entityName, @NonNull Date deletedBefore) {
+        TrashStore store = getStore(entityName, false);
+        if (store == null) return 0; // If not exists = empty
+
+        try {
+            int count = store.purge(deletedBefore.getTime());
+            if (count > 0) log.info("Purged {} {} from trash (deleted before {})", count, entityName, deletedBefore);
+            return count;
+        }
+        catch (IOException e) {
+            throw new SumarisTechnicalException(String.format("Cannot purge trash of %s: %s", entityName, e.getMessage()), e);
+        }
     }
 
     @EventListener({ConfigurationReadyEvent.class, ConfigurationUpdatedEvent.class})
     public void onConfigurationReady(ConfigurationEvent event) {
-        this.trashDirectory = configuration.getTrashDirectory();
+        File trashDirectory = configuration.getTrashDirectory();
+        if (!Objects.equals(trashDirectory, this.trashDirectory)) stores.clear();
+        this.trashDirectory = trashDirectory;
         boolean enable = configuration.enableEntityTrash() && this.trashDirectory != null;
         boolean changed = enable != this.enable;
 
@@ -261,6 +230,7 @@ public class TrashServiceImpl implements TrashService, EntityEventService.Listen
     }
 
     protected void stop() {
+        stores.clear();
         if (this.entityEventSubscription != null) {
             this.entityEventSubscription.dispose();
             this.entityEventSubscription = null;
@@ -269,8 +239,6 @@ public class TrashServiceImpl implements TrashService, EntityEventService.Listen
     }
 
     protected void onEntityDeleted(IValueObject<?> data) {
-         // Skip
-
         Preconditions.checkNotNull(data);
 
         String entityName = data.getClass().getSimpleName();
@@ -278,42 +246,86 @@ public class TrashServiceImpl implements TrashService, EntityEventService.Listen
             entityName = entityName.substring(0, entityName.length() - 2);
         }
 
+        if (log.isInfoEnabled()) {
+            log.info("Add {}#{} to trash", entityName, data.getId());
+        }
+
         try {
-            File directory = new File(trashDirectory, entityName);
-            FileUtils.forceMkdir(directory);
-
-            // Read classes from class.info file
-            File classFile = new File(directory, CLASS_FILE_NAME);
-            String dataClassName = data.getClass().getCanonicalName();
-            List<String> classNames = classFile.exists()
-                    ? FileUtils.readLines(classFile, Files.CHARSET_UTF8)
-                    : ImmutableList.of();
-            // Append the current class (if need)
-            if (!classNames.contains(dataClassName)) {
-                try (FileWriter writer = new FileWriter(classFile, classFile.exists())) {
-                    writer.write(dataClassName + "\n");
-                    writer.flush();
-                }
-            }
+            byte[] content = objectMapper.writeValueAsBytes(data);
+            getStore(entityName, true).append(String.valueOf(data.getId()),
+                data.getClass().getCanonicalName(),
+                getParentKey(data),
+                content,
+                System.currentTimeMillis());
+        }
+        catch(IOException e) {
+            log.error("Cannot serialize entity to trash: " + e.getMessage(), e);
+            throw new SumarisTechnicalException("Cannot serialize entity to trash: " + e.getMessage(), e);
+        }
+    }
 
-            String filename = StringUtils.trimToEmpty(getFilePrefix(data))
-                    + getFileBasename(entityName, data.getId());
-            File file = new File(directory, filename);
+    /**
+     * Get (or open) the trash store of an entity. Legacy JSON files (one file by entity) are moved into the store.
+     * @param create should create the store, if not exists ?
+     * @return null if not exists, and create=false
+     */
+    protected TrashStore getStore(@NonNull String entityName, boolean create) {
+        TrashStore store = stores.get(entityName);
+        if (store != null) return store;
 
-            if (log.isInfoEnabled()) {
-                log.info("Add {}#{} to trash {path: '{}/{}'}", entityName, data.getId(), entityName, filename);
-            }
+        File directory = new File(trashDirectory, entityName);
+        if (!create && !directory.isDirectory()) return null;
 
-            try (FileWriter writer = new FileWriter(file)) {
-                objectMapper.writeValue(writer, data);
+        return stores.computeIfAbsent(entityName, key -> {
+            try {
+                if (directory.exists()) checkCanRead(directory);
+                TrashStore newStore = TrashStore.open(directory);
+                importLegacyFiles(directory, newStore);
+                return newStore;
             }
-            catch(IOException e) {
-                log.error("Cannot serialize entity to trash file: " + e.getMessage(), e);
-                throw new SumarisTechnicalException("Cannot serialize entity to trash file: " + e.getMessage(), e);
+            catch (IOException e) {
+                throw new SumarisTechnicalException("Cannot open the trash directory " + entityName + ": " + e.getMessage(), e);
             }
-        }
-        catch(IOException e) {
-            throw new SumarisTechnicalException("Error while processing deleted entity: " + e.getMessage(), e);
+        });
+    }
+
+    /**
+     * Move JSON files (old trash format) into the store
+     */
+    protected void importLegacyFiles(File directory, TrashStore store) throws IOException {
+        Collection<File> files = FileUtils.listFiles(directory, new String[]{JSON_FILE_EXTENSION}, false);
+        if (files.isEmpty()) return;
+
+        log.info("Moving {} files from trash directory {} into segments...", files.size(), directory.getName());
+        File classFile = new File(directory, CLASS_FILE_NAME);
+        Set<Class<?>> classes = classFile.exists() ? readFileContentAsClasses(classFile) : ImmutableSet.of();
+
+        List<File> sortedFiles = files.stream()
+            .sorted(Comparator.comparingLong(File::lastModified))
+            .toList();
+        for (File file : sortedFiles) {
+            String filename = file.getName();
+            int idStartIndex = filename.lastIndexOf('#') + 1;
+            int parentKeyEndIndex = filename.lastIndexOf('_', idStartIndex);
+            String id = filename.substring(idStartIndex, filename.length() - JSON_FILE_EXTENSION.length() - 1);
+            String parentKey = parentKeyEndIndex > 0 ? filename.substring(0, parentKeyEndIndex) : null;
+
+            // Find the class, using the first one able to read the file
+            String className = classes.stream()
+                .filter(clazz -> {
+                    try {
+                        objectMapper.readerFor(clazz).readValue(file);
+                        return true;
+                    } catch (Throwable t) {
+                        return false;
+                    }
+                })
+                .map(Class::getCanonicalName)
+                .findFirst()
+                .orElse(null);
+
+            store.append(id, className, parentKey, java.nio.file.Files.readAllBytes(file.toPath()), file.lastModified());
+            Files.deleteQuietly(file);
         }
     }
 
@@ -333,13 +345,13 @@ public class TrashServiceImpl implements TrashService, EntityEventService.Listen
         if (!directory.canWrite()) throw new SumarisTechnicalException("Cannot write into directory: " + directory);
     }
 
-    protected String getFilePrefix(IValueObject data) {
+    protected String getParentKey(IValueObject data) {
         if (data instanceof OperationVO) {
             OperationVO ope = (OperationVO)data;
             Integer tripId = ope.getTripId() != null ? ope.getTripId() :
                     (ope.getTrip() != null ? ope.getTrip().getId() : null);
             return tripId != null
-                    ? String.format(FILE_PREFIX_PARENT, "Trip", tripId)
+                    ? String.format(PARENT_KEY_FORMAT, "Trip", tripId)
                     : null;
         }
         return null;
@@ -368,77 +380,36 @@ public class TrashServiceImpl implements TrashService, EntityEventService.Listen
 
     /* -- -- */
 
-    protected String getFileBasename(String entityName, Serializable id) {
-        return new StringBuilder()
-                .append(entityName.toLowerCase())
-                .append('#')
-                .append(id)
-                .append('.').append(JSON_FILE_EXTENSION)
-                .toString();
-    }
-
-    protected List<ObjectReader> getObjectReaders(File directory, Class<?> clazz) {
-        File classFile = new File(directory, CLASS_FILE_NAME);
-        Set<Class<?>> classes = null;
-        if (clazz != null) {
-            classes = ImmutableSet.of(clazz);
-        }
-        else if (classFile.exists()) {
-            classes = readFileContentAsClasses(classFile);
-        }
-        Preconditions.checkArgument(CollectionUtils.isNotEmpty(classes), "Missing or invalid file " + classFile.getAbsolutePath());
-
-        // Create readers for each classes
-        return classes.stream()
-                .map(c -> objectMapper.reader().forType(c))
-                .collect(Collectors.toList());
-    }
     /**
-     * Try to deserialize using a list of readers, and return the first valid object.
-     * @param file
+     * Read an entry, as string (JSON content) or as object
+     * @param source
      * @param clazz
      * @param <V>
      * @return
      */
-    protected <V> Optional<V> readAsObject(File file,
-                                 Class<? extends V> clazz) {
-        List<ObjectReader> readers = getObjectReaders(file.getParentFile(), clazz);
-        return readAsObject(file, readers, clazz);
-    }
-
-    /**
-     * Try to deserialize using a list of readers, and return the first valid object.
-     * @param file
-     * @param readers
-     * @param clazz
-     * @param <V>
-     * @return
-     */
-    protected <V> Optional<V> readAsObject(File file,
-                                 List<ObjectReader> readers,
-                                 Class<? extends V> clazz) {
-
-        // Keep null values (e.g. when cannot deserialize), because of page's total
-        return readers.stream().map(reader -> {
-            try {
-                // Deserialize file content
-                Object vo = reader.readValue(file);
-
-                // Not the expected class
-                if (clazz != null && !clazz.isInstance(vo)) return null;
+    protected <V> Optional<V> readEntry(TrashStore.Content source,
+                                        Class<? extends V> clazz) {
+        TrashStore.Entry entry = source.entry();
+        byte[] content = source.content();
+        if (content == null) return Optional.empty(); // Cannot be read (already logged)
+        try {
+            // If only string is expected: return JSON content
+            if (clazz != null && String.class.isAssignableFrom(clazz)) {
+                return Optional.of((V) new String(content, Files.CHARSET_UTF8));
+            }
 
-                // Override update date, with file date (=deletion date)
-                if (vo instanceof IUpdateDateEntity) {
-                    Date lastModified = new Date(file.lastModified());
-                    ((IUpdateDateEntity<?, Date>) vo).setUpdateDate(lastModified);
-                }
+            // Deserialize, using the expected class, or the stored one
+            Class<?> targetClass = clazz != null ? clazz : Class.forName(entry.className());
+            Object vo = objectMapper.readerFor(targetClass).readValue(content);
 
-                return (V)vo;
-            } catch (Throwable t) {
-                return null;
+            // Override update date, with deletion date
+            if (vo instanceof IUpdateDateEntity) {
+                ((IUpdateDateEntity<?, Date>) vo).setUpdateDate(new Date(entry.deletionTime()));
             }
-        })
-        .filter(Objects::nonNull)
-        .findFirst();
+            return Optional.of((V) vo);
+        } catch (Throwable t) {
+            log.warn("Cannot read {} from trash: {}", entry.id(), t.getMessage());
+            return Optional.empty();
+        }
     }
 }
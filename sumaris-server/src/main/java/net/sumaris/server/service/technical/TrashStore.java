@@ -0,0 +1,474 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.server.service.technical;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.util.Files;
+import net.sumaris.core.util.StringUtils;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Trash content of an entity, stored as append-only compressed segments, with an in-memory index.
+ * <p>
+ * Each deleted entity is appended (deflated) to the current segment file. Its position is written
+ * into an append-only index file, replayed at startup. Removed entities are only removed from the index:
+ * a segment file is deleted when it has no more live entities, and segments are compacted when
+ * they contain more removed data than live data. Segments without live entities (e.g. left by a crash
+ * during a compaction) are deleted when the store is opened.
+ * </p>
+ */
+@Slf4j
+public class TrashStore {
+
+    public static final String INDEX_FILE_NAME = "index.log";
+    public static final String SEGMENT_FILE_PREFIX = "segment-";
+    public static final String SEGMENT_FILE_EXTENSION = ".dat";
+
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 32L * 1024 * 1024; // 32MB
+
+    private static final char ADD = '+';
+    private static final char REMOVE = '-';
+    private static final char SEPARATOR = '\t';
+
+    public record Entry(String id, long deletionTime, int segment, long offset, int length,
+                        @Nullable String className, @Nullable String parentKey) {
+    }
+
+    /**
+     * An entry, with its uncompressed content (null if cannot be read)
+     */
+    public record Content(Entry entry, @Nullable byte[] content) {
+    }
+
+    public static TrashStore open(@NonNull File directory) throws IOException {
+        return open(directory, DEFAULT_MAX_SEGMENT_SIZE);
+    }
+
+    public static TrashStore open(@NonNull File directory, long maxSegmentSize) throws IOException {
+        TrashStore store = new TrashStore(directory, maxSegmentSize);
+        store.load();
+        return store;
+    }
+
+    private final File directory;
+    private final long maxSegmentSize;
+
+    // Sorted by deletion time
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Entry> entriesById = new HashMap<>();
+    private final Map<Integer, Long> liveSizeBySegment = new HashMap<>();
+    private long deadSize = 0L;
+    private int currentSegment = 0;
+    private long currentSegmentSize = 0L;
+
+    protected TrashStore(File directory, long maxSegmentSize) {
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    public synchronized int count() {
+        return entries.size();
+    }
+
+    /**
+     * Get a page of entries, sorted by deletion time
+     */
+    public synchronized List<Entry> getEntries(int offset, int size, boolean descending) {
+        int total = entries.size();
+        if (offset >= total || size <= 0) return Collections.emptyList();
+        int endIndex = Math.min(offset + size, total);
+        List<Entry> result = new ArrayList<>(endIndex - offset);
+        for (int i = offset; i < endIndex; i++) {
+            result.add(entries.get(descending ? total - 1 - i : i));
+        }
+        return result;
+    }
+
+    /**
+     * Get a page of entries with their content, sorted by deletion time. Entries and contents are read under the
+     * same lock, so that a concurrent compaction cannot move the segments in between
+     */
+    public synchronized List<Content> readPage(int offset, int size, boolean descending) {
+        return getEntries(offset, size, descending).stream()
+            .map(this::readQuietly)
+            .toList();
+    }
+
+    public synchronized Optional<Entry> find(@NonNull String id) {
+        return Optional.ofNullable(entriesById.get(id));
+    }
+
+    /**
+     * Find an entry, and read its content (under the same lock)
+     */
+    public synchronized Optional<Content> findContent(@NonNull String id) {
+        return find(id).map(this::readQuietly);
+    }
+
+    /**
+     * Read (and uncompress) the content of an entry
+     */
+    public synchronized byte[] read(@NonNull Entry entry) throws IOException {
+        return readContent(entry);
+    }
+
+    public synchronized Entry append(@NonNull String id, @Nullable String className, @Nullable String parentKey,
+                                     byte[] content, long deletionTime) throws IOException {
+        byte[] compressed = compress(content);
+
+        // Rotate segment, if full
+        if (currentSegmentSize > 0 && currentSegmentSize + compressed.length > maxSegmentSize) {
+            currentSegment++;
+            currentSegmentSize = 0L;
+        }
+
+        // Write content, at the end of the segment file
+        File segmentFile = getSegmentFile(currentSegment);
+        Entry entry = new Entry(id, deletionTime, currentSegment, segmentFile.length(), compressed.length,
+            StringUtils.trimToNull(className), StringUtils.trimToNull(parentKey));
+        try (OutputStream os = new FileOutputStream(segmentFile, true)) {
+            os.write(compressed);
+        }
+        catch (IOException e) {
+            // A partial write may have occurred: next offsets should follow the actual file length
+            currentSegmentSize = segmentFile.length();
+            throw e;
+        }
+        currentSegmentSize = entry.offset() + compressed.length;
+
+        // Write index
+        appendToIndex(List.of(formatAdd(entry)));
+
+        // Replace previous entry, if any
+        Entry previousEntry = entriesById.get(id);
+        if (previousEntry != null) removeFromMemory(previousEntry);
+        addToMemory(entry);
+        deleteEmptySegments();
+
+        return entry;
+    }
+
+    /**
+     * Remove an entry
+     * @return false if not found
+     */
+    public synchronized boolean remove(@NonNull String id) throws IOException {
+        Entry entry = entriesById.get(id);
+        if (entry == null) return false;
+
+        appendToIndex(List.of(REMOVE + String.valueOf(SEPARATOR) + id));
+        removeFromMemory(entry);
+        deleteEmptySegments();
+        compactIfNeed();
+        return true;
+    }
+
+    /**
+     * Remove all entries deleted before the given time
+     * @return the number of removed entries
+     */
+    public synchronized int purge(long deletedBefore) throws IOException {
+        // Entries are sorted by time: find the first entry to keep
+        int count = 0;
+        while (count < entries.size() && entries.get(count).deletionTime() < deletedBefore) count++;
+        if (count == 0) return 0;
+
+        List<Entry> removedEntries = new ArrayList<>(entries.subList(0, count));
+        entries.subList(0, count).clear();
+        removedEntries.forEach(entry -> {
+            entriesById.remove(entry.id());
+            liveSizeBySegment.merge(entry.segment(), (long) -entry.length(), Long::sum);
+            deadSize += entry.length();
+        });
+
+        // Rewrite the index, then delete unused segments
+        writeIndex();
+        deleteEmptySegments();
+        compactIfNeed();
+        return count;
+    }
+
+    /**
+     * Rewrite live entries into new segments, then delete old segments
+     */
+    public synchronized void compact() throws IOException {
+        if (deadSize == 0L) return; // Nothing to compact
+        long startTime = System.currentTimeMillis();
+        Set<Integer> oldSegments = new HashSet<>(liveSizeBySegment.keySet());
+        oldSegments.add(currentSegment);
+
+        // Copy live entries
+        int segment = currentSegment + 1;
+        long segmentSize = 0L;
+        List<Entry> newEntries = new ArrayList<>(entries.size());
+        OutputStream os = null;
+        try {
+            for (Entry entry : entries) {
+                if (os == null || (segmentSize > 0 && segmentSize + entry.length() > maxSegmentSize)) {
+                    if (os != null) {
+                        os.close();
+                        segment++;
+                        segmentSize = 0L;
+                    }
+                    os = new FileOutputStream(getSegmentFile(segment), true);
+                }
+                byte[] compressed = new byte[entry.length()];
+                try (RandomAccessFile file = new RandomAccessFile(getSegmentFile(entry.segment()), "r")) {
+                    file.seek(entry.offset());
+                    file.readFully(compressed);
+                }
+                os.write(compressed);
+                newEntries.add(new Entry(entry.id(), entry.deletionTime(), segment, segmentSize, entry.length(),
+                    entry.className(), entry.parentKey()));
+                segmentSize += entry.length();
+            }
+        } finally {
+            if (os != null) os.close();
+        }
+
+        // Switch to new entries
+        entries.clear();
+        entriesById.clear();
+        liveSizeBySegment.clear();
+        deadSize = 0L;
+        currentSegment = segment;
+        currentSegmentSize = segmentSize;
+        newEntries.forEach(this::addToMemory);
+        writeIndex();
+
+        // Delete old segments
+        oldSegments.stream()
+            .filter(oldSegment -> oldSegment != currentSegment)
+            .map(this::getSegmentFile)
+            .forEach(Files::deleteQuietly);
+
+        log.info("Trash {} compacted in {}ms ({} entities)", directory.getName(), System.currentTimeMillis() - startTime, entries.size());
+    }
+
+    /* -- protected functions -- */
+
+    protected byte[] readContent(Entry entry) throws IOException {
+        byte[] compressed = new byte[entry.length()];
+        try (RandomAccessFile file = new RandomAccessFile(getSegmentFile(entry.segment()), "r")) {
+            file.seek(entry.offset());
+            file.readFully(compressed);
+        }
+        try (InputStream is = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            return is.readAllBytes();
+        }
+    }
+
+    protected Content readQuietly(Entry entry) {
+        try {
+            return new Content(entry, readContent(entry));
+        } catch (IOException e) {
+            log.warn("Cannot read {} from trash {}: {}", entry.id(), directory.getName(), e.getMessage());
+            return new Content(entry, null);
+        }
+    }
+
+    protected void load() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory.getAbsolutePath());
+        }
+
+        // Find the last segment
+        File[] segmentFiles = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_FILE_PREFIX) && name.endsWith(SEGMENT_FILE_EXTENSION));
+        if (segmentFiles != null) {
+            for (File segmentFile : segmentFiles) {
+                int segment = parseSegment(segmentFile.getName());
+                if (segment >= currentSegment) {
+                    currentSegment = segment;
+                    currentSegmentSize = segmentFile.length();
+                }
+            }
+        }
+
+        // Replay the index
+        File indexFile = getIndexFile();
+        Map<String, Entry> liveEntriesById = new LinkedHashMap<>();
+        if (indexFile.exists()) replayIndex(indexFile, liveEntriesById);
+
+        // Sort by deletion time
+        liveEntriesById.values().stream()
+            .sorted(Comparator.comparingLong(Entry::deletionTime))
+            .forEach(this::addToMemory);
+
+        // Delete orphan segments (e.g. left by a crash during a compaction)
+        long totalSize = 0L;
+        if (segmentFiles != null) {
+            for (File segmentFile : segmentFiles) {
+                int segment = parseSegment(segmentFile.getName());
+                if (liveSizeBySegment.containsKey(segment)) {
+                    totalSize += segmentFile.length();
+                }
+                else {
+                    log.warn("Deleting orphan segment {} in trash {}", segmentFile.getName(), directory.getName());
+                    Files.deleteQuietly(segmentFile);
+                    if (segment == currentSegment) currentSegmentSize = 0L;
+                }
+            }
+        }
+
+        // Compute removed size
+        long liveSize = liveSizeBySegment.values().stream().mapToLong(Long::longValue).sum();
+        deadSize = Math.max(0L, totalSize - liveSize);
+    }
+
+    protected void replayIndex(File indexFile, Map<String, Entry> liveEntriesById) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), Files.CHARSET_UTF8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                try {
+                    String[] parts = line.split(String.valueOf(SEPARATOR), -1);
+                    if (parts[0].charAt(0) == ADD) {
+                        Entry entry = new Entry(parts[1], Long.parseLong(parts[2]), Integer.parseInt(parts[3]),
+                            Long.parseLong(parts[4]), Integer.parseInt(parts[5]),
+                            StringUtils.trimToNull(parts[6]), StringUtils.trimToNull(parts[7]));
+                        liveEntriesById.remove(entry.id());
+                        liveEntriesById.put(entry.id(), entry);
+                    }
+                    else if (parts[0].charAt(0) == REMOVE) {
+                        liveEntriesById.remove(parts[1]);
+                    }
+                } catch (RuntimeException e) {
+                    // Can occur if the last write has been interrupted
+                    log.warn("Skipping invalid line in trash index {}: {}", indexFile.getAbsolutePath(), line);
+                }
+            }
+        }
+    }
+
+    protected void addToMemory(Entry entry) {
+        // Insert sorted (most of the time, at the end)
+        int index = entries.size();
+        while (index > 0 && entries.get(index - 1).deletionTime() > entry.deletionTime()) index--;
+        entries.add(index, entry);
+        entriesById.put(entry.id(), entry);
+        liveSizeBySegment.merge(entry.segment(), (long) entry.length(), Long::sum);
+    }
+
+    protected void removeFromMemory(Entry entry) {
+        entriesById.remove(entry.id());
+        // Search from the time position
+        int index = Collections.binarySearch(entries, entry, Comparator.comparingLong(Entry::deletionTime));
+        if (index < 0 || !entries.get(index).equals(entry)) {
+            index = entries.indexOf(entry);
+        }
+        if (index >= 0) entries.remove(index);
+        liveSizeBySegment.merge(entry.segment(), (long) -entry.length(), Long::sum);
+        deadSize += entry.length();
+    }
+
+    protected void deleteEmptySegments() {
+        liveSizeBySegment.entrySet().removeIf(segmentSize -> {
+            int segment = segmentSize.getKey();
+            if (segmentSize.getValue() > 0L || segment == currentSegment) return false;
+            File segmentFile = getSegmentFile(segment);
+            deadSize = Math.max(0L, deadSize - segmentFile.length());
+            Files.deleteQuietly(segmentFile);
+            return true;
+        });
+    }
+
+    protected void compactIfNeed() throws IOException {
+        long liveSize = liveSizeBySegment.values().stream().mapToLong(Long::longValue).sum();
+        if (deadSize > maxSegmentSize && deadSize > liveSize) {
+            compact();
+        }
+    }
+
+    protected void appendToIndex(List<String> lines) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(getIndexFile(), true), Files.CHARSET_UTF8))) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Write a new index file, with only live entries
+     */
+    protected void writeIndex() throws IOException {
+        File tempFile = new File(directory, INDEX_FILE_NAME + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), Files.CHARSET_UTF8))) {
+            for (Entry entry : entries) {
+                writer.write(formatAdd(entry));
+                writer.write('\n');
+            }
+        }
+        java.nio.file.Files.move(tempFile.toPath(), getIndexFile().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    protected String formatAdd(Entry entry) {
+        return new StringBuilder()
+            .append(ADD).append(SEPARATOR)
+            .append(entry.id()).append(SEPARATOR)
+            .append(entry.deletionTime()).append(SEPARATOR)
+            .append(entry.segment()).append(SEPARATOR)
+            .append(entry.offset()).append(SEPARATOR)
+            .append(entry.length()).append(SEPARATOR)
+            .append(StringUtils.trimToEmpty(entry.className())).append(SEPARATOR)
+            .append(StringUtils.trimToEmpty(entry.parentKey()))
+            .toString();
+    }
+
+    protected byte[] compress(byte[] content) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, content.length / 4));
+            try (DeflaterOutputStream dos = new DeflaterOutputStream(bos, deflater)) {
+                dos.write(content);
+            }
+            return bos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    protected File getIndexFile() {
+        return new File(directory, INDEX_FILE_NAME);
+    }
+
+    protected File getSegmentFile(int segment) {
+        return new File(directory, String.format("%s%05d%s", SEGMENT_FILE_PREFIX, segment, SEGMENT_FILE_EXTENSION));
+    }
+
+    protected int parseSegment(String fileName) {
+        try {
+            return Integer.parseInt(fileName.substring(SEGMENT_FILE_PREFIX.length(), fileName.length() - SEGMENT_FILE_EXTENSION.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -24,13 +24,18 @@ package net.sumaris.server.http.graphql.data;
 
 import com.google.common.collect.ImmutableMap;
 import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.service.data.OperationGroupService;
+import net.sumaris.core.vo.data.TripVO;
 import net.sumaris.core.vo.data.activity.ActivityCalendarVO;
 import net.sumaris.core.vo.filter.ActivityCalendarFilterVO;
+import net.sumaris.core.vo.filter.TripFilterVO;
 import net.sumaris.server.DatabaseFixtures;
 import net.sumaris.server.DatabaseResource;
 import net.sumaris.server.http.graphql.AbstractGraphQLServiceTest;
 import org.junit.*;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 
 import java.util.ArrayList;
 
@@ -43,6 +48,9 @@ public class DataGraphQLServiceTest extends AbstractGraphQLServiceTest {
     @Autowired
     protected DatabaseFixtures fixtures;
 
+    @SpyBean
+    protected OperationGroupService operationGroupService;
+
     @Before
     public void setUp() throws Exception {
         super.setUp();
@@ -87,4 +95,21 @@ public class DataGraphQLServiceTest extends AbstractGraphQLServiceTest {
         }
     }
 
+    @Test
+    public void findAllTripsWithMetiers() {
+        Assume.assumeTrue(authenticate("admin@sumaris.net", "admin"));
+
+        ArrayList<TripVO> trips = getResponse("trips", ArrayList.class, TripVO.class, asObjectNode(
+            ImmutableMap.<String, Object>builder()
+                .put("filter", TripFilterVO.builder().build())
+                .build()));
+        Assert.assertNotNull(trips);
+        Assume.assumeTrue(trips.size() > 1);
+        trips.forEach(trip -> Assert.assertNotNull(trip.getMetiers()));
+
+        // Metiers of all trips should be loaded at once (by the data loader)
+        Mockito.verify(operationGroupService, Mockito.times(1)).getMetiersByTripIds(Mockito.anyCollection());
+        Mockito.verify(operationGroupService, Mockito.never()).getMetiersByTripId(Mockito.anyInt());
+    }
+
 }
@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+
+package net.sumaris.server.http.rest;
+
+import net.sumaris.core.vo.data.ImageAttachmentFetchOptions;
+import net.sumaris.core.vo.data.ImageAttachmentVO;
+import net.sumaris.server.config.SumarisServerConfiguration;
+import net.sumaris.server.service.administration.ImageBlobCache;
+import net.sumaris.server.service.administration.ImageService;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ImageRestControllerTest {
+
+    private static final int IMAGE_ID = 1;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ImageService imageService;
+
+    private ImageRestController controller;
+
+    @Before
+    public void setUp() throws IOException {
+        SumarisServerConfiguration configuration = mock(SumarisServerConfiguration.class);
+        when(configuration.getCacheDirectory()).thenReturn(folder.newFolder("cache"));
+
+        ImageAttachmentVO image = new ImageAttachmentVO();
+        image.setId(IMAGE_ID);
+        image.setUpdateDate(new Date(1000L));
+        image.setContentType("image/png");
+        image.setContent(Base64.encodeBase64String(image(300, 200)));
+        imageService = mock(ImageService.class);
+        when(imageService.find(eq(IMAGE_ID), any())).thenReturn(image);
+
+        controller = new ImageRestController();
+        ReflectionTestUtils.setField(controller, "imageService", imageService);
+        ReflectionTestUtils.setField(controller, "imageBlobCache", new ImageBlobCache(configuration));
+        ReflectionTestUtils.setField(controller, "configuration", configuration);
+    }
+
+    @Test
+    public void getImageNotModified() throws IOException {
+        assertNotModified(null);
+    }
+
+    @Test
+    public void getThumbnailNotModified() throws IOException {
+        assertNotModified(100);
+    }
+
+    /* -- protected functions -- */
+
+    protected void assertNotModified(Integer size) throws IOException {
+        // First call: should return the image, with an ETag
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseEntity<?> entity = controller.getImage(IMAGE_ID, size, new ServletWebRequest(new MockHttpServletRequest(), response));
+        Assert.assertNotNull(entity);
+        Assert.assertEquals(HttpStatus.OK, entity.getStatusCode());
+        String eTag = entity.getHeaders().getETag();
+        Assert.assertNotNull(eTag);
+
+        // Same ETag: should return 304, without loading the content again
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        response = new MockHttpServletResponse();
+        entity = controller.getImage(IMAGE_ID, size, new ServletWebRequest(request, response));
+        Assert.assertNull(entity);
+        Assert.assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        Assert.assertEquals(eTag, response.getHeader(HttpHeaders.ETAG));
+        verify(imageService, never()).find(IMAGE_ID, ImageAttachmentFetchOptions.WITH_CONTENT);
+
+        // Other ETag: should return the image
+        request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        entity = controller.getImage(IMAGE_ID, size, new ServletWebRequest(request, new MockHttpServletResponse()));
+        Assert.assertNotNull(entity);
+        Assert.assertEquals(HttpStatus.OK, entity.getStatusCode());
+        Assert.assertEquals(eTag, entity.getHeaders().getETag());
+    }
+
+    protected byte[] image(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bos);
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+
+package net.sumaris.server.http.rest;
+
+import net.sumaris.core.service.referential.ReferentialService;
+import net.sumaris.core.vo.referential.ReferentialVO;
+import net.sumaris.server.service.referential.ReferentialSnapshotService;
+import net.sumaris.server.service.referential.ReferentialSnapshotServiceTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.sumaris.server.http.rest.ReferentialSnapshotRestController.FROM_VERSION_HEADER;
+import static net.sumaris.server.http.rest.ReferentialSnapshotRestController.VERSION_HEADER;
+
+public class ReferentialSnapshotRestControllerTest {
+
+    private static final String ENTITY_NAME = "Location";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<ReferentialVO> rows = new ArrayList<>();
+
+    private ReferentialSnapshotService service;
+
+    private ReferentialSnapshotRestController controller;
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 1; i <= 20; i++) {
+            rows.add(newReferential(i, "Label " + i));
+        }
+        ReferentialService referentialService = ReferentialSnapshotServiceTest.mockReferentialService(rows);
+        service = ReferentialSnapshotServiceTest.createService(folder.newFolder("cache"), referentialService, 10);
+        controller = new ReferentialSnapshotRestController(service);
+    }
+
+    @Test
+    public void getFullSnapshot() {
+        long version = service.getVersions().get(ENTITY_NAME);
+
+        ResponseEntity<?> entity = controller.getSnapshot(ENTITY_NAME, null, newRequest(null));
+        Assert.assertNotNull(entity);
+        Assert.assertEquals(HttpStatus.OK, entity.getStatusCode());
+        Assert.assertEquals(String.valueOf(version), entity.getHeaders().getFirst(VERSION_HEADER));
+        Assert.assertEquals("0", entity.getHeaders().getFirst(FROM_VERSION_HEADER));
+        Assert.assertNotNull(entity.getHeaders().getETag());
+
+        // Unknown entity, or restricted entity: not found
+        Assert.assertEquals(HttpStatus.NOT_FOUND, controller.getSnapshot("Gear", null, newRequest(null)).getStatusCode());
+        Assert.assertEquals(HttpStatus.NOT_FOUND, controller.getSnapshot("Program", null, newRequest(null)).getStatusCode());
+        Assert.assertFalse(controller.getVersions().getBody().containsKey("Program"));
+    }
+
+    @Test
+    public void getNotModified() {
+        long version = service.getVersions().get(ENTITY_NAME);
+
+        // Since the last version: 304
+        ResponseEntity<?> entity = controller.getSnapshot(ENTITY_NAME, version, newRequest(null));
+        Assert.assertNotNull(entity);
+        Assert.assertEquals(HttpStatus.NOT_MODIFIED, entity.getStatusCode());
+        Assert.assertEquals(String.valueOf(version), entity.getHeaders().getFirst(VERSION_HEADER));
+
+        // Same ETag: 304
+        String eTag = controller.getSnapshot(ENTITY_NAME, null, newRequest(null)).getHeaders().getETag();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        entity = controller.getSnapshot(ENTITY_NAME, null, new ServletWebRequest(newServletRequest(eTag), response));
+        Assert.assertNull(entity);
+        Assert.assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+
+        // Content changed: the previous ETag should not match anymore
+        rows.remove(0);
+        service.build(ENTITY_NAME);
+        entity = controller.getSnapshot(ENTITY_NAME, null, newRequest(eTag));
+        Assert.assertNotNull(entity);
+        Assert.assertEquals(HttpStatus.OK, entity.getStatusCode());
+        Assert.assertNotEquals(eTag, entity.getHeaders().getETag());
+
+        // The previous version is not the last version anymore
+        entity = controller.getSnapshot(ENTITY_NAME, version, newRequest(null));
+        Assert.assertEquals(HttpStatus.OK, entity.getStatusCode());
+    }
+
+    @Test
+    public void getDeltaOrFull() {
+        long v1 = service.getVersions().get(ENTITY_NAME);
+        rows.set(0, newReferential(1, "Updated label"));
+        rows.add(newReferential(21, "Label 21"));
+        long v2 = service.build(ENTITY_NAME).orElseThrow().version();
+
+        // Delta from the previous version
+        ResponseEntity<?> entity = controller.getSnapshot(ENTITY_NAME, v1, newRequest(null));
+        Assert.assertEquals(HttpStatus.OK, entity.getStatusCode());
+        Assert.assertEquals(String.valueOf(v1), entity.getHeaders().getFirst(FROM_VERSION_HEADER));
+        Assert.assertEquals(String.valueOf(v2), entity.getHeaders().getFirst(VERSION_HEADER));
+
+        // Unknown version: fallback to the full snapshot
+        entity = controller.getSnapshot(ENTITY_NAME, 12345L, newRequest(null));
+        Assert.assertEquals(HttpStatus.OK, entity.getStatusCode());
+        Assert.assertEquals("0", entity.getHeaders().getFirst(FROM_VERSION_HEADER));
+        Assert.assertEquals(String.valueOf(v2), entity.getHeaders().getFirst(VERSION_HEADER));
+    }
+
+    /* -- protected functions -- */
+
+    protected ServletWebRequest newRequest(String ifNoneMatch) {
+        return new ServletWebRequest(newServletRequest(ifNoneMatch), new MockHttpServletResponse());
+    }
+
+    protected MockHttpServletRequest newServletRequest(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (ifNoneMatch != null) request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        return request;
+    }
+
+    protected ReferentialVO newReferential(int id, String label) {
+        return ReferentialSnapshotServiceTest.newReferential(id, label);
+    }
+}
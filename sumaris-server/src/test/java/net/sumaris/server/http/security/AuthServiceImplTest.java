@@ -0,0 +1,149 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+
+package net.sumaris.server.http.security;
+
+import net.sumaris.core.event.entity.EntityDeleteEvent;
+import net.sumaris.core.event.entity.EntityEventService;
+import net.sumaris.core.model.administration.user.UserToken;
+import net.sumaris.core.model.referential.StatusEnum;
+import net.sumaris.core.service.administration.PersonService;
+import net.sumaris.core.util.crypto.CryptoUtils;
+import net.sumaris.core.vo.administration.user.PersonVO;
+import net.sumaris.core.vo.administration.user.UserTokenVO;
+import net.sumaris.server.config.SumarisServerConfiguration;
+import net.sumaris.server.service.administration.AccountService;
+import net.sumaris.server.service.crypto.ServerCryptoService;
+import net.sumaris.server.util.security.AuthTokenVO;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class AuthServiceImplTest {
+
+    private static final String PUBKEY_1 = "5ocqzyDMMWf1V8bsoNhWb1iNwax1e9M7VTUN6navs8of";
+    private static final String PUBKEY_2 = "2ny7YAdmzReQxAayyJZsyVYwYhVyax2thKcGknmQy5nQ";
+
+    private AccountService accountService;
+
+    private AuthServiceImpl service;
+
+    private ValidationExpiredCacheMap<AuthUserDetails> checkedTokens;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        SumarisServerConfiguration config = mock(SumarisServerConfiguration.class);
+        when(config.enableAuthToken()).thenReturn(true);
+        accountService = mock(AccountService.class);
+
+        service = new AuthServiceImpl(new MockEnvironment(),
+            mock(ServerCryptoService.class),
+            accountService,
+            mock(PersonService.class),
+            mock(EntityEventService.class),
+            config);
+        checkedTokens = (ValidationExpiredCacheMap<AuthUserDetails>) ReflectionTestUtils.getField(service, "checkedTokens");
+
+        addToken("token1", PUBKEY_1);
+        addToken("token2", PUBKEY_1);
+        addToken("token3", PUBKEY_2);
+    }
+
+    @Test
+    public void onUserTokenDeleteEvent() {
+        // Event sent by another node: only the token hash
+        UserTokenVO data = new UserTokenVO();
+        data.setId(1);
+        data.setPubkey(PUBKEY_1);
+        data.setTokenHash(CryptoUtils.sha256Hex("token1"));
+        service.onUserTokenDeleteEvent(new EntityDeleteEvent(1, UserToken.class.getSimpleName(), data));
+
+        Assert.assertFalse(isCached("token1"));
+        Assert.assertTrue(isCached("token2"));
+        Assert.assertTrue(isCached("token3"));
+
+        // Without hash (or unknown hash): should not remove anything
+        service.onUserTokenDeleteEvent(new EntityDeleteEvent(2, UserToken.class.getSimpleName(), new UserTokenVO()));
+        data.setTokenHash(CryptoUtils.sha256Hex("unknown"));
+        service.onUserTokenDeleteEvent(new EntityDeleteEvent(3, UserToken.class.getSimpleName(), data));
+        service.onUserTokenDeleteEvent(new EntityDeleteEvent(4, UserToken.class.getSimpleName(), null));
+        Assert.assertEquals(2, checkedTokens.size());
+
+        // Tokens should never be used as key (only their hash)
+        Assert.assertNull(checkedTokens.get("token2"));
+    }
+
+    @Test
+    public void cleanCacheForUser() {
+        // Enabled user: should evict its tokens from the cache, but keep them in the database
+        service.cleanCacheForUser(person(PUBKEY_1, StatusEnum.ENABLE));
+        Assert.assertFalse(isCached("token1"));
+        Assert.assertFalse(isCached("token2"));
+        Assert.assertTrue(isCached("token3"));
+        verify(accountService, never()).deleteAllTokensByPubkey(anyString());
+
+        // Disabled user: should also delete its tokens, in the database
+        service.cleanCacheForUser(person(PUBKEY_2, StatusEnum.DISABLE));
+        Assert.assertFalse(isCached("token3"));
+        Assert.assertEquals(0, checkedTokens.size());
+        verify(accountService, times(1)).deleteAllTokensByPubkey(PUBKEY_2);
+    }
+
+    @Test
+    public void cleanCacheForUserWithoutPubkey() {
+        service.cleanCacheForUser(person(null, StatusEnum.DISABLE));
+        Assert.assertEquals(3, checkedTokens.size());
+        verify(accountService, never()).deleteAllTokensByPubkey(anyString());
+    }
+
+    /* -- protected functions -- */
+
+    protected void addToken(String token, String pubkey) {
+        AuthTokenVO authData = AuthTokenVO.builder()
+            .pubkey(pubkey)
+            .challenge("challenge-" + token)
+            .signature("signature-" + token)
+            .build();
+        checkedTokens.add(service.toTokenKey(token), new AuthUserDetails(authData, List.of()));
+    }
+
+    protected boolean isCached(String token) {
+        return checkedTokens.contains(service.toTokenKey(token));
+    }
+
+    protected PersonVO person(String pubkey, StatusEnum status) {
+        PersonVO person = new PersonVO();
+        person.setId(1);
+        person.setPubkey(pubkey);
+        person.setStatusId(status.getId());
+        return person;
+    }
+}
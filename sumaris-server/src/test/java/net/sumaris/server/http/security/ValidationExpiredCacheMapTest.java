@@ -0,0 +1,99 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+
+package net.sumaris.server.http.security;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.Map;
+
+public class ValidationExpiredCacheMapTest {
+
+    @Test
+    public void removeIf() {
+        ValidationExpiredCacheMap<UserDetails> cache = new ValidationExpiredCacheMap<>(60);
+        cache.add("token1", user("user1"));
+        cache.add("token2", user("user1"));
+        cache.add("token3", user("user2"));
+
+        Assert.assertEquals(2, cache.removeIf(details -> "user1".equals(details.getUsername())));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertFalse(cache.contains("token1"));
+        Assert.assertFalse(cache.contains("token2"));
+        Assert.assertTrue(cache.contains("token3"));
+
+        // No match
+        Assert.assertEquals(0, cache.removeIf(details -> "unknown".equals(details.getUsername())));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void getStats() {
+        ValidationExpiredCacheMap<UserDetails> cache = new ValidationExpiredCacheMap<>(60, 100);
+        cache.add("token1", user("user1"));
+        Assert.assertNotNull(cache.get("token1"));
+        Assert.assertNotNull(cache.get("token1"));
+        Assert.assertNull(cache.get("unknown"));
+
+        Map<String, Long> stats = cache.getStats();
+        Assert.assertEquals(1L, stats.get("size").longValue());
+        Assert.assertEquals(100L, stats.get("maxSize").longValue());
+        Assert.assertEquals(2L, stats.get("hitCount").longValue());
+        Assert.assertEquals(1L, stats.get("missCount").longValue());
+        Assert.assertEquals(0L, stats.get("evictionCount").longValue());
+
+        // Unbounded cache: no statistics
+        ValidationExpiredCacheMap<UserDetails> unbounded = new ValidationExpiredCacheMap<>(60);
+        unbounded.add("token1", user("user1"));
+        unbounded.get("token1");
+        stats = unbounded.getStats();
+        Assert.assertEquals(-1L, stats.get("maxSize").longValue());
+        Assert.assertEquals(0L, stats.get("hitCount").longValue());
+    }
+
+    @Test
+    public void evictWhenMaxSize() {
+        int maxSize = 10;
+        ValidationExpiredCacheMap<UserDetails> cache = new ValidationExpiredCacheMap<>(60, maxSize);
+        for (int i = 0; i < 100; i++) {
+            cache.add("token" + i, user("user" + i));
+            Assert.assertTrue(cache.size() <= maxSize);
+        }
+
+        // Evicted entries should be counted
+        Map<String, Long> stats = cache.getStats();
+        Assert.assertTrue(stats.get("size") > 0);
+        Assert.assertEquals(100L - stats.get("size"), stats.get("evictionCount").longValue());
+
+        // Last added entry should be kept
+        Assert.assertTrue(cache.contains("token99"));
+    }
+
+    private UserDetails user(String username) {
+        return new User(username, "", List.of());
+    }
+}
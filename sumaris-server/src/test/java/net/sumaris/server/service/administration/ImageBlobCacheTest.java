@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+
+package net.sumaris.server.service.administration;
+
+import net.sumaris.server.config.SumarisServerConfiguration;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ImageBlobCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SumarisServerConfiguration configuration;
+
+    private ImageBlobCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        configuration = mock(SumarisServerConfiguration.class);
+        when(configuration.getCacheDirectory()).thenReturn(folder.newFolder("cache"));
+        cache = new ImageBlobCache(configuration);
+    }
+
+    @Test
+    public void toThumbnailSize() {
+        Assert.assertNull(ImageBlobCache.toThumbnailSize(null));
+        Assert.assertNull(ImageBlobCache.toThumbnailSize(0));
+        Assert.assertNull(ImageBlobCache.toThumbnailSize(-10));
+        Assert.assertEquals(64, ImageBlobCache.toThumbnailSize(1).intValue());
+        Assert.assertEquals(64, ImageBlobCache.toThumbnailSize(64).intValue());
+        Assert.assertEquals(128, ImageBlobCache.toThumbnailSize(65).intValue());
+        Assert.assertEquals(1024, ImageBlobCache.toThumbnailSize(1000).intValue());
+
+        // Larger than the max thumbnail size: no thumbnail
+        Assert.assertNull(ImageBlobCache.toThumbnailSize(1025));
+    }
+
+    @Test
+    public void getThumbnail() throws IOException {
+        ImageBlobCache.Blob source = cache.put("image:1:1000", image(300, 200, "png"), "image/png");
+
+        ImageBlobCache.Blob thumbnail = cache.getThumbnail(source, 128);
+        Assert.assertNotEquals(source.file(), thumbnail.file());
+        Assert.assertTrue(thumbnail.file().exists());
+        Assert.assertEquals(source.hash(), thumbnail.hash());
+        Assert.assertEquals("image/png", thumbnail.contentType());
+        Assert.assertEquals(128, thumbnail.size().intValue());
+
+        // Should keep the ratio
+        BufferedImage image = ImageIO.read(thumbnail.file());
+        Assert.assertEquals(128, image.getWidth());
+        Assert.assertEquals(85, image.getHeight());
+
+        // Second call: should reuse the same file
+        long lastModified = thumbnail.file().lastModified();
+        ImageBlobCache.Blob thumbnail2 = cache.getThumbnail(source, 128);
+        Assert.assertEquals(thumbnail.file(), thumbnail2.file());
+        Assert.assertEquals(lastModified, thumbnail2.file().lastModified());
+
+        // Other formats are converted into JPEG
+        ImageBlobCache.Blob bmpSource = cache.put(null, image(300, 300, "bmp"), "image/bmp");
+        ImageBlobCache.Blob bmpThumbnail = cache.getThumbnail(bmpSource, 64);
+        Assert.assertEquals("image/jpeg", bmpThumbnail.contentType());
+        Assert.assertEquals(64, ImageIO.read(bmpThumbnail.file()).getWidth());
+    }
+
+    @Test
+    public void getThumbnailOfSmallImage() throws IOException {
+        // Already smaller than the thumbnail: should return the source
+        ImageBlobCache.Blob source = cache.put("image:1:1000", image(50, 40, "png"), "image/png");
+        Assert.assertSame(source, cache.getThumbnail(source, 64));
+
+        // Not an image: should return the source
+        ImageBlobCache.Blob svg = cache.put("image:2:1000", "<svg></svg>".getBytes(), "image/svg+xml");
+        Assert.assertSame(svg, cache.getThumbnail(svg, 64));
+    }
+
+    @Test
+    public void getETag() throws IOException {
+        byte[] content = image(300, 200, "png");
+        ImageBlobCache.Blob blob1 = cache.put("image:1:1000", content, "image/png");
+        ImageBlobCache.Blob blob2 = cache.put("image:2:1000", content, "image/png");
+
+        // Same content: same ETag
+        Assert.assertEquals(blob1.hash(), blob2.hash());
+        Assert.assertEquals(blob1.getETag(), blob2.getETag());
+        Assert.assertTrue(blob1.getETag().startsWith("\"") && blob1.getETag().endsWith("\""));
+
+        // Stable, after a restart
+        ImageBlobCache otherCache = new ImageBlobCache(configuration);
+        Assert.assertEquals(blob1.getETag(), otherCache.findByRef("image:1:1000").orElseThrow().getETag());
+
+        // Thumbnails have their own ETag
+        String thumbnailETag = cache.getThumbnail(blob1, 128).getETag();
+        Assert.assertNotEquals(blob1.getETag(), thumbnailETag);
+        Assert.assertEquals(thumbnailETag, cache.getThumbnail(blob1, 128).getETag());
+
+        // Other content: other ETag
+        ImageBlobCache.Blob other = cache.put("image:1:2000", image(300, 201, "png"), "image/png");
+        Assert.assertNotEquals(blob1.getETag(), other.getETag());
+    }
+
+    @Test
+    public void cleanUp() throws IOException {
+        long now = System.currentTimeMillis();
+        long oldDate = now - TimeUnit.DAYS.toMillis(60);
+
+        // Old reference (e.g. image updated since)
+        ImageBlobCache.Blob oldBlob = cache.put("image:1:1000", image(300, 200, "png"), "image/png");
+        File oldThumbnail = cache.getThumbnail(oldBlob, 64).file();
+        setLastModified(oldDate, cache.getRefFile("image:1:1000"), oldBlob.file(), oldThumbnail);
+
+        // Recent reference, to an old blob
+        ImageBlobCache.Blob referencedBlob = cache.put("image:2:1000", image(100, 100, "png"), "image/png");
+        setLastModified(oldDate, referencedBlob.file());
+
+        // Old blob, without reference
+        ImageBlobCache.Blob unreferencedBlob = cache.put(null, image(100, 101, "png"), "image/png");
+        setLastModified(oldDate, unreferencedBlob.file());
+
+        // Recent blob, without reference
+        ImageBlobCache.Blob recentBlob = cache.put(null, image(100, 102, "png"), "image/png");
+
+        cache.cleanUp(TimeUnit.DAYS.toMillis(30), 0);
+
+        Assert.assertTrue(cache.findByRef("image:1:1000").isEmpty());
+        Assert.assertFalse(oldBlob.file().exists());
+        Assert.assertFalse(oldThumbnail.exists());
+        Assert.assertTrue(cache.findByRef("image:2:1000").isPresent());
+        Assert.assertFalse(unreferencedBlob.file().exists());
+        Assert.assertTrue(recentBlob.file().exists());
+    }
+
+    @Test
+    public void cleanUpBySize() throws IOException {
+        long now = System.currentTimeMillis();
+        ImageBlobCache.Blob[] blobs = new ImageBlobCache.Blob[5];
+        for (int i = 0; i < blobs.length; i++) {
+            blobs[i] = cache.put("image:" + i + ":1000", image(100, 100 + i, "bmp"), "image/bmp");
+            setLastModified(now - TimeUnit.MINUTES.toMillis(blobs.length - i), blobs[i].file());
+        }
+        long blobSize = blobs[0].file().length();
+
+        // Keep only the 2 most recent blobs
+        cache.cleanUp(0, blobSize * 2 + blobSize / 2);
+
+        for (int i = 0; i < blobs.length; i++) {
+            Assert.assertEquals(i >= 3, blobs[i].file().exists());
+            Assert.assertEquals(i >= 3, cache.findByRef("image:" + i + ":1000").isPresent());
+        }
+    }
+
+    /* -- protected functions -- */
+
+    protected byte[] image(int width, int height, String formatName) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(width / 2, height / 2, 0xFF0000);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Assert.assertTrue(ImageIO.write(image, formatName, bos));
+        return bos.toByteArray();
+    }
+
+    protected void setLastModified(long time, File... files) {
+        for (File file : files) {
+            Assert.assertTrue(file.setLastModified(time));
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+
+package net.sumaris.server.service.referential;
+
+import net.sumaris.core.event.config.ConfigurationReadyEvent;
+import net.sumaris.core.service.referential.ReferentialService;
+import net.sumaris.core.vo.referential.ReferentialVO;
+import net.sumaris.server.config.SumarisServerConfiguration;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ReferentialSnapshotServiceTest {
+
+    static final String ENTITY_NAME = "Location";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<ReferentialVO> rows = new ArrayList<>();
+
+    private ReferentialService referentialService;
+
+    @Before
+    public void setUp() {
+        rows.clear();
+        for (int i = 1; i <= 20; i++) {
+            rows.add(newReferential(i, "Label " + i));
+        }
+        referentialService = mockReferentialService(rows);
+    }
+
+    @Test
+    public void buildSkipIfUnchanged() throws IOException {
+        ReferentialSnapshotService service = createService(folder.newFolder("node"), referentialService, 10);
+
+        ReferentialSnapshotService.SnapshotFile v1 = service.build(ENTITY_NAME).orElse(null);
+        Assert.assertNotNull(v1);
+        Assert.assertFalse(v1.isDelta());
+        Assert.assertTrue(v1.file().exists());
+        Assert.assertEquals(v1.version(), service.getVersions().get(ENTITY_NAME).longValue());
+        verify(referentialService, times(1)).findByFilterNoCache(eq(ENTITY_NAME), any(), anyInt(), anyInt(), any(), any(), any());
+
+        // Same update date and count: should not load rows again
+        ReferentialSnapshotService.SnapshotFile same = service.build(ENTITY_NAME).orElse(null);
+        Assert.assertNotNull(same);
+        Assert.assertEquals(v1.version(), same.version());
+        verify(referentialService, times(1)).findByFilterNoCache(eq(ENTITY_NAME), any(), anyInt(), anyInt(), any(), any(), any());
+
+        // New update date, but same content: should keep the same version
+        when(referentialService.getLastUpdateDate(anyCollection())).thenReturn(new Date(System.currentTimeMillis()));
+        same = service.build(ENTITY_NAME).orElse(null);
+        Assert.assertNotNull(same);
+        Assert.assertEquals(v1.version(), same.version());
+        verify(referentialService, times(2)).findByFilterNoCache(eq(ENTITY_NAME), any(), anyInt(), anyInt(), any(), any(), any());
+        Assert.assertFalse(service.findDelta(ENTITY_NAME, v1.version()).isPresent());
+    }
+
+    @Test
+    public void sameVersionOnAllNodes() throws IOException {
+        // Two nodes, with their own cache directory, reading the same database
+        ReferentialSnapshotService node1 = createService(folder.newFolder("node1"), referentialService, 10);
+        ReferentialSnapshotService node2 = createService(folder.newFolder("node2"), referentialService, 10);
+        long v1 = node1.build(ENTITY_NAME).orElseThrow().version();
+        Assert.assertEquals(v1, node2.build(ENTITY_NAME).orElseThrow().version());
+
+        // Delete a row (no new update date): both nodes should produce the same new version
+        rows.remove(0);
+        long v2 = node1.build(ENTITY_NAME).orElseThrow().version();
+        Assert.assertNotEquals(v1, v2);
+        Assert.assertEquals(v2, node2.build(ENTITY_NAME).orElseThrow().version());
+
+        // A node that missed a version: should still agree on the content version
+        ReferentialSnapshotService node3 = createService(folder.newFolder("node3"), referentialService, 10);
+        Assert.assertEquals(v2, node3.build(ENTITY_NAME).orElseThrow().version());
+
+        // Same ETag, for the same content
+        Assert.assertEquals(node1.findSnapshot(ENTITY_NAME).orElseThrow().getETag(), node3.findSnapshot(ENTITY_NAME).orElseThrow().getETag());
+    }
+
+    @Test
+    public void findDeltaOrFull() throws IOException {
+        ReferentialSnapshotService service = createService(folder.newFolder("node"), referentialService, 10);
+        ReferentialSnapshotService.SnapshotFile v1 = service.build(ENTITY_NAME).orElseThrow();
+
+        // Update, delete and insert rows
+        rows.set(1, newReferential(2, "Updated label"));
+        rows.remove(2);
+        rows.add(newReferential(21, "Label 21"));
+        ReferentialSnapshotService.SnapshotFile v2 = service.build(ENTITY_NAME).orElseThrow();
+        Assert.assertNotEquals(v1.version(), v2.version());
+
+        // Delta from the previous version
+        ReferentialSnapshotService.SnapshotFile delta = service.findDelta(ENTITY_NAME, v1.version()).orElse(null);
+        Assert.assertNotNull(delta);
+        Assert.assertTrue(delta.isDelta());
+        Assert.assertEquals(v1.version(), delta.fromVersion());
+        Assert.assertEquals(v2.version(), delta.version());
+
+        // Apply the delta (as a client will do): should give the last full snapshot
+        ReferentialSnapshots.Snapshot result = ReferentialSnapshots.apply(
+            ReferentialSnapshots.read(v1.file()), ReferentialSnapshots.read(delta.file()));
+        Assert.assertTrue(result.hasSameRecords(ReferentialSnapshots.read(v2.file())));
+        Assert.assertEquals(3, ReferentialSnapshots.read(delta.file()).records().size() + ReferentialSnapshots.read(delta.file()).deletedIds().length);
+
+        // No delta from the last version, or from an unknown version
+        Assert.assertFalse(service.findDelta(ENTITY_NAME, v2.version()).isPresent());
+        Assert.assertFalse(service.findDelta(ENTITY_NAME, 12345L).isPresent());
+        Assert.assertEquals(v2.version(), service.findSnapshot(ENTITY_NAME).orElseThrow().version());
+
+        // Revert to the first content: should publish the first version again, with a delta from v2
+        rows.set(1, newReferential(2, "Label 2"));
+        rows.add(2, newReferential(3, "Label 3"));
+        rows.remove(rows.size() - 1);
+        ReferentialSnapshotService.SnapshotFile v3 = service.build(ENTITY_NAME).orElseThrow();
+        Assert.assertEquals(v1.version(), v3.version());
+        Assert.assertEquals(v1.version(), service.findDelta(ENTITY_NAME, v2.version()).orElseThrow().version());
+    }
+
+    @Test
+    public void cleanOldFiles() throws IOException {
+        File cacheDirectory = folder.newFolder("node");
+        ReferentialSnapshotService service = createService(cacheDirectory, referentialService, 2);
+
+        List<Long> versions = new ArrayList<>();
+        versions.add(service.build(ENTITY_NAME).orElseThrow().version());
+        for (int i = 0; i < 4; i++) {
+            rows.remove(0);
+            versions.add(service.build(ENTITY_NAME).orElseThrow().version());
+        }
+        Assert.assertEquals(5, new HashSet<>(versions).size());
+
+        // Should keep the last and previous full snapshots, and the last 2 deltas
+        File directory = new File(new File(cacheDirectory, "referential-snapshots"), ENTITY_NAME);
+        Set<String> fileNames = Arrays.stream(Objects.requireNonNull(directory.list())).collect(Collectors.toSet());
+        Assert.assertEquals(Set.of(
+            "full-" + versions.get(4) + ".bin.gz",
+            "full-" + versions.get(3) + ".bin.gz",
+            "delta-" + versions.get(3) + "-" + versions.get(4) + ".bin.gz",
+            "delta-" + versions.get(2) + "-" + versions.get(3) + ".bin.gz"
+        ), fileNames);
+
+        // Too old version: no delta (client should download the full snapshot)
+        Assert.assertFalse(service.findDelta(ENTITY_NAME, versions.get(1)).isPresent());
+        Assert.assertTrue(service.findDelta(ENTITY_NAME, versions.get(2)).isPresent());
+
+        // Restart: should load the last version from files
+        ReferentialSnapshotService restarted = createService(cacheDirectory, referentialService, 2);
+        Assert.assertEquals(versions.get(4), restarted.getVersions().get(ENTITY_NAME));
+    }
+
+    @Test
+    public void excludeProgram() throws IOException {
+        SumarisServerConfiguration configuration = mockConfiguration(folder.newFolder("node"), 10);
+        when(configuration.getReferentialSnapshotEntityNames()).thenReturn(List.of(ENTITY_NAME, "program"));
+        ReferentialSnapshotServiceImpl service = new ReferentialSnapshotServiceImpl(configuration, referentialService);
+        service.onConfigurationReady(new ConfigurationReadyEvent(configuration));
+
+        Assert.assertTrue(service.isEnabled());
+        Assert.assertEquals(Set.of(ENTITY_NAME), service.getVersions().keySet());
+        verify(referentialService, never()).count(eq("program"));
+        verify(referentialService, never()).findByFilterNoCache(eq("program"), any(), anyInt(), anyInt(), any(), any(), any());
+
+        // Only Program: should be disabled
+        when(configuration.getReferentialSnapshotEntityNames()).thenReturn(List.of("Program"));
+        service.onConfigurationReady(new ConfigurationReadyEvent(configuration));
+        Assert.assertFalse(service.isEnabled());
+    }
+
+    /* -- protected functions -- */
+
+    public static ReferentialSnapshotServiceImpl createService(File cacheDirectory, ReferentialService referentialService, int deltaCount) {
+        SumarisServerConfiguration configuration = mockConfiguration(cacheDirectory, deltaCount);
+        ReferentialSnapshotServiceImpl service = new ReferentialSnapshotServiceImpl(configuration, referentialService);
+        service.onConfigurationReady(new ConfigurationReadyEvent(configuration));
+        return service;
+    }
+
+    public static SumarisServerConfiguration mockConfiguration(File cacheDirectory, int deltaCount) {
+        SumarisServerConfiguration configuration = mock(SumarisServerConfiguration.class);
+        when(configuration.getCacheDirectory()).thenReturn(cacheDirectory);
+        when(configuration.enableReferentialSnapshot()).thenReturn(true);
+        when(configuration.getReferentialSnapshotEntityNames()).thenReturn(List.of(ENTITY_NAME));
+        when(configuration.getReferentialSnapshotDeltaCount()).thenReturn(deltaCount);
+        return configuration;
+    }
+
+    /**
+     * A referential service, reading the given rows (paged by id)
+     */
+    public static ReferentialService mockReferentialService(List<ReferentialVO> rows) {
+        ReferentialService referentialService = mock(ReferentialService.class);
+        when(referentialService.getLastUpdateDate(anyCollection())).thenAnswer(invocation -> rows.stream()
+            .map(ReferentialVO::getUpdateDate)
+            .max(Date::compareTo)
+            .orElse(null));
+        when(referentialService.count(anyString())).thenAnswer(invocation -> (long) rows.size());
+        when(referentialService.findByFilterNoCache(anyString(), any(), anyInt(), anyInt(), any(), any(), any()))
+            .thenAnswer(invocation -> {
+                int offset = invocation.getArgument(2);
+                int size = invocation.getArgument(3);
+                return rows.stream()
+                    .sorted(Comparator.comparing(ReferentialVO::getId))
+                    .skip(offset)
+                    .limit(size)
+                    .collect(Collectors.toList());
+            });
+        return referentialService;
+    }
+
+    public static ReferentialVO newReferential(int id, String label) {
+        return ReferentialVO.builder()
+            .id(id)
+            .label(label)
+            .name("Name " + id)
+            .statusId(1)
+            .updateDate(new Date(1700000000000L + id))
+            .build();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.server.service.referential;
+
+import net.sumaris.core.vo.referential.ReferentialVO;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+public class ReferentialSnapshotsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void encodeAndDecode() {
+        ReferentialVO source = ReferentialVO.builder()
+            .id(42)
+            .label("FRA")
+            .name("France \u00e9")
+            .statusId(1)
+            .levelId(1)
+            .updateDate(new Date(1700000000000L))
+            .build();
+
+        ReferentialVO target = ReferentialSnapshots.decode(ReferentialSnapshots.encode(source), "Location");
+        Assert.assertEquals("Location", target.getEntityName());
+        Assert.assertEquals(source.getId(), target.getId());
+        Assert.assertEquals(source.getLabel(), target.getLabel());
+        Assert.assertEquals(source.getName(), target.getName());
+        Assert.assertEquals(source.getStatusId(), target.getStatusId());
+        Assert.assertEquals(source.getLevelId(), target.getLevelId());
+        Assert.assertEquals(source.getUpdateDate(), target.getUpdateDate());
+        Assert.assertNull(target.getDescription());
+        Assert.assertNull(target.getParentId());
+        Assert.assertNull(target.getCreationDate());
+    }
+
+    @Test
+    public void excludeRestrictedEntities() {
+        Set<String> entityNames = ReferentialSnapshotServiceImpl.toPublicEntityNames(
+            List.of("Location", " program ", "PROGRAM", "Program", "", " Gear"));
+        Assert.assertEquals(Set.of("Location", "Gear"), entityNames);
+    }
+
+    @Test
+    public void writeDiffAndApply() throws IOException {
+        List<ReferentialVO> sources = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            sources.add(newReferential(i, "Label " + i));
+        }
+        ReferentialSnapshots.Snapshot v1 = ReferentialSnapshots.newFullSnapshot("Location", 1L, sources);
+
+        // Update, delete and insert some items
+        sources.set(9, newReferential(10, "Updated label"));
+        sources.remove(19);
+        sources.add(newReferential(1001, "Label 1001"));
+        ReferentialSnapshots.Snapshot v2 = ReferentialSnapshots.newFullSnapshot("Location", 2L, sources);
+        Assert.assertFalse(v1.hasSameRecords(v2));
+
+        ReferentialSnapshots.Snapshot delta = ReferentialSnapshots.diff(v1, v2);
+        Assert.assertTrue(delta.isDelta());
+        Assert.assertEquals(1L, delta.fromVersion());
+        Assert.assertEquals(2L, delta.version());
+        Assert.assertEquals(2, delta.records().size());
+        Assert.assertArrayEquals(new int[]{20}, delta.deletedIds());
+
+        // Write and read
+        File fullFile = new File(folder.getRoot(), "full-1.bin.gz");
+        File deltaFile = new File(folder.getRoot(), "delta-1-2.bin.gz");
+        ReferentialSnapshots.write(v1, fullFile);
+        ReferentialSnapshots.write(delta, deltaFile);
+        Assert.assertTrue(deltaFile.length() < fullFile.length());
+
+        ReferentialSnapshots.Snapshot readV1 = ReferentialSnapshots.read(fullFile);
+        ReferentialSnapshots.Snapshot readDelta = ReferentialSnapshots.read(deltaFile);
+        Assert.assertEquals("Location", readV1.entityName());
+        Assert.assertTrue(readV1.hasSameRecords(v1));
+
+        // Apply the delta (as a client will do)
+        ReferentialSnapshots.Snapshot result = ReferentialSnapshots.apply(readV1, readDelta);
+        Assert.assertEquals(2L, result.version());
+        Assert.assertTrue(result.hasSameRecords(v2));
+        Assert.assertEquals("Updated label", ReferentialSnapshots.decode(result.records().get(10), "Location").getLabel());
+    }
+
+    private ReferentialVO newReferential(int id, String label) {
+        return ReferentialVO.builder()
+            .id(id)
+            .label(label)
+            .name("Name " + id)
+            .statusId(1)
+            .levelId(id % 5)
+            .updateDate(new Date(1700000000000L + id))
+            .build();
+    }
+}
@@ -0,0 +1,322 @@
+package net.sumaris.server.service.technical;
+
+/*-
+ * #%L
+ * SUMARiS:: Server
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.rxjava3.observers.TestObserver;
+import net.sumaris.core.event.entity.EntityEventService;
+import net.sumaris.core.event.entity.EntityUpdateEvent;
+import net.sumaris.core.event.entity.IEntityEvent;
+import net.sumaris.core.exception.DataNotFoundException;
+import net.sumaris.core.model.IEntity;
+import net.sumaris.core.model.IUpdateDateEntity;
+import net.sumaris.core.model.social.UserEvent;
+import net.sumaris.core.vo.administration.user.PersonVO;
+import net.sumaris.core.vo.social.UserEventVO;
+import net.sumaris.server.security.ISecurityContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EntityWatchServiceTest {
+
+    private EntityWatchServiceImpl service;
+
+    private final TestSecurityContext securityContext = new TestSecurityContext();
+
+    private final TestEventService eventService = new TestEventService();
+
+    private final Map<Serializable, UserEventVO> entities = new ConcurrentHashMap<>();
+
+    @Before
+    public void setUp() {
+        securityContext.username = "user1";
+        entities.clear();
+        eventService.listeners.clear();
+        service = new EntityWatchServiceImpl(Optional.empty(), null, null,
+            eventService,
+            new ObjectMapper(),
+            Optional.of(securityContext)) {
+            @Override
+            @SuppressWarnings("unchecked")
+            protected <K extends Serializable, D extends Date,
+                T extends IUpdateDateEntity<K, D>,
+                V extends IUpdateDateEntity<K, D>
+                > Optional<V> findAndConvert(Class<T> entityClass, Class<V> targetClass, K id) {
+                return Optional.ofNullable((V) entities.get(id));
+            }
+        };
+    }
+
+    @Test
+    public void watchDistinctFilters() {
+        // Two distinct filters, with the same hash code
+        TestFilter filterA = new TestFilter("a");
+        TestFilter filterB = new TestFilter("b");
+        Assert.assertEquals(filterA.hashCode(), filterB.hashCode());
+
+        AtomicInteger loaderACount = new AtomicInteger();
+        AtomicInteger loaderBCount = new AtomicInteger();
+        TestObserver<List<UserEventVO>> observerA = watch(filterA, loader(1, loaderACount)).test();
+        TestObserver<List<UserEventVO>> observerB = watch(filterB, loader(2, loaderBCount)).test();
+
+        // Each subscriber should receive its own events
+        observerA.assertValueCount(1);
+        Assert.assertEquals(1, observerA.values().get(0).get(0).getId().intValue());
+        observerB.assertValueCount(1);
+        Assert.assertEquals(2, observerB.values().get(0).get(0).getId().intValue());
+        Assert.assertEquals(2, service.getWatchStatistics().size());
+
+        // Loaders update their filter: should not change the shared watch key
+        filterA.setRecipient("z");
+
+        // Same filter (other instance): should share the existing watch
+        AtomicInteger loaderCCount = new AtomicInteger();
+        TestObserver<List<UserEventVO>> observerC = watch(new TestFilter("a"), loader(3, loaderCCount)).test();
+        observerC.assertValueCount(1);
+        Assert.assertEquals(1, observerC.values().get(0).get(0).getId().intValue());
+        Assert.assertEquals(2, service.getWatchStatistics().size());
+        Assert.assertEquals(1, loaderACount.get());
+        Assert.assertEquals(0, loaderCCount.get());
+
+        // Same filter, but another user: should NOT share
+        securityContext.username = "user2";
+        TestObserver<List<UserEventVO>> observerD = watch(new TestFilter("a"), loader(4, new AtomicInteger())).test();
+        observerD.assertValueCount(1);
+        Assert.assertEquals(4, observerD.values().get(0).get(0).getId().intValue());
+        Assert.assertEquals(3, service.getWatchStatistics().size());
+
+        observerA.dispose();
+        observerB.dispose();
+        observerC.dispose();
+        observerD.dispose();
+        Assert.assertEquals(0, service.getWatchStatistics().size());
+    }
+
+    @Test
+    public void resubscribe() {
+        TestFilter filter = new TestFilter("a");
+        AtomicInteger loaderCount = new AtomicInteger();
+
+        TestObserver<List<UserEventVO>> observer = watch(filter, loader(1, loaderCount)).test();
+        observer.assertValueCount(1);
+        Assert.assertEquals(1, service.getWatchStatistics().size());
+
+        // Last subscriber has gone: the watch should be removed
+        observer.dispose();
+        Assert.assertEquals(0, service.getWatchStatistics().size());
+
+        // Subscribe again: should create a new (live) watch
+        observer = watch(filter, loader(1, loaderCount)).test();
+        observer.assertValueCount(1);
+        observer.assertNotComplete();
+        Assert.assertEquals(2, loaderCount.get());
+        Assert.assertEquals(1, service.getWatchStatistics().size());
+
+        observer.dispose();
+        Assert.assertEquals(0, service.getWatchStatistics().size());
+    }
+
+    @Test
+    public void watchMissingEntity() {
+        // Entity not exists yet: should wait for events, without error
+        TestObserver<UserEventVO> observer = service.watchEntity(UserEvent.class, UserEventVO.class, 10, null, false).test();
+        observer.assertNoErrors();
+        observer.assertNoValues();
+        observer.assertNotComplete();
+        Assert.assertEquals(1, service.getWatchStatistics().size());
+
+        // Actual value requested (same shared watch): should fail, only for this subscriber
+        TestObserver<UserEventVO> failedObserver = service.watchEntity(UserEvent.class, UserEventVO.class, 10, null, true).test();
+        failedObserver.assertError(DataNotFoundException.class);
+        observer.assertNoErrors();
+        Assert.assertEquals(1, service.getWatchStatistics().size());
+
+        // Entity created: should be received
+        UserEventVO created = new UserEventVO();
+        created.setId(10);
+        created.setUpdateDate(new Date(1000L));
+        entities.put(10, created);
+        eventService.fireUpdate(created);
+        observer.assertValueCount(1);
+        Assert.assertSame(created, observer.values().get(0));
+
+        // Same update date: should be skipped
+        eventService.fireUpdate(created);
+        observer.assertValueCount(1);
+
+        // Late subscriber, without the actual value: should skip the replayed value
+        TestObserver<UserEventVO> lateObserver = service.watchEntity(UserEvent.class, UserEventVO.class, 10, null, false).test();
+        lateObserver.assertNoValues();
+
+        // Late subscriber, with the actual value: should receive the replayed value
+        TestObserver<UserEventVO> actualObserver = service.watchEntity(UserEvent.class, UserEventVO.class, 10, null, true).test();
+        actualObserver.assertValue(created);
+
+        // Newer update: should be received by all
+        UserEventVO updated = new UserEventVO();
+        updated.setId(10);
+        updated.setUpdateDate(new Date(2000L));
+        eventService.fireUpdate(updated);
+        observer.assertValueCount(2);
+        lateObserver.assertValue(updated);
+        actualObserver.assertValueCount(2);
+
+        observer.dispose();
+        lateObserver.dispose();
+        actualObserver.dispose();
+        Assert.assertEquals(0, service.getWatchStatistics().size());
+        Assert.assertEquals(0, eventService.listeners.size());
+    }
+
+    /* -- protected functions -- */
+
+    protected io.reactivex.rxjava3.core.Observable<List<UserEventVO>> watch(TestFilter filter, Callable<Optional<List<UserEventVO>>> loader) {
+        return service.watchEntities(UserEvent.class, filter, loader, null, true);
+    }
+
+    protected Callable<Optional<List<UserEventVO>>> loader(int id, AtomicInteger counter) {
+        return () -> {
+            counter.incrementAndGet();
+            UserEventVO event = new UserEventVO();
+            event.setId(id);
+            return Optional.of(List.of(event));
+        };
+    }
+
+    public static class TestFilter {
+        private String recipient;
+
+        public TestFilter(String recipient) {
+            this.recipient = recipient;
+        }
+
+        public String getRecipient() {
+            return recipient;
+        }
+
+        public void setRecipient(String recipient) {
+            this.recipient = recipient;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestFilter other && Objects.equals(recipient, other.recipient);
+        }
+
+        @Override
+        public int hashCode() {
+            return 1; // Always collide
+        }
+    }
+
+    static class NoEventService implements EntityEventService {
+        @Override
+        public Disposable registerListener(Listener listener, Class<? extends IEntity<?>>... entityClasses) {
+            return () -> {};
+        }
+
+        @Override
+        public Disposable registerListener(Listener listener, Class<? extends IEntity<?>> entityClass, Serializable id) {
+            return () -> {};
+        }
+
+        @Override
+        public void unregisterListener(Listener listener, Class<? extends IEntity<?>>... entityClasses) {
+        }
+
+        @Override
+        public void dispatchEvent(IEntityEvent event) {
+        }
+    }
+
+    static class TestEventService extends NoEventService {
+        private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Disposable registerListener(Listener listener, Class<? extends IEntity<?>> entityClass, Serializable id) {
+            listeners.add(listener);
+            return () -> listeners.remove(listener);
+        }
+
+        void fireUpdate(UserEventVO data) {
+            EntityUpdateEvent event = new EntityUpdateEvent(data.getId(), UserEvent.class.getSimpleName(), data);
+            listeners.forEach(listener -> listener.onUpdate(event));
+        }
+    }
+
+    static class TestSecurityContext implements ISecurityContext<PersonVO> {
+        private String username;
+
+        @Override
+        public Optional<Integer> getAuthenticatedUserId() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<PersonVO> getAuthenticatedUser() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<String> getAuthenticatedUsername() {
+            return Optional.ofNullable(username);
+        }
+
+        @Override
+        public boolean hasAuthority(String authority) {
+            return false;
+        }
+
+        @Override
+        public boolean isAdmin() {
+            return false;
+        }
+
+        @Override
+        public boolean isGuest() {
+            return false;
+        }
+
+        @Override
+        public boolean isUser() {
+            return true;
+        }
+
+        @Override
+        public boolean isSupervisor() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * #%L
+ * SUMARiS
+ * %%
+ * Copyright (C) 2019 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.server.service.technical;
+
+import net.sumaris.core.util.Files;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TrashStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendAndRead() throws IOException {
+        File directory = folder.newFolder("Trip");
+        TrashStore store = TrashStore.open(directory, 1024);
+
+        for (int i = 1; i <= 100; i++) {
+            store.append(String.valueOf(i), "net.sumaris.core.vo.data.TripVO", null, json(i), 1000L + i);
+        }
+        Assert.assertEquals(100, store.count());
+
+        // Page (most recent first)
+        List<TrashStore.Entry> page = store.getEntries(10, 5, true);
+        Assert.assertEquals(5, page.size());
+        Assert.assertEquals("90", page.get(0).id());
+        Assert.assertEquals(new String(json(90), Files.CHARSET_UTF8), new String(store.read(page.get(0)), Files.CHARSET_UTF8));
+
+        // Reopen: the index should be replayed
+        store = TrashStore.open(directory, 1024);
+        Assert.assertEquals(100, store.count());
+        TrashStore.Entry entry = store.find("42").orElseThrow();
+        Assert.assertEquals(1042L, entry.deletionTime());
+        Assert.assertEquals(new String(json(42), Files.CHARSET_UTF8), new String(store.read(entry), Files.CHARSET_UTF8));
+    }
+
+    @Test
+    public void removeAndPurge() throws IOException {
+        File directory = folder.newFolder("Operation");
+        TrashStore store = TrashStore.open(directory, 1024);
+
+        for (int i = 1; i <= 200; i++) {
+            store.append(String.valueOf(i), null, "Trip#1", json(i), 1000L + i);
+        }
+
+        Assert.assertTrue(store.remove("150"));
+        Assert.assertFalse(store.remove("150"));
+        Assert.assertTrue(store.find("150").isEmpty());
+
+        // Purge the first half
+        Assert.assertEquals(100, store.purge(1101L));
+        Assert.assertEquals(99, store.count());
+        Assert.assertEquals("101", store.getEntries(0, 1, false).get(0).id());
+
+        // Compact, then reopen
+        store.compact();
+        store = TrashStore.open(directory, 1024);
+        Assert.assertEquals(99, store.count());
+        Assert.assertTrue(store.find("150").isEmpty());
+        TrashStore.Entry entry = store.find("200").orElseThrow();
+        Assert.assertEquals("Trip#1", entry.parentKey());
+        Assert.assertEquals(new String(json(200), Files.CHARSET_UTF8), new String(store.read(entry), Files.CHARSET_UTF8));
+    }
+
+    @Test
+    public void readPageDuringCompaction() throws Exception {
+        File directory = folder.newFolder("Landing");
+        TrashStore store = TrashStore.open(directory, 1024);
+        for (int i = 1; i <= 200; i++) {
+            store.append(String.valueOf(i), null, null, json(i), 1000L + i);
+        }
+
+        // Remove and compact, while reading pages
+        AtomicBoolean done = new AtomicBoolean(false);
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 1; i <= 100; i++) {
+                    store.remove(String.valueOf(i * 2));
+                    if (i % 10 == 0) store.compact();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                done.set(true);
+            }
+        });
+        writer.start();
+        do {
+            for (TrashStore.Content content : store.readPage(0, 50, true)) {
+                Assert.assertNotNull(content.content());
+                Assert.assertEquals(new String(json(Integer.parseInt(content.entry().id())), Files.CHARSET_UTF8),
+                    new String(content.content(), Files.CHARSET_UTF8));
+            }
+        } while (!done.get());
+        writer.join();
+        Assert.assertEquals(100, store.count());
+    }
+
+    @Test
+    public void appendAfterPartialWrite() throws IOException {
+        File directory = folder.newFolder("Sale");
+        TrashStore store = TrashStore.open(directory, 1024 * 1024);
+        TrashStore.Entry entry1 = store.append("1", null, null, json(1), 1001L);
+
+        // Simulate a partial write (garbage at the end of the segment)
+        File segmentFile = new File(directory, String.format("%s%05d%s", TrashStore.SEGMENT_FILE_PREFIX, entry1.segment(), TrashStore.SEGMENT_FILE_EXTENSION));
+        Assert.assertTrue(segmentFile.exists());
+        try (OutputStream os = new FileOutputStream(segmentFile, true)) {
+            os.write(new byte[]{1, 2, 3});
+        }
+
+        // Next entry should be written after the garbage
+        TrashStore.Entry entry2 = store.append("2", null, null, json(2), 1002L);
+        Assert.assertEquals(entry1.offset() + entry1.length() + 3, entry2.offset());
+        Assert.assertEquals(new String(json(2), Files.CHARSET_UTF8), new String(store.read(entry2), Files.CHARSET_UTF8));
+        Assert.assertEquals(new String(json(1), Files.CHARSET_UTF8), new String(store.read(entry1), Files.CHARSET_UTF8));
+    }
+
+    @Test
+    public void deleteOrphanSegments() throws IOException {
+        File directory = folder.newFolder("Sample");
+        TrashStore store = TrashStore.open(directory, 1024);
+        for (int i = 1; i <= 50; i++) {
+            store.append(String.valueOf(i), null, null, json(i), 1000L + i);
+        }
+
+        // Simulate a crash during a compaction: segments written, but not the index
+        File orphanFile = new File(directory, String.format("%s%05d%s", TrashStore.SEGMENT_FILE_PREFIX, 999, TrashStore.SEGMENT_FILE_EXTENSION));
+        java.nio.file.Files.write(orphanFile.toPath(), new byte[2048]);
+
+        store = TrashStore.open(directory, 1024);
+        Assert.assertFalse(orphanFile.exists());
+        Assert.assertEquals(50, store.count());
+        for (TrashStore.Content content : store.readPage(0, 50, false)) {
+            Assert.assertNotNull(content.content());
+        }
+
+        // New entries should still be readable
+        TrashStore.Entry entry = store.append("51", null, null, json(51), 1051L);
+        Assert.assertEquals(new String(json(51), Files.CHARSET_UTF8), new String(store.read(entry), Files.CHARSET_UTF8));
+    }
+
+    private static byte[] json(int id) {
+        return String.format("{\"id\":%s,\"comments\":\"Deleted trip %s\"}", id, id).getBytes(Files.CHARSET_UTF8);
+    }
+}
@@ -371,6 +371,17 @@ public class XMLQueryImpl implements XMLQuery {
         delegate.setQuery(fileURL, pManageRootElement);
     }
 
+    /**
+     * Set the query from an already parsed document (e.g. a cached template).
+     * The document is copied, so the source document is never modified.
+     *
+     * @param template the parsed query document
+     */
+    public void setQuery(@NonNull Document template) throws XMLQueryException {
+        delegate.setDocument(template.clone());
+        delegate.manageRootElement();
+    }
+
     public void addSelect(File pXmlFile) throws XMLQueryException {
         delegate.addSelect(pXmlFile);
     }
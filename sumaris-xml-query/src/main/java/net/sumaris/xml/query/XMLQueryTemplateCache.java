@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * SUMARiS:: XML Query
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.xml.query;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import net.sumaris.core.exception.SumarisTechnicalException;
+import org.jdom2.Document;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of parsed XML query files, by URL.
+ * Cached documents never leave this class: each query receives its own copy, so bindings
+ * and groups applied to a query cannot change the template.
+ *
+ * @author benoit.lavenier@e-is.pro
+ */
+@Slf4j
+public class XMLQueryTemplateCache {
+
+    private final Map<String, Document> templates = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Set the query of the given XML query, from the file at the given URL (parsed only once)
+     */
+    public void setQuery(@NonNull XMLQueryImpl target, @NonNull URL url) {
+        target.setQuery(getTemplate(url));
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * Get statistics of the cache (size, hitCount, missCount)
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("size", (long) size());
+        result.put("hitCount", getHitCount());
+        result.put("missCount", getMissCount());
+        return result;
+    }
+
+    public void clear() {
+        templates.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{size: %s, hits: %s, misses: %s}", size(), getHitCount(), getMissCount());
+    }
+
+    /* -- protected functions -- */
+
+    protected Document getTemplate(URL url) {
+        String key = url.toExternalForm();
+        Document template = templates.get(key);
+        if (template != null) {
+            hitCount.incrementAndGet();
+            return template;
+        }
+        return templates.computeIfAbsent(key, k -> {
+            missCount.incrementAndGet();
+            Document result = parse(url);
+            if (log.isDebugEnabled()) log.debug("XML query template cached {{}} - cache: {}", key, this);
+            return result;
+        });
+    }
+
+    protected Document parse(URL url) {
+        try {
+            return new SAXBuilder().build(url);
+        } catch (JDOMException | IOException e) {
+            throw new SumarisTechnicalException(String.format("Cannot parse XML query {%s}: %s", url, e.getMessage()), e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * #%L
+ * SUMARiS:: XML Query
+ * %%
+ * Copyright (C) 2018 - 2024 SUMARiS Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+package net.sumaris.xml.query;
+
+import net.sumaris.core.dao.technical.DatabaseType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+public class XMLQueryTemplateCacheTest {
+
+    private static final String QUERY = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<query type=\"select\">\n" +
+        "  <select alias=\"ID\" type=\"number\">T.ID</select>\n" +
+        "  <select alias=\"LABEL\" type=\"text\" group=\"label\">T.LABEL</select>\n" +
+        "  <from alias=\"T\">MY_TABLE</from>\n" +
+        "  <where>T.ID = &amp;id</where>\n" +
+        "</query>\n";
+
+    private XMLQueryTemplateCache cache;
+    private URL url;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = new XMLQueryTemplateCache();
+        File file = File.createTempFile("xmlQuery-", ".xml");
+        file.deleteOnExit();
+        Files.write(file.toPath(), QUERY.getBytes(StandardCharsets.UTF_8));
+        url = file.toURI().toURL();
+    }
+
+    @Test
+    public void groupNotSharedWithTemplate() {
+        XMLQueryImpl first = createQuery();
+        first.setGroup("label", false);
+        first.bind("id", "1");
+        String firstSql = first.getSQLQueryAsString();
+        Assert.assertFalse(firstSql.contains("T.LABEL"));
+
+        // Same template, without disabling the group
+        XMLQueryImpl second = createQuery();
+        second.bind("id", "2");
+        String secondSql = second.getSQLQueryAsString();
+        Assert.assertTrue(secondSql.contains("T.LABEL"));
+        Assert.assertTrue(secondSql.contains("T.ID = 2"));
+        Assert.assertFalse(secondSql.contains("T.ID = 1"));
+
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void bindingNotSharedWithTemplate() {
+        XMLQueryImpl first = createQuery();
+        first.bind("id", "1");
+        Assert.assertTrue(first.getSQLQueryAsString().contains("T.ID = 1"));
+
+        XMLQueryImpl second = createQuery();
+        second.bind("id", "3");
+        String secondSql = second.getSQLQueryAsString();
+        Assert.assertTrue(secondSql.contains("T.ID = 3"));
+        Assert.assertFalse(secondSql.contains("T.ID = 1"));
+
+        // The first query is unchanged, after the second one
+        Assert.assertTrue(first.getSQLQueryAsString().contains("T.ID = 1"));
+    }
+
+    @Test
+    public void stats() {
+        createQuery();
+        createQuery();
+        createQuery();
+
+        Map<String, Long> stats = cache.getStats();
+        Assert.assertEquals(Long.valueOf(1), stats.get("size"));
+        Assert.assertEquals(Long.valueOf(2), stats.get("hitCount"));
+        Assert.assertEquals(Long.valueOf(1), stats.get("missCount"));
+
+        cache.clear();
+        Assert.assertEquals(Long.valueOf(0), cache.getStats().get("size"));
+    }
+
+    /* -- protected functions -- */
+
+    protected XMLQueryImpl createQuery() {
+        XMLQueryImpl query = new XMLQueryImpl(DatabaseType.hsqldb);
+        cache.setQuery(query, url);
+        return query;
+    }
+}